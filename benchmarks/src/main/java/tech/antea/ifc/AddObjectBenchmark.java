@@ -0,0 +1,90 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each {@code EywaToIfcConverter.addObject} overload on its own: each
+ * invocation converts, with a new {@link EywaToIfcConverter}, all the
+ * Primitives of the given type found in the models. Their ancestors are not
+ * converted, so their placements are relative to the world coordinate system.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddObjectBenchmark {
+    private static final String[] MODEL_SETS = {"app", "geometries", "sk"};
+
+    /**
+     * Simple name of the class of the Primitives to convert, only types found
+     * in the models are listed.
+     */
+    @Param({"Beam", "Blind", "Box", "Collar", "Curve", "Dielectric", "Dish", "EccentricCone", "Empty",
+            "Endplate", "ExpansionJoint", "FaceSet", "FourWaysValve", "Instrument", "Mesh", "Nozzle",
+            "OrthoValve", "RectangularBlind", "RectangularEndplate", "RectangularFlange", "RectangularPlate",
+            "RectangularShell", "Ring", "Shell", "Sphere", "TankShell", "Tee", "ThreeWaysValve", "Valve"})
+    public String type;
+
+    private List<Primitive> primitives;
+
+    @Setup
+    public void setUp() throws IOException {
+        primitives = new ArrayList<>();
+        for (String set : MODEL_SETS) {
+            for (EywaRoot root : Models.parse(set)) {
+                for (Primitive obj : Models.primitives(root)) {
+                    if (obj.getClass().getSimpleName().equals(type)) {
+                        primitives.add(obj);
+                    }
+                }
+            }
+        }
+        if (primitives.isEmpty()) {
+            throw new IllegalStateException("no " + type + " in the models");
+        }
+    }
+
+    @Benchmark
+    public EywaToIfcConverter addObject() {
+        EywaToIfcConverter builder = new EywaToIfcConverter();
+        EywaReader director = new EywaReader(builder);
+        for (Primitive obj : primitives) {
+            director.addObject(obj);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcProject;
+import it.imc.persistence.po.eytukan.Empty;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of synthetic trees of growing size with {@link
+ * EywaToIfcConverter}. Each tree is made of a root with {@code sqrt(size)}
+ * chains of {@code sqrt(size)} Empties, so that it's both wide and deep: the
+ * time per Primitive should not grow with the size of the tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversionBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private EywaRoot root;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Models.parse("{\"object\":{\"type\":\"Empty\"}}".getBytes("UTF-8"));
+        int width = (int) Math.sqrt(size);
+        for (int i = 0; i < width; i++) {
+            Primitive last = root.getObject();
+            for (int j = 0; j < size / width; j++) {
+                Primitive child = new Empty();
+                child.setParent(last);
+                last.getChildren().add(child);
+                last = child;
+            }
+        }
+    }
+
+    @Benchmark
+    public IfcProject convertSyntheticTree() {
+        EywaToIfcConverter builder = new EywaToIfcConverter();
+        new EywaReader(builder).convert(root);
+        return builder.getResult();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.*;
+import it.imc.persistence.po.eytukan.Primitive;
+import lombok.NonNull;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+/**
+ * How placements were computed by {@link EywaToIfcConverter} before {@link
+ * PlacementTransform}, allocating new arrays and IFC entities for each
+ * intermediate result. Kept only as a baseline for {@link
+ * PlacementBenchmark}.
+ */
+final class LegacyPlacement {
+    private LegacyPlacement() {
+    }
+
+    /**
+     * @param parentPosition The coordinate system in which the placement of
+     * {@code obj} is defined.
+     * @param obj The Primitive of which to compute the placement.
+     * @return The placement of {@code obj}.
+     */
+    static IfcAxis2Placement3D resolve(@NonNull IfcAxis2Placement3D parentPosition, @NonNull Primitive obj) {
+        if (obj.getMatrix() == null && obj.getPosition() == null && obj.getRotation() == null) {
+            return parentPosition;
+        }
+        double[] eywaParentLocation = ifcToEywaVector(parentPosition.getLocation()
+                .getCoordinates().stream()
+                .mapToDouble(IfcLengthMeasure::getValue)
+                .toArray(), true);
+        double[] eywaParentAxis = ifcToEywaVector(parentPosition.getP().get(2)
+                .getDirectionRatios().stream()
+                .mapToDouble(IfcReal::getValue)
+                .toArray(), false);
+        double[] eywaParentRefDir = ifcToEywaVector(parentPosition.getP().get(0)
+                .getDirectionRatios().stream()
+                .mapToDouble(IfcReal::getValue)
+                .toArray(), false);
+        double[] location;
+        double[] axis;
+        double[] refDir;
+        if (obj.getMatrix() != null) {
+            Double[] matrix = obj.getMatrix();
+            location = eywaToIfcVector(multiply(matrix, eywaParentLocation));
+            axis = eywaToIfcVector(multiply(matrix, eywaParentAxis));
+            refDir = eywaToIfcVector(multiply(matrix, eywaParentRefDir));
+        } else {
+            Double[] position = obj.getPosition() == null
+                    ? new Double[]{0d, 0d, 0d}
+                    : obj.getPosition();
+            eywaParentLocation[0] = eywaParentLocation[0] + position[0];
+            eywaParentLocation[1] = eywaParentLocation[1] + position[1];
+            eywaParentLocation[2] = eywaParentLocation[2] + position[2];
+
+            Double[] rotationAngles = obj.getRotationArray() == null
+                    ? new Double[]{0d, 0d, 0d}
+                    : obj.getRotationArray();
+            String rotationOrder = obj.getRotationAxis() == null || obj.getRotationAxis().equals("")
+                    ? "XYZ"
+                    : obj.getRotationAxis();
+
+            rotate(eywaParentAxis, rotationAngles, rotationOrder);
+            rotate(eywaParentRefDir, rotationAngles, rotationOrder);
+
+            location = eywaToIfcVector(eywaParentLocation);
+            axis = eywaToIfcVector(eywaParentAxis);
+            refDir = eywaToIfcVector(eywaParentRefDir);
+        }
+        return new IfcAxis2Placement3D(new IfcCartesianPoint(location),
+                new IfcDirection(axis), new IfcDirection(refDir));
+    }
+
+    private static double[] multiply(Double[] matrix, double[] vector) {
+        if (matrix.length != 16) {
+            throw new IllegalArgumentException("matrix must have 16 elements");
+        }
+        if (vector.length != 4) {
+            throw new IllegalArgumentException("vector must have 4 elements");
+        }
+        double[] result = new double[4];
+        for (int i = 0; i < 4; i++) { // row index
+            result[i] = 0;
+            for (int j = 0; j < 4; j++) { // column index
+                result[i] += matrix[i + j * 4] * vector[j];
+            }
+        }
+        return result;
+    }
+
+    private static void rotate(double[] vector, Double[] rotations, String order) {
+        if (vector.length != 4) {
+            throw new IllegalArgumentException("length of vector must be 4");
+        } else if (rotations.length != 3) {
+            throw new IllegalArgumentException("length of rotations must be 3");
+        }
+        if (!order.matches("^[XYZ]{3}$")) {
+            throw new IllegalArgumentException("order must be 3 characters long and can contain only" +
+                    " the characters 'X', 'Y' and 'Z'");
+        }
+        double[] oldVector = new double[vector.length];
+        for (byte i = 0; i < order.length(); i++) {
+            double ang = rotations[i];
+            System.arraycopy(vector, 0, oldVector, 0, vector.length);
+            switch (order.charAt(i)) {
+                case 'X':
+                    vector[1] = oldVector[1] * cos(ang) - oldVector[2] * sin(ang);
+                    vector[2] = oldVector[1] * sin(ang) + oldVector[2] * cos(ang);
+                    break;
+                case 'Y':
+                    vector[0] = oldVector[0] * cos(ang) + oldVector[2] * sin(ang);
+                    vector[2] = -oldVector[0] * sin(ang) + oldVector[2] * cos(ang);
+                    break;
+                default: // Z
+                    vector[0] = oldVector[0] * cos(ang) - oldVector[1] * sin(ang);
+                    vector[1] = oldVector[0] * sin(ang) + oldVector[1] * cos(ang);
+                    break;
+            }
+        }
+    }
+
+    private static double[] ifcToEywaVector(double[] vector, boolean isPosition) {
+        double[] result = new double[4];
+        result[0] = vector[1];
+        result[1] = vector[2];
+        result[2] = vector[0];
+        result[3] = isPosition ? 1 : 0;
+        return result;
+    }
+
+    private static double[] eywaToIfcVector(double[] vector) {
+        double[] result = new double[3];
+        result[0] = vector[2];
+        result[1] = vector[0];
+        result[2] = vector[1];
+        return result;
+    }
+}
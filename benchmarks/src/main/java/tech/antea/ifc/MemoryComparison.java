@@ -0,0 +1,118 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.EywaRoot;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the heap retained by the models of each set when read as {@link
+ * EywaRoot}s and as {@link EywaModel}s. Retained memory isn't measured by JMH,
+ * so this is run by its own main method, with the names of the sets to
+ * compare as arguments ("app", "geometries" and "sk" by default).
+ */
+public final class MemoryComparison {
+    private static final String[] DEFAULT_SETS = {"app", "geometries", "sk"};
+    /**
+     * Maximum number of garbage collections requested before measuring the
+     * used heap, which stops as soon as it doesn't decrease anymore.
+     */
+    private static final int MAX_GCS = 10;
+
+    private MemoryComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] sets = args.length == 0 ? DEFAULT_SETS : args;
+        System.out.printf("%-12s %16s %16s %8s%n", "set", "EywaRoot bytes", "EywaModel bytes", "ratio");
+        for (String set : sets) {
+            List<byte[]> files = Models.read(set);
+            long eywaRootBytes = measureEywaRoots(files);
+            long eywaModelBytes = measureEywaModels(files);
+            System.out.printf("%-12s %16d %16d %8.2f%n", set, eywaRootBytes, eywaModelBytes,
+                    eywaModelBytes == 0 ? 0 : (double) eywaRootBytes / eywaModelBytes);
+        }
+    }
+
+    /**
+     * @param files The content of some .eywa files.
+     * @return The heap retained by {@code files} read as EywaRoots.
+     * @throws IOException If any of {@code files} is not a valid .eywa file.
+     */
+    private static long measureEywaRoots(List<byte[]> files) throws IOException {
+        List<EywaRoot> roots = new ArrayList<>(files.size());
+        long before = getUsedHeap();
+        for (byte[] file : files) {
+            roots.add(Models.parse(file));
+        }
+        long after = getUsedHeap();
+        // keeps the models reachable until the used heap is measured
+        if (roots.size() != files.size()) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    /**
+     * @param files The content of some .eywa files.
+     * @return The heap retained by {@code files} read as EywaModels.
+     * @throws IOException If any of {@code files} is not a valid .eywa file.
+     */
+    private static long measureEywaModels(List<byte[]> files) throws IOException {
+        List<EywaModel> models = new ArrayList<>(files.size());
+        long before = getUsedHeap();
+        for (byte[] file : files) {
+            models.add(EywaModel.read(new ByteArrayInputStream(file)));
+        }
+        long after = getUsedHeap();
+        // keeps the models reachable until the used heap is measured
+        if (models.size() != files.size()) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    /**
+     * @return The heap used after collecting garbage, in bytes.
+     */
+    static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < MAX_GCS; i++) {
+            System.gc();
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
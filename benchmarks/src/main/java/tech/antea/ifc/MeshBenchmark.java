@@ -0,0 +1,115 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.imc.persistence.po.eytukan.Primitive;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of big Meshes and FaceSets, made by copying many
+ * times, side by side, the one in {@code geometries/mesh.eywa} or {@code
+ * geometries/faceset.eywa}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeshBenchmark {
+    /**
+     * Distance along the x axis between copies.
+     */
+    private static final double COPY_OFFSET = 10_000;
+
+    @Param({"mesh", "faceset"})
+    public String model;
+
+    @Param({"1", "100", "1000"})
+    public int copies;
+
+    private Primitive primitive;
+
+    /**
+     * @param faces The faces of a Mesh or FaceSet.
+     * @param index The index in {@code faces} where a face starts.
+     * @param isMesh {@code true} for Meshes, {@code false} for FaceSets.
+     * @return The number of vertices of the face.
+     */
+    private static int vertexCount(JsonNode faces, int index, boolean isMesh) {
+        int value = faces.get(index).asInt();
+        return isMesh ? (value == 1 ? 4 : 3) : value;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode root = mapper.readTree(Models.directory("geometries").resolve(model + ".eywa").toFile());
+        ObjectNode original = (ObjectNode) root.get("object").get("children").get(0);
+        boolean isMesh = model.equals("mesh");
+        JsonNode vertices = original.get("vertices");
+        JsonNode faces = original.get("faces");
+        int vertexCount = vertices.size() / 3;
+
+        ArrayNode scaledVertices = mapper.createArrayNode();
+        ArrayNode scaledFaces = mapper.createArrayNode();
+        for (int copy = 0; copy < copies; copy++) {
+            for (int i = 0; i < vertices.size(); i++) {
+                // Eywa x coordinates are the first of each vertex
+                double offset = i % 3 == 0 ? copy * COPY_OFFSET : 0;
+                scaledVertices.add(vertices.get(i).asDouble() + offset);
+            }
+            int i = 0;
+            while (i < faces.size()) {
+                int size = vertexCount(faces, i, isMesh);
+                scaledFaces.add(faces.get(i).asInt());
+                for (int j = 1; j <= size; j++) {
+                    scaledFaces.add(faces.get(i + j).asInt() + copy * vertexCount);
+                }
+                i += 1 + size;
+            }
+        }
+        ObjectNode scaled = original.deepCopy();
+        scaled.remove("children");
+        scaled.set("vertices", scaledVertices);
+        scaled.set("faces", scaledFaces);
+        primitive = mapper.treeToValue(scaled, Primitive.class);
+    }
+
+    @Benchmark
+    public EywaToIfcConverter addObject() {
+        EywaToIfcConverter builder = new EywaToIfcConverter();
+        new EywaReader(builder).addObject(primitive);
+        return builder;
+    }
+}
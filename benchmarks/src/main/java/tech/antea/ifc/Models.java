@@ -0,0 +1,135 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads the .eywa models used by the tests of eywa2ifc.
+ */
+final class Models {
+    /**
+     * System property with the path of the directory containing the sets of
+     * models, by default the one in the test resources of eywa2ifc, relative
+     * to this module.
+     */
+    static final String MODELS_DIR_PROPERTY = "models.dir";
+    private static final String DEFAULT_MODELS_DIR = "../src/test/resources/tech/antea/models/cluster";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private Models() {
+    }
+
+    /**
+     * @param set The name of a set of models, e.g. "app", "geometries" or
+     * "sk".
+     * @return The content of each .eywa file in the set, sorted by file name.
+     * @throws IOException If an I/O error occurs while reading the files.
+     * @throws IllegalStateException If the set doesn't contain any .eywa file.
+     */
+    static List<byte[]> read(@NonNull String set) throws IOException {
+        Path directory = directory(set);
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(path -> path.toString().endsWith(".eywa")).sorted()
+                    .collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            throw new IllegalStateException("no .eywa files in " + directory.toAbsolutePath());
+        }
+        List<byte[]> models = new ArrayList<>(files.size());
+        for (Path file : files) {
+            models.add(Files.readAllBytes(file));
+        }
+        return models;
+    }
+
+    /**
+     * @param set The name of a set of models.
+     * @return The directory containing the models in the set.
+     */
+    static Path directory(@NonNull String set) {
+        return Paths.get(System.getProperty(MODELS_DIR_PROPERTY, DEFAULT_MODELS_DIR), set);
+    }
+
+    /**
+     * @param set The name of a set of models.
+     * @return The deserialized models in the set.
+     * @throws IOException If an I/O error occurs while reading the files or
+     * if they're not valid .eywa files.
+     */
+    static List<EywaRoot> parse(@NonNull String set) throws IOException {
+        List<EywaRoot> roots = new ArrayList<>();
+        for (byte[] model : read(set)) {
+            roots.add(parse(model));
+        }
+        return roots;
+    }
+
+    /**
+     * @param model The content of a .eywa file.
+     * @return The deserialized model.
+     * @throws IOException If {@code model} is not a valid .eywa file.
+     */
+    static EywaRoot parse(@NonNull byte[] model) throws IOException {
+        return OBJECT_MAPPER.readValue(model, EywaRoot.class);
+    }
+
+    /**
+     * @param eywaRoot A deserialized model.
+     * @return The Primitives in {@code eywaRoot}, in pre-order.
+     */
+    static List<Primitive> primitives(@NonNull EywaRoot eywaRoot) {
+        List<Primitive> primitives = new ArrayList<>();
+        Deque<Primitive> stack = new ArrayDeque<>();
+        if (eywaRoot.getObject() != null) {
+            stack.push(eywaRoot.getObject());
+        }
+        while (!stack.isEmpty()) {
+            Primitive obj = stack.pop();
+            primitives.add(obj);
+            List<Primitive> children = obj.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return primitives;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.*;
+import lombok.NonNull;
+
+import java.util.Map;
+
+/**
+ * Converter that only counts the Primitives it receives, used to measure the
+ * cost of visiting Eywa trees without the cost of creating IFC entities.
+ */
+final class NoOpConverter implements ForkableEywaConverter {
+    private final NoOpConverter forkedFrom;
+    private long objects;
+
+    NoOpConverter() {
+        this.forkedFrom = null;
+    }
+
+    private NoOpConverter(NoOpConverter forkedFrom) {
+        this.forkedFrom = forkedFrom;
+    }
+
+    /**
+     * @return The number of Primitives received, which resets to 0.
+     */
+    @Override
+    public Long getResult() {
+        long result = objects;
+        objects = 0;
+        return result;
+    }
+
+    @Override
+    public void addHints(Map<String, Object> hints) {
+    }
+
+    @Override
+    public NoOpConverter fork(@NonNull Primitive parent) {
+        return new NoOpConverter(this);
+    }
+
+    @Override
+    public void join(@NonNull ForkableEywaConverter forked) {
+        if (!(forked instanceof NoOpConverter) || ((NoOpConverter) forked).forkedFrom != this) {
+            throw new IllegalArgumentException("forked was not created by this instance");
+        }
+        objects += ((NoOpConverter) forked).getResult();
+    }
+
+    @Override
+    public void addObject(Beam obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Blind obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Box obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Collar obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Curve obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Dielectric obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Dish obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(DualExpansionJoint obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(EccentricCone obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Empty obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Endplate obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(ExpansionJoint obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(FaceSet obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(FourWaysValve obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Instrument obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Ladder obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Mesh obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Nozzle obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(OrthoValve obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(RectangularBlind obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(RectangularEndplate obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(RectangularFlange obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(RectangularPlate obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(RectangularShell obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Ring obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Shell obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Sphere obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Stair obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Sweep obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(TankShell obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Tee obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(ThreeWaysValve obj) {
+        objects++;
+    }
+
+    @Override
+    public void addObject(Valve obj) {
+        objects++;
+    }
+}
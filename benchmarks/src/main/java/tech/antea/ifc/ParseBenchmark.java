@@ -0,0 +1,76 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.EywaRoot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the deserialization of .eywa files, both to a whole {@link
+ * EywaRoot} and with {@link EywaStreamReader}. Files are read in memory
+ * before measuring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    @Param({"app", "geometries", "sk"})
+    public String models;
+
+    private List<byte[]> files;
+
+    @Setup
+    public void setUp() throws IOException {
+        files = Models.read(models);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        for (byte[] file : files) {
+            EywaRoot eywaRoot = Models.parse(file);
+            blackhole.consume(eywaRoot);
+        }
+    }
+
+    @Benchmark
+    public long parseStreaming() throws IOException {
+        NoOpConverter builder = new NoOpConverter();
+        EywaStreamReader director = new EywaStreamReader(builder);
+        for (byte[] file : files) {
+            director.convert(new ByteArrayInputStream(file));
+        }
+        return builder.getResult();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcAxis2Placement3D;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link PlacementTransform} with {@link LegacyPlacement}, computing
+ * the placements of all the Primitives in the models relative to their
+ * parent.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlacementBenchmark {
+    private static final Double[] ZERO_VECTOR = {0d, 0d, 0d};
+
+    @Param({"app", "geometries", "sk"})
+    public String models;
+
+    private List<Primitive> primitives;
+    private final PlacementTransform transform = new PlacementTransform();
+
+    @Setup
+    public void setUp() throws IOException {
+        primitives = new ArrayList<>();
+        for (EywaRoot root : Models.parse(models)) {
+            primitives.addAll(Models.primitives(root));
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (Primitive obj : primitives) {
+            blackhole.consume(LegacyPlacement.resolve(new IfcAxis2Placement3D(0, 0, 0), obj));
+        }
+    }
+
+    @Benchmark
+    public void placementTransform(Blackhole blackhole) {
+        for (Primitive obj : primitives) {
+            if (obj.getMatrix() == null && obj.getPosition() == null && obj.getRotation() == null) {
+                blackhole.consume(new IfcAxis2Placement3D(0, 0, 0));
+                continue;
+            }
+            transform.setLocation(0, 0, 0);
+            transform.setAxis(0, 0, 1);
+            transform.setRefDirection(1, 0, 0);
+            if (obj.getMatrix() != null) {
+                transform.multiply(obj.getMatrix());
+            } else {
+                transform.translate(obj.getPosition() == null ? ZERO_VECTOR : obj.getPosition());
+                String rotationOrder = obj.getRotationAxis() == null || obj.getRotationAxis().equals("")
+                        ? "XYZ"
+                        : obj.getRotationAxis();
+                transform.rotate(obj.getRotationArray() == null ? ZERO_VECTOR : obj.getRotationArray(),
+                        rotationOrder);
+            }
+            blackhole.consume(transform.toIfcAxis2Placement3D());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.Primitive;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compares the heap retained by an {@link EywaToIfcConverter} at the end of
+ * the streaming conversion of the models of each set, with and without {@link
+ * EywaConverter#endObject(Primitive)}. endObject only releases the Primitives
+ * and their placements: the IFC entities are kept until the result is written,
+ * and are what's left in the first column. Like {@link MemoryComparison} this
+ * is run by its own main method, with the names of the sets to compare as
+ * arguments ("app", "geometries" and "sk" by default).
+ */
+public final class StreamingMemoryComparison {
+    private static final String[] DEFAULT_SETS = {"app", "geometries", "sk"};
+
+    private StreamingMemoryComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] sets = args.length == 0 ? DEFAULT_SETS : args;
+        System.out.printf("%-12s %16s %18s %8s%n", "set", "endObject bytes", "no endObject bytes", "ratio");
+        for (String set : sets) {
+            List<byte[]> files = Models.read(set);
+            long endObjectBytes = measure(files, true);
+            long noEndObjectBytes = measure(files, false);
+            System.out.printf("%-12s %16d %18d %8.2f%n", set, endObjectBytes, noEndObjectBytes,
+                    endObjectBytes == 0 ? 0 : (double) noEndObjectBytes / endObjectBytes);
+        }
+    }
+
+    /**
+     * @param files The content of some .eywa files.
+     * @param endObject {@code false} to ignore the calls to {@link
+     * EywaConverter#endObject(Primitive)}, as before it existed.
+     * @return The sum of the heap retained by the builder after converting
+     * each of {@code files}, before its result is built.
+     * @throws IOException If any of {@code files} is not a valid .eywa file.
+     */
+    private static long measure(List<byte[]> files, boolean endObject) throws IOException {
+        long total = 0;
+        for (byte[] file : files) {
+            long before = MemoryComparison.getUsedHeap();
+            EywaToIfcConverter builder = endObject ? new EywaToIfcConverter() : new EywaToIfcConverter() {
+                @Override
+                public void endObject(Primitive obj) {
+                }
+            };
+            new EywaStreamReader(builder).convert(new ByteArrayInputStream(file));
+            total += MemoryComparison.getUsedHeap() - before;
+            // keeps the builder reachable until the used heap is measured
+            builder.getResult();
+        }
+        return total;
+    }
+}
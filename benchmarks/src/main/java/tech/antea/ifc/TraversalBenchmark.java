@@ -0,0 +1,113 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.Empty;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link EywaReader} visits Eywa trees, passing Primitives to a
+ * {@link NoOpConverter} so that the cost of the conversion itself is
+ * excluded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraversalBenchmark {
+    /**
+     * Depth of the chain of Empties in {@link DeepChain}.
+     */
+    private static final int DEEP_CHAIN_DEPTH = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Trees {
+        @Param({"app", "geometries", "sk"})
+        public String models;
+
+        private List<EywaRoot> roots;
+
+        @Setup
+        public void setUp() throws IOException {
+            roots = Models.parse(models);
+        }
+    }
+
+    /**
+     * A single chain of Empties, too deep to be visited recursively.
+     */
+    @State(Scope.Benchmark)
+    public static class DeepChain {
+        private EywaRoot root;
+
+        @Setup
+        public void setUp() throws IOException {
+            root = Models.parse("{\"object\":{\"type\":\"Empty\"}}".getBytes("UTF-8"));
+            Primitive last = root.getObject();
+            for (int i = 1; i < DEEP_CHAIN_DEPTH; i++) {
+                Primitive child = new Empty();
+                last.getChildren().add(child);
+                last = child;
+            }
+        }
+    }
+
+    @Benchmark
+    public long convert(Trees trees) {
+        NoOpConverter builder = new NoOpConverter();
+        EywaReader director = new EywaReader(builder);
+        for (EywaRoot root : trees.roots) {
+            director.convert(root);
+        }
+        return builder.getResult();
+    }
+
+    @Benchmark
+    public long convertParallel(Trees trees) {
+        NoOpConverter builder = new NoOpConverter();
+        EywaReader director = new EywaReader(builder);
+        for (EywaRoot root : trees.roots) {
+            director.convert(root, ForkJoinPool.commonPool());
+        }
+        return builder.getResult();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long convertDeepChain(DeepChain chain) {
+        NoOpConverter builder = new NoOpConverter();
+        new EywaReader(builder).convert(chain.root);
+        return builder.getResult();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcProject;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EywaToIfcConverter#writeToFile(IfcProject, File)} on the
+ * results of the conversion of the models, which are converted before
+ * measuring. Each invocation overwrites the same temporary file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteBenchmark {
+    @Param({"app", "geometries", "sk"})
+    public String models;
+
+    private List<IfcProject> projects;
+    private File output;
+
+    @Setup
+    public void setUp() throws IOException {
+        projects = new ArrayList<>();
+        EywaToIfcConverter builder = new EywaToIfcConverter();
+        EywaReader director = new EywaReader(builder);
+        for (EywaRoot root : Models.parse(models)) {
+            director.convert(root);
+            projects.add(builder.getResult());
+        }
+        output = File.createTempFile("benchmark", ".ifc");
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!output.delete()) {
+            output.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public long writeToFile() throws IOException {
+        for (IfcProject project : projects) {
+            EywaToIfcConverter.writeToFile(project, output);
+        }
+        return output.length();
+    }
+}
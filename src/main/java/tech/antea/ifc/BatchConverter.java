@@ -0,0 +1,282 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts many .eywa files in the same JVM using a fixed number of threads,
+ * so that JVM startup and JIT warm-up are paid only once. Each file is
+ * converted by its own {@link EywaToIfcConverter} and {@link EywaStreamReader},
+ * and a failure in one file doesn't stop the conversion of the others.
+ */
+class BatchConverter {
+    private static final String EYWA_EXTENSION = ".eywa";
+    private static final String IFC_EXTENSION = ".ifc";
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final ConversionOptions options;
+    private final int threads;
+    private final PrintStream err;
+
+    /**
+     * @param options The options to use for each conversion.
+     * @param threads The number of files to convert at the same time.
+     * @param err Where to print the errors occurring while converting files.
+     * @throws NullPointerException If any of the arguments are {@code null}.
+     * @throws IllegalArgumentException If {@code threads} is smaller than 1.
+     */
+    BatchConverter(@NonNull ConversionOptions options, int threads, @NonNull PrintStream err) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.options = options;
+        this.threads = threads;
+        this.err = err;
+    }
+
+    /**
+     * Finds the .eywa files to convert.
+     * @param input The path to a .eywa file, to a directory, in which case
+     * all the .eywa files it contains are returned (including the ones in
+     * subdirectories), or a glob pattern such as {@code models/**}{@code
+     * /*.eywa}.
+     * @return The files found, each with its path relative to the directory
+     * or to the part of the pattern without glob characters, sorted by path.
+     * @throws NullPointerException If {@code input} is {@code null}.
+     * @throws NoSuchFileException If {@code input} is neither a file, a
+     * directory or a glob pattern.
+     * @throws IOException If an I/O error occurs while searching files.
+     */
+    static List<Input> findInputs(@NonNull String input) throws IOException {
+        Path path = Paths.get(input);
+        if (Files.isRegularFile(path)) {
+            List<Input> inputs = new ArrayList<>(1);
+            inputs.add(new Input(path, path.getFileName()));
+            return inputs;
+        }
+        Path baseDirectory;
+        PathMatcher matcher;
+        if (Files.isDirectory(path)) {
+            baseDirectory = path;
+            matcher = p -> p.getFileName().toString().endsWith(EYWA_EXTENSION);
+        } else {
+            baseDirectory = getBaseDirectory(input);
+            if (baseDirectory == null) {
+                throw new NoSuchFileException(input);
+            }
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+        }
+        try (Stream<Path> files = Files.walk(baseDirectory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .map(p -> new Input(p, baseDirectory.relativize(p)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param pattern A glob pattern.
+     * @return The longest directory path at the beginning of {@code pattern}
+     * not containing glob characters, {@code null} if {@code pattern}
+     * doesn't contain glob characters or the directory doesn't exist.
+     */
+    private static Path getBaseDirectory(String pattern) {
+        int firstGlobCharacter = -1;
+        for (int i = 0; i < pattern.length() && firstGlobCharacter == -1; i++) {
+            if (GLOB_CHARACTERS.indexOf(pattern.charAt(i)) != -1) {
+                firstGlobCharacter = i;
+            }
+        }
+        if (firstGlobCharacter == -1) {
+            return null;
+        }
+        String prefix = pattern.substring(0, firstGlobCharacter);
+        int lastSeparator = Math.max(prefix.lastIndexOf('/'), prefix.lastIndexOf('\\'));
+        Path baseDirectory = lastSeparator == -1 ? Paths.get("") : Paths.get(prefix.substring(0, lastSeparator + 1));
+        return Files.isDirectory(baseDirectory) ? baseDirectory : null;
+    }
+
+    /**
+     * Converts all {@code inputs}, writing each .ifc file in {@code
+     * outputDirectory} at the relative path of the corresponding input. Errors
+     * are printed as soon as the conversion of the file where they occurred
+     * ends. A file found more than once is converted only once.
+     * @param inputs The files to convert.
+     * @param outputDirectory The directory in which to write the .ifc files,
+     * it's created if it doesn't exist.
+     * @return The summary of the conversion.
+     * @throws NullPointerException If any of the arguments are {@code null}.
+     * @throws IllegalArgumentException If different files would be converted
+     * to the same .ifc file, e.g. files with the same name passed one by one.
+     * Nothing is converted in this case.
+     * @throws IOException If {@code outputDirectory} cannot be created.
+     * @throws InterruptedException If the current thread is interrupted while
+     * waiting for the conversions to end.
+     */
+    Summary convert(@NonNull List<Input> inputs, @NonNull Path outputDirectory)
+            throws IOException, InterruptedException {
+        inputs = removeDuplicates(inputs, outputDirectory);
+        Files.createDirectories(outputDirectory);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CompletionService<Long> completionService = new ExecutorCompletionService<>(pool);
+            Map<Future<Long>, Input> results = new IdentityHashMap<>(inputs.size());
+            for (Input input : inputs) {
+                results.put(completionService.submit(() -> convert(input, outputDirectory)), input);
+            }
+            Summary summary = new Summary();
+            for (int i = 0; i < inputs.size(); i++) {
+                // in the order in which conversions end
+                Future<Long> result = completionService.take();
+                Input input = results.get(result);
+                try {
+                    summary.bytesWritten += result.get();
+                    summary.bytesRead += Files.size(input.file);
+                } catch (ExecutionException e) {
+                    summary.failures++;
+                    err.println("Could not convert " + input.file + ": " + e.getCause());
+                }
+                summary.files++;
+            }
+            summary.nanos = System.nanoTime() - start;
+            return summary;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @param inputs The files to convert.
+     * @param outputDirectory The directory in which to write the .ifc files.
+     * @return {@code inputs} without the files already found before, in the
+     * same order.
+     * @throws IllegalArgumentException If different files would be converted
+     * to the same .ifc file.
+     */
+    private static List<Input> removeDuplicates(List<Input> inputs, Path outputDirectory) {
+        Map<Path, Input> inputsByFile = new LinkedHashMap<>();
+        for (Input input : inputs) {
+            inputsByFile.putIfAbsent(input.file.toAbsolutePath().normalize(), input);
+        }
+        Map<Path, Input> inputsByOutput = new LinkedHashMap<>();
+        for (Input input : inputsByFile.values()) {
+            Path output = getOutput(input, outputDirectory);
+            Input previous = inputsByOutput.putIfAbsent(output, input);
+            if (previous != null) {
+                throw new IllegalArgumentException(previous.file + " and " + input.file +
+                        " would be converted to the same file " + output);
+            }
+        }
+        return new ArrayList<>(inputsByOutput.values());
+    }
+
+    /**
+     * @param input A file to convert.
+     * @param outputDirectory The directory in which to write the .ifc files.
+     * @return The .ifc file to which {@code input} is converted.
+     */
+    private static Path getOutput(Input input, Path outputDirectory) {
+        String fileName = input.relativePath.getFileName().toString();
+        if (fileName.endsWith(EYWA_EXTENSION)) {
+            fileName = fileName.substring(0, fileName.length() - EYWA_EXTENSION.length());
+        }
+        return outputDirectory.resolve(input.relativePath).resolveSibling(fileName + IFC_EXTENSION)
+                .toAbsolutePath().normalize();
+    }
+
+    /**
+     * @param input The file to convert.
+     * @param outputDirectory The directory in which to write the result.
+     * @return The size in bytes of the .ifc file written.
+     * @throws IOException If an I/O error occurs while reading {@code input}
+     * or writing the result, or if {@code input} is not a valid .eywa file.
+     */
+    private long convert(Input input, Path outputDirectory) throws IOException {
+        Path output = getOutput(input, outputDirectory);
+        Files.createDirectories(output.getParent());
+
+        // the relative path identifies the file in the same way on all systems
+        String fileId = input.relativePath.toString().replace(File.separatorChar, '/');
+        EywaToIfcConverter builder = new EywaToIfcConverter(options.toBuilder().fileId(fileId).build());
+        EywaStreamReader director = new EywaStreamReader(builder);
+        director.convert(input.file.toFile());
+        EywaToIfcConverter.writeToFile(builder.getResult(), output.toFile());
+        return Files.size(output);
+    }
+
+    /**
+     * A .eywa file to convert.
+     */
+    static class Input {
+        final Path file;
+        /**
+         * Path of the file relative to the directory searched, used to place
+         * the .ifc file in the output directory.
+         */
+        final Path relativePath;
+
+        Input(@NonNull Path file, @NonNull Path relativePath) {
+            this.file = file;
+            this.relativePath = relativePath;
+        }
+    }
+
+    /**
+     * Statistics about a batch conversion. The throughput only counts the
+     * files converted successfully, and bytes are only counted for them.
+     */
+    static class Summary {
+        int files;
+        int failures;
+        long bytesRead;
+        long bytesWritten;
+        long nanos;
+
+        @Override
+        public String toString() {
+            double seconds = nanos / 1e9;
+            return String.format("Converted %d of %d files in %.2f s (%.2f converted files/s), %d failures, " +
+                    "read %d bytes, wrote %d bytes.", files - failures, files, seconds,
+                    seconds == 0 ? 0 : (files - failures) / seconds, failures, bytesRead, bytesWritten);
+        }
+    }
+}
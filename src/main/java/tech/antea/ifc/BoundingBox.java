@@ -0,0 +1,525 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcBoundingBox;
+import buildingsmart.ifc.IfcCartesianPoint;
+import buildingsmart.ifc.IfcPositiveLengthMeasure;
+import it.imc.persistence.po.eytukan.*;
+import lombok.NonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.lang.Math.*;
+
+/**
+ * An axis-aligned box containing the geometry of a Primitive, in the same
+ * coordinate system as the placement returned for it by {@link
+ * EywaToIfcConverter} before switched Primitives are flipped. Boxes are
+ * computed from the parameters of Primitives, without building their
+ * geometry, and they're as small as possible except for Dishes whose cutting
+ * plane doesn't intersect their sphere, which get the box of the whole sphere.
+ */
+final class BoundingBox {
+    /**
+     * Minimum size of boxes along each axis, since {@link IfcBoundingBox}
+     * can't be flat. It's the same thickness given to Primitives without one.
+     */
+    static final double MIN_SIZE = 0.1;
+    private static final Map<Class<?>, Function<Primitive, BoundingBox>> boxMethod = Collections
+            .unmodifiableMap(new HashMap<Class<?>, Function<Primitive, BoundingBox>>() {{
+                put(Beam.class, obj -> of((Beam) obj));
+                put(Blind.class, obj -> of((Blind) obj));
+                put(Box.class, obj -> of((Box) obj));
+                put(Collar.class, obj -> of((Collar) obj));
+                put(Curve.class, obj -> of((Curve) obj));
+                put(Dielectric.class, obj -> of((Dielectric) obj));
+                put(Dish.class, obj -> of((Dish) obj));
+                put(DualExpansionJoint.class, obj -> ofExpansionJoint(((DualExpansionJoint) obj).getRadius(),
+                        ((DualExpansionJoint) obj).getLength()));
+                put(EccentricCone.class, obj -> of((EccentricCone) obj));
+                put(Endplate.class, obj -> of((Endplate) obj));
+                put(ExpansionJoint.class, obj -> ofExpansionJoint(((ExpansionJoint) obj).getRadius(),
+                        ((ExpansionJoint) obj).getLength()));
+                put(FaceSet.class, obj -> ofVertices(((FaceSet) obj).getVertices()));
+                put(FourWaysValve.class, obj -> of((FourWaysValve) obj));
+                put(Instrument.class, obj -> of((Instrument) obj));
+                put(Mesh.class, obj -> ofVertices(((Mesh) obj).getVertices()));
+                put(Nozzle.class, obj -> of((Nozzle) obj));
+                put(OrthoValve.class, obj -> of((OrthoValve) obj));
+                put(RectangularBlind.class, obj -> of((RectangularBlind) obj));
+                put(RectangularEndplate.class, obj -> of((RectangularEndplate) obj));
+                put(RectangularFlange.class, obj -> of((RectangularFlange) obj));
+                put(RectangularPlate.class, obj -> of((RectangularPlate) obj));
+                put(RectangularShell.class, obj -> of((RectangularShell) obj));
+                put(Ring.class, obj -> of((Ring) obj));
+                put(Shell.class, obj -> of((Shell) obj));
+                put(Sphere.class, obj -> of((Sphere) obj));
+                put(TankShell.class, obj -> of((TankShell) obj));
+                put(Tee.class, obj -> of((Tee) obj));
+                put(ThreeWaysValve.class, obj -> of((ThreeWaysValve) obj));
+                put(Valve.class, obj -> of((Valve) obj));
+            }});
+
+    private final double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+    private final double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    /**
+     * @param obj The Primitive of which to compute the box.
+     * @return The box containing the geometry {@link EywaToIfcConverter}
+     * creates for {@code obj}, empty if it has no geometry.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     * @throws IllegalArgumentException If the class of {@code obj} is not a
+     * known Primitive with a geometry, e.g. a Ladder or an Empty.
+     */
+    static BoundingBox of(@NonNull Primitive obj) {
+        Function<Primitive, BoundingBox> method = boxMethod.get(obj.getClass());
+        if (method == null) {
+            throw new IllegalArgumentException(obj.getClass().getSimpleName() + " has no bounding box");
+        }
+        return method.apply(obj);
+    }
+
+    private static BoundingBox of(Beam obj) {
+        double length = obj.getLength() == null ? obj.getDepth() : obj.getLength();
+        switch (obj.getKind()) {
+            case PIPE:
+                return new BoundingBox().addCylinder(obj.getRadius(), 0, length);
+            default:
+                return new BoundingBox().addRectangle(obj.getWidth(), obj.getDepth(), 0, length);
+        }
+    }
+
+    private static BoundingBox of(Blind obj) {
+        boolean hasPlate = obj.getCrownRadius() != null && obj.getCrownRadius() != 0;
+        double crownThickness = obj.getCrownThickness();
+        BoundingBox box = new BoundingBox()
+                .addCylinder(hasPlate ? obj.getCrownRadius() : obj.getRadius(), 0, crownThickness);
+        if (hasPlate) {
+            box.addCylinder(obj.getRadius(), crownThickness, crownThickness + crownThickness / 10);
+        }
+        if (obj.isSwitched()) {
+            box.flip(obj.getCrownRadius() == null ? crownThickness : crownThickness + crownThickness / 10);
+        }
+        return box;
+    }
+
+    private static BoundingBox of(Box obj) {
+        return new BoundingBox().addRectangle(obj.getWidth(), obj.getDepth(), 0, obj.getLength());
+    }
+
+    private static BoundingBox of(Collar obj) {
+        return new BoundingBox().addCylinder(obj.getRadius(), 0, obj.getLength());
+    }
+
+    private static BoundingBox of(Curve obj) {
+        double radius = obj.getRadius() == null ? obj.getRadius1() : obj.getRadius();
+        double curveRadius = obj.getCurveRadius();
+        // the section is revolved around the x axis, so in the yz plane the
+        // Curve is an annulus sector
+        double start = min(0, obj.getAngle());
+        double end = max(0, obj.getAngle());
+        BoundingBox box = new BoundingBox();
+        for (double distance : new double[]{curveRadius - radius, curveRadius + radius}) {
+            box.add(-radius, distance * cos(start), distance * sin(start));
+            box.add(radius, distance * cos(end), distance * sin(end));
+        }
+        for (double angle = ceil(start / (PI / 2)) * (PI / 2); angle < end; angle += PI / 2) {
+            box.add(radius, (curveRadius + radius) * cos(angle), (curveRadius + radius) * sin(angle));
+        }
+        return box;
+    }
+
+    private static BoundingBox of(Dielectric obj) {
+        return new BoundingBox().addCylinder(obj.getRadius() + obj.getRadius() / 10, -obj.getLength(),
+                obj.getLength() * 2);
+    }
+
+    private static BoundingBox of(Dish obj) {
+        double radius = obj.getRadius();
+        double[] normal = {obj.getDirection()[2], obj.getDirection()[0], obj.getDirection()[1]};
+        double norm = sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+        double height = obj.getDistance() * norm;
+        BoundingBox box = new BoundingBox();
+        if (norm == 0 || height >= radius || height <= -radius) {
+            return box.add(-radius, -radius, -radius).add(radius, radius, radius);
+        }
+        // the part of the sphere beyond the cutting plane is removed, so the
+        // extremes that are beyond it are replaced by the extremes of the
+        // circle where the plane cuts the sphere
+        double circleRadius = sqrt(radius * radius - height * height);
+        for (int axis = 0; axis < 3; axis++) {
+            double component = normal[axis] / norm;
+            double circleExtent = circleRadius * sqrt(max(0, 1 - component * component));
+            box.min[axis] = -radius * component <= height ? -radius : height * component - circleExtent;
+            box.max[axis] = radius * component <= height ? radius : height * component + circleExtent;
+        }
+        return box;
+    }
+
+    private static BoundingBox ofExpansionJoint(double radius, double length) {
+        return new BoundingBox().addCylinder(radius + radius / 3, 0, length);
+    }
+
+    private static BoundingBox of(EccentricCone obj) {
+        double radius1 = obj.getRadius1();
+        double radius2 = obj.getRadius2();
+        // the center of the second base is moved along y by the difference
+        // between the radiuses, so that the bases are tangent at y = radius1
+        return new BoundingBox()
+                .add(-radius1, -radius1, 0)
+                .add(radius1, radius1, 0)
+                .add(-radius2, radius1 - 2 * radius2, obj.getLength())
+                .add(radius2, radius1, obj.getLength());
+    }
+
+    private static BoundingBox of(Endplate obj) {
+        double neck = obj.getNeck() != null && obj.getNeck() != 0 ? obj.getNeck() : 0;
+        double semiAxis2 = obj.getDish() != null
+                ? obj.getDish()
+                : obj.getCambering() * obj.getRadius();
+        double endThickness = obj.getEndThickness() == null || obj.getEndThickness() <= 0
+                ? EywaToIfcConverter.getSafeThickness(obj)
+                : obj.getEndThickness();
+        BoundingBox box = new BoundingBox()
+                .addCylinder(obj.getRadius(), 0, neck + (semiAxis2 != 0 ? semiAxis2 : endThickness));
+        if (obj.isSwitched()) {
+            box.flip(neck + (semiAxis2 != 0 ? semiAxis2 : obj.getEndThickness()));
+        }
+        return box;
+    }
+
+    private static BoundingBox of(FourWaysValve obj) {
+        double bottomLength = obj.getLength1();
+        return new BoundingBox()
+                .addValveOutput(0, obj.getRadius1(), obj.getLength1(), obj.getCrownRadius1(),
+                        obj.getCrownThickness1(), bottomLength)
+                .addValveOutput(1, obj.getRadius2(), obj.getLength2(), obj.getCrownRadius2(),
+                        obj.getCrownThickness2(), bottomLength)
+                .addValveOutput(2, obj.getRadius3(), obj.getLength3(), obj.getCrownRadius3(),
+                        obj.getCrownThickness3(), bottomLength)
+                .addValveOutput(3, obj.getRadius4(), obj.getLength4(), obj.getCrownRadius4(),
+                        obj.getCrownThickness4(), bottomLength);
+    }
+
+    private static BoundingBox of(Instrument obj) {
+        double radius = obj.getRadius();
+        // a pole 2 radiuses high, with a disc on top extruded towards -y
+        return new BoundingBox()
+                .addCylinder(radius / 4, 0, radius * 2)
+                .add(-radius, -radius / 2, radius * 2)
+                .add(radius, 0, radius * 4);
+    }
+
+    private static BoundingBox of(Nozzle obj) {
+        double trunkLength = obj.getTrunkLength() == null ? 0 : obj.getTrunkLength();
+        double tangLength = obj.getTangLength() == null
+                ? obj.getLength() - obj.getCrownThickness() - trunkLength
+                : obj.getTangLength();
+        double length = trunkLength + tangLength + obj.getCrownThickness() + obj.getCrownThickness() / 10;
+        // the raised face radius is between the radius and the crown radius
+        BoundingBox box = new BoundingBox()
+                .addCylinder(max(obj.getRadius(), obj.getCrownRadius()), 0, length);
+        if (obj.isSwitched()) {
+            box.flip(length);
+        }
+        return box;
+    }
+
+    private static BoundingBox of(OrthoValve obj) {
+        boolean flanged = obj.getFlanged() != null && obj.getFlanged();
+        return new BoundingBox()
+                .addValveOutput(0, obj.getRadius1(), obj.getLength1(), flanged ? obj.getCrownRadius1() : 0,
+                        flanged ? obj.getCrownThickness1() : 0, obj.getLength1())
+                .addValveOutput(1, obj.getRadius2(), obj.getLength2(), flanged ? obj.getCrownRadius2() : 0,
+                        flanged ? obj.getCrownThickness2() : 0, obj.getLength1());
+    }
+
+    private static BoundingBox of(RectangularBlind obj) {
+        double blindThickness = EywaToIfcConverter.getSafeThickness(obj);
+        double length = blindThickness + blindThickness / 10;
+        BoundingBox box = new BoundingBox()
+                .addRectangle(obj.getWidth(), obj.getDepth(), 0, length)
+                .addRectangle(obj.getCrownWidth(), obj.getCrownDepth(), 0, length);
+        if (obj.isSwitched()) {
+            box.flip(length);
+        }
+        return box;
+    }
+
+    private static BoundingBox of(RectangularEndplate obj) {
+        double endThickness = obj.getEndThickness() == null || obj.getEndThickness() <= 0
+                ? 0
+                : obj.getEndThickness();
+        double length = obj.getLength() == null
+                ? endThickness
+                : obj.getLength() <= 0 ? 0 : obj.getLength();
+        BoundingBox box = new BoundingBox().addRectangle(obj.getWidth(), obj.getDepth(), 0, length);
+        if (obj.isSwitched()) {
+            box.flip(length);
+        }
+        return box;
+    }
+
+    private static BoundingBox of(RectangularFlange obj) {
+        double neckLength = obj.getNeck() == null || obj.getNeck() <= 0 ? 0 : obj.getNeck();
+        double length = obj.getLength() == null || obj.getLength() <= 0 ? 0 : obj.getLength();
+        if (neckLength == 0 && length != 0) {
+            neckLength = length - obj.getCrownThickness();
+        }
+        double thickness = EywaToIfcConverter.getSafeThickness(obj);
+        return new BoundingBox()
+                .addRectangle(obj.getWidth(), obj.getDepth(), 0, neckLength + obj.getCrownThickness())
+                .addRectangle(obj.getWidth() - thickness * 2 + obj.getCrownWidth() * 2,
+                        obj.getDepth() - thickness * 2 + obj.getCrownDepth() * 2, neckLength,
+                        neckLength + obj.getCrownThickness());
+    }
+
+    private static BoundingBox of(RectangularPlate obj) {
+        return new BoundingBox().addRectangle(obj.getWidth(), obj.getDepth(), 0,
+                EywaToIfcConverter.getSafeThickness(obj));
+    }
+
+    private static BoundingBox of(RectangularShell obj) {
+        return new BoundingBox().addRectangle(obj.getWidth(), obj.getDepth(), 0, obj.getLength());
+    }
+
+    private static BoundingBox of(Ring obj) {
+        return new BoundingBox().addCylinder(obj.getOuterRadius(), 0, EywaToIfcConverter.getSafeThickness(obj));
+    }
+
+    private static BoundingBox of(Shell obj) {
+        return new BoundingBox().addCylinder(max(obj.getRadius1(), obj.getRadius2()), 0, obj.getLength());
+    }
+
+    private static BoundingBox of(Sphere obj) {
+        double radius = obj.getRadius();
+        return new BoundingBox().add(-radius, -radius, -radius).add(radius, radius, radius);
+    }
+
+    private static BoundingBox of(TankShell obj) {
+        return new BoundingBox().addCylinder(obj.getRadius(), 0, obj.getHeight());
+    }
+
+    private static BoundingBox of(Tee obj) {
+        BoundingBox box = new BoundingBox()
+                .addCylinder(obj.getRadius1(), -obj.getLength1(), 0)
+                .addCylinder(obj.getRadius2(), 0, obj.getLength2());
+        // the derivation pipe goes from the origin along (0, cos(phi),
+        // sin(phi)), its ends are discs perpendicular to that direction
+        double radius = obj.getDerivationRadius();
+        double y = cos(obj.getPhi());
+        double z = sin(obj.getPhi());
+        double length = obj.getDerivationLength();
+        double yExtent = radius * abs(z);
+        double zExtent = radius * abs(y);
+        return box
+                .add(-radius, min(0, y * length) - yExtent, min(0, z * length) - zExtent)
+                .add(radius, max(0, y * length) + yExtent, max(0, z * length) + zExtent);
+    }
+
+    private static BoundingBox of(ThreeWaysValve obj) {
+        double bottomLength = obj.getLength1();
+        return new BoundingBox()
+                .addValveOutput(0, obj.getRadius1(), obj.getLength1(), obj.getCrownRadius1(),
+                        obj.getCrownThickness1(), bottomLength)
+                .addValveOutput(1, obj.getRadius2(), obj.getLength2(), obj.getCrownRadius2(),
+                        obj.getCrownThickness2(), bottomLength)
+                .addValveOutput(2, obj.getRadius3(), obj.getLength3(), obj.getCrownRadius3(),
+                        obj.getCrownThickness3(), bottomLength);
+    }
+
+    private static BoundingBox of(Valve obj) {
+        boolean flanged = obj.getFlanged() != null && obj.getFlanged();
+        return new BoundingBox()
+                .addValveOutput(0, obj.getRadius1(), obj.getLength1(), flanged ? obj.getCrownRadius1() : 0,
+                        flanged ? obj.getCrownThickness1() : 0, obj.getLength1())
+                .addValveOutput(2, obj.getRadius2(), obj.getLength2(), flanged ? obj.getCrownRadius2() : 0,
+                        flanged ? obj.getCrownThickness2() : 0, obj.getLength1());
+    }
+
+    /**
+     * @param vertices The coordinates of the vertices of a Mesh or FaceSet, 3
+     * for each vertex, in the Eywa coordinate system.
+     * @return The box containing all the vertices, whose coordinates are
+     * swapped like in {@link FacetedBrepBuilder}.
+     */
+    private static BoundingBox ofVertices(@NonNull double[] vertices) {
+        BoundingBox box = new BoundingBox();
+        for (int i = 0; i + 2 < vertices.length; i += 3) {
+            box.add(vertices[i + 2], vertices[i], vertices[i + 1]);
+        }
+        return box;
+    }
+
+    /**
+     * @return {@code true} if no point was added to this box.
+     */
+    boolean isEmpty() {
+        return min[0] > max[0];
+    }
+
+    /**
+     * @param axis 0, 1 or 2 for x, y or z.
+     * @return The minimum coordinate of this box along {@code axis}.
+     */
+    double getMin(int axis) {
+        return min[axis];
+    }
+
+    /**
+     * @param axis 0, 1 or 2 for x, y or z.
+     * @return The maximum coordinate of this box along {@code axis}.
+     */
+    double getMax(int axis) {
+        return max[axis];
+    }
+
+    /**
+     * Enlarges this box to contain a point.
+     * @return This box.
+     */
+    BoundingBox add(double x, double y, double z) {
+        min[0] = min(min[0], x);
+        min[1] = min(min[1], y);
+        min[2] = min(min[2], z);
+        max[0] = max(max[0], x);
+        max[1] = max(max[1], y);
+        max[2] = max(max[2], z);
+        return this;
+    }
+
+    /**
+     * Enlarges this box to contain a cylinder around the z axis.
+     * @return This box.
+     */
+    private BoundingBox addCylinder(double radius, double z1, double z2) {
+        return add(-radius, -radius, z1).add(radius, radius, z2);
+    }
+
+    /**
+     * Enlarges this box to contain a rectangle centered on the z axis,
+     * extruded from {@code z1} to {@code z2}.
+     * @return This box.
+     */
+    private BoundingBox addRectangle(double width, double depth, double z1, double z2) {
+        return add(-width / 2, -depth / 2, z1).add(width / 2, depth / 2, z2);
+    }
+
+    /**
+     * Enlarges this box to contain an output built by {@link ValveBuilder}.
+     * The sphere in the center of valves is smaller than all outputs, so it
+     * doesn't need to be added.
+     * @param position The position of the output: 0 for bottom, 1 for right,
+     * 2 for top and 3 for left.
+     * @param bottomLength The length of the bottom output, which is the
+     * distance of the center of the valve from the origin.
+     * @return This box.
+     */
+    private BoundingBox addValveOutput(int position, double radius, double length, double crownRadius,
+            double crownThickness, double bottomLength) {
+        double outerRadius = max(radius, crownRadius);
+        double height = max(length, crownThickness);
+        switch (position) {
+            case 0:
+                return addCylinder(outerRadius, 0, height);
+            case 1:
+                return add(-outerRadius, length - height, bottomLength - outerRadius)
+                        .add(outerRadius, length, bottomLength + outerRadius);
+            case 2:
+                return addCylinder(outerRadius, bottomLength + length - height, bottomLength + length);
+            default:
+                return add(-outerRadius, -length, bottomLength - outerRadius)
+                        .add(outerRadius, height - length, bottomLength + outerRadius);
+        }
+    }
+
+    /**
+     * Mirrors this box like {@link EywaToIfcConverter} flips the placement of
+     * switched Primitives, so that it's in the coordinate system of their
+     * placement before the flip.
+     * @param length The length of the Primitive along the z axis.
+     * @return This box.
+     */
+    BoundingBox flip(double length) {
+        double minY = min[1];
+        min[1] = -max[1];
+        max[1] = -minY;
+        double minZ = min[2];
+        min[2] = length - max[2];
+        max[2] = length - minZ;
+        return this;
+    }
+
+    /**
+     * @param matrix The coordinate system of this box in another one: the x,
+     * y and z axes followed by the location, 3 components each.
+     * @return A new box containing this one, in the other coordinate system.
+     */
+    BoundingBox transform(@NonNull double[] matrix) {
+        BoundingBox transformed = new BoundingBox();
+        if (isEmpty()) {
+            return transformed;
+        }
+        for (int i = 0; i < 3; i++) {
+            double transformedMin = matrix[9 + i];
+            double transformedMax = matrix[9 + i];
+            for (int axis = 0; axis < 3; axis++) {
+                double a = matrix[axis * 3 + i] * min[axis];
+                double b = matrix[axis * 3 + i] * max[axis];
+                transformedMin += min(a, b);
+                transformedMax += max(a, b);
+            }
+            transformed.min[i] = transformedMin;
+            transformed.max[i] = transformedMax;
+        }
+        return transformed;
+    }
+
+    /**
+     * @return This box as an IfcBoundingBox, at least {@link #MIN_SIZE} big
+     * along each axis.
+     * @throws IllegalStateException If this box is empty.
+     */
+    IfcBoundingBox toIfcBoundingBox() {
+        if (isEmpty()) {
+            throw new IllegalStateException("an empty box can't be converted");
+        }
+        double[] corner = new double[3];
+        double[] size = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            size[axis] = max(max[axis] - min[axis], MIN_SIZE);
+            corner[axis] = (min[axis] + max[axis] - size[axis]) / 2;
+        }
+        return new IfcBoundingBox(new IfcCartesianPoint(corner[0], corner[1], corner[2]),
+                new IfcPositiveLengthMeasure(size[0]),
+                new IfcPositiveLengthMeasure(size[1]),
+                new IfcPositiveLengthMeasure(size[2]));
+    }
+}
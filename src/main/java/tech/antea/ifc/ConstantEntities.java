@@ -0,0 +1,65 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcAxis2Placement2D;
+import buildingsmart.ifc.IfcAxis2Placement3D;
+import buildingsmart.ifc.IfcCartesianPoint;
+import buildingsmart.ifc.IfcDirection;
+import buildingsmart.ifc.IfcLabel;
+import com.google.common.collect.Maps;
+import lombok.NonNull;
+
+import java.util.Map;
+
+/**
+ * Entities and labels with constant attributes that are used by the geometries
+ * of many IfcProducts, created once for each conversion instead of once for
+ * each IfcProduct. They have no inverse attributes updated when they're
+ * referenced, but each instance must be used by a single thread, since labels
+ * are created on demand, and none of them can be modified.
+ */
+final class ConstantEntities {
+    final IfcCartesianPoint origin = new IfcCartesianPoint(0, 0, 0);
+    final IfcAxis2Placement2D origin2D = new IfcAxis2Placement2D(0, 0);
+    final IfcAxis2Placement3D origin3D = new IfcAxis2Placement3D(0, 0, 0);
+    final IfcDirection xAxis = new IfcDirection(1, 0, 0);
+    final IfcDirection yAxis = new IfcDirection(0, 1, 0);
+    final IfcDirection zAxis = new IfcDirection(0, 0, 1);
+    final IfcDirection negativeYAxis = new IfcDirection(0, -1, 0);
+    final IfcDirection negativeZAxis = new IfcDirection(0, 0, -1);
+    private final Map<String, IfcLabel> labels = Maps.newHashMap();
+
+    /**
+     * @param value The value of the label, such as the type of a
+     * representation or the name of a class of Primitives.
+     * @return The label with the given value.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    IfcLabel label(@NonNull String value) {
+        return labels.computeIfAbsent(value, IfcLabel::new);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Options changing how {@link EywaToIfcConverter} converts Eywa Primitives.
+ * Instances are immutable and can be shared between converters, use {@link
+ * #builder()} to create them.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ConversionOptions {
+    /**
+     * Options used by {@link EywaToIfcConverter#EywaToIfcConverter()}.
+     */
+    public static final ConversionOptions DEFAULT = ConversionOptions.builder().build();
+
+    /**
+     * If {@code true}, Primitives with the same type and geometric parameters
+     * share a single {@link buildingsmart.ifc.IfcRepresentationMap}, which
+     * their IfcProducts reference through an {@link
+     * buildingsmart.ifc.IfcMappedItem} instead of having their own copy of the
+     * geometry. Meshes and FaceSets are never instanced.
+     */
+    boolean instancing;
+    /**
+     * If {@code true}, converting the same file always gives the same
+     * entities: GlobalIds are derived from {@link #getFileId()} and from the
+     * imIds of Primitives (or from their position in the tree, for Primitives
+     * without imId) instead of being random, and owner histories have a fixed
+     * timestamp.
+     */
+    boolean deterministic;
+    /**
+     * Vertices of Meshes and FaceSets closer than this distance, in
+     * millimeters, are merged. If 0, only vertices with the same coordinates
+     * are. Faces left with less than 3 distinct vertices are dropped.
+     */
+    double weldingTolerance;
+    /**
+     * If bigger than 0, Shells, Curves, Endplates, Spheres, Dishes, Nozzles
+     * and the outputs of valves are written as {@link
+     * buildingsmart.ifc.IfcFacetedBrep}s instead of swept solids, with their
+     * circles split in segments at most this distance, in millimeters, from
+     * the original curves. EccentricCones are then split in the same way.
+     */
+    double tessellationTolerance;
+    /**
+     * If {@code true}, Tees, Endplates and Dishes are written without boolean
+     * operations, which are slow to evaluate in most viewers: the neck of
+     * Endplates is a separate item, Dishes are solids of revolution of their
+     * section, and the derivation pipe of Tees is a faceted tube starting on
+     * the outer surface of the main pipe, which isn't pierced.
+     */
+    boolean booleanFree;
+    /**
+     * If {@code true}, the geometry of each Primitive is replaced by an
+     * {@link buildingsmart.ifc.IfcBoundingBox} containing it, computed from
+     * its parameters, for overviews and clash pre-screening of big models.
+     * IfcProducts keep their type, name, description and placement, and the
+     * other geometric options are ignored.
+     */
+    boolean boundingBoxes;
+    /**
+     * If {@code true}, runs of cylindrical Shells with the same parent,
+     * radius, thickness and description, each one starting where the previous
+     * one ends along the same axis, are written as a single IfcFlowSegment,
+     * whose imIds are listed in its {@code Antea_CoalescedShells} property
+     * set. Ignored if {@link #isBoundingBoxes()} is {@code true}.
+     */
+    boolean coalescingShells;
+    /**
+     * If {@code true}, the descriptions of Primitives aren't written as JSON
+     * text in the {@code Description} of their IfcProducts, but as {@code
+     * Antea_Description} property sets: each distinct description is a single
+     * property set, attached to all of its IfcProducts by a single {@link
+     * buildingsmart.ifc.IfcRelDefinesByProperties}, and equal values are
+     * shared by all the property sets.
+     */
+    boolean descriptionProperties;
+    /**
+     * If not {@code null}, only Primitives whose box, as written with {@link
+     * #isBoundingBoxes()}, intersects this region are converted to
+     * IfcProducts. The geometry of the other ones isn't built, but their
+     * placement is still resolved for their descendants, which can be in the
+     * region.
+     */
+    Region region;
+    /**
+     * Identifies the converted file when {@link #isDeterministic()} is {@code
+     * true}, e.g. its path relative to the directory of the plant, so that
+     * IfcProducts in different files don't get the same GlobalIds.
+     */
+    @NonNull
+    @Builder.Default
+    String fileId = "";
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.NonNull;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the descriptions of converted Primitives to a JSON-lines file, next
+ * to an .ifc file whose IfcProducts have no description, while they're being
+ * converted. Each line is an object with the {@code globalId} of the IfcProduct,
+ * the {@code imId} of the Primitive and its {@code description}, e.g.:
+ * <pre>
+ * {"globalId":"3Nf$v2Hj9ExQ1cZ0m4RaYk","imId":1169185716,"description":{"CATEGORY":"APPFONDI"}}
+ * </pre>
+ * Lines are written without pretty printing, only for Primitives with a
+ * non-empty description. An IfcProduct representing several Shells (see
+ * {@link ConversionOptions#isCoalescingShells()}) has a line for each of
+ * them. Converters forked to convert the same file in multiple threads share
+ * their sidecar, so lines are written in the order in which IfcProducts are
+ * created, which is the order of the Eywa tree only with a single thread.
+ */
+public final class DescriptionSidecar implements Closeable {
+    /**
+     * ObjectWriters are immutable, so it can be shared by all sidecars.
+     */
+    private static final ObjectWriter LINE_WRITER = new ObjectMapper().writer();
+
+    private final OutputStream output;
+
+    /**
+     * @param output The stream to which lines are written, closed by {@link
+     * #close()}.
+     * @throws NullPointerException If {@code output} is {@code null}.
+     */
+    public DescriptionSidecar(@NonNull OutputStream output) {
+        this.output = new BufferedOutputStream(output);
+    }
+
+    /**
+     * @param file The file to create, or to overwrite.
+     * @throws NullPointerException If {@code file} is {@code null}.
+     * @throws FileNotFoundException If {@code file} can't be opened for
+     * writing.
+     */
+    public DescriptionSidecar(@NonNull File file) throws FileNotFoundException {
+        this(new FileOutputStream(file));
+    }
+
+    /**
+     * @param outputFile An .ifc file.
+     * @return The sidecar file of {@code outputFile}, in the same directory
+     * and with its extension replaced by {@code .descriptions.jsonl}.
+     * @throws NullPointerException If {@code outputFile} is {@code null}.
+     */
+    public static File getSidecarFile(@NonNull File outputFile) {
+        String name = outputFile.getName();
+        int extension = name.lastIndexOf('.');
+        return new File(outputFile.getAbsoluteFile().getParentFile(),
+                (extension > 0 ? name.substring(0, extension) : name) + ".descriptions.jsonl");
+    }
+
+    /**
+     * Writes a line for a converted Primitive, unless its description is
+     * {@code null} or empty.
+     * @param globalId The GlobalId of the IfcProduct representing the
+     * Primitive.
+     * @param imId The imId of the Primitive, can be {@code null}.
+     * @param description The description of the Primitive.
+     * @throws ConversionException If an I/O error occurs while writing the
+     * line.
+     */
+    synchronized void write(IfcGloballyUniqueId globalId, Object imId, Map<String, Object> description) {
+        if (description == null || description.isEmpty()) {
+            return;
+        }
+        Map<String, Object> line = new LinkedHashMap<>(4);
+        line.put("globalId", globalId.getValue());
+        line.put("imId", imId);
+        line.put("description", description);
+        try {
+            output.write(LINE_WRITER.writeValueAsBytes(line));
+            output.write('\n');
+        } catch (IOException e) {
+            throw new ConversionException(e);
+        }
+    }
+
+    /**
+     * Writes the lines still buffered and closes the stream.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+}
@@ -49,6 +49,19 @@ public interface EywaConverter {
      */
     void addHints(Map<String, Object> hints);
 
+    /**
+     * Called by {@link EywaStreamReader} and by {@link
+     * EywaReader#convert(EywaModel)} after {@code obj} and all of its
+     * descendants have been added. The Primitives they pass aren't referenced
+     * anywhere else, so builders should release any state they keep for
+     * {@code obj}. The default implementation does nothing.
+     *
+     * @param obj A Primitive that was already added.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    default void endObject(Primitive obj) {
+    }
+
     /**
      * @param obj The {@link Beam} to convert.
      * @throws NullPointerException If {@code obj} is null.
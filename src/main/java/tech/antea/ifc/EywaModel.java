@@ -0,0 +1,589 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, read-only copy of the content of a .eywa file, which takes much
+ * less memory than the tree of {@link Primitive}s in an {@link EywaRoot}.
+ * Primitives are stored in pre-order as a structure of arrays: the index of
+ * their parent, and the range of their attributes, each one stored as the
+ * index of its name, a kind and a value, which is either an index in a column
+ * of doubles (numbers and arrays of numbers), in a table of interned
+ * strings, or in a table of other JSON values, such as descriptions, parsed
+ * only once. Equal strings and JSON values are stored only once.<br>It can
+ * be converted with {@link EywaReader#convert(EywaModel)}, which creates each
+ * Primitive only while it or its descendants are being converted, so it can
+ * be converted multiple times, e.g. with different options, without parsing
+ * the file again.<br>Like {@link EywaStreamReader},
+ * it expects the layout used by Eywa, in which the {@code children} of each
+ * object come after its other attributes, and it ignores attributes following
+ * {@code children}.
+ */
+public final class EywaModel {
+    private static final String OBJECT_FIELD = "object";
+    private static final String CHILDREN_FIELD = "children";
+    /**
+     * Biggest absolute value of integers stored in the column of doubles,
+     * above which not all integers can be represented exactly.
+     */
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte FLOAT = 4;
+    private static final byte STRING = 5;
+    /**
+     * An array of integers, stored in the column of doubles after its length.
+     */
+    private static final byte INTEGER_ARRAY = 6;
+    /**
+     * An array of numbers, stored in the column of doubles after its length.
+     */
+    private static final byte FLOAT_ARRAY = 7;
+    /**
+     * Any other JSON value, stored in {@link #jsonValues}.
+     */
+    private static final byte JSON = 8;
+
+    private final ObjectMapper mapper;
+    /**
+     * Metadata and hints of the file, without object.
+     */
+    private EywaRoot header;
+    private int size;
+    /**
+     * Index of the parent of each Primitive, -1 for the root.
+     */
+    private int[] parents = new int[INITIAL_CAPACITY];
+    /**
+     * Index of the first attribute of each Primitive, whose attributes end
+     * where the ones of the following Primitive start.
+     */
+    private int[] attributeStarts = new int[INITIAL_CAPACITY];
+    private int attributeCount;
+    /**
+     * Index in {@link #strings} of the name of each attribute.
+     */
+    private int[] attributeNames = new int[INITIAL_CAPACITY];
+    private byte[] attributeKinds = new byte[INITIAL_CAPACITY];
+    /**
+     * Index in {@link #numbers}, in {@link #strings} or in {@link #jsonValues}
+     * of the value of each attribute, depending on its kind.
+     */
+    private int[] attributeValues = new int[INITIAL_CAPACITY];
+    private int numberCount;
+    private double[] numbers = new double[INITIAL_CAPACITY];
+    private final List<String> strings = new ArrayList<>();
+    /**
+     * Maps each string in {@link #strings} to its index, used only while
+     * reading.
+     */
+    private Map<String, Integer> stringIndexes = new HashMap<>();
+    /**
+     * JSON values that aren't strings, numbers or arrays of numbers, which
+     * must not be modified.
+     */
+    private final List<JsonNode> jsonValues = new ArrayList<>();
+    /**
+     * Maps each value in {@link #jsonValues}, written as JSON, to its index,
+     * used only while reading.
+     */
+    private Map<String, Integer> jsonIndexes = new HashMap<>();
+
+    private EywaModel(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param eywaFile The .eywa file to read.
+     * @return The content of {@code eywaFile}.
+     * @throws NullPointerException If {@code eywaFile} is {@code null}.
+     * @throws java.io.FileNotFoundException If {@code eywaFile} does not
+     * exist or cannot be opened.
+     * @throws JsonParseException If {@code eywaFile} is not a valid JSON
+     * file.
+     * @throws com.fasterxml.jackson.databind.JsonMappingException If an object
+     * in {@code eywaFile} is not a valid Eywa {@link Primitive}.
+     * @throws IOException If an I/O error occurs while reading {@code
+     * eywaFile}.
+     * @throws IllegalArgumentException If {@code object} is missing or {@code
+     * null}.
+     */
+    public static EywaModel read(@NonNull File eywaFile) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        try (JsonParser parser = mapper.getFactory().createParser(eywaFile)) {
+            return read(parser);
+        }
+    }
+
+    /**
+     * @param eywaStream The content of a .eywa file, which is not closed by
+     * this method.
+     * @return The content of {@code eywaStream}.
+     * @throws NullPointerException If {@code eywaStream} is {@code null}.
+     * @throws JsonParseException If {@code eywaStream} is not valid JSON.
+     * @throws com.fasterxml.jackson.databind.JsonMappingException If an object
+     * in {@code eywaStream} is not a valid Eywa {@link Primitive}.
+     * @throws IOException If an I/O error occurs while reading {@code
+     * eywaStream}.
+     * @throws IllegalArgumentException If {@code object} is missing or {@code
+     * null}.
+     */
+    public static EywaModel read(@NonNull InputStream eywaStream) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        try (JsonParser parser = mapper.getFactory().createParser(eywaStream)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return read(parser);
+        }
+    }
+
+    /**
+     * @param parser The parser from which to read the .eywa content, which
+     * must be positioned before the start of the root JSON object.
+     * @return The content read from {@code parser}.
+     * @throws NullPointerException If {@code parser} is {@code null}.
+     * @throws JsonParseException If the content of {@code parser} is not
+     * valid JSON, or is not a JSON object.
+     * @throws com.fasterxml.jackson.databind.JsonMappingException If an object
+     * read from {@code parser} is not a valid Eywa {@link Primitive}.
+     * @throws IOException If an I/O error occurs while reading from {@code
+     * parser}.
+     * @throws IllegalArgumentException If {@code object} is missing or {@code
+     * null}.
+     */
+    public static EywaModel read(@NonNull JsonParser parser) throws IOException {
+        ObjectMapper mapper = parser.getCodec() instanceof ObjectMapper
+                ? (ObjectMapper) parser.getCodec()
+                : new ObjectMapper();
+        parser.setCodec(mapper);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "the content of a .eywa file must be a JSON object");
+        }
+        EywaModel model = new EywaModel(mapper);
+        ObjectNode header = mapper.createObjectNode();
+        boolean hasObject = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (!hasObject && OBJECT_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+                model.readPrimitives(parser);
+                hasObject = true;
+            } else if (hasObject) {
+                parser.skipChildren();
+            } else {
+                header.set(field, mapper.readTree(parser));
+            }
+        }
+        if (!hasObject) {
+            throw new IllegalArgumentException("can't read an EywaRoot with no object");
+        }
+        model.header = mapper.treeToValue(header, EywaRoot.class);
+        model.trim();
+        return model;
+    }
+
+    /**
+     * Reads the Primitive starting at the current token of {@code parser} and
+     * all of its descendants, using an explicit stack like {@link
+     * EywaStreamReader}. Each Primitive is created once, to check that its
+     * attributes are valid.
+     * @param parser The parser, positioned at the start of the JSON object
+     * representing the root Primitive.
+     * @throws IOException If an I/O error occurs while reading from {@code
+     * parser}, or if its content is not valid.
+     */
+    private void readPrimitives(JsonParser parser) throws IOException {
+        Deque<PrimitiveState> stack = new ArrayDeque<>();
+        stack.push(new PrimitiveState(addPrimitive(-1)));
+        while (!stack.isEmpty()) {
+            PrimitiveState current = stack.peek();
+            JsonToken token = parser.nextToken();
+            if (current.readingChildren) {
+                if (token == JsonToken.END_ARRAY) {
+                    current.readingChildren = false;
+                } else if (token == JsonToken.START_OBJECT) {
+                    stack.push(new PrimitiveState(addPrimitive(current.index)));
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!CHILDREN_FIELD.equals(field)) {
+                    if (!current.attributesRead) {
+                        addAttribute(field, value, parser);
+                    } else {
+                        // the attributes of descendants may follow them
+                        parser.skipChildren();
+                    }
+                } else {
+                    endAttributes(current);
+                    if (value == JsonToken.START_ARRAY) {
+                        current.readingChildren = true;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                // end of the object
+                endAttributes(current);
+                stack.pop();
+            }
+        }
+    }
+
+    /**
+     * Marks the attributes of a Primitive as read, checking that they're
+     * valid, if it wasn't already.
+     * @param state The state of the Primitive being read.
+     * @throws IOException If the attributes read don't represent a valid
+     * Primitive.
+     */
+    private void endAttributes(PrimitiveState state) throws IOException {
+        if (!state.attributesRead) {
+            state.attributesRead = true;
+            mapper.treeToValue(getAttributes(state.index), Primitive.class);
+        }
+    }
+
+    /**
+     * @param parent The index of the parent of the new Primitive, -1 for the
+     * root.
+     * @return The index of the new Primitive, whose attributes will be the ones
+     * added next.
+     */
+    private int addPrimitive(int parent) {
+        parents = Ints.ensureCapacity(parents, size + 1, size);
+        attributeStarts = Ints.ensureCapacity(attributeStarts, size + 1, size);
+        parents[size] = parent;
+        attributeStarts[size] = attributeCount;
+        return size++;
+    }
+
+    /**
+     * Adds an attribute to the last Primitive added.
+     * @param name The name of the attribute.
+     * @param token The first token of its value, which is the current one of
+     * {@code parser}.
+     * @param parser The parser from which to read the value.
+     * @throws IOException If an I/O error occurs while reading from {@code
+     * parser}, or if its content is not valid.
+     */
+    private void addAttribute(String name, JsonToken token, JsonParser parser) throws IOException {
+        byte kind;
+        int value;
+        switch (token) {
+            case VALUE_NULL:
+                kind = NULL;
+                value = 0;
+                break;
+            case VALUE_FALSE:
+                kind = FALSE;
+                value = 0;
+                break;
+            case VALUE_TRUE:
+                kind = TRUE;
+                value = 0;
+                break;
+            case VALUE_NUMBER_FLOAT:
+                kind = FLOAT;
+                value = addNumber(parser.getDoubleValue());
+                break;
+            case VALUE_STRING:
+                kind = STRING;
+                value = intern(parser.getText());
+                break;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER &&
+                        Math.abs(parser.getLongValue()) <= MAX_EXACT_INTEGER) {
+                    kind = INTEGER;
+                    value = addNumber(parser.getLongValue());
+                    break;
+                }
+                kind = JSON;
+                value = internJson(mapper.readTree(parser));
+                break;
+            default:
+                JsonNode node = mapper.readTree(parser);
+                kind = getArrayKind(node);
+                if (kind == JSON) {
+                    value = internJson(node);
+                } else {
+                    value = addNumber(node.size());
+                    for (JsonNode element : node) {
+                        addNumber(element.asDouble());
+                    }
+                }
+        }
+        attributeNames = Ints.ensureCapacity(attributeNames, attributeCount + 1, attributeCount);
+        attributeKinds = Bytes.ensureCapacity(attributeKinds, attributeCount + 1, attributeCount);
+        attributeValues = Ints.ensureCapacity(attributeValues, attributeCount + 1, attributeCount);
+        attributeNames[attributeCount] = intern(name);
+        attributeKinds[attributeCount] = kind;
+        attributeValues[attributeCount] = value;
+        attributeCount++;
+    }
+
+    /**
+     * @param node A JSON value.
+     * @return {@link #INTEGER_ARRAY} or {@link #FLOAT_ARRAY} if {@code node}
+     * is an array of numbers that can be stored exactly as doubles, {@link
+     * #JSON} otherwise.
+     */
+    private static byte getArrayKind(JsonNode node) {
+        if (!(node instanceof ArrayNode)) {
+            return JSON;
+        }
+        boolean integers = true;
+        for (JsonNode element : node) {
+            if (element.isDouble()) {
+                integers = false;
+            } else if (!element.isIntegralNumber() || !element.canConvertToLong() ||
+                    Math.abs(element.longValue()) > MAX_EXACT_INTEGER) {
+                return JSON;
+            }
+        }
+        return integers ? INTEGER_ARRAY : FLOAT_ARRAY;
+    }
+
+    /**
+     * @param number The number to add to {@link #numbers}.
+     * @return The index of {@code number}.
+     */
+    private int addNumber(double number) {
+        numbers = Doubles.ensureCapacity(numbers, numberCount + 1, numberCount);
+        numbers[numberCount] = number;
+        return numberCount++;
+    }
+
+    /**
+     * @param string A string.
+     * @return The index of {@code string} in {@link #strings}, to which it's
+     * added if it isn't already there.
+     */
+    private int intern(String string) {
+        return stringIndexes.computeIfAbsent(string, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * @param node A JSON value, which must not be modified afterwards.
+     * @return The index in {@link #jsonValues} of a value equal to {@code
+     * node}, to which {@code node} is added if there isn't one already.
+     * @throws IOException If {@code node} can't be written as JSON.
+     */
+    private int internJson(JsonNode node) throws IOException {
+        return jsonIndexes.computeIfAbsent(mapper.writeValueAsString(node), key -> {
+            jsonValues.add(node);
+            return jsonValues.size() - 1;
+        });
+    }
+
+    /**
+     * Frees the memory used only while reading.
+     */
+    private void trim() {
+        parents = Arrays.copyOf(parents, size);
+        attributeStarts = Arrays.copyOf(attributeStarts, size);
+        attributeNames = Arrays.copyOf(attributeNames, attributeCount);
+        attributeKinds = Arrays.copyOf(attributeKinds, attributeCount);
+        attributeValues = Arrays.copyOf(attributeValues, attributeCount);
+        numbers = Arrays.copyOf(numbers, numberCount);
+        ((ArrayList<String>) strings).trimToSize();
+        ((ArrayList<JsonNode>) jsonValues).trimToSize();
+        stringIndexes = null;
+        jsonIndexes = null;
+    }
+
+    /**
+     * @return The number of Primitives in this model.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The metadata and hints of this model, without object, which
+     * must not be modified.
+     */
+    EywaRoot getHeader() {
+        return header;
+    }
+
+    /**
+     * @param index The index of a Primitive, between 0 and {@link #size()}.
+     * The root has index 0, and all Primitives come after their parent.
+     * @return The index of the parent of the Primitive, -1 for the root.
+     */
+    int getParent(int index) {
+        return parents[index];
+    }
+
+    /**
+     * @param index The index of a Primitive, between 0 and {@link #size()}.
+     * @param parent The Primitive created for the parent of the Primitive,
+     * {@code null} for the root.
+     * @return A new Primitive with the attributes stored at {@code index} and
+     * no children.
+     * @throws ConversionException If the Primitive can't be created.
+     */
+    Primitive getPrimitive(int index, Primitive parent) {
+        Primitive obj;
+        try {
+            obj = mapper.treeToValue(getAttributes(index), Primitive.class);
+        } catch (IOException e) {
+            // the attributes were already checked while reading
+            throw new ConversionException(e);
+        }
+        obj.setParent(parent);
+        return obj;
+    }
+
+    /**
+     * @param index The index of a Primitive.
+     * @return The attributes of the Primitive, as they were read. Values of
+     * kind {@link #JSON} are shared, so they must not be modified.
+     */
+    private ObjectNode getAttributes(int index) {
+        ObjectNode attributes = mapper.createObjectNode();
+        int end = index + 1 < size ? attributeStarts[index + 1] : attributeCount;
+        for (int i = attributeStarts[index]; i < end; i++) {
+            String name = strings.get(attributeNames[i]);
+            int value = attributeValues[i];
+            switch (attributeKinds[i]) {
+                case NULL:
+                    attributes.putNull(name);
+                    break;
+                case FALSE:
+                case TRUE:
+                    attributes.put(name, attributeKinds[i] == TRUE);
+                    break;
+                case INTEGER:
+                    putInteger(attributes, name, (long) numbers[value]);
+                    break;
+                case FLOAT:
+                    attributes.put(name, numbers[value]);
+                    break;
+                case STRING:
+                    attributes.put(name, strings.get(value));
+                    break;
+                case INTEGER_ARRAY:
+                case FLOAT_ARRAY:
+                    ArrayNode array = attributes.putArray(name);
+                    int length = (int) numbers[value];
+                    for (int j = value + 1; j <= value + length; j++) {
+                        if (attributeKinds[i] == INTEGER_ARRAY) {
+                            addInteger(array, (long) numbers[j]);
+                        } else {
+                            array.add(numbers[j]);
+                        }
+                    }
+                    break;
+                default:
+                    attributes.set(name, jsonValues.get(value));
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Adds {@code value} to {@code array} as an int if it fits in one, as
+     * Jackson does when parsing it.
+     * @param array An array attribute of a Primitive.
+     * @param value The element to add.
+     */
+    private static void addInteger(ArrayNode array, long value) {
+        if (value == (int) value) {
+            array.add((int) value);
+        } else {
+            array.add(value);
+        }
+    }
+
+    /**
+     * Adds {@code value} to {@code attributes} as an int if it fits in one,
+     * as Jackson does when parsing it.
+     * @param attributes The attributes of a Primitive.
+     * @param name The name of the attribute.
+     * @param value The value of the attribute.
+     */
+    private static void putInteger(ObjectNode attributes, String name, long value) {
+        if (value == (int) value) {
+            attributes.put(name, (int) value);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    /**
+     * State of a Primitive whose JSON object is being read.
+     */
+    private static class PrimitiveState {
+        final int index;
+        /**
+         * {@code true} once all the attributes before {@code children} have
+         * been read.
+         */
+        boolean attributesRead;
+        /**
+         * {@code true} while the elements of {@code children} are being read.
+         */
+        boolean readingChildren;
+
+        PrimitiveState(int index) {
+            this.index = index;
+        }
+    }
+}
@@ -29,58 +29,65 @@ package tech.antea.ifc;
 import it.imc.persistence.po.eytukan.*;
 import lombok.NonNull;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Consumer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
 
 /**
  * Class used to convert the 3D model contained in an {@link EywaRoot} to
  * another format, depending on the {@link EywaConverter} passed in the
  * constructor.<br> To convert an {@link EywaRoot}: pass an {@link
  * EywaConverter} in the constructor, call {@link #convert(EywaRoot)}, then
- * {@link #getResult()}.<br>If the {@code builder} passed to the constructor can
- * be used for multiple conversions, then the instance of this class can be
- * reused.
+ * {@link #getResult()}.<br>If the {@code builder} is a {@link
+ * ForkableEywaConverter}, subtrees can be converted in parallel with {@link
+ * #convert(EywaRoot, ForkJoinPool)}.<br>If the {@code builder} passed to the
+ * constructor can be used for multiple conversions, then the instance of this
+ * class can be reused.
  */
 public class EywaReader {
-    private EywaConverter builder;
-    private final Map<Class<?>, Consumer<Primitive>> builderMethod = Collections
-            .unmodifiableMap(new HashMap<Class<?>, Consumer<Primitive>>() {{
-                put(Beam.class, obj -> builder.addObject((Beam) obj));
-                put(Blind.class, obj -> builder.addObject((Blind) obj));
-                put(Box.class, obj -> builder.addObject((Box) obj));
-                put(Collar.class, obj -> builder.addObject((Collar) obj));
-                put(Curve.class, obj -> builder.addObject((Curve) obj));
-                put(Dielectric.class, obj -> builder.addObject((Dielectric) obj));
-                put(Dish.class, obj -> builder.addObject((Dish) obj));
-                put(DualExpansionJoint.class, obj -> builder.addObject((DualExpansionJoint) obj));
-                put(EccentricCone.class, obj -> builder.addObject((EccentricCone) obj));
-                put(Empty.class, obj -> builder.addObject((Empty) obj));
-                put(Endplate.class, obj -> builder.addObject((Endplate) obj));
-                put(ExpansionJoint.class, obj -> builder.addObject((ExpansionJoint) obj));
-                put(FaceSet.class, obj -> builder.addObject((FaceSet) obj));
-                put(FourWaysValve.class, obj -> builder.addObject((FourWaysValve) obj));
-                put(Instrument.class, obj -> builder.addObject((Instrument) obj));
-                put(Ladder.class, obj -> builder.addObject((Ladder) obj));
-                put(Mesh.class, obj -> builder.addObject((Mesh) obj));
-                put(Nozzle.class, obj -> builder.addObject((Nozzle) obj));
-                put(OrthoValve.class, obj -> builder.addObject((OrthoValve) obj));
-                put(RectangularBlind.class, obj -> builder.addObject((RectangularBlind) obj));
-                put(RectangularEndplate.class, obj -> builder.addObject((RectangularEndplate) obj));
-                put(RectangularFlange.class, obj -> builder.addObject((RectangularFlange) obj));
-                put(RectangularPlate.class, obj -> builder.addObject((RectangularPlate) obj));
-                put(RectangularShell.class, obj -> builder.addObject((RectangularShell) obj));
-                put(Ring.class, obj -> builder.addObject((Ring) obj));
-                put(Shell.class, obj -> builder.addObject((Shell) obj));
-                put(Sphere.class, obj -> builder.addObject((Sphere) obj));
-                put(Stair.class, obj -> builder.addObject((Stair) obj));
-                put(Sweep.class, obj -> builder.addObject((Sweep) obj));
-                put(TankShell.class, obj -> builder.addObject((TankShell) obj));
-                put(Tee.class, obj -> builder.addObject((Tee) obj));
-                put(ThreeWaysValve.class, obj -> builder.addObject((ThreeWaysValve) obj));
-                put(Valve.class, obj -> builder.addObject((Valve) obj));
+    /**
+     * Default minimum number of {@link Primitive}s in a subtree for it to be
+     * split in multiple tasks by {@link #convert(EywaRoot, ForkJoinPool)}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 512;
+    private static final Map<Class<?>, BiConsumer<EywaConverter, Primitive>> builderMethod = Collections
+            .unmodifiableMap(new HashMap<Class<?>, BiConsumer<EywaConverter, Primitive>>() {{
+                put(Beam.class, (builder, obj) -> builder.addObject((Beam) obj));
+                put(Blind.class, (builder, obj) -> builder.addObject((Blind) obj));
+                put(Box.class, (builder, obj) -> builder.addObject((Box) obj));
+                put(Collar.class, (builder, obj) -> builder.addObject((Collar) obj));
+                put(Curve.class, (builder, obj) -> builder.addObject((Curve) obj));
+                put(Dielectric.class, (builder, obj) -> builder.addObject((Dielectric) obj));
+                put(Dish.class, (builder, obj) -> builder.addObject((Dish) obj));
+                put(DualExpansionJoint.class, (builder, obj) -> builder.addObject((DualExpansionJoint) obj));
+                put(EccentricCone.class, (builder, obj) -> builder.addObject((EccentricCone) obj));
+                put(Empty.class, (builder, obj) -> builder.addObject((Empty) obj));
+                put(Endplate.class, (builder, obj) -> builder.addObject((Endplate) obj));
+                put(ExpansionJoint.class, (builder, obj) -> builder.addObject((ExpansionJoint) obj));
+                put(FaceSet.class, (builder, obj) -> builder.addObject((FaceSet) obj));
+                put(FourWaysValve.class, (builder, obj) -> builder.addObject((FourWaysValve) obj));
+                put(Instrument.class, (builder, obj) -> builder.addObject((Instrument) obj));
+                put(Ladder.class, (builder, obj) -> builder.addObject((Ladder) obj));
+                put(Mesh.class, (builder, obj) -> builder.addObject((Mesh) obj));
+                put(Nozzle.class, (builder, obj) -> builder.addObject((Nozzle) obj));
+                put(OrthoValve.class, (builder, obj) -> builder.addObject((OrthoValve) obj));
+                put(RectangularBlind.class, (builder, obj) -> builder.addObject((RectangularBlind) obj));
+                put(RectangularEndplate.class, (builder, obj) -> builder.addObject((RectangularEndplate) obj));
+                put(RectangularFlange.class, (builder, obj) -> builder.addObject((RectangularFlange) obj));
+                put(RectangularPlate.class, (builder, obj) -> builder.addObject((RectangularPlate) obj));
+                put(RectangularShell.class, (builder, obj) -> builder.addObject((RectangularShell) obj));
+                put(Ring.class, (builder, obj) -> builder.addObject((Ring) obj));
+                put(Shell.class, (builder, obj) -> builder.addObject((Shell) obj));
+                put(Sphere.class, (builder, obj) -> builder.addObject((Sphere) obj));
+                put(Stair.class, (builder, obj) -> builder.addObject((Stair) obj));
+                put(Sweep.class, (builder, obj) -> builder.addObject((Sweep) obj));
+                put(TankShell.class, (builder, obj) -> builder.addObject((TankShell) obj));
+                put(Tee.class, (builder, obj) -> builder.addObject((Tee) obj));
+                put(ThreeWaysValve.class, (builder, obj) -> builder.addObject((ThreeWaysValve) obj));
+                put(Valve.class, (builder, obj) -> builder.addObject((Valve) obj));
             }});
+    private final EywaConverter builder;
 
     /**
      * If {@code builder} can be used for multiple conversions, then the
@@ -103,6 +110,150 @@ public class EywaReader {
      * @throws ConversionException If an error occurs during conversion.
      */
     public void convert(@NonNull EywaRoot eywaRoot) {
+        addHeader(eywaRoot);
+        Primitive rootObject = eywaRoot.getObject();
+        if (rootObject == null) {
+            throw new IllegalArgumentException("can't convert an EywaRoot with no object");
+        }
+        addSubtree(builder, rootObject);
+    }
+
+    /**
+     * Uses the {@link EywaConverter} provided in the constructor to convert the
+     * given {@code model}. Each {@link Primitive} is created when it's passed
+     * to the {@code builder}, and is no longer referenced once {@link
+     * EywaConverter#endObject(Primitive)} has been called for it, as in {@link
+     * EywaStreamReader}.
+     * @param model The {@link EywaModel} to convert.
+     * @throws NullPointerException If {@code model} is {@code null}.
+     * @throws IllegalArgumentException If {@code metadata.use} exists in
+     * {@code model} and is not {@code view}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    public void convert(@NonNull EywaModel model) {
+        addHeader(model.getHeader());
+        // the Primitives created for the ancestors of the current one, with
+        // their indexes
+        Deque<Primitive> ancestors = new ArrayDeque<>();
+        Deque<Integer> ancestorIndexes = new ArrayDeque<>();
+        for (int i = 0; i < model.size(); i++) {
+            int parent = model.getParent(i);
+            while (!ancestorIndexes.isEmpty() && ancestorIndexes.peek() != parent) {
+                ancestorIndexes.pop();
+                builder.endObject(ancestors.pop());
+            }
+            Primitive obj = model.getPrimitive(i, ancestors.peek());
+            addObject(builder, obj);
+            ancestors.push(obj);
+            ancestorIndexes.push(i);
+        }
+        while (!ancestors.isEmpty()) {
+            builder.endObject(ancestors.pop());
+        }
+    }
+
+    /**
+     * Uses the {@link EywaConverter} provided in the constructor to convert the
+     * given {@code eywaRoot}, converting subtrees containing at least {@link
+     * #DEFAULT_PARALLEL_THRESHOLD} {@link Primitive}s in parallel.
+     * @param eywaRoot The {@link EywaRoot} to convert.
+     * @param pool The pool in which to run the conversion tasks.
+     * @throws NullPointerException If any of the arguments are {@code null}.
+     * @throws IllegalStateException If the {@link EywaConverter} provided in
+     * the constructor is not a {@link ForkableEywaConverter}.
+     * @throws IllegalArgumentException If {@code eywaRoot.metadata.use} exists
+     * and is not {@code view}, if {@code
+     * eywaRoot.object} is {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     * @see #convert(EywaRoot, ForkJoinPool, int)
+     */
+    public void convert(@NonNull EywaRoot eywaRoot, @NonNull ForkJoinPool pool) {
+        convert(eywaRoot, pool, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Uses the {@link EywaConverter} provided in the constructor to convert the
+     * given {@code eywaRoot}, converting subtrees in parallel. The children of
+     * each {@link Primitive} having a subtree of at least {@code threshold}
+     * {@link Primitive}s are split in tasks: each child whose subtree reaches
+     * the threshold gets its own task, which will be split in the same way,
+     * while consecutive smaller children are grouped in a single task. Each
+     * task uses its own {@link ForkableEywaConverter#fork(Primitive)}, and
+     * forks are joined in the order of the children, so the result is the same
+     * as the one of {@link #convert(EywaRoot)}.
+     * @param eywaRoot The {@link EywaRoot} to convert.
+     * @param pool The pool in which to run the conversion tasks.
+     * @param threshold The minimum number of {@link Primitive}s in a subtree
+     * for it to be split in multiple tasks.
+     * @throws NullPointerException If any of the arguments are {@code null}.
+     * @throws IllegalStateException If the {@link EywaConverter} provided in
+     * the constructor is not a {@link ForkableEywaConverter}.
+     * @throws IllegalArgumentException If {@code threshold} is not bigger than
+     * 1, if {@code eywaRoot.metadata.use} exists
+     * and is not {@code view}, if {@code
+     * eywaRoot.object} is {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    public void convert(@NonNull EywaRoot eywaRoot, @NonNull ForkJoinPool pool, int threshold) {
+        if (!(builder instanceof ForkableEywaConverter)) {
+            throw new IllegalStateException("the builder must be a ForkableEywaConverter to convert " +
+                    "subtrees in parallel");
+        }
+        if (threshold <= 1) {
+            throw new IllegalArgumentException("threshold must be bigger than 1");
+        }
+        addHeader(eywaRoot);
+        Primitive rootObject = eywaRoot.getObject();
+        if (rootObject == null) {
+            throw new IllegalArgumentException("can't convert an EywaRoot with no object");
+        }
+        Map<Primitive, Integer> subtreeSizes = countDescendants(rootObject);
+        pool.invoke(new SubtreeTask((ForkableEywaConverter) builder,
+                Collections.singletonList(rootObject), subtreeSizes, threshold));
+    }
+
+    /**
+     * @param rootObject The root of the tree to measure.
+     * @return A map associating each {@link Primitive} in the tree having
+     * {@code rootObject} as its root to the number of {@link Primitive}s in its
+     * subtree, itself included. Keys are compared by identity.
+     * @throws NullPointerException If {@code rootObject} is {@code null}.
+     */
+    private static Map<Primitive, Integer> countDescendants(@NonNull Primitive rootObject) {
+        // visiting the tree in pre-order, so that in the reversed order each
+        // Primitive comes after all of its descendants
+        List<Primitive> preOrder = new ArrayList<>();
+        Deque<Primitive> stack = new ArrayDeque<>();
+        stack.push(rootObject);
+        while (!stack.isEmpty()) {
+            Primitive obj = stack.pop();
+            preOrder.add(obj);
+            obj.getChildren().forEach(stack::push);
+        }
+        Map<Primitive, Integer> subtreeSizes = new IdentityHashMap<>(preOrder.size());
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            Primitive obj = preOrder.get(i);
+            int size = 1;
+            for (Primitive child : obj.getChildren()) {
+                size += subtreeSizes.get(child);
+            }
+            subtreeSizes.put(obj, size);
+        }
+        return subtreeSizes;
+    }
+
+    /**
+     * Checks the metadata of {@code eywaRoot} and passes its hints to the
+     * {@code builder} provided in the constructor. {@code eywaRoot.object} is
+     * ignored.
+     * @param eywaRoot The {@link EywaRoot} of which to read metadata and
+     * hints.
+     * @throws NullPointerException If {@code eywaRoot} is {@code null}.
+     * @throws IllegalArgumentException If {@code eywaRoot.metadata.use} exists
+     * and is not {@code view}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    void addHeader(@NonNull EywaRoot eywaRoot) {
         if (eywaRoot.getMetadata() != null &&
                 eywaRoot.getMetadata().getUse() != null &&
                 eywaRoot.getMetadata().getUse() != EywaRoot.Use.view) {
@@ -111,27 +262,65 @@ public class EywaReader {
                             " convert Eywa files using endpoints");
         }
         builder.addHints(eywaRoot.getHints());
-        Primitive rootObject = eywaRoot.getObject();
-        if (rootObject == null) {
-            throw new IllegalArgumentException("can't convert an EywaRoot with no object");
-        }
-        builderMethod.get(rootObject.getClass()).accept(rootObject);
-        rootObject.prePersist();
-        addChildren(rootObject);
     }
 
     /**
-     * @param obj The {@link Primitive} for which to pass all descendants to the
-     * {@code builder} provided in the constructor.
+     * Passes {@code obj}, but not its descendants, to the {@code builder}
+     * provided in the constructor.
+     * @param obj The {@link Primitive} to convert.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    void addObject(@NonNull Primitive obj) {
+        addObject(builder, obj);
+    }
+
+    /**
+     * Tells the {@code builder} provided in the constructor that {@code obj}
+     * and all of its descendants have been added.
+     * @param obj The {@link Primitive} that was added.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    void endObject(@NonNull Primitive obj) {
+        builder.endObject(obj);
+    }
+
+    /**
+     * Passes {@code obj}, but not its descendants, to {@code builder}.
+     * @param builder The {@link EywaConverter} to use for the conversion.
+     * @param obj The {@link Primitive} to convert.
      * @throws NullPointerException If {@code obj} is {@code null}.
      * @throws ConversionException If an error occurs during conversion.
      */
-    private void addChildren(@NonNull Primitive obj) {
-        obj.getChildren().forEach(child -> {
-            builderMethod.get(child.getClass()).accept(child);
-            child.prePersist();
-            addChildren(child);
-        });
+    private static void addObject(EywaConverter builder, @NonNull Primitive obj) {
+        builderMethod.get(obj.getClass()).accept(builder, obj);
+        obj.prePersist();
+    }
+
+    /**
+     * Passes {@code obj} and all of its descendants to {@code builder}, in
+     * pre-order. The tree is visited using an explicit stack instead of
+     * recursion, so that its depth is only limited by the available memory.
+     * @param builder The {@link EywaConverter} to use for the conversion.
+     * @param obj The root of the subtree to convert.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    private static void addSubtree(EywaConverter builder, @NonNull Primitive obj) {
+        Deque<Primitive> stack = new ArrayDeque<>();
+        stack.push(obj);
+        while (!stack.isEmpty()) {
+            Primitive current = stack.pop();
+            addObject(builder, current);
+            // pushing children in reverse order, so that the first one will
+            // be the first to be popped
+            List<Primitive> children = current.getChildren();
+            ListIterator<Primitive> iterator = children.listIterator(children.size());
+            while (iterator.hasPrevious()) {
+                stack.push(iterator.previous());
+            }
+        }
     }
 
     /**
@@ -141,4 +330,123 @@ public class EywaReader {
     public Object getResult() {
         return builder.getResult();
     }
+
+    /**
+     * Task converting a sequence of sibling {@link Primitive}s and their
+     * descendants, splitting big subtrees in other tasks.
+     */
+    private static class SubtreeTask extends RecursiveAction {
+        private final ForkableEywaConverter builder;
+        private final List<Primitive> objects;
+        private final Map<Primitive, Integer> subtreeSizes;
+        private final int threshold;
+
+        /**
+         * @param builder The {@link ForkableEywaConverter} to use for the
+         * conversion, which must already contain the parent of {@code
+         * objects}.
+         * @param objects The sibling {@link Primitive}s to convert along with
+         * their descendants, in order.
+         * @param subtreeSizes The size of the subtree of each {@link
+         * Primitive}, as returned by {@link #countDescendants(Primitive)}.
+         * @param threshold The minimum number of {@link Primitive}s in a
+         * subtree for it to be split in multiple tasks.
+         */
+        SubtreeTask(ForkableEywaConverter builder, List<Primitive> objects,
+                Map<Primitive, Integer> subtreeSizes, int threshold) {
+            this.builder = builder;
+            this.objects = objects;
+            this.subtreeSizes = subtreeSizes;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            objects.forEach(this::convertSubtree);
+        }
+
+        /**
+         * Converts {@code obj} and its descendants. If the subtree of {@code
+         * obj} is big enough, its children are split in groups as described in
+         * {@link #convert(EywaRoot, ForkJoinPool, int)}: the first group comes
+         * right after {@code obj} in pre-order, so it's converted by this task,
+         * while the others are converted by new tasks, which are joined in
+         * order once this task is done. When the first group is a single big
+         * subtree, this task keeps splitting it in a loop, so that chains of
+         * big subtrees don't nest tasks in the call stack.
+         * @param obj The root of the subtree to convert.
+         * @throws ConversionException If an error occurs during conversion.
+         */
+        private void convertSubtree(Primitive obj) {
+            // tasks converting the siblings following each big subtree split
+            // by this task, the last ones to be joined come first
+            Deque<List<SubtreeTask>> pendingTasks = new ArrayDeque<>();
+            Primitive current = obj;
+            while (current != null) {
+                Primitive next = null;
+                if (subtreeSizes.get(current) < threshold) {
+                    addSubtree(builder, current);
+                } else {
+                    addObject(builder, current);
+                    List<List<Primitive>> groups = groupChildren(current);
+                    List<SubtreeTask> tasks = new ArrayList<>(groups.size() - 1);
+                    for (List<Primitive> group : groups.subList(1, groups.size())) {
+                        SubtreeTask task = new SubtreeTask(builder.fork(current), group, subtreeSizes, threshold);
+                        task.fork();
+                        tasks.add(task);
+                    }
+                    if (!tasks.isEmpty()) {
+                        pendingTasks.push(tasks);
+                    }
+                    List<Primitive> firstGroup = groups.get(0);
+                    if (firstGroup.size() == 1 && subtreeSizes.get(firstGroup.get(0)) >= threshold) {
+                        next = firstGroup.get(0);
+                    } else {
+                        firstGroup.forEach(child -> addSubtree(builder, child));
+                    }
+                }
+                current = next;
+            }
+            while (!pendingTasks.isEmpty()) {
+                for (SubtreeTask task : pendingTasks.pop()) {
+                    task.join();
+                    builder.join(task.builder);
+                }
+            }
+        }
+
+        /**
+         * Splits the children of {@code obj} in groups of consecutive siblings:
+         * each child whose subtree reaches the threshold is in a group by
+         * itself, while smaller children are grouped so that each group
+         * contains at most {@code threshold} {@link Primitive}s.
+         * @param obj The {@link Primitive} of which to group the children.
+         * @return The groups, in the same order as the children of {@code
+         * obj}.
+         */
+        private List<List<Primitive>> groupChildren(Primitive obj) {
+            List<List<Primitive>> groups = new ArrayList<>();
+            List<Primitive> smallChildren = new ArrayList<>();
+            int smallChildrenSize = 0;
+            for (Primitive child : obj.getChildren()) {
+                int childSize = subtreeSizes.get(child);
+                if (!smallChildren.isEmpty() &&
+                        (childSize >= threshold || smallChildrenSize + childSize > threshold)) {
+                    groups.add(smallChildren);
+                    smallChildren = new ArrayList<>();
+                    smallChildrenSize = 0;
+                }
+                if (childSize >= threshold) {
+                    groups.add(Collections.singletonList(child));
+                } else {
+                    smallChildren.add(child);
+                    smallChildrenSize += childSize;
+                }
+            }
+            if (!smallChildren.isEmpty()) {
+                groups.add(smallChildren);
+            }
+            return groups;
+        }
+    }
 }
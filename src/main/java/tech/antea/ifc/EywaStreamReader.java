@@ -0,0 +1,276 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Class used to convert the 3D model contained in a .eywa file while it's
+ * being parsed, without building the whole tree of {@link Primitive}s in
+ * memory first. Each {@link Primitive} is passed to the {@link EywaConverter}
+ * as soon as its attributes have been read, in the same order used by {@link
+ * EywaReader}, and can be garbage collected once all of its descendants have
+ * been converted.<br> To convert a .eywa file: pass an {@link EywaConverter} in
+ * the constructor, call one of the {@code convert} methods, then {@link
+ * #getResult()}.<br>The file is expected to have the layout used by Eywa:
+ * {@code metadata} and {@code hints} must come before {@code object}, and the
+ * {@code children} of each object must come after its other attributes.
+ * Attributes following {@code children} are ignored, because at that point the
+ * object has already been converted.<br>If the {@code builder} passed to the
+ * constructor can be used for multiple conversions, then the instance of this
+ * class can be reused.
+ */
+public class EywaStreamReader {
+    private static final String OBJECT_FIELD = "object";
+    private static final String CHILDREN_FIELD = "children";
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final EywaReader reader;
+
+    /**
+     * If {@code builder} can be used for multiple conversions, then the
+     * generated instance of this class can be reused too.
+     * @param builder The {@link EywaConverter} to use for the conversion.
+     * @throws NullPointerException If {@code builder} is {@code null}.
+     */
+    public EywaStreamReader(@NonNull EywaConverter builder) {
+        this.reader = new EywaReader(builder);
+    }
+
+    /**
+     * Uses the {@link EywaConverter} provided in the constructor to convert the
+     * content of {@code eywaFile}.
+     * @param eywaFile The .eywa file to convert.
+     * @throws NullPointerException If {@code eywaFile} is {@code null}.
+     * @throws java.io.FileNotFoundException If {@code eywaFile} does not
+     * exist or cannot be opened.
+     * @throws JsonParseException If {@code eywaFile} is not a valid JSON
+     * file.
+     * @throws com.fasterxml.jackson.databind.JsonMappingException If an object
+     * in {@code eywaFile} is not a valid Eywa {@link Primitive}.
+     * @throws IOException If an I/O error occurs while reading {@code
+     * eywaFile}.
+     * @throws IllegalArgumentException If {@code metadata.use} exists and is
+     * not {@code view}, if {@code object} is missing or {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    public void convert(@NonNull File eywaFile) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(eywaFile)) {
+            convert(parser);
+        }
+    }
+
+    /**
+     * Uses the {@link EywaConverter} provided in the constructor to convert the
+     * content of {@code eywaStream}, which is not closed by this method.
+     * @param eywaStream The content of a .eywa file.
+     * @throws NullPointerException If {@code eywaStream} is {@code null}.
+     * @throws JsonParseException If {@code eywaStream} is not valid JSON.
+     * @throws com.fasterxml.jackson.databind.JsonMappingException If an object
+     * in {@code eywaStream} is not a valid Eywa {@link Primitive}.
+     * @throws IOException If an I/O error occurs while reading {@code
+     * eywaStream}.
+     * @throws IllegalArgumentException If {@code metadata.use} exists and is
+     * not {@code view}, if {@code object} is missing or {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    public void convert(@NonNull InputStream eywaStream) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(eywaStream)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            convert(parser);
+        }
+    }
+
+    /**
+     * Uses the {@link EywaConverter} provided in the constructor to convert the
+     * .eywa content read from {@code parser}, which must be positioned before
+     * the start of the root JSON object.
+     * @param parser The parser from which to read the .eywa content.
+     * @throws NullPointerException If {@code parser} is {@code null}.
+     * @throws JsonParseException If the content of {@code parser} is not
+     * valid JSON, or is not a JSON object.
+     * @throws com.fasterxml.jackson.databind.JsonMappingException If an object
+     * read from {@code parser} is not a valid Eywa {@link Primitive}.
+     * @throws IOException If an I/O error occurs while reading from {@code
+     * parser}.
+     * @throws IllegalArgumentException If {@code metadata.use} exists and is
+     * not {@code view}, if {@code object} is missing or {@code null}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    public void convert(@NonNull JsonParser parser) throws IOException {
+        if (parser.getCodec() == null) {
+            parser.setCodec(mapper);
+        }
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "the content of a .eywa file must be a JSON object");
+        }
+        // metadata and hints, read into an EywaRoot with no object
+        ObjectNode header = mapper.createObjectNode();
+        boolean hasObject = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (!hasObject && OBJECT_FIELD.equals(field) && value == JsonToken.START_OBJECT) {
+                reader.addHeader(mapper.treeToValue(header, EywaRoot.class));
+                readPrimitives(parser);
+                hasObject = true;
+            } else if (hasObject) {
+                parser.skipChildren();
+            } else {
+                header.set(field, mapper.readTree(parser));
+            }
+        }
+        if (!hasObject) {
+            reader.addHeader(mapper.treeToValue(header, EywaRoot.class));
+            throw new IllegalArgumentException("can't convert an EywaRoot with no object");
+        }
+    }
+
+    /**
+     * Reads the {@link Primitive} starting at the current token of {@code
+     * parser}, passes it to the {@code builder} provided in the constructor,
+     * then does the same for all of its descendants. The objects being read
+     * are kept in an explicit stack instead of using recursion, so that the
+     * depth of the tree is only limited by the available memory. Once all the
+     * descendants of an object have been passed to the {@code builder},
+     * {@link EywaConverter#endObject(Primitive)} is called.
+     * @param parser The parser, positioned at the start of the JSON object
+     * representing the root {@link Primitive}.
+     * @throws IOException If an I/O error occurs while reading from {@code
+     * parser}, or if its content is not valid.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    private void readPrimitives(JsonParser parser) throws IOException {
+        Deque<PrimitiveState> stack = new ArrayDeque<>();
+        stack.push(new PrimitiveState(null));
+        while (!stack.isEmpty()) {
+            PrimitiveState current = stack.peek();
+            JsonToken token = parser.nextToken();
+            if (current.readingChildren) {
+                if (token == JsonToken.END_ARRAY) {
+                    current.readingChildren = false;
+                } else if (token == JsonToken.START_OBJECT) {
+                    stack.push(new PrimitiveState(current.obj));
+                } else {
+                    parser.skipChildren();
+                }
+            } else if (token == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!CHILDREN_FIELD.equals(field)) {
+                    if (current.obj == null) {
+                        current.attributes.set(field, mapper.readTree(parser));
+                    } else {
+                        // obj has already been converted
+                        parser.skipChildren();
+                    }
+                } else {
+                    if (current.obj == null) {
+                        addPrimitive(current);
+                    }
+                    if (value == JsonToken.START_ARRAY) {
+                        current.readingChildren = true;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                // end of the object
+                if (current.obj == null) {
+                    addPrimitive(current);
+                }
+                stack.pop();
+                reader.endObject(current.obj);
+            }
+        }
+    }
+
+    /**
+     * Creates a {@link Primitive} with the attributes read in {@code state}
+     * and passes it to the {@code builder} provided in the constructor.
+     * @param state The state of the {@link Primitive} being read.
+     * @throws IOException If the attributes read don't represent a valid
+     * {@link Primitive}.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    private void addPrimitive(PrimitiveState state) throws IOException {
+        Primitive obj = mapper.treeToValue(state.attributes, Primitive.class);
+        obj.setParent(state.parent);
+        reader.addObject(obj);
+        state.obj = obj;
+        state.attributes = null;
+    }
+
+    /**
+     * @return The result of the conversion.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    public Object getResult() {
+        return reader.getResult();
+    }
+
+    /**
+     * State of a {@link Primitive} whose JSON object is being read.
+     */
+    private static class PrimitiveState {
+        /**
+         * The parent of the {@link Primitive}, {@code null} if it's the root
+         * object.
+         */
+        final Primitive parent;
+        /**
+         * The attributes read so far, {@code null} once the {@link Primitive}
+         * has been converted.
+         */
+        ObjectNode attributes = JsonNodeFactory.instance.objectNode();
+        /**
+         * The converted {@link Primitive}, {@code null} until all of its
+         * attributes have been read.
+         */
+        Primitive obj;
+        /**
+         * {@code true} while the elements of {@code children} are being read.
+         */
+        boolean readingChildren;
+
+        PrimitiveState(Primitive parent) {
+            this.parent = parent;
+        }
+    }
+}
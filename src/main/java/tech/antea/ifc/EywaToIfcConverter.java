@@ -33,6 +33,7 @@ import buildingsmart.io.InverseRelationship;
 import buildingsmart.io.Serializer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -43,6 +44,8 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static buildingsmart.ifc.IfcBooleanOperator.DIFFERENCE;
@@ -52,7 +55,7 @@ import static buildingsmart.ifc.IfcSIUnitName.*;
 import static buildingsmart.ifc.IfcUnitEnum.*;
 import static java.lang.Math.*;
 
-public class EywaToIfcConverter implements EywaConverter {
+public class EywaToIfcConverter implements ForkableEywaConverter {
 
     /**
      * If {@code true}, the position of the converted objects will be relative
@@ -62,7 +65,8 @@ public class EywaToIfcConverter implements EywaConverter {
     private static final boolean USE_ABSOLUTE_PLACEMENTS = false;
     /**
      * Number of segments used to draw circles in {@link
-     * #addObject(EccentricCone)}.
+     * #addObject(EccentricCone)}, unless {@link
+     * ConversionOptions#getTessellationTolerance()} is bigger than 0.
      */
     private static final int RADIAL_SEGMENTS = 16;
 
@@ -70,38 +74,218 @@ public class EywaToIfcConverter implements EywaConverter {
     private static final String PROGRAM_NAME = "Antea IFC Export";
     private static final String PROGRAM_VERSION = "0.1.0";
     private static final String PROGRAM_ID = "tech.antea:eywa2ifc";
-    private static final ObjectMapper jsonMapper = new ObjectMapper();
     /**
-     * Representation context for all geometries.
+     * Writes the descriptions of Primitives. ObjectWriters are immutable, so
+     * it can be shared by all conversions.
      */
-    private static final IfcGeometricRepresentationContext GEOMETRIC_REPRESENTATION_CONTEXT =
-            new IfcGeometricRepresentationContext(
-                    new IfcLabel("Plan"),
-                    new IfcLabel("Model"),
-                    new IfcDimensionCount(3),
-                    new IfcReal(1.E-08),
-                    new IfcAxis2Placement3D(0, 0, 0),
-                    null);
+    private static final ObjectWriter DESCRIPTION_WRITER = new ObjectMapper().writerWithDefaultPrettyPrinter();
     /**
-     * The set containing the converted Eywa geometries.
+     * Writes the values in descriptions that are arrays or objects, if {@link
+     * ConversionOptions#isDescriptionProperties()} is {@code true}.
      */
-    private final Set<IfcProduct> geometries = Sets.newLinkedHashSet();
+    private static final ObjectWriter PROPERTY_VALUE_WRITER = new ObjectMapper().writer();
     /**
-     * Maps each Primitive in the Eywa tree to its placement.
+     * Name of the property sets containing the descriptions of Primitives, if
+     * {@link ConversionOptions#isDescriptionProperties()} is {@code true}.
      */
-    private final Map<Primitive, IfcLocalPlacement> objPositions = Maps.newHashMap();
+    private static final String DESCRIPTION_PROPERTY_SET_NAME = "Antea_Description";
+    /**
+     * The application used in all owner histories. IFC.JAVA checks that the
+     * identifiers of all IfcApplications in the JVM are unique, so it's
+     * created only once. It has no inverse attributes and is never modified.
+     */
+    private static final IfcApplication APPLICATION = new IfcApplication(buildOrganization(),
+            new IfcLabel(PROGRAM_VERSION),
+            new IfcLabel(PROGRAM_NAME),
+            new IfcIdentifier(PROGRAM_ID));
+    /**
+     * Timestamp of owner histories if {@link ConversionOptions#isDeterministic()}
+     * is {@code true}.
+     */
+    private static final int DETERMINISTIC_TIMESTAMP = 0;
+    /**
+     * Default position and rotation of Primitives, must not be modified.
+     */
+    private static final Double[] ZERO_VECTOR = {0d, 0d, 0d};
+    private static final Double[] NEGATIVE_ZERO_VECTOR = {-0d, -0d, -0d};
+    /**
+     * Origin and axes of the local coordinate system of IfcProducts, used to
+     * tessellate their geometries, must not be modified.
+     */
+    private static final double[] ORIGIN = {0, 0, 0};
+    private static final double[] X_AXIS = {1, 0, 0};
+    private static final double[] Y_AXIS = {0, 1, 0};
+    private static final double[] Z_AXIS = {0, 0, 1};
+    /**
+     * The set containing the converted Eywa geometries, each one is a new
+     * instance so they're compared by identity.
+     */
+    private final Set<IfcProduct> geometries = new IdentityLinkedSet<>();
+    /**
+     * Maps each Primitive in the Eywa tree to its placement. Keys are compared
+     * by identity, so that looking up the placement of a parent never hashes a
+     * Primitive, whose equals and hashCode can depend on all of its fields and
+     * children, and distinct Primitives with equal fields don't share a
+     * placement.
+     */
+    private final Map<Primitive, IfcLocalPlacement> objPositions = Maps.newIdentityHashMap();
+    /**
+     * Maps each Primitive in the Eywa tree to its coordinate system in the
+     * world one, as returned by {@link #toWorldMatrix(double[],
+     * IfcAxis2Placement3D)}, used only if {@link ConversionOptions#getRegion()}
+     * is not {@code null}. Keys are compared by identity like in {@link
+     * #objPositions}.
+     */
+    private final Map<Primitive, double[]> worldMatrices = Maps.newIdentityHashMap();
+    /**
+     * The instance of this class that created this one with {@link
+     * #fork(Primitive)}, {@code null} if this instance wasn't created this way.
+     */
+    private final EywaToIfcConverter forkedFrom;
+    /**
+     * Used to compute placements without allocating intermediate arrays.
+     */
+    private final PlacementTransform transform = new PlacementTransform();
+    private final ConversionOptions options;
+    /**
+     * Maps the type and geometric parameters of Primitives to the {@link
+     * IfcRepresentationMap} representing their geometry, used only if {@link
+     * ConversionOptions#isInstancing()} is {@code true}. Shared with the
+     * instances forked from this one, so that each geometry gets a single map
+     * whatever the thread converting it.
+     */
+    private final Map<List<Object>, IfcRepresentationMap> representationMaps;
+    /**
+     * Generates the GlobalIds of IfcRoots if {@link
+     * ConversionOptions#isDeterministic()} is {@code true}, {@code null}
+     * otherwise.
+     */
+    private final GlobalIdGenerator globalIds;
+    /**
+     * Tessellates solids of revolution if {@link
+     * ConversionOptions#getTessellationTolerance()} is bigger than 0, {@code
+     * null} otherwise.
+     */
+    private final Tessellator tessellator;
     /**
      * Owner history for all {@link IfcRoot} objects in this project.
      */
     private IfcOwnerHistory ownerHistory;
+    /**
+     * Representation context for all geometries in this conversion, shared
+     * with the instances forked from this one. IfcShapeRepresentations add
+     * themselves to its inverse attributes, so they must be created by {@link
+     * #buildShapeRepresentation(IfcLabel, IfcLabel, IfcRepresentationItem)}.
+     */
+    private IfcGeometricRepresentationContext context;
+    /**
+     * Entities and labels shared by the geometries of this conversion.
+     */
+    private ConstantEntities constants;
+    /**
+     * Profiles shared by the swept solids of this conversion, including the
+     * ones converted by the instances forked from this one.
+     */
+    private final ProfileRegistry profiles;
     private Map<String, Object> hints;
+    /**
+     * The Shells converted last that can still be extended, if {@link
+     * ConversionOptions#isCoalescingShells()} is {@code true}, {@code null}
+     * if there are none.
+     */
+    private ShellRun shellRun;
+    /**
+     * In forked instances, the number of IfcProducts in {@link #geometries}
+     * when the first Shell was converted, -1 if none was. The run left open
+     * by the instance this one was forked from must be converted there.
+     */
+    private int leadingRunStart = -1;
+    /**
+     * In forked instances, the number of IfcProducts in {@link #geometries}
+     * when the run started by the first Shell was closed, -1 if it wasn't.
+     */
+    private int leadingRunEnd = -1;
+    /**
+     * In forked instances, the run started by the first Shell once closed,
+     * which is converted by {@link #join(ForkableEywaConverter)} since it can
+     * continue the run left open by the instance this one was forked from.
+     * {@code null} if it's still open or the first Shell was conical.
+     */
+    private ShellRun leadingRun;
+    /**
+     * {@code true} if {@link #shellRun} is the run started by the first Shell
+     * of a forked instance.
+     */
+    private boolean shellRunLeading;
+    /**
+     * The IfcProducts converted so far for each distinct non-empty
+     * description, in order of conversion, if {@link
+     * ConversionOptions#isDescriptionProperties()} is {@code true}.
+     */
+    private final Map<Map<String, Object>, List<IfcProduct>> describedProducts = new LinkedHashMap<>();
+    /**
+     * Receives the descriptions of Primitives instead of their IfcProducts,
+     * {@code null} if they're written in the IfcProducts.
+     */
+    private DescriptionSidecar descriptionSidecar;
 
     /**
      * Creates a new instance of this class, which can be reused for multiple
      * conversions after calling {@link #getResult()}.
      */
     public EywaToIfcConverter() {
-        initializeOwnerHistory();
+        this(ConversionOptions.DEFAULT);
+    }
+
+    /**
+     * Creates a new instance of this class, which can be reused for multiple
+     * conversions after calling {@link #getResult()}.
+     * @param options The options to use in all conversions.
+     * @throws NullPointerException If {@code options} is {@code null}.
+     */
+    public EywaToIfcConverter(@NonNull ConversionOptions options) {
+        this.forkedFrom = null;
+        this.options = options;
+        this.representationMaps = new ConcurrentHashMap<>();
+        this.profiles = new ProfileRegistry();
+        this.globalIds = options.isDeterministic() ? new GlobalIdGenerator(options.getFileId()) : null;
+        this.tessellator = options.getTessellationTolerance() > 0
+                ? new Tessellator(options.getTessellationTolerance())
+                : null;
+        initializeConversion();
+    }
+
+    /**
+     * Creates a new instance of this class that can convert the descendants of
+     * {@code parent} independently of {@code forkedFrom}. IFC.JAVA entities
+     * update the inverse attributes of the entities they reference, so the new
+     * instance must not reference entities that can be referenced at the same
+     * time by other threads without synchronization: it gets its own copy of
+     * the placement of {@code parent}, and it shares the representation
+     * context, the representation maps and the profiles of {@code
+     * forkedFrom}, whose updates are synchronized.
+     * @param forkedFrom The instance of this class that converted {@code
+     * parent}.
+     * @param parent The {@link Primitive} whose descendants will be converted
+     * by the new instance.
+     */
+    private EywaToIfcConverter(EywaToIfcConverter forkedFrom, Primitive parent) {
+        this.forkedFrom = forkedFrom;
+        this.options = forkedFrom.options;
+        this.globalIds = forkedFrom.globalIds == null ? null : new GlobalIdGenerator(forkedFrom.globalIds, parent);
+        this.tessellator = forkedFrom.tessellator;
+        this.ownerHistory = forkedFrom.ownerHistory;
+        this.context = forkedFrom.context;
+        this.constants = new ConstantEntities();
+        this.representationMaps = forkedFrom.representationMaps;
+        this.profiles = new ProfileRegistry(forkedFrom.profiles);
+        this.descriptionSidecar = forkedFrom.descriptionSidecar;
+        IfcLocalPlacement parentPlacement = forkedFrom.objPositions.get(parent);
+        this.objPositions.put(parent, new IfcLocalPlacement(parentPlacement.getPlacementRelTo(),
+                parentPlacement.getRelativePlacement()));
+        if (options.getRegion() != null) {
+            this.worldMatrices.put(parent, forkedFrom.worldMatrices.get(parent));
+        }
     }
 
     /**
@@ -227,46 +411,136 @@ public class EywaToIfcConverter implements EywaConverter {
     }
 
     /**
-     * @param matrix An array representing a 4x4 matrix in column-major order.
-     * @param vector A 4-dimensional vector.
-     * @return A 4-dimensional vector that is result of the matrix
-     * multiplication matrix * vector.
-     * @throws NullPointerException If any of the arguments are {@code
-     * null}.
-     * @throws IllegalArgumentException If the length of {@code matrix} is not
-     * 16 or the length of {@code vector} is
-     * not 4.
-     */
-    private static double[] multiply(@NonNull Double[] matrix,
-            @NonNull double[] vector) {
-        if (matrix.length != 16) {
-            throw new IllegalArgumentException("matrix must have 16 elements");
-        }
-        if (vector.length != 4) {
-            throw new IllegalArgumentException("vector must have 4 elements");
-        }
-        double[] result = new double[4];
-        for (int i = 0; i < 4; i++) { // row index
-            result[i] = 0;
-            for (int j = 0; j < 4; j++) { // column index
-                result[i] += matrix[i + j * 4] * vector[j];
-            }
+     * @param obj The object for which to return the description.
+     * @return The {@code description} field of {@code obj} in the JSON format.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     * @throws ConversionException If an error occurs during the serialization
+     * of {@link Primitive#getDescription()} in the
+     * JSON format.
+     */
+    private static String getDescription(@NonNull Primitive obj) {
+        Map<String, Object> description = obj.getDescription();
+        try {
+            return DESCRIPTION_WRITER.writeValueAsString(description);
+        } catch (JsonProcessingException e) {
+            throw new ConversionException(e);
         }
-        return result;
     }
 
     /**
      * @param obj The object for which to return the description.
-     * @return The {@code description} field of {@code obj} in the JSON format.
+     * @return The {@code description} field of {@code obj} in the JSON format,
+     * or {@code null} if {@link ConversionOptions#isDescriptionProperties()}
+     * is {@code true} or there's a {@link #descriptionSidecar}.
      * @throws NullPointerException If {@code obj} is {@code null}.
      * @throws ConversionException If an error occurs during the serialization
      * of {@link Primitive#getDescription()} in the
      * JSON format.
      */
-    private static String getDescription(@NonNull Primitive obj) {
+    private IfcText getDescriptionText(@NonNull Primitive obj) {
+        return options.isDescriptionProperties() || descriptionSidecar != null
+                ? null
+                : new IfcText(getDescription(obj));
+    }
+
+    /**
+     * Adds {@code product} to the converted geometries and, if {@link
+     * ConversionOptions#isDescriptionProperties()} is {@code true}, to the
+     * IfcProducts with the same description as {@code obj}. The description
+     * of {@code obj} is written to {@link #descriptionSidecar}, if there's
+     * one.
+     * @param product The IfcProduct representing {@code obj}.
+     * @param obj The converted Primitive.
+     * @throws ConversionException If an I/O error occurs while writing to
+     * {@link #descriptionSidecar}.
+     */
+    private void addProduct(IfcProduct product, Primitive obj) {
+        geometries.add(product);
         Map<String, Object> description = obj.getDescription();
+        if (descriptionSidecar != null) {
+            descriptionSidecar.write(product.getGlobalId(), obj.getLegacyId(), description);
+        }
+        if (options.isDescriptionProperties() && description != null && !description.isEmpty()) {
+            describedProducts.computeIfAbsent(description, d -> new ArrayList<>()).add(product);
+        }
+    }
+
+    /**
+     * Adds {@code products}, created by a forked instance, to {@link
+     * #geometries} and {@link #describedProducts}.
+     * @param products The IfcProducts to add, in order.
+     * @param descriptions The non-empty descriptions of the IfcProducts.
+     */
+    private void addProducts(List<IfcProduct> products, Map<IfcProduct, Map<String, Object>> descriptions) {
+        for (IfcProduct product : products) {
+            geometries.add(product);
+            Map<String, Object> description = descriptions.get(product);
+            if (description != null) {
+                describedProducts.computeIfAbsent(description, d -> new ArrayList<>()).add(product);
+            }
+        }
+    }
+
+    /**
+     * Creates an {@code Antea_Description} property set for each distinct
+     * description in {@link #describedProducts}, attached to all of its
+     * IfcProducts by a single IfcRelDefinesByProperties. Equal properties are
+     * shared by all the property sets.
+     * @throws ConversionException If an error occurs during the serialization
+     * of a value of a description in the JSON format.
+     */
+    private void addDescriptionProperties() {
+        Map<List<Object>, IfcProperty> properties = Maps.newHashMap();
+        int index = 0;
+        for (Map.Entry<Map<String, Object>, List<IfcProduct>> entry : describedProducts.entrySet()) {
+            Set<IfcProperty> propertySetProperties = new LinkedHashSet<>();
+            for (Map.Entry<String, Object> field : entry.getKey().entrySet()) {
+                propertySetProperties.add(properties.computeIfAbsent(
+                        Arrays.asList(field.getKey(), field.getValue()),
+                        k -> new IfcPropertySingleValue(new IfcIdentifier(field.getKey()), null,
+                                toPropertyValue(field.getValue()), null)));
+            }
+            IfcPropertySet propertySet = IfcPropertySet.builder().globalId(newGlobalId("description-" + index))
+                    .ownerHistory(ownerHistory)
+                    .name(new IfcLabel(DESCRIPTION_PROPERTY_SET_NAME))
+                    .hasProperties(propertySetProperties).build();
+            Set<IfcObject> relatedObjects = new IdentityLinkedSet<>();
+            relatedObjects.addAll(entry.getValue());
+            IfcRelDefinesByProperties.builder().globalId(newGlobalId("description-link-" + index))
+                    .ownerHistory(ownerHistory)
+                    .relatedObjects(relatedObjects)
+                    .relatingPropertyDefinition(propertySet).build();
+            index++;
+        }
+    }
+
+    /**
+     * @param value A value of a description.
+     * @return {@code value} as an IfcLabel if it's a string, an IfcInteger or
+     * an IfcReal if it's a number, an IfcBoolean if it's a boolean, an IfcText
+     * containing its JSON representation if it's an array or an object, or
+     * {@code null} if it's {@code null}.
+     * @throws ConversionException If an error occurs during the serialization
+     * of {@code value} in the JSON format.
+     */
+    private static IfcValue toPropertyValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            return new IfcLabel((String) value);
+        }
+        if (value instanceof Boolean) {
+            return new IfcBoolean((Boolean) value);
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return new IfcInteger(((Number) value).intValue());
+        }
+        if (value instanceof Number) {
+            return new IfcReal(((Number) value).doubleValue());
+        }
         try {
-            return jsonMapper.writerWithDefaultPrettyPrinter().writeValueAsString(description);
+            return new IfcText(PROPERTY_VALUE_WRITER.writeValueAsString(value));
         } catch (JsonProcessingException e) {
             throw new ConversionException(e);
         }
@@ -287,82 +561,34 @@ public class EywaToIfcConverter implements EywaConverter {
     private static IfcLocalPlacement flip(@NonNull IfcLocalPlacement unflipped,
             double length) {
         IfcAxis2Placement3D localCoordSys = (IfcAxis2Placement3D) unflipped.getRelativePlacement();
+        List<IfcDirection> p = localCoordSys.getP();
+        List<IfcLengthMeasure> originCoords = localCoordSys.getLocation().getCoordinates();
+        List<IfcReal> zAxisNormCoords = p.get(2).getDirectionRatios();
 
         // shifting the origin upwards along the local z axis
-        double[] originCoords = localCoordSys.getLocation().getCoordinates().stream()
-                .mapToDouble(IfcLengthMeasure::getValue).toArray();
-        double[] zAxisNormCoords = localCoordSys.getP().get(2).getDirectionRatios().stream()
-                .mapToDouble(IfcReal::getValue).toArray();
-        double[] shiftedOriginCoords = IntStream.range(0, originCoords.length)
-                .mapToDouble(i -> originCoords[i] + length * zAxisNormCoords[i])
-                .toArray();
-        IfcCartesianPoint shiftedOrigin = new IfcCartesianPoint(shiftedOriginCoords);
+        IfcCartesianPoint shiftedOrigin = new IfcCartesianPoint(
+                originCoords.get(0).getValue() + length * zAxisNormCoords.get(0).getValue(),
+                originCoords.get(1).getValue() + length * zAxisNormCoords.get(1).getValue(),
+                originCoords.get(2).getValue() + length * zAxisNormCoords.get(2).getValue());
 
         // flipping the z axis
-        double[] flippedAxisCoords = localCoordSys.getP().get(2).getDirectionRatios().stream()
-                .mapToDouble(ifcreal -> -ifcreal.getValue()).toArray();
-        IfcDirection flippedAxis = new IfcDirection(flippedAxisCoords);
+        IfcDirection flippedAxis = new IfcDirection(-zAxisNormCoords.get(0).getValue(),
+                -zAxisNormCoords.get(1).getValue(), -zAxisNormCoords.get(2).getValue());
 
         // this doesn't modify the IfcAxis2Placement3D associated to obj
         // in objPositions, which must not be modified because it's used to
         // calculate the location of children of obj
         IfcAxis2Placement3D newLocalCoordSys = new IfcAxis2Placement3D(shiftedOrigin, flippedAxis,
-                localCoordSys.getP().get(0));
+                p.get(0));
         return new IfcLocalPlacement(unflipped.getPlacementRelTo(), newLocalCoordSys);
     }
 
-    /**
-     * Rotates the given vector.
-     * @param vector The vector to rotate. It must use the Eywa coordinate
-     * system and have the x, y, z and w components.
-     * @param rotations Euler angles in radians describing the 3 rotations.
-     * @param order Indicates on what axis each rotation must be applied,
-     * for example {@code "XYZ"} indicates that the first
-     * rotation should be done around the X axis, the second
-     * one on the Y axis, and the third one on the Z axis.
-     * @throws NullPointerException If any of the arguments are null.
-     * @throws IllegalArgumentException If {@code vector}'s length is not 4, if
-     * {@code rotations}'s or {@code order}'s
-     * length is not 3, if order contains any
-     * characters other than 'X', 'Y' and 'Z'.
-     */
-    private static void rotate(@NonNull double[] vector, @NonNull Double[] rotations, @NonNull String order) {
-        if (vector.length != 4) {
-            throw new IllegalArgumentException("length of vector must be 4");
-        } else if (rotations.length != 3) {
-            throw new IllegalArgumentException("length of rotations must be 3");
-        }
-        if (!order.matches("^[XYZ]{3}$")) {
-            throw new IllegalArgumentException("order must be 3 characters long and can contain only" +
-                    " the characters 'X', 'Y' and 'Z'");
-        }
-        double[] oldVector = new double[vector.length];
-        for (byte i = 0; i < order.length(); i++) {
-            double ang = rotations[i];
-            System.arraycopy(vector, 0, oldVector, 0, vector.length);
-            switch (order.charAt(i)) {
-                case 'X':
-                    vector[1] = oldVector[1] * cos(ang) - oldVector[2] * sin(ang);
-                    vector[2] = oldVector[1] * sin(ang) + oldVector[2] * cos(ang);
-                    break;
-                case 'Y':
-                    vector[0] = oldVector[0] * cos(ang) + oldVector[2] * sin(ang);
-                    vector[2] = -oldVector[0] * sin(ang) + oldVector[2] * cos(ang);
-                    break;
-                default: // Z
-                    vector[0] = oldVector[0] * cos(ang) - oldVector[1] * sin(ang);
-                    vector[1] = oldVector[0] * sin(ang) + oldVector[1] * cos(ang);
-                    break;
-            }
-        }
-    }
-
     /**
      * @param p The {@link Primitive} for which to return the thickness.
      * @return The Primitive's thickness if it exist and is bigger than 0, 0.1
      * otherwise.
      */
-    private static double getSafeThickness(Primitive p) {
+    static double getSafeThickness(Primitive p) {
         return p == null || p.getThickness() == null || p.getThickness() <= 0
                 ? 0.1
                 : p.getThickness();
@@ -374,11 +600,10 @@ public class EywaToIfcConverter implements EywaConverter {
      * @param radius Radius of the ExpansionJoint.
      * @param length Length of the ExpansionJoint.
      * @param thickness Thickness of the ExpansionJoint.
-     * @return The {@link IfcProductDefinitionShape} containing the geometries
-     * that represent the ExpansionJoint, ready to be put in the {@link
-     * IfcProduct} that is the conversion of the ExpansionJoint.
+     * @return The {@link IfcShapeRepresentation} containing the geometries
+     * that represent the ExpansionJoint.
      */
-    private static IfcProductDefinitionShape buildExpansionJoint(double radius, double length,
+    private IfcShapeRepresentation buildExpansionJoint(double radius, double length,
             double thickness) {
         double radiusThird = radius / 3;
         double radiusPlusRadiusThird = radius + radiusThird;
@@ -421,71 +646,22 @@ public class EywaToIfcConverter implements EywaConverter {
         IfcArbitraryClosedProfileDef expJointSectionWrapper = new IfcArbitraryClosedProfileDef(
                 IfcProfileTypeEnum.AREA, null, expJointSection);
         IfcAxis2Placement3D expJointPosition = new IfcAxis2Placement3D(
-                new IfcCartesianPoint(0, 0, 0),
+                constants.origin,
                 // the z axis is rotated by PI/2
                 // towards the negative y axis, and
                 // the y axis becomes the vertical axis
-                new IfcDirection(0, -1, 0),
-                new IfcDirection(1, 0, 0));
+                constants.negativeYAxis,
+                constants.xAxis);
         IfcRevolvedAreaSolid expansionJoint = new IfcRevolvedAreaSolid(expJointSectionWrapper,
                 expJointPosition,
                 new IfcAxis1Placement(
-                        new IfcCartesianPoint(0, 0, 0),
-                        new IfcDirection(0, 1, 0)),
+                        constants.origin,
+                        constants.yAxis),
                 new IfcPlaneAngleMeasure(2 * PI));
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"),
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"),
                 expansionJoint);
-        return new IfcProductDefinitionShape(null, null, shapeRepresentation);
-    }
-
-    /**
-     * Translates a vector in the IFC coordinate system to the equivalent vector
-     * in the Eywa coordinate system, as axes x, y and z in IFC correspond to
-     * axes z, x and y in Eywa.
-     * @param vector The vector in the IFC coordinate system.
-     * @param isPosition {@code true} if the vector is a position in space,
-     * {@code false} if it's a direction.
-     * @return An array of 4 elements containing the components of the vector in
-     * the Eywa coordinate system.
-     * @throws NullPointerException If {@code vector} is {@code null}.
-     * @throws IllegalArgumentException If length of {@code vector} is not 3.
-     */
-    private static double[] ifcToEywaVector(@NonNull double[] vector, boolean isPosition) {
-        if (vector.length != 3) {
-            throw new IllegalArgumentException("length of vector must be 3, as it needs to have" +
-                    " the x, y and z components");
-        }
-        double[] result = new double[4];
-        result[0] = vector[1];
-        result[1] = vector[2];
-        result[2] = vector[0];
-        result[3] = isPosition ? 1 : 0;
-        return result;
-    }
-
-    /**
-     * Translates a vector in the Eywa coordinate system to the equivalent
-     * vector in the IFC coordinate system, as axes x, y and z in Eywa
-     * correspond to axes y, z and x in IFC.
-     * @param vector The vector in the Eywa coordinate system.
-     * @return An array of 3 elements containing the components of the vector in
-     * the IFC coordinate system.
-     * @throws NullPointerException If {@code vector} is {@code null}.
-     * @throws IllegalArgumentException If length of {@code vector} is not 4.
-     */
-    private static double[] eywaToIfcVector(@NonNull double[] vector) {
-        if (vector.length != 4) {
-            throw new IllegalArgumentException("length of vector must be 4 as it needs to have the x, y," +
-                    " z and w components");
-        }
-        double[] result = new double[3];
-        result[0] = vector[2];
-        result[1] = vector[0];
-        result[2] = vector[1];
-        return result;
     }
 
     /**
@@ -527,24 +703,195 @@ public class EywaToIfcConverter implements EywaConverter {
     }
 
     /**
-     * Initializes {@code this.ownerHistory}. This field will be needed when
-     * creating the IfcProducts that represent instances of Eywa Primitives.
+     * @return The type of the representations of Primitives that are swept
+     * solids, unless they're tessellated.
      */
-    private void initializeOwnerHistory() {
-        IfcPerson person = IfcPerson.builder().givenName(new IfcLabel("")).build();
+    private String getSweptSolidType() {
+        return tessellator == null ? "SweptSolid" : "Brep";
+    }
+
+    /**
+     * @param innerRadius Inner radius of the tube.
+     * @param outerRadius Outer radius of the tube.
+     * @param z Position of the base of the tube along the z axis.
+     * @param length Length of the tube along the z axis.
+     * @return The tessellated tube.
+     */
+    private IfcFacetedBrep tessellateTube(double innerRadius, double outerRadius, double z, double length) {
+        double[] section = {innerRadius, z, outerRadius, z, outerRadius, z + length, innerRadius, z + length};
+        return tessellator.revolve(section, 2 * PI, ORIGIN, Z_AXIS, X_AXIS);
+    }
+
+    /**
+     * @param radius Radius of the sphere.
+     * @param normal Normal of the plane cutting the sphere, pointing towards
+     * the part of the sphere that is removed.
+     * @param height Distance of the plane from the center of the sphere, along
+     * {@code normal}.
+     * @return The part of a sphere centered in the origin that is not beyond
+     * a plane, as a solid of revolution around {@code normal}.
+     * @throws IllegalArgumentException If {@code radius} is not bigger than
+     * zero.
+     */
+    static IfcRevolvedAreaSolid buildDish(double radius, double[] normal, double height) {
+        if (height >= radius) {
+            return buildSphere(radius, new IfcAxis2Placement3D(0, 0, 0));
+        }
+        IfcCircle circumference = new IfcCircle(new IfcAxis2Placement2D(0, 0),
+                new IfcPositiveLengthMeasure(radius));
+        double cutDistance = sqrt(radius * radius - height * height);
+        double cutAngle = atan2(height, cutDistance);
+        IfcCartesianPoint bottomCircumferencePt = new IfcCartesianPoint(0, -radius);
+        IfcCartesianPoint cutCircumferencePt = new IfcCartesianPoint(cutDistance, height);
+        Set<IfcTrimmingSelect> trim1 = Sets.newLinkedHashSet(
+                Arrays.asList(bottomCircumferencePt, new IfcParameterValue(3 * PI / 2)));
+        Set<IfcTrimmingSelect> trim2 = Sets.newLinkedHashSet(
+                Arrays.asList(cutCircumferencePt, new IfcParameterValue(cutAngle < 0 ? cutAngle + 2 * PI : cutAngle)));
+        IfcTrimmedCurve arc = new IfcTrimmedCurve(circumference, trim1, trim2,
+                IfcBoolean.T, IfcTrimmingPreference.CARTESIAN);
+
+        IfcPolyline cut = new IfcPolyline(cutCircumferencePt, new IfcCartesianPoint(0, height),
+                bottomCircumferencePt);
+
+        List<IfcCompositeCurveSegment> segments = Lists.newArrayListWithCapacity(2);
+        segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS,
+                IfcBoolean.T, arc));
+        segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS,
+                IfcBoolean.T, cut));
+        IfcCompositeCurve section = new IfcCompositeCurve(segments, IfcLogical.F);
+        IfcArbitraryClosedProfileDef sectionWrapper = new IfcArbitraryClosedProfileDef(
+                IfcProfileTypeEnum.AREA, null, section);
+
+        // the profile is revolved around the y axis of the position, which
+        // must then be the normal of the plane
+        double normalLength = sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+        double[] y = {normal[0] / normalLength, normal[1] / normalLength, normal[2] / normalLength};
+        double[] x = abs(y[0]) < abs(y[1]) ? new double[]{1, 0, 0} : new double[]{0, 1, 0};
+        double projection = x[0] * y[0] + x[1] * y[1] + x[2] * y[2];
+        for (int i = 0; i < 3; i++) {
+            x[i] -= projection * y[i];
+        }
+        IfcAxis2Placement3D position = new IfcAxis2Placement3D(new IfcCartesianPoint(0, 0, 0),
+                new IfcDirection(x[1] * y[2] - x[2] * y[1], x[2] * y[0] - x[0] * y[2], x[0] * y[1] - x[1] * y[0]),
+                new IfcDirection(x[0], x[1], x[2]));
+        IfcAxis1Placement rotationAxis = new IfcAxis1Placement(
+                new IfcCartesianPoint(0, 0, 0),
+                new IfcDirection(0, 1, 0));
+        return new IfcRevolvedAreaSolid(sectionWrapper, position, rotationAxis,
+                new IfcPlaneAngleMeasure(2 * PI));
+    }
+
+    /**
+     * Creates the {@link IfcProductDefinitionShape} of an IfcProduct. If
+     * {@link ConversionOptions#isInstancing()} is {@code true}, the geometry
+     * is put in an {@link IfcRepresentationMap} shared by all IfcProducts with
+     * the same {@code shapeParameters}, and {@code shapeRepresentation} is
+     * called only if there's no such map yet, even in forked instances:
+     * IfcShapeRepresentations are added to the representations of {@link
+     * #context} when they're created, so the ones not used would still be
+     * written.
+     * @param shapeRepresentation Creates the geometry of the IfcProduct, in
+     * its local coordinate system.
+     * @param shapeParameters The class of the converted Primitive followed by
+     * all the parameters that determine the geometry. Two Primitives with
+     * equal parameters must have the same geometry. Arrays are compared by
+     * identity, so their elements must be passed instead.
+     * @return The {@link IfcProductDefinitionShape} to use as the
+     * representation of the IfcProduct.
+     * @throws NullPointerException If {@code shapeRepresentation} is {@code
+     * null}.
+     */
+    private IfcProductDefinitionShape buildProductDefinitionShape(
+            @NonNull Supplier<IfcShapeRepresentation> shapeRepresentation, Object... shapeParameters) {
+        if (!options.isInstancing()) {
+            return new IfcProductDefinitionShape(null, null, shapeRepresentation.get());
+        }
+        IfcRepresentationMap representationMap = representationMaps.computeIfAbsent(
+                Arrays.asList(shapeParameters),
+                key -> new IfcRepresentationMap(constants.origin3D, shapeRepresentation.get()));
+        IfcMappedItem mappedItem;
+        // the map is shared with forked instances, and lists its IfcMappedItems
+        synchronized (representationMap) {
+            mappedItem = new IfcMappedItem(representationMap,
+                    new IfcCartesianTransformationOperator3D(null, null, constants.origin, null,
+                            null));
+        }
+        IfcShapeRepresentation mappedRepresentation = buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("MappedRepresentation"), mappedItem);
+        return new IfcProductDefinitionShape(null, null, mappedRepresentation);
+    }
+
+    /**
+     * Creates an IfcShapeRepresentation in {@link #context}, which is shared
+     * by forked instances and lists all of its IfcShapeRepresentations.
+     * @param identifier The identifier of the representation.
+     * @param type The type of the representation.
+     * @param item The only item of the representation.
+     * @return The new IfcShapeRepresentation.
+     */
+    private IfcShapeRepresentation buildShapeRepresentation(IfcLabel identifier, IfcLabel type,
+            IfcRepresentationItem item) {
+        synchronized (context) {
+            return new IfcShapeRepresentation(context, identifier, type, item);
+        }
+    }
+
+    /**
+     * Creates an IfcShapeRepresentation in {@link #context}, which is shared
+     * by forked instances and lists all of its IfcShapeRepresentations.
+     * @param identifier The identifier of the representation.
+     * @param type The type of the representation.
+     * @param items The items of the representation.
+     * @return The new IfcShapeRepresentation.
+     */
+    private IfcShapeRepresentation buildShapeRepresentation(IfcLabel identifier, IfcLabel type,
+            Set<IfcRepresentationItem> items) {
+        synchronized (context) {
+            return new IfcShapeRepresentation(context, identifier, type, items);
+        }
+    }
+
+    /**
+     * @return A new IfcOrganization representing Antea.
+     */
+    private static IfcOrganization buildOrganization() {
         IfcActorRole anteaRole = new IfcActorRole(IfcRoleEnum.CONSULTANT, null, null);
-        IfcOrganization organization = IfcOrganization.builder().name(new IfcLabel(COMPANY_NAME))
+        return IfcOrganization.builder().name(new IfcLabel(COMPANY_NAME))
                 .roles(Collections.singletonList(anteaRole)).build();
+    }
+
+    /**
+     * @return A new representation context for the geometries of a
+     * conversion.
+     */
+    private static IfcGeometricRepresentationContext buildGeometricRepresentationContext() {
+        return new IfcGeometricRepresentationContext(
+                new IfcLabel("Plan"),
+                new IfcLabel("Model"),
+                new IfcDimensionCount(3),
+                new IfcReal(1.E-08),
+                new IfcAxis2Placement3D(0, 0, 0),
+                null);
+    }
+
+    /**
+     * Initializes {@code this.ownerHistory} and {@code this.context}, which
+     * are needed when creating the IfcProducts that represent instances of
+     * Eywa Primitives. Each conversion has its own, so that conversions in
+     * different threads don't share any mutable entity.
+     */
+    private void initializeConversion() {
+        IfcPerson person = IfcPerson.builder().givenName(new IfcLabel("")).build();
         IfcPersonAndOrganization personAndOrganization = new IfcPersonAndOrganization(
-                person, organization, null);
-        IfcApplication.clearUniqueConstraint();
-        IfcApplication application = new IfcApplication(organization,
-                new IfcLabel(PROGRAM_VERSION),
-                new IfcLabel(PROGRAM_NAME),
-                new IfcIdentifier(PROGRAM_ID));
-        IfcTimeStamp currentTime = new IfcTimeStamp();
-        this.ownerHistory = new IfcOwnerHistory(personAndOrganization, application, null,
-                IfcChangeActionEnum.ADDED, currentTime, personAndOrganization, application, currentTime);
+                person, buildOrganization(), null);
+        IfcTimeStamp currentTime = options.isDeterministic()
+                ? new IfcTimeStamp(DETERMINISTIC_TIMESTAMP)
+                : new IfcTimeStamp();
+        this.ownerHistory = new IfcOwnerHistory(personAndOrganization, APPLICATION, null,
+                IfcChangeActionEnum.ADDED, currentTime, personAndOrganization, APPLICATION, currentTime);
+        this.context = buildGeometricRepresentationContext();
+        this.constants = new ConstantEntities();
     }
 
     /**
@@ -554,6 +901,7 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public IfcProject getResult() {
+        addShellRun();
         IfcSIUnit millimeter = new IfcSIUnit(LENGTHUNIT, MILLI, METRE);
         IfcSIUnit squaremillimeter = new IfcSIUnit(AREAUNIT, MILLI, SQUARE_METRE);
         IfcSIUnit cubicmillimeter = new IfcSIUnit(VOLUMEUNIT, MILLI, CUBIC_METRE);
@@ -562,38 +910,149 @@ public class EywaToIfcConverter implements EywaConverter {
                 cubicmillimeter, radian);
 
         String projectName = hints == null ? null : (String) hints.get("name");
-        IfcProject ifcProject = IfcProject.builder().globalId(new IfcGloballyUniqueId())
+        IfcProject ifcProject = IfcProject.builder().globalId(newGlobalId("project"))
                 .ownerHistory(ownerHistory)
                 .name(new IfcLabel(projectName == null ? "Unnamed" : projectName))
-                .representationContext(GEOMETRIC_REPRESENTATION_CONTEXT)
+                .representationContext(context)
                 .unitsInContext(unitAssignment).build();
 
-        IfcSite ifcSite = IfcSite.builder().globalId(new IfcGloballyUniqueId())
+        IfcSite ifcSite = IfcSite.builder().globalId(newGlobalId("site"))
                 .ownerHistory(ownerHistory)
                 .compositionType(IfcElementCompositionEnum.COMPLEX).build();
 
-        IfcRelAggregates.builder().globalId(new IfcGloballyUniqueId())
+        IfcRelAggregates.builder().globalId(newGlobalId("project-site"))
                 .ownerHistory(ownerHistory)
                 .name(new IfcLabel("Project to site link"))
                 .relatingObject(ifcProject).relatedObject(ifcSite).build();
 
-        IfcRelContainedInSpatialStructure.builder().globalId(new IfcGloballyUniqueId())
+        IfcRelContainedInSpatialStructure.builder().globalId(newGlobalId("site-geometries"))
                 .ownerHistory(ownerHistory)
                 .name(new IfcLabel("Site to geometries link"))
                 .relatingStructure(ifcSite).relatedElements(geometries).build();
 
+        addDescriptionProperties();
+
         // resetting fields used during the conversion
         geometries.clear();
         objPositions.clear();
+        worldMatrices.clear();
+        representationMaps.clear();
+        profiles.clear();
+        describedProducts.clear();
+        if (globalIds != null) {
+            globalIds.clear();
+        }
         hints = null;
 
-        // updating ownerHistory with a recent date, in case this object will
-        // be used for another conversion
-        initializeOwnerHistory();
+        // updating ownerHistory with a recent date and creating a new context,
+        // in case this object will be used for another conversion
+        initializeConversion();
 
         return ifcProject;
     }
 
+    /**
+     * @return How many profiles were requested and created by this instance
+     * and by the instances forked from it and joined, since it was created.
+     */
+    public ProfileStatistics getProfileStatistics() {
+        return profiles.getStatistics();
+    }
+
+    /**
+     * Leaves the descriptions of Primitives out of the IfcProducts of the next
+     * conversions, writing them to {@code descriptionSidecar} while
+     * IfcProducts are created. Instances forked after calling this method
+     * write to the same sidecar, which must be closed by the caller after
+     * {@link #getResult()}, since the last Shells can still be converted
+     * there.
+     * @param descriptionSidecar The sidecar to write descriptions to, or
+     * {@code null} to write them in the IfcProducts again.
+     */
+    public void setDescriptionSidecar(DescriptionSidecar descriptionSidecar) {
+        this.descriptionSidecar = descriptionSidecar;
+    }
+
+    /**
+     * Creates a new instance of this class that can convert the descendants of
+     * {@code parent} in a different thread. The new instance shares the owner
+     * history of this one, and must be passed to {@link
+     * #join(ForkableEywaConverter)} once its conversion is done.
+     * @param parent A {@link Primitive} already converted by this instance.
+     * @return The new instance.
+     * @throws NullPointerException If {@code parent} is {@code null}.
+     * @throws IllegalArgumentException If {@code parent} was not converted by
+     * this instance.
+     */
+    @Override
+    public EywaToIfcConverter fork(@NonNull Primitive parent) {
+        if (!objPositions.containsKey(parent)) {
+            throw new IllegalArgumentException("parent was not converted by this instance");
+        }
+        return new EywaToIfcConverter(this, parent);
+    }
+
+    /**
+     * Adds the IfcProducts created by {@code forked} after the ones created by
+     * this instance. The run of Shells left open by this instance is converted
+     * where the first Shell of {@code forked} was, or extended with the first
+     * run of {@code forked}, so that the result is the same as converting
+     * everything in a single instance.
+     * @param forked An instance created by {@link #fork(Primitive)} on this
+     * instance, whose conversion is done.
+     * @throws NullPointerException If {@code forked} is {@code null}.
+     * @throws IllegalArgumentException If {@code forked} was not created by
+     * this instance.
+     */
+    @Override
+    public void join(@NonNull ForkableEywaConverter forked) {
+        if (!(forked instanceof EywaToIfcConverter) ||
+                ((EywaToIfcConverter) forked).forkedFrom != this) {
+            throw new IllegalArgumentException("forked was not created by this instance");
+        }
+        EywaToIfcConverter forkedConverter = (EywaToIfcConverter) forked;
+        List<IfcProduct> products = new ArrayList<>(forkedConverter.geometries);
+        Map<IfcProduct, Map<String, Object>> descriptions = new IdentityHashMap<>();
+        forkedConverter.describedProducts.forEach((description, described) ->
+                described.forEach(product -> descriptions.put(product, description)));
+        if (forkedConverter.leadingRunStart < 0) {
+            addProducts(products, descriptions);
+        } else {
+            addProducts(products.subList(0, forkedConverter.leadingRunStart), descriptions);
+            // the first Shell of forked is the first one of this instance too
+            boolean first = forkedFrom != null && leadingRunStart < 0;
+            if (first) {
+                leadingRunStart = geometries.size();
+            }
+            ShellRun next = forkedConverter.leadingRunEnd < 0 ? forkedConverter.shellRun : forkedConverter.leadingRun;
+            if (shellRun == null || next == null || !shellRun.continuesWith(next)) {
+                addShellRun();
+                if (next != null) {
+                    shellRun = next;
+                    shellRunLeading = first;
+                } else if (first) {
+                    leadingRunEnd = leadingRunStart;
+                }
+            } else {
+                shellRun.addAll(next);
+            }
+            if (forkedConverter.leadingRunEnd < 0) {
+                addProducts(products.subList(forkedConverter.leadingRunStart, products.size()), descriptions);
+            } else {
+                addProducts(products.subList(forkedConverter.leadingRunStart, forkedConverter.leadingRunEnd),
+                        descriptions);
+                addShellRun();
+                addProducts(products.subList(forkedConverter.leadingRunEnd, products.size()), descriptions);
+                shellRun = forkedConverter.shellRun;
+            }
+        }
+        profiles.addStatistics(forkedConverter.profiles);
+        forkedConverter.geometries.clear();
+        forkedConverter.describedProducts.clear();
+        forkedConverter.objPositions.clear();
+        forkedConverter.worldMatrices.clear();
+    }
+
     /**
      * Call this method to use EywaRoot's hints in the conversion (if
      * possible).
@@ -605,17 +1064,118 @@ public class EywaToIfcConverter implements EywaConverter {
     }
 
     /**
-     * Resolves the location of {@code obj} and adds it to {@code
-     * objPositions}.
-     * @param obj The object of which to resolve the absolute location.
-     * @return The location of the object relative to the world coordinate
-     * system.
-     * @throws NullPointerException If obj is {@code null}.
-     * @throws IllegalArgumentException If in {@code obj} the matrix field is
-     * not set and the rotation field is.
+     * Forgets the placement of {@code obj}, which is no longer needed as all
+     * of its descendants have been converted, so that {@code obj} can be
+     * garbage collected. Only the Eywa side is released: the IFC entities
+     * created so far are kept until {@link #getResult()}, so the memory used
+     * still grows with the number of converted Primitives.
+     * @param obj A Primitive that was already converted.
      */
-    private IfcLocalPlacement resolveLocation(@NonNull Primitive obj) {
-        IfcAxis2Placement3D parentPosition;
+    @Override
+    public void endObject(Primitive obj) {
+        if (shellRun != null && shellRun.getParent() == obj) {
+            addShellRun();
+        }
+        objPositions.remove(obj);
+        worldMatrices.remove(obj);
+        if (globalIds != null) {
+            globalIds.endObject(obj);
+        }
+    }
+
+    /**
+     * Resolves the placement of {@code obj} without converting it, so that
+     * its descendants can be converted by this instance. Used by {@link
+     * PartitionedConverter} for the ancestors of the Primitives in a
+     * partition, whose parent must already have a placement.
+     * @param obj A Primitive not converted by this instance.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     */
+    void addPlacement(@NonNull Primitive obj) {
+        resolveLocation(obj);
+    }
+
+    /**
+     * Gives the index of {@code obj} among its siblings, used for its
+     * GlobalIds if {@link ConversionOptions#isDeterministic()} is {@code
+     * true}, when this instance doesn't convert all of them.
+     * @param obj A Primitive that hasn't been converted or placed yet.
+     * @param index The index of {@code obj} among the children of its parent.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     */
+    void setIndex(@NonNull Primitive obj, int index) {
+        if (globalIds != null) {
+            globalIds.setIndex(obj, index);
+        }
+    }
+
+    /**
+     * @param obj A Primitive.
+     * @return {@code true} if {@code obj} has been converted or placed by this
+     * instance, and not forgotten by {@link #endObject(Primitive)}.
+     */
+    boolean hasPlacement(Primitive obj) {
+        return objPositions.containsKey(obj);
+    }
+
+    /**
+     * @param obj The Primitive represented by the new IfcRoot.
+     * @return A random GlobalId, or one derived from {@code obj} if {@link
+     * ConversionOptions#isDeterministic()} is {@code true}.
+     */
+    private IfcGloballyUniqueId newGlobalId(Primitive obj) {
+        return globalIds == null ? new IfcGloballyUniqueId() : globalIds.newGlobalId(obj);
+    }
+
+    /**
+     * @param name Identifies the new IfcRoot, which doesn't represent a
+     * Primitive, in the converted file.
+     * @return A random GlobalId, or one derived from {@code name} if {@link
+     * ConversionOptions#isDeterministic()} is {@code true}.
+     */
+    private IfcGloballyUniqueId newGlobalId(String name) {
+        return globalIds == null ? new IfcGloballyUniqueId() : globalIds.newGlobalId(name);
+    }
+
+    /**
+     * @param radius The radius of the circle.
+     * @return The profile of a circle centered in the origin, shared by all
+     * the solids of this conversion with the same section.
+     */
+    private IfcCircleProfileDef getCircleProfile(double radius) {
+        return profiles.get(() -> new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null, constants.origin2D,
+                new IfcPositiveLengthMeasure(radius)), IfcCircleProfileDef.class, radius);
+    }
+
+    /**
+     * @param radius The outer radius of the circle.
+     * @param wallThickness The thickness of the wall.
+     * @return The profile of a hollow circle centered in the origin, shared
+     * by all the solids of this conversion with the same section.
+     */
+    private IfcCircleHollowProfileDef getCircleHollowProfile(double radius, double wallThickness) {
+        return profiles.get(() -> new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA, null, constants.origin2D,
+                        new IfcPositiveLengthMeasure(radius), new IfcPositiveLengthMeasure(wallThickness)),
+                IfcCircleHollowProfileDef.class, radius, wallThickness);
+    }
+
+    /**
+     * @param obj The Primitive for which the new IfcRoot is created.
+     * @param name Identifies the new IfcRoot among the ones created for {@code
+     * obj}, other than the one representing it.
+     * @return A random GlobalId, or one derived from {@code obj} and {@code
+     * name} if {@link ConversionOptions#isDeterministic()} is {@code true}.
+     */
+    private IfcGloballyUniqueId newGlobalId(Primitive obj, String name) {
+        return globalIds == null ? new IfcGloballyUniqueId() : globalIds.newGlobalId(obj, name);
+    }
+
+    /**
+     * @param obj The object of which to return the parent's position.
+     * @return The coordinate system in which the placement of {@code obj} is
+     * defined.
+     */
+    private IfcAxis2Placement3D getParentPosition(@NonNull Primitive obj) {
         if (obj.getParent() == null) {
             // obj is the root object, so we must rotate its coordinate
             // system to match the one used in demoplant.anteash.com, as
@@ -623,147 +1183,266 @@ public class EywaToIfcConverter implements EywaConverter {
             // and the one pointing towards the screen would be z, but in
             // demoplant the upward axis is z and the one pointing towards
             // the screen is x.
-            parentPosition = new IfcAxis2Placement3D(
+            return new IfcAxis2Placement3D(
                     new IfcCartesianPoint(0, 0, 0),
                     new IfcDirection(0, 1, 0),
                     new IfcDirection(0, 0, 1));
         } else if (USE_ABSOLUTE_PLACEMENTS) {
             IfcLocalPlacement parentPlacement = objPositions.get(obj.getParent());
-            parentPosition = (IfcAxis2Placement3D) parentPlacement.getRelativePlacement();
+            return (IfcAxis2Placement3D) parentPlacement.getRelativePlacement();
         } else {
-            parentPosition = new IfcAxis2Placement3D(0, 0, 0);
+            return new IfcAxis2Placement3D(0, 0, 0);
+        }
+    }
+
+    /**
+     * Resolves the location of {@code obj} and adds it to {@code
+     * objPositions}.
+     * @param obj The object of which to resolve the absolute location.
+     * @return The location of the object relative to the world coordinate
+     * system.
+     * @throws NullPointerException If obj is {@code null}.
+     * @throws IllegalArgumentException If in {@code obj} the matrix field is
+     * not set and the rotation field is.
+     */
+    private IfcLocalPlacement resolveLocation(@NonNull Primitive obj) {
+        IfcLocalPlacement resolved = objPositions.get(obj);
+        if (resolved != null) {
+            // already resolved to check if obj is in the region
+            return resolved;
         }
         IfcAxis2Placement3D objPosition;
-        if (obj.getMatrix() != null) {
-            Double[] matrix = obj.getMatrix();
-
-            double[] eywaParentLocation = ifcToEywaVector(parentPosition.getLocation()
-                    .getCoordinates().stream()
-                    .mapToDouble(IfcLengthMeasure::getValue)
-                    .toArray(), true);
-            double[] eywaParentAxis = ifcToEywaVector(parentPosition.getP().get(2)
-                    .getDirectionRatios().stream()
-                    .mapToDouble(IfcReal::getValue)
-                    .toArray(), false);
-            double[] eywaParentRefDir = ifcToEywaVector(parentPosition.getP().get(0)
-                    .getDirectionRatios().stream()
-                    .mapToDouble(IfcReal::getValue)
-                    .toArray(), false);
-
-            double[] eywaLocation = multiply(matrix, eywaParentLocation);
-            double[] eywaAxis = multiply(matrix, eywaParentAxis);
-            double[] eywaRefDir = multiply(matrix, eywaParentRefDir);
-
-            double[] location = eywaToIfcVector(eywaLocation);
-            double[] axis = eywaToIfcVector(eywaAxis);
-            double[] refDir = eywaToIfcVector(eywaRefDir);
-
-            objPosition = new IfcAxis2Placement3D(new IfcCartesianPoint(location),
-                    new IfcDirection(axis), new IfcDirection(refDir));
-        } else if (obj.getPosition() == null && obj.getRotation() == null) {
-            objPosition = parentPosition;
+        if (obj.getMatrix() == null && obj.getPosition() == null && obj.getRotation() == null) {
+            objPosition = getParentPosition(obj);
         } else {
-            // using position and rotation
-            double[] eywaParentLocation = ifcToEywaVector(parentPosition.getLocation()
-                    .getCoordinates().stream()
-                    .mapToDouble(IfcLengthMeasure::getValue)
-                    .toArray(), true);
-            double[] eywaParentAxis = ifcToEywaVector(parentPosition.getP().get(2)
-                    .getDirectionRatios().stream()
-                    .mapToDouble(IfcReal::getValue)
-                    .toArray(), false);
-            double[] eywaParentRefDir = ifcToEywaVector(parentPosition.getP().get(0)
-                    .getDirectionRatios().stream()
-                    .mapToDouble(IfcReal::getValue)
-                    .toArray(), false);
-
-            Double[] position = obj.getPosition() == null
-                    ? new Double[]{0d, 0d, 0d}
-                    : obj.getPosition();
-            eywaParentLocation[0] = eywaParentLocation[0] + position[0];
-            eywaParentLocation[1] = eywaParentLocation[1] + position[1];
-            eywaParentLocation[2] = eywaParentLocation[2] + position[2];
-
-            Double[] rotationAngles = obj.getRotationArray() == null
-                    ? new Double[]{0d, 0d, 0d}
-                    : obj.getRotationArray();
-            String rotationOrder = obj.getRotationAxis() == null || obj.getRotationAxis().equals("")
-                    ? "XYZ"
-                    : obj.getRotationAxis();
-
-            rotate(eywaParentAxis, rotationAngles, rotationOrder);
-            rotate(eywaParentRefDir, rotationAngles, rotationOrder);
-
-            double[] location = eywaToIfcVector(eywaParentLocation);
-            double[] axis = eywaToIfcVector(eywaParentAxis);
-            double[] refDir = eywaToIfcVector(eywaParentRefDir);
-
-            objPosition = new IfcAxis2Placement3D(new IfcCartesianPoint(location),
-                    new IfcDirection(axis), new IfcDirection(refDir));
+            // same coordinate systems as the ones returned by
+            // getParentPosition(Primitive), set without creating IFC entities
+            if (obj.getParent() == null) {
+                transform.setLocation(0, 0, 0);
+                transform.setAxis(0, 1, 0);
+                transform.setRefDirection(0, 0, 1);
+            } else if (USE_ABSOLUTE_PLACEMENTS) {
+                transform.set(getParentPosition(obj));
+            } else {
+                transform.setLocation(0, 0, 0);
+                transform.setAxis(0, 0, 1);
+                transform.setRefDirection(1, 0, 0);
+            }
+            if (obj.getMatrix() != null) {
+                transform.multiply(obj.getMatrix());
+            } else {
+                // using position and rotation
+                transform.translate(obj.getPosition() == null ? ZERO_VECTOR : obj.getPosition());
+                String rotationOrder = obj.getRotationAxis() == null || obj.getRotationAxis().equals("")
+                        ? "XYZ"
+                        : obj.getRotationAxis();
+                transform.rotate(obj.getRotationArray() == null ? ZERO_VECTOR : obj.getRotationArray(),
+                        rotationOrder);
+            }
+            objPosition = transform.toIfcAxis2Placement3D();
         }
         IfcLocalPlacement objPlacement = USE_ABSOLUTE_PLACEMENTS
                 ? new IfcLocalPlacement(null, objPosition)
                 : new IfcLocalPlacement(objPositions.get(obj.getParent()), objPosition);
         objPositions.put(obj, objPlacement);
+        if (options.getRegion() != null) {
+            worldMatrices.put(obj, toWorldMatrix(worldMatrices.get(obj.getParent()), objPosition));
+        }
+        if (globalIds != null) {
+            globalIds.addObject(obj);
+        }
         return objPlacement;
     }
 
     /**
-     * @param obj The {@link Beam} to convert.
-     * @throws NullPointerException If {@code obj} is null.
+     * Converts {@code obj} without building its geometry, if it's outside
+     * {@link ConversionOptions#getRegion()} or if {@link
+     * ConversionOptions#isBoundingBoxes()} is {@code true}. In the first case
+     * only its placement is resolved, for its descendants. In the second one,
+     * it's converted to an IfcProduct of the same type used for its geometry,
+     * represented only by the box containing it.
+     * @param obj The Primitive to convert.
+     * @return {@code true} if {@code obj} was converted, {@code false} if its
+     * geometry must be built.
      * @throws ConversionException If an error occurs during the serialization
      * of {@link Primitive#getDescription()} in the
      * JSON format.
      */
-    @Override
-    public void addObject(@NonNull Beam obj) {
-        IfcProfileDef beamSection;
+    private boolean addWithoutGeometry(Primitive obj) {
+        Region region = options.getRegion();
+        if (region == null && !options.isBoundingBoxes()) {
+            return false;
+        }
+        BoundingBox box = BoundingBox.of(obj);
+        IfcLocalPlacement objectPlacement = obj instanceof Instrument
+                ? resolveInstrumentLocation((Instrument) obj)
+                : resolveLocation(obj);
+        if (region != null) {
+            double[] worldMatrix = obj instanceof Instrument
+                    ? toWorldMatrix(worldMatrices.get(obj.getParent()),
+                            (IfcAxis2Placement3D) objectPlacement.getRelativePlacement())
+                    : worldMatrices.get(obj);
+            if (!region.intersects(box.transform(worldMatrix))) {
+                return true;
+            }
+        }
+        if (!options.isBoundingBoxes()) {
+            return false;
+        }
+
+        IfcGloballyUniqueId globalId = newGlobalId(obj);
+        IfcProductDefinitionShape productDefinitionShape = box.isEmpty()
+                ? null
+                : new IfcProductDefinitionShape(null, null, buildShapeRepresentation(
+                        constants.label("Box"), constants.label("BoundingBox"), box.toIfcBoundingBox()));
+        IfcLabel name = constants.label(obj instanceof Mesh && ((Mesh) obj).getRepresenting() != null
+                && !((Mesh) obj).getRepresenting().equals("")
+                ? ((Mesh) obj).getRepresenting()
+                : obj.getClass().getSimpleName());
+        IfcText description = getDescriptionText(obj);
+        IfcProduct product;
+        if (obj instanceof Beam || obj instanceof Collar) {
+            product = IfcMember.builder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectType(constants.label(obj instanceof Beam ? "member" : "collar"))
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else if (obj instanceof Blind || obj instanceof Endplate || obj instanceof RectangularBlind
+                || obj instanceof RectangularEndplate) {
+            product = IfcDistributionFlowElement.builder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else if (obj instanceof Box) {
+            product = IfcBuildingElementProxy.builder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else if (obj instanceof Curve || obj instanceof RectangularPlate || obj instanceof Ring
+                || obj instanceof Tee) {
+            product = IfcFlowFitting.flowFittingBuilder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else if (obj instanceof Dielectric || obj instanceof DualExpansionJoint || obj instanceof EccentricCone
+                || obj instanceof ExpansionJoint || obj instanceof RectangularShell || obj instanceof Shell) {
+            product = IfcFlowSegment.flowSegmentBuilder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else if (obj instanceof FourWaysValve || obj instanceof Nozzle || obj instanceof OrthoValve
+                || obj instanceof RectangularFlange || obj instanceof ThreeWaysValve || obj instanceof Valve) {
+            product = IfcFlowController.flowControllerBuilder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else if (obj instanceof Instrument) {
+            product = IfcDistributionControlElement.builder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else if (obj instanceof TankShell) {
+            product = IfcFlowStorageDevice.flowStorageDeviceBuilder().globalId(globalId)
+                    .ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape).build();
+        } else {
+            // Dishes, Spheres, Meshes and FaceSets
+            product = IfcProxy.builder().globalId(globalId).ownerHistory(ownerHistory)
+                    .name(name).description(description)
+                    .objectPlacement(objectPlacement)
+                    .representation(productDefinitionShape)
+                    .proxyType(IfcObjectTypeEnum.PRODUCT).build();
+        }
+        addProduct(product, obj);
+        return true;
+    }
+
+    /**
+     * @param parent The coordinate system of the parent in the world one, as
+     * returned by this method, {@code null} for the world coordinate system.
+     * @param position A coordinate system relative to the one of {@code
+     * parent}.
+     * @return The coordinate system of {@code position} in the world one: the
+     * x, y and z axes followed by the location, 3 components each.
+     */
+    private static double[] toWorldMatrix(double[] parent, IfcAxis2Placement3D position) {
+        List<IfcDirection> p = position.getP();
+        List<IfcLengthMeasure> location = position.getLocation().getCoordinates();
+        double[] local = new double[12];
+        for (int i = 0; i < 3; i++) {
+            List<IfcReal> directionRatios = p.get(i).getDirectionRatios();
+            for (int j = 0; j < 3; j++) {
+                local[i * 3 + j] = directionRatios.get(j).getValue();
+            }
+            local[9 + i] = location.get(i).getValue();
+        }
+        if (parent == null) {
+            return local;
+        }
+        double[] world = new double[12];
+        for (int column = 0; column < 4; column++) {
+            for (int i = 0; i < 3; i++) {
+                double value = column == 3 ? parent[9 + i] : 0;
+                for (int j = 0; j < 3; j++) {
+                    value += parent[j * 3 + i] * local[column * 3 + j];
+                }
+                world[column * 3 + i] = value;
+            }
+        }
+        return world;
+    }
+
+    /**
+     * @param obj The {@link Beam} whose section to build.
+     * @return The section of {@code obj}, {@code null} if its kind is not
+     * supported.
+     */
+    private IfcProfileDef buildBeamSection(Beam obj) {
         switch (obj.getKind()) {
             case IPE:
             case INP:
             case HEA:
             case HEB:
-                beamSection = IfcIShapeProfileDef.builder()
+                return IfcIShapeProfileDef.builder()
                         .profileType(IfcProfileTypeEnum.AREA)
-                        .position(new IfcAxis2Placement2D(0, 0))
+                        .position(constants.origin2D)
                         .overallWidth(new IfcPositiveLengthMeasure(obj.getWidth()))
                         .overallDepth(new IfcPositiveLengthMeasure(obj.getDepth()))
                         .webThickness(new IfcPositiveLengthMeasure(obj.getCoreThickness()))
                         .flangeThickness(new IfcPositiveLengthMeasure(obj.getSideThickness()))
                         .build();
-                break;
             case UNP:
-                beamSection = IfcUShapeProfileDef.builder()
+                return IfcUShapeProfileDef.builder()
                         .profileType(IfcProfileTypeEnum.AREA)
-                        .position(new IfcAxis2Placement2D(0, 0))
+                        .position(constants.origin2D)
                         .depth(new IfcPositiveLengthMeasure(obj.getDepth()))
                         .flangeWidth(new IfcPositiveLengthMeasure(obj.getWidth()))
                         .webThickness(new IfcPositiveLengthMeasure(obj.getCoreThickness()))
                         .flangeThickness(new IfcPositiveLengthMeasure(obj.getSideThickness()))
                         .build();
-                break;
             case T:
-                beamSection = IfcTShapeProfileDef.builder()
+                return IfcTShapeProfileDef.builder()
                         .profileType(IfcProfileTypeEnum.AREA)
-                        .position(new IfcAxis2Placement2D(0, 0))
+                        .position(constants.origin2D)
                         .depth(new IfcPositiveLengthMeasure(obj.getDepth()))
                         .flangeWidth(new IfcPositiveLengthMeasure(obj.getWidth()))
                         .webThickness(new IfcPositiveLengthMeasure(obj.getCoreThickness()))
                         .flangeThickness(new IfcPositiveLengthMeasure(obj.getSideThickness()))
                         .build();
-                break;
             case L:
                 if (obj.getCoreThickness().equals(obj.getSideThickness())) {
                     IfcLShapeProfileDef.IfcLShapeProfileDefBuilder builder =
                             IfcLShapeProfileDef.builder()
                                     .profileType(IfcProfileTypeEnum.AREA)
-                                    .position(new IfcAxis2Placement2D(0, 0))
+                                    .position(constants.origin2D)
                                     .depth(new IfcPositiveLengthMeasure(obj.getDepth()))
                                     .thickness(new IfcPositiveLengthMeasure(obj.getCoreThickness()));
                     if (!obj.getDepth().equals(obj.getWidth())) {
                         builder.width(new IfcPositiveLengthMeasure(obj.getWidth()));
                     }
-                    beamSection = builder.build();
+                    return builder.build();
                 } else {
                     double halfWidth = obj.getWidth() / 2;
                     double halfDepth = obj.getDepth() / 2;
@@ -775,46 +1454,68 @@ public class EywaToIfcConverter implements EywaConverter {
                             new IfcCartesianPoint(halfWidth, -halfInternalDepth),
                             new IfcCartesianPoint(-halfInternalWidth, -halfInternalDepth),
                             new IfcCartesianPoint(-halfInternalWidth, halfDepth));
-                    beamSection = new IfcArbitraryClosedProfileDef(IfcProfileTypeEnum.AREA,
+                    return new IfcArbitraryClosedProfileDef(IfcProfileTypeEnum.AREA,
                             null, polyline);
                 }
-                break;
             case CONCRETE:
             case RECTANGULAR:
-                beamSection = new IfcRectangleProfileDef(IfcProfileTypeEnum.AREA, null,
-                        new IfcAxis2Placement2D(0, 0),
+                return new IfcRectangleProfileDef(IfcProfileTypeEnum.AREA, null,
+                        constants.origin2D,
                         new IfcPositiveLengthMeasure(obj.getWidth()),
                         new IfcPositiveLengthMeasure(obj.getDepth()));
-                break;
             case PIPE:
-                beamSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
-                        new IfcAxis2Placement2D(0, 0),
+                return new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
+                        constants.origin2D,
                         new IfcPositiveLengthMeasure(obj.getRadius()));
-                break;
             default:
-                beamSection = null;
+                return null;
         }
+    }
+
+    /**
+     * @param obj The {@link Beam} to convert.
+     * @throws NullPointerException If {@code obj} is null.
+     * @throws ConversionException If an error occurs during the serialization
+     * of {@link Primitive#getDescription()} in the
+     * JSON format.
+     */
+    @Override
+    public void addObject(@NonNull Beam obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildBeamRepresentation(obj),
+                obj.getClass(), obj.getKind(), obj.getWidth(), obj.getDepth(), obj.getLength(),
+                obj.getRadius(), obj.getCoreThickness(), obj.getSideThickness());
+        IfcMember beamProduct = IfcMember.builder().globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectType(constants.label("member"))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(beamProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Beam} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildBeamRepresentation(Beam obj) {
+        IfcProfileDef beamSection = profiles.get(() -> buildBeamSection(obj), Beam.class, obj.getKind(),
+                obj.getWidth(), obj.getDepth(), obj.getCoreThickness(), obj.getSideThickness(), obj.getRadius());
 
         IfcExtrudedAreaSolid beam = new IfcExtrudedAreaSolid(beamSection,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
+                constants.origin3D,
+                constants.zAxis,
                 new IfcLengthMeasure(obj.getLength() == null
                         ? obj.getDepth()
                         : obj.getLength()));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT, new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), beam);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcMember beamProduct = IfcMember.builder().globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectType(new IfcLabel("member"))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(beamProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), beam);
     }
 
     /**
@@ -826,22 +1527,50 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Blind obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildBlindRepresentation(obj),
+                obj.getClass(), obj.getRadius(), obj.getCrownRadius(), obj.getCrownThickness());
+        IfcLocalPlacement location = resolveLocation(obj);
+        if (obj.isSwitched()) {
+            double length;
+            if (obj.getCrownRadius() == null) {
+                length = obj.getCrownThickness();
+            } else {
+                length = obj.getCrownThickness() + obj.getCrownThickness() / 10;
+            }
+            location = flip(location, length);
+        }
+        IfcDistributionFlowElement blindProduct = IfcDistributionFlowElement.builder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(location)
+                .representation(productDefinitionShape).build();
+        addProduct(blindProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Blind} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildBlindRepresentation(Blind obj) {
         boolean hasPlate = obj.getCrownRadius() != null && obj.getCrownRadius() != 0;
         Set<IfcRepresentationItem> blindItems = new LinkedHashSet<>(hasPlate ? 3 : 2, 1);
         double blindRadius = hasPlate ? obj.getCrownRadius() : obj.getRadius();
-        IfcDirection extrusionDirection = new IfcDirection(0, 0, 1);
+        IfcDirection extrusionDirection = constants.zAxis;
 
-        IfcAxis2Placement2D sectionPlacement = new IfcAxis2Placement2D(0, 0);
-        IfcCircleProfileDef blindSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA,
-                null, sectionPlacement, new IfcPositiveLengthMeasure(blindRadius));
-        IfcAxis2Placement3D blindPlacement = new IfcAxis2Placement3D(0, 0, 0);
+        IfcCircleProfileDef blindSection = getCircleProfile(blindRadius);
+        IfcAxis2Placement3D blindPlacement = constants.origin3D;
         IfcExtrudedAreaSolid blind = new IfcExtrudedAreaSolid(blindSection, blindPlacement,
                 extrusionDirection, new IfcLengthMeasure(obj.getCrownThickness()));
         blindItems.add(blind);
 
         if (hasPlate) {
-            IfcCircleProfileDef plateSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA,
-                    null, sectionPlacement, new IfcPositiveLengthMeasure(obj.getRadius()));
+            IfcCircleProfileDef plateSection = getCircleProfile(obj.getRadius());
             IfcAxis2Placement3D platePlacement = new IfcAxis2Placement3D(
                     0, 0, obj.getCrownThickness());
             IfcExtrudedAreaSolid plate = new IfcExtrudedAreaSolid(plateSection, platePlacement,
@@ -849,28 +1578,8 @@ public class EywaToIfcConverter implements EywaConverter {
             blindItems.add(plate);
         }
 
-        IfcLocalPlacement location = resolveLocation(obj);
-        if (obj.isSwitched()) {
-            double length;
-            if (obj.getCrownRadius() == null) {
-                length = obj.getCrownThickness();
-            } else {
-                length = obj.getCrownThickness() + obj.getCrownThickness() / 10;
-            }
-            location = flip(location, length);
-        }
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"), new IfcLabel("SweptSolid"), blindItems);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcDistributionFlowElement blindProduct = IfcDistributionFlowElement.builder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(location)
-                .representation(productDefinitionShape).build();
-        geometries.add(blindProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"), constants.label("SweptSolid"), blindItems);
     }
 
     /**
@@ -882,26 +1591,37 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Box obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildBoxRepresentation(obj),
+                obj.getClass(), obj.getWidth(), obj.getDepth(), obj.getLength());
+        IfcBuildingElementProxy boxProxy = IfcBuildingElementProxy.builder()
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(boxProxy, obj);
+    }
+
+    /**
+     * @param obj The {@link Box} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildBoxRepresentation(Box obj) {
         IfcRectangleProfileDef boxSection = new IfcRectangleProfileDef(IfcProfileTypeEnum.AREA, null,
-                new IfcAxis2Placement2D(0, 0),
+                constants.origin2D,
                 new IfcPositiveLengthMeasure(obj.getWidth()),
                 new IfcPositiveLengthMeasure(obj.getDepth()));
         IfcExtrudedAreaSolid box = new IfcExtrudedAreaSolid(boxSection,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
+                constants.origin3D,
+                constants.zAxis,
                 new IfcLengthMeasure(obj.getLength()));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"), new IfcLabel("SweptSolid"), box);
-        IfcProductDefinitionShape productDefinitionShape =
-                new IfcProductDefinitionShape(null, null, shapeRepresentation);
-        IfcBuildingElementProxy boxProxy = IfcBuildingElementProxy.builder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(boxProxy);
+        return buildShapeRepresentation(
+                constants.label("Body"), constants.label("SweptSolid"), box);
     }
 
     /**
@@ -911,29 +1631,37 @@ public class EywaToIfcConverter implements EywaConverter {
      * of {@link Primitive#getDescription()} in the
      * JSON format.
      */
-    @Override
-    public void addObject(@NonNull Collar obj) {
-        IfcCircleHollowProfileDef collarSection = new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA, null,
-                new IfcAxis2Placement2D(0, 0),
-                new IfcPositiveLengthMeasure(obj.getRadius()),
-                new IfcPositiveLengthMeasure(getSafeThickness(obj)));
+    @Override
+    public void addObject(@NonNull Collar obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildCollarRepresentation(obj),
+                obj.getClass(), obj.getRadius(), obj.getLength(), getSafeThickness(obj));
+        IfcMember collarProduct = IfcMember.builder().globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectType(constants.label("collar"))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(collarProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Collar} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildCollarRepresentation(Collar obj) {
+        IfcCircleHollowProfileDef collarSection = getCircleHollowProfile(obj.getRadius(), getSafeThickness(obj));
         IfcExtrudedAreaSolid collar = new IfcExtrudedAreaSolid(collarSection,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
+                constants.origin3D,
+                constants.zAxis,
                 new IfcLengthMeasure(obj.getLength()));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"), new IfcLabel("SweptSolid"), collar);
-        IfcProductDefinitionShape productDefinitionShape =
-                new IfcProductDefinitionShape(null, null, shapeRepresentation);
-        IfcMember collarProduct = IfcMember.builder().globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectType(new IfcLabel("collar"))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(collarProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"), constants.label("SweptSolid"), collar);
     }
 
     /**
@@ -945,6 +1673,27 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Curve obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildCurveRepresentation(obj),
+                obj.getClass(), obj.getRadius(), obj.getRadius1(), obj.getRadius2(), obj.getAngle(),
+                obj.getCurveRadius(), getSafeThickness(obj));
+        IfcFlowFitting curveProduct = IfcFlowFitting.flowFittingBuilder()
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(curveProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Curve} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildCurveRepresentation(Curve obj) {
         Double radius = obj.getRadius();
         if (radius == null) {
             if (!obj.getRadius1().equals(obj.getRadius2())) {
@@ -954,29 +1703,39 @@ public class EywaToIfcConverter implements EywaConverter {
             radius = obj.getRadius1();
         }
 
-        IfcAxis2Placement2D profilePosition = new IfcAxis2Placement2D(0, obj.getCurveRadius());
-        IfcCircleHollowProfileDef profile = new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA,
-                null, profilePosition,
-                new IfcPositiveLengthMeasure(radius),
-                new IfcPositiveLengthMeasure(getSafeThickness(obj)));
-        IfcAxis2Placement3D curvePlacement = new IfcAxis2Placement3D(0, 0, 0);
-        IfcAxis1Placement rotationAxis = new IfcAxis1Placement(
-                new IfcCartesianPoint(0, 0, 0),
-                new IfcDirection(1, 0, 0));
-        IfcRevolvedAreaSolid curve = new IfcRevolvedAreaSolid(profile, curvePlacement, rotationAxis,
-                new IfcPlaneAngleMeasure(obj.getAngle()));
+        IfcSolidModel curve;
+        if (tessellator != null) {
+            // the section of the pipe is centered at curveRadius from the x
+            // axis, around which it's revolved
+            int segments = tessellator.segments(radius);
+            Tessellator.UnitCircle circle = Tessellator.unitCircle(segments);
+            double innerRadius = radius - getSafeThickness(obj);
+            double[] outerSection = new double[segments * 2];
+            double[] innerSection = new double[segments * 2];
+            for (int i = 0; i < segments; i++) {
+                outerSection[i * 2] = obj.getCurveRadius() + radius * circle.cos(i);
+                outerSection[i * 2 + 1] = radius * circle.sin(i);
+                innerSection[i * 2] = obj.getCurveRadius() + innerRadius * circle.cos(i);
+                innerSection[i * 2 + 1] = innerRadius * circle.sin(i);
+            }
+            curve = tessellator.revolve(outerSection, innerSection, obj.getAngle(), ORIGIN, X_AXIS, Y_AXIS);
+        } else {
+            IfcCircleHollowProfileDef profile = profiles.get(() -> new IfcCircleHollowProfileDef(
+                            IfcProfileTypeEnum.AREA, null,
+                            new IfcAxis2Placement2D(0, obj.getCurveRadius()),
+                            new IfcPositiveLengthMeasure(radius),
+                            new IfcPositiveLengthMeasure(getSafeThickness(obj))),
+                    IfcCircleHollowProfileDef.class, radius, getSafeThickness(obj), obj.getCurveRadius());
+            IfcAxis2Placement3D curvePlacement = constants.origin3D;
+            IfcAxis1Placement rotationAxis = new IfcAxis1Placement(
+                    constants.origin,
+                    constants.xAxis);
+            curve = new IfcRevolvedAreaSolid(profile, curvePlacement, rotationAxis,
+                    new IfcPlaneAngleMeasure(obj.getAngle()));
+        }
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"), new IfcLabel("SweptSolid"), curve);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowFitting curveProduct = IfcFlowFitting.flowFittingBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(curveProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"), constants.label(getSweptSolidType()), curve);
     }
 
     /**
@@ -988,30 +1747,36 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Dielectric obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildDielectricRepresentation(obj),
+                obj.getClass(), obj.getRadius(), obj.getLength());
+        IfcFlowSegment dielectricProduct = IfcFlowSegment.flowSegmentBuilder()
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(dielectricProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Dielectric} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildDielectricRepresentation(Dielectric obj) {
         double thickness = obj.getRadius() / 10;
-        IfcCircleHollowProfileDef dielectricSection = new IfcCircleHollowProfileDef(
-                IfcProfileTypeEnum.AREA, null,
-                new IfcAxis2Placement2D(0, 0),
-                new IfcPositiveLengthMeasure(obj.getRadius() + thickness),
-                new IfcPositiveLengthMeasure(thickness));
+        IfcCircleHollowProfileDef dielectricSection = getCircleHollowProfile(obj.getRadius() + thickness, thickness);
         IfcExtrudedAreaSolid dielectric = new IfcExtrudedAreaSolid(dielectricSection,
                 new IfcAxis2Placement3D(0, 0, -obj.getLength()),
-                new IfcDirection(0, 0, 1),
+                constants.zAxis,
                 new IfcLengthMeasure(obj.getLength() * 3));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), dielectric);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowSegment dielectricProduct = IfcFlowSegment.flowSegmentBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(dielectricProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), dielectric);
     }
 
     /**
@@ -1023,33 +1788,63 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Dish obj) {
-        IfcRevolvedAreaSolid sphere = buildSphere(obj.getRadius(), new IfcAxis2Placement3D(0, 0, 0));
-
-        IfcCartesianPoint cuttingPlaneLocation = new IfcCartesianPoint(
-                obj.getDirection()[2] * obj.getDistance(),
-                obj.getDirection()[0] * obj.getDistance(),
-                obj.getDirection()[1] * obj.getDistance());
-        IfcDirection planeNormal = new IfcDirection(obj.getDirection()[2],
-                obj.getDirection()[0],
-                obj.getDirection()[1]);
-        IfcPlane cuttingPlane = new IfcPlane(new IfcAxis2Placement3D(cuttingPlaneLocation, planeNormal,
-                new IfcDirection(1, 0, 0)));
-        IfcHalfSpaceSolid cuttingPlaneWrapper = new IfcHalfSpaceSolid(cuttingPlane, IfcBoolean.F);
-        IfcBooleanClippingResult dish = new IfcBooleanClippingResult(DIFFERENCE,
-                sphere, cuttingPlaneWrapper);
-
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"), new IfcLabel("Clipping"), dish);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcProxy dishProxy = IfcProxy.builder().globalId(new IfcGloballyUniqueId())
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildDishRepresentation(obj),
+                obj.getClass(), obj.getRadius(), obj.getDirection()[0], obj.getDirection()[1],
+                obj.getDirection()[2], obj.getDistance());
+        IfcProxy dishProxy = IfcProxy.builder().globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(productDefinitionShape)
                 .proxyType(IfcObjectTypeEnum.PRODUCT).build();
-        geometries.add(dishProxy);
+        addProduct(dishProxy, obj);
+    }
+
+    /**
+     * @param obj The {@link Dish} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildDishRepresentation(Dish obj) {
+        double[] normal = {obj.getDirection()[2], obj.getDirection()[0], obj.getDirection()[1]};
+        // distance of the cutting plane from the center of the sphere
+        double height = obj.getDistance() * sqrt(normal[0] * normal[0] + normal[1] * normal[1]
+                + normal[2] * normal[2]);
+        IfcGeometricRepresentationItem dish;
+        String representationType;
+        if (tessellator != null && height > -obj.getRadius()) {
+            // the part of the sphere beyond the cutting plane is removed, so
+            // the dish is revolved around the normal of the plane
+            double[] refDirection = abs(normal[0]) < abs(normal[1]) ? X_AXIS : Y_AXIS;
+            dish = tessellator.revolve(tessellator.dishProfile(obj.getRadius(), height), 2 * PI, ORIGIN,
+                    normal, refDirection);
+            representationType = "Brep";
+        } else if (options.isBooleanFree() && height > -obj.getRadius()) {
+            dish = buildDish(obj.getRadius(), normal, height);
+            representationType = "SweptSolid";
+        } else {
+            IfcRevolvedAreaSolid sphere = buildSphere(obj.getRadius(), constants.origin3D);
+
+            IfcCartesianPoint cuttingPlaneLocation = new IfcCartesianPoint(
+                    obj.getDirection()[2] * obj.getDistance(),
+                    obj.getDirection()[0] * obj.getDistance(),
+                    obj.getDirection()[1] * obj.getDistance());
+            IfcDirection planeNormal = new IfcDirection(obj.getDirection()[2],
+                    obj.getDirection()[0],
+                    obj.getDirection()[1]);
+            IfcPlane cuttingPlane = new IfcPlane(new IfcAxis2Placement3D(cuttingPlaneLocation, planeNormal,
+                    constants.xAxis));
+            IfcHalfSpaceSolid cuttingPlaneWrapper = new IfcHalfSpaceSolid(cuttingPlane, IfcBoolean.F);
+            dish = new IfcBooleanClippingResult(DIFFERENCE, sphere, cuttingPlaneWrapper);
+            representationType = "Clipping";
+        }
+
+        return buildShapeRepresentation(
+                constants.label("Body"), constants.label(representationType), dish);
     }
 
     /**
@@ -1061,16 +1856,20 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull DualExpansionJoint obj) {
-        IfcProductDefinitionShape expansionJoint = buildExpansionJoint(obj.getRadius(),
-                obj.getLength(), getSafeThickness(obj));
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape expansionJoint = buildProductDefinitionShape(
+                () -> buildExpansionJoint(obj.getRadius(), obj.getLength(), getSafeThickness(obj)),
+                obj.getClass(), obj.getRadius(), obj.getLength(), getSafeThickness(obj));
         IfcFlowSegment expansionJointProduct = IfcFlowSegment.flowSegmentBuilder()
-                .globalId(new IfcGloballyUniqueId())
+                .globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(expansionJoint).build();
-        geometries.add(expansionJointProduct);
+        addProduct(expansionJointProduct, obj);
     }
 
     /**
@@ -1082,56 +1881,81 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull EccentricCone obj) {
-        double slice = 2 * PI / RADIAL_SEGMENTS;
-        // angles at which the points composing circles will be drawn
-        double[] angles = IntStream.range(0, RADIAL_SEGMENTS).mapToDouble(i -> i * slice).toArray();
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildEccentricConeRepresentation(obj),
+                obj.getClass(), obj.getRadius1(), obj.getRadius2(), obj.getLength(), getSafeThickness(obj));
+        IfcFlowSegment eccentricConeProduct = IfcFlowSegment.flowSegmentBuilder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(eccentricConeProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link EccentricCone} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildEccentricConeRepresentation(EccentricCone obj) {
+        int segments = tessellator == null
+                ? RADIAL_SEGMENTS
+                : tessellator.segments(max(obj.getRadius1(), obj.getRadius2()));
+        // cosines and sines of the angles at which the points composing
+        // circles will be drawn
+        Tessellator.UnitCircle circle = Tessellator.unitCircle(segments);
 
         double innerRadius1 = obj.getRadius1() - getSafeThickness(obj);
         double innerRadius2 = obj.getRadius2() - getSafeThickness(obj);
         double outerRadiusDifference = obj.getRadius1() - obj.getRadius2();
         double innerRadiusDifference = innerRadius1 - innerRadius2;
 
-        IfcCartesianPoint[] outerCircle1 = Arrays.stream(angles)
-                .mapToObj(angle -> new IfcCartesianPoint(cos(angle) * obj.getRadius1(),
-                        sin(angle) * obj.getRadius1(), 0))
+        IfcCartesianPoint[] outerCircle1 = IntStream.range(0, segments)
+                .mapToObj(i -> new IfcCartesianPoint(circle.cos(i) * obj.getRadius1(),
+                        circle.sin(i) * obj.getRadius1(), 0))
                 .toArray(IfcCartesianPoint[]::new);
-        IfcCartesianPoint[] innerCircle1 = Arrays.stream(angles)
-                .mapToObj(angle -> new IfcCartesianPoint(
-                        cos(angle) * innerRadius1, sin(angle) * innerRadius1, 0))
+        IfcCartesianPoint[] innerCircle1 = IntStream.range(0, segments)
+                .mapToObj(i -> new IfcCartesianPoint(
+                        circle.cos(i) * innerRadius1, circle.sin(i) * innerRadius1, 0))
                 .toArray(IfcCartesianPoint[]::new);
-        IfcCartesianPoint[] outerCircle2 = Arrays.stream(angles)
-                .mapToObj(angle -> new IfcCartesianPoint(
-                        cos(angle) * obj.getRadius2(),
-                        sin(angle) * obj.getRadius2() + outerRadiusDifference,
+        IfcCartesianPoint[] outerCircle2 = IntStream.range(0, segments)
+                .mapToObj(i -> new IfcCartesianPoint(
+                        circle.cos(i) * obj.getRadius2(),
+                        circle.sin(i) * obj.getRadius2() + outerRadiusDifference,
                         obj.getLength())).toArray(IfcCartesianPoint[]::new);
-        IfcCartesianPoint[] innerCircle2 = Arrays.stream(angles)
-                .mapToObj(angle -> new IfcCartesianPoint(cos(angle) * innerRadius2,
-                        sin(angle) * innerRadius2 + innerRadiusDifference, obj.getLength()))
+        IfcCartesianPoint[] innerCircle2 = IntStream.range(0, segments)
+                .mapToObj(i -> new IfcCartesianPoint(circle.cos(i) * innerRadius2,
+                        circle.sin(i) * innerRadius2 + innerRadiusDifference, obj.getLength()))
                 .toArray(IfcCartesianPoint[]::new);
 
-        Set<IfcFace> faces = new LinkedHashSet<>(3 + angles.length, 1);
+        // faces are built from different points, so they're all different
+        Set<IfcFace> faces = new IdentityLinkedSet<>();
 
         // creating the top and bottom bases, because the same point cannot
         // appear twice in the same IfcPolyLoop we'll have to split each of
         // the 2 bases into 2 parts
-        List<IfcCartesianPoint> bottomBase1 = Lists.newArrayListWithCapacity(angles.length + 2);
-        List<IfcCartesianPoint> bottomBase2 = Lists.newArrayListWithCapacity(angles.length + 2);
-        List<IfcCartesianPoint> topBase1 = Lists.newArrayListWithCapacity(angles.length + 2);
-        List<IfcCartesianPoint> topBase2 = Lists.newArrayListWithCapacity(angles.length + 2);
-        int halfPoints = angles.length / 2;
+        List<IfcCartesianPoint> bottomBase1 = Lists.newArrayListWithCapacity(segments + 2);
+        List<IfcCartesianPoint> bottomBase2 = Lists.newArrayListWithCapacity(segments + 2);
+        List<IfcCartesianPoint> topBase1 = Lists.newArrayListWithCapacity(segments + 2);
+        List<IfcCartesianPoint> topBase2 = Lists.newArrayListWithCapacity(segments + 2);
+        int halfPoints = segments / 2;
         int i = 0;
         while (i <= halfPoints) {
             bottomBase1.add(innerCircle1[i]);
-            bottomBase2.add(innerCircle1[(i + halfPoints) % angles.length]);
+            bottomBase2.add(innerCircle1[(i + halfPoints) % segments]);
             topBase1.add(outerCircle2[i]);
-            topBase2.add(outerCircle2[(i + halfPoints) % angles.length]);
+            topBase2.add(outerCircle2[(i + halfPoints) % segments]);
             i++;
         }
         while (i >= 0) {
             bottomBase1.add(outerCircle1[i]);
-            bottomBase2.add(outerCircle1[(i + halfPoints) % angles.length]);
+            bottomBase2.add(outerCircle1[(i + halfPoints) % segments]);
             topBase1.add(innerCircle2[i]);
-            topBase2.add(innerCircle2[(i + halfPoints) % angles.length]);
+            topBase2.add(innerCircle2[(i + halfPoints) % segments]);
             i--;
         }
         faces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(bottomBase1), IfcBoolean.T)));
@@ -1140,37 +1964,26 @@ public class EywaToIfcConverter implements EywaConverter {
         faces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(topBase2), IfcBoolean.T)));
 
         // adding outer side faces of the cone
-        IntStream.range(0, angles.length).mapToObj(j -> new IfcPolyLoop(
+        IntStream.range(0, segments).mapToObj(j -> new IfcPolyLoop(
                 outerCircle1[j],
-                outerCircle1[(j + 1) % angles.length],
-                outerCircle2[(j + 1) % angles.length],
+                outerCircle1[(j + 1) % segments],
+                outerCircle2[(j + 1) % segments],
                 outerCircle2[j])).map(polygon -> new IfcFace(new IfcFaceBound(polygon, IfcBoolean.T)))
                 .forEach(faces::add);
 
         // adding inner side faces of the cone
-        IntStream.range(1, angles.length + 1).mapToObj(j -> new IfcPolyLoop(
-                innerCircle1[j % angles.length],
+        IntStream.range(1, segments + 1).mapToObj(j -> new IfcPolyLoop(
+                innerCircle1[j % segments],
                 innerCircle1[j - 1],
                 innerCircle2[j - 1],
-                innerCircle2[j % angles.length]))
+                innerCircle2[j % segments]))
                 .map(polygon -> new IfcFace(new IfcFaceBound(polygon, IfcBoolean.T)))
                 .forEach(faces::add);
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("Brep"),
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("Brep"),
                 new IfcFacetedBrep(new IfcClosedShell(faces)));
-        IfcProductDefinitionShape productDefinitionShape =
-                new IfcProductDefinitionShape(null, null, shapeRepresentation);
-        IfcFlowSegment eccentricConeProduct = IfcFlowSegment.flowSegmentBuilder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(eccentricConeProduct);
     }
 
     /**
@@ -1194,100 +2007,17 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Endplate obj) {
-        IfcGeometricRepresentationItem endplate;
-        IfcExtrudedAreaSolid neck = null;
-        boolean hasNeck = obj.getNeck() != null && obj.getNeck() != 0;
-
-        if (hasNeck) {
-            IfcAxis2Placement2D neckSectionPosition = new IfcAxis2Placement2D(0, 0);
-            IfcCircleHollowProfileDef neckSection =
-                    new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA, null, neckSectionPosition,
-                            new IfcPositiveLengthMeasure(obj.getRadius()),
-                            new IfcPositiveLengthMeasure(getSafeThickness(obj)));
-            IfcAxis2Placement3D neckPosition = new IfcAxis2Placement3D(0, 0, 0);
-            neck = new IfcExtrudedAreaSolid(neckSection, neckPosition,
-                    new IfcDirection(0, 0, 1),
-                    new IfcLengthMeasure(obj.getNeck()));
+        if (addWithoutGeometry(obj)) {
+            return;
         }
-
+        boolean hasNeck = obj.getNeck() != null && obj.getNeck() != 0;
         double semiAxis2 = obj.getDish() != null
                 ? obj.getDish()
                 : obj.getCambering() * obj.getRadius();
-        if (semiAxis2 == 0) {
-            IfcAxis2Placement2D plateSectionPosition = new IfcAxis2Placement2D(0, 0);
-            IfcCircleProfileDef plateSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
-                    plateSectionPosition, new IfcPositiveLengthMeasure(obj.getRadius()));
-            IfcAxis2Placement3D platePosition = new IfcAxis2Placement3D(0, 0, obj.getNeck());
-            double endThickness = obj.getEndThickness() == null || obj.getEndThickness() <= 0
-                    ? getSafeThickness(obj)
-                    : obj.getEndThickness();
-            IfcExtrudedAreaSolid plate = new IfcExtrudedAreaSolid(plateSection, platePosition,
-                    new IfcDirection(0, 0, 1),
-                    new IfcLengthMeasure(endThickness));
-            if (hasNeck) {
-                endplate = new IfcBooleanResult(UNION, neck, plate);
-            } else {
-                endplate = plate;
-            }
-        } else {
-            IfcAxis2Placement2D ellipsePosition = new IfcAxis2Placement2D(0, 0);
-            IfcEllipse outerEllipse = new IfcEllipse(ellipsePosition,
-                    new IfcPositiveLengthMeasure(obj.getRadius()),
-                    new IfcPositiveLengthMeasure(semiAxis2));
-            IfcEllipse innerEllipse = new IfcEllipse(ellipsePosition,
-                    new IfcPositiveLengthMeasure(obj.getRadius() - getSafeThickness(obj)),
-                    new IfcPositiveLengthMeasure(semiAxis2 - getSafeThickness(obj)));
-
-            IfcCartesianPoint topOuterEllipsePt = new IfcCartesianPoint(0, semiAxis2);
-            IfcCartesianPoint topInnerEllipsePt = new IfcCartesianPoint(0, semiAxis2 - getSafeThickness(obj));
-            IfcCartesianPoint rightOuterEllipsePt = new IfcCartesianPoint(obj.getRadius(), 0);
-            IfcCartesianPoint rightInnerEllipsePt = new IfcCartesianPoint(obj.getRadius() - getSafeThickness(obj), 0);
-
-            Set<IfcTrimmingSelect> outerTrim1 = Sets.newLinkedHashSet(Arrays.asList(rightOuterEllipsePt, new IfcParameterValue(0)));
-            Set<IfcTrimmingSelect> outerTrim2 = Sets.newLinkedHashSet(Arrays.asList(topOuterEllipsePt, new IfcParameterValue(PI / 2)));
-            IfcTrimmedCurve outerEllipseQuarter = new IfcTrimmedCurve(outerEllipse, outerTrim1, outerTrim2,
-                    IfcBoolean.T, IfcTrimmingPreference.CARTESIAN);
-
-            IfcPolyline verticalThickness = new IfcPolyline(topOuterEllipsePt, topInnerEllipsePt);
-
-            Set<IfcTrimmingSelect> innerTrim1 = Sets.newLinkedHashSet(Arrays.asList(rightInnerEllipsePt, new IfcParameterValue(0)));
-            Set<IfcTrimmingSelect> innerTrim2 = Sets.newLinkedHashSet(Arrays.asList(topInnerEllipsePt, new IfcParameterValue(PI / 2)));
-            IfcTrimmedCurve innerEllipseQuarter = new IfcTrimmedCurve(innerEllipse, innerTrim1, innerTrim2,
-                    IfcBoolean.T, IfcTrimmingPreference.CARTESIAN);
-
-            IfcPolyline horizontalThickness =
-                    new IfcPolyline(rightInnerEllipsePt, rightOuterEllipsePt);
-
-            List<IfcCompositeCurveSegment> segments = Lists.newArrayListWithCapacity(4);
-            segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.T, outerEllipseQuarter));
-            segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.T, verticalThickness));
-            segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.F, innerEllipseQuarter));
-            segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.T, horizontalThickness));
-            IfcCompositeCurve camberSection = new IfcCompositeCurve(segments, IfcLogical.F);
-            IfcArbitraryClosedProfileDef camberSectionWrapper = new IfcArbitraryClosedProfileDef(
-                    IfcProfileTypeEnum.AREA, null, camberSection);
-
-            IfcAxis2Placement3D camberPosition = new IfcAxis2Placement3D(new IfcCartesianPoint(0,
-                    0, obj.getNeck()),
-                    // the z axis is rotated by PI/2
-                    // towards the negative y axis, and
-                    // the y axis becomes the
-                    // vertical axis
-                    new IfcDirection(0, -1, 0),
-                    new IfcDirection(1, 0, 0));
-            IfcAxis1Placement rotationAxis = new IfcAxis1Placement(
-                    new IfcCartesianPoint(0, 0, 0),
-                    new IfcDirection(0, 1, 0));
-            IfcRevolvedAreaSolid camber = new IfcRevolvedAreaSolid(camberSectionWrapper, camberPosition, rotationAxis,
-                    new IfcPlaneAngleMeasure(2 * PI));
-
-            if (hasNeck) {
-                endplate = new IfcBooleanResult(UNION, neck, camber);
-            } else {
-                endplate = camber;
-            }
-        }
-
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildEndplateRepresentation(obj, hasNeck, semiAxis2),
+                obj.getClass(), obj.getRadius(), obj.getCambering(), obj.getDish(), obj.getEndThickness(),
+                obj.getNeck(), getSafeThickness(obj));
         IfcLocalPlacement objectPlacement = resolveLocation(obj);
         if (obj.isSwitched()) {
             double length = 0;
@@ -1301,22 +2031,167 @@ public class EywaToIfcConverter implements EywaConverter {
             }
             objectPlacement = flip(objectPlacement, length);
         }
-
-        String representationType = endplate instanceof IfcSweptAreaSolid
-                ? "SweptSolid"
-                : "CSG";
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"), new IfcLabel(representationType), endplate);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
         IfcDistributionFlowElement endplateProduct = IfcDistributionFlowElement.builder()
-                .globalId(new IfcGloballyUniqueId())
+                .globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(objectPlacement)
                 .representation(productDefinitionShape).build();
-        geometries.add(endplateProduct);
+        addProduct(endplateProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Endplate} to convert.
+     * @param hasNeck {@code true} if {@code obj} has a neck.
+     * @param semiAxis2 Height of the cambered part of {@code obj}, 0 if it's flat.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildEndplateRepresentation(Endplate obj, boolean hasNeck, double semiAxis2) {
+        IfcGeometricRepresentationItem endplate;
+        IfcExtrudedAreaSolid neck = null;
+
+        if (tessellator != null) {
+            endplate = tessellator.revolve(buildEndplateProfile(obj, hasNeck, semiAxis2), 2 * PI, ORIGIN,
+                    Z_AXIS, X_AXIS);
+        } else {
+            if (hasNeck) {
+                IfcCircleHollowProfileDef neckSection = getCircleHollowProfile(obj.getRadius(), getSafeThickness(obj));
+                IfcAxis2Placement3D neckPosition = constants.origin3D;
+                neck = new IfcExtrudedAreaSolid(neckSection, neckPosition,
+                        constants.zAxis,
+                        new IfcLengthMeasure(obj.getNeck()));
+            }
+
+            if (semiAxis2 == 0) {
+                IfcCircleProfileDef plateSection = getCircleProfile(obj.getRadius());
+                IfcAxis2Placement3D platePosition = new IfcAxis2Placement3D(0, 0, obj.getNeck());
+                double endThickness = obj.getEndThickness() == null || obj.getEndThickness() <= 0
+                        ? getSafeThickness(obj)
+                        : obj.getEndThickness();
+                IfcExtrudedAreaSolid plate = new IfcExtrudedAreaSolid(plateSection, platePosition,
+                        constants.zAxis,
+                        new IfcLengthMeasure(endThickness));
+                if (hasNeck && !options.isBooleanFree()) {
+                    endplate = new IfcBooleanResult(UNION, neck, plate);
+                } else {
+                    endplate = plate;
+                }
+            } else {
+                IfcAxis2Placement2D ellipsePosition = constants.origin2D;
+                IfcEllipse outerEllipse = new IfcEllipse(ellipsePosition,
+                        new IfcPositiveLengthMeasure(obj.getRadius()),
+                        new IfcPositiveLengthMeasure(semiAxis2));
+                IfcEllipse innerEllipse = new IfcEllipse(ellipsePosition,
+                        new IfcPositiveLengthMeasure(obj.getRadius() - getSafeThickness(obj)),
+                        new IfcPositiveLengthMeasure(semiAxis2 - getSafeThickness(obj)));
+
+                IfcCartesianPoint topOuterEllipsePt = new IfcCartesianPoint(0, semiAxis2);
+                IfcCartesianPoint topInnerEllipsePt = new IfcCartesianPoint(0, semiAxis2 - getSafeThickness(obj));
+                IfcCartesianPoint rightOuterEllipsePt = new IfcCartesianPoint(obj.getRadius(), 0);
+                IfcCartesianPoint rightInnerEllipsePt = new IfcCartesianPoint(obj.getRadius() - getSafeThickness(obj), 0);
+
+                Set<IfcTrimmingSelect> outerTrim1 = Sets.newLinkedHashSet(Arrays.asList(rightOuterEllipsePt, new IfcParameterValue(0)));
+                Set<IfcTrimmingSelect> outerTrim2 = Sets.newLinkedHashSet(Arrays.asList(topOuterEllipsePt, new IfcParameterValue(PI / 2)));
+                IfcTrimmedCurve outerEllipseQuarter = new IfcTrimmedCurve(outerEllipse, outerTrim1, outerTrim2,
+                        IfcBoolean.T, IfcTrimmingPreference.CARTESIAN);
+
+                IfcPolyline verticalThickness = new IfcPolyline(topOuterEllipsePt, topInnerEllipsePt);
+
+                Set<IfcTrimmingSelect> innerTrim1 = Sets.newLinkedHashSet(Arrays.asList(rightInnerEllipsePt, new IfcParameterValue(0)));
+                Set<IfcTrimmingSelect> innerTrim2 = Sets.newLinkedHashSet(Arrays.asList(topInnerEllipsePt, new IfcParameterValue(PI / 2)));
+                IfcTrimmedCurve innerEllipseQuarter = new IfcTrimmedCurve(innerEllipse, innerTrim1, innerTrim2,
+                        IfcBoolean.T, IfcTrimmingPreference.CARTESIAN);
+
+                IfcPolyline horizontalThickness =
+                        new IfcPolyline(rightInnerEllipsePt, rightOuterEllipsePt);
+
+                List<IfcCompositeCurveSegment> segments = Lists.newArrayListWithCapacity(4);
+                segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.T, outerEllipseQuarter));
+                segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.T, verticalThickness));
+                segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.F, innerEllipseQuarter));
+                segments.add(new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS, IfcBoolean.T, horizontalThickness));
+                IfcCompositeCurve camberSection = new IfcCompositeCurve(segments, IfcLogical.F);
+                IfcArbitraryClosedProfileDef camberSectionWrapper = new IfcArbitraryClosedProfileDef(
+                        IfcProfileTypeEnum.AREA, null, camberSection);
+
+                IfcAxis2Placement3D camberPosition = new IfcAxis2Placement3D(new IfcCartesianPoint(0,
+                        0, obj.getNeck()),
+                        // the z axis is rotated by PI/2
+                        // towards the negative y axis, and
+                        // the y axis becomes the
+                        // vertical axis
+                        constants.negativeYAxis,
+                        constants.xAxis);
+                IfcAxis1Placement rotationAxis = new IfcAxis1Placement(
+                        constants.origin,
+                        constants.yAxis);
+                IfcRevolvedAreaSolid camber = new IfcRevolvedAreaSolid(camberSectionWrapper, camberPosition, rotationAxis,
+                        new IfcPlaneAngleMeasure(2 * PI));
+
+                if (hasNeck && !options.isBooleanFree()) {
+                    endplate = new IfcBooleanResult(UNION, neck, camber);
+                } else {
+                    endplate = camber;
+                }
+            }
+        }
+
+        String representationType = endplate instanceof IfcSweptAreaSolid
+                ? "SweptSolid"
+                : endplate instanceof IfcFacetedBrep ? "Brep" : "CSG";
+        IfcShapeRepresentation shapeRepresentation;
+        if (neck != null && options.isBooleanFree()) {
+            // the neck and the rest of the Endplate touch without
+            // overlapping, so they can be separate items
+            Set<IfcRepresentationItem> endplateItems = new LinkedHashSet<>(2, 1);
+            endplateItems.add(neck);
+            endplateItems.add(endplate);
+            shapeRepresentation = buildShapeRepresentation(
+                    constants.label("Body"), constants.label(representationType), endplateItems);
+        } else {
+            shapeRepresentation = buildShapeRepresentation(
+                    constants.label("Body"), constants.label(representationType), endplate);
+        }
+        return shapeRepresentation;
+    }
+
+    /**
+     * @param obj The {@link Endplate} to tessellate.
+     * @param hasNeck {@code true} if the Endplate has a neck.
+     * @param semiAxis2 Height of the cambered part of the Endplate, 0 if it's
+     * flat.
+     * @return The profile that, revolved around the z axis, gives the neck and
+     * the cambered or flat part of the Endplate.
+     */
+    private double[] buildEndplateProfile(Endplate obj, boolean hasNeck, double semiAxis2) {
+        double radius = obj.getRadius();
+        double thickness = getSafeThickness(obj);
+        double neck = hasNeck ? obj.getNeck() : 0;
+        List<Double> profile = Lists.newArrayList();
+        if (hasNeck) {
+            Tessellator.addPoint(profile, radius - thickness, 0);
+            Tessellator.addPoint(profile, radius, 0);
+        }
+        if (semiAxis2 == 0) {
+            double endThickness = obj.getEndThickness() == null || obj.getEndThickness() <= 0
+                    ? thickness
+                    : obj.getEndThickness();
+            if (!hasNeck) {
+                Tessellator.addPoint(profile, 0, 0);
+                Tessellator.addPoint(profile, radius, 0);
+            }
+            Tessellator.addPoint(profile, radius, neck + endThickness);
+            Tessellator.addPoint(profile, 0, neck + endThickness);
+            if (hasNeck) {
+                Tessellator.addPoint(profile, 0, neck);
+                Tessellator.addPoint(profile, radius - thickness, neck);
+            }
+        } else {
+            tessellator.addQuarterEllipse(profile, neck, radius, semiAxis2, false);
+            tessellator.addQuarterEllipse(profile, neck, radius - thickness, semiAxis2 - thickness, true);
+        }
+        return Tessellator.toArray(profile);
     }
 
     /**
@@ -1328,15 +2203,19 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull ExpansionJoint obj) {
-        IfcProductDefinitionShape expansionJoint = buildExpansionJoint(obj.getRadius(),
-                obj.getLength(), getSafeThickness(obj));
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape expansionJoint = buildProductDefinitionShape(
+                () -> buildExpansionJoint(obj.getRadius(), obj.getLength(), getSafeThickness(obj)),
+                obj.getClass(), obj.getRadius(), obj.getLength(), getSafeThickness(obj));
         IfcFlowSegment expansionJointProxy = IfcFlowSegment.flowSegmentBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(expansionJoint).build();
-        geometries.add(expansionJointProxy);
+        addProduct(expansionJointProxy, obj);
     }
 
     /**
@@ -1348,52 +2227,24 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull FaceSet obj) {
-        IfcCartesianPoint[] vertices = new IfcCartesianPoint[obj.getVertices().length / 3];
-        IntStream.range(0, vertices.length)
-                .forEach(i -> {
-                    int offset = i * 3;
-                    vertices[i] = new IfcCartesianPoint(obj.getVertices()[offset + 2],
-                            obj.getVertices()[offset], obj.getVertices()[offset + 1]);
-                });
-
-        Set<IfcFace> faces = Sets.newLinkedHashSet();
-
-        int vertSizeIndex = 0;
-        while (vertSizeIndex < obj.getFaces().length) {
-            int vertSize = obj.getFaces()[vertSizeIndex];
-            IfcCartesianPoint[] polyVerts = new IfcCartesianPoint[vertSize];
-
-            for (int i = 0, j = vertSizeIndex + 1; i < vertSize; i++, j++) {
-                // i iterates on elements of polyVerts,
-                // j iterates on the indices of vertices composing the polygon
-                polyVerts[i] = vertices[obj.getFaces()[j]];
-            }
-
-            try {
-                IfcPolyLoop polygon = new IfcPolyLoop(polyVerts);
-                faces.add(new IfcFace(new IfcFaceBound(polygon, IfcBoolean.T)));
-            } catch (IllegalArgumentException e) {
-                // polygon contains multiple instances of the same
-                // IfcCartesianPoint
-            }
-            vertSizeIndex += 1 + vertSize;
+        if (addWithoutGeometry(obj)) {
+            return;
         }
+        IfcFacetedBrep faceSet = new FacetedBrepBuilder(options.getWeldingTolerance())
+                .build(obj.getVertices(), obj.getFaces(), false);
 
-        IfcFacetedBrep faceSet = new IfcFacetedBrep(new IfcClosedShell(faces));
-
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"), new IfcLabel("Brep"), faceSet);
+        IfcShapeRepresentation shapeRepresentation = buildShapeRepresentation(
+                constants.label("Body"), constants.label("Brep"), faceSet);
         IfcProductDefinitionShape productDefinitionShape =
                 new IfcProductDefinitionShape(null, null, shapeRepresentation);
-        IfcProxy faceSetProxy = IfcProxy.builder().globalId(new IfcGloballyUniqueId())
+        IfcProxy faceSetProxy = IfcProxy.builder().globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(productDefinitionShape)
                 .proxyType(IfcObjectTypeEnum.PRODUCT).build();
-        geometries.add(faceSetProxy);
+        addProduct(faceSetProxy, obj);
     }
 
     /**
@@ -1405,7 +2256,32 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull FourWaysValve obj) {
-        Set<IfcRepresentationItem> valveItems = new ValveBuilder(getSafeThickness(obj))
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildFourWaysValveRepresentation(obj),
+                obj.getClass(), obj.getRadius1(), obj.getRadius2(), obj.getRadius3(), obj.getRadius4(),
+                obj.getLength1(), obj.getLength2(), obj.getLength3(), obj.getLength4(), obj.getCrownRadius1(),
+                obj.getCrownRadius2(), obj.getCrownRadius3(), obj.getCrownRadius4(), obj.getCrownThickness1(),
+                obj.getCrownThickness2(), obj.getCrownThickness3(), obj.getCrownThickness4(),
+                getSafeThickness(obj));
+        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(valveProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link FourWaysValve} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildFourWaysValveRepresentation(FourWaysValve obj) {
+        Set<IfcRepresentationItem> valveItems = new ValveBuilder(getSafeThickness(obj), tessellator)
                 .addBottomOutput(obj.getRadius1(),
                         obj.getLength1(),
                         obj.getCrownRadius1(),
@@ -1423,20 +2299,10 @@ public class EywaToIfcConverter implements EywaConverter {
                         obj.getCrownRadius4(),
                         obj.getCrownThickness4()).build();
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"),
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(getSweptSolidType()),
                 valveItems);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(valveProduct);
     }
 
     /**
@@ -1448,60 +2314,75 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Instrument obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildInstrumentRepresentation(obj),
+                obj.getClass(), obj.getRadius());
+
+        IfcLocalPlacement instrProxyPlac = resolveInstrumentLocation(obj);
+        IfcDistributionControlElement instrumentProduct = IfcDistributionControlElement.builder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(instrProxyPlac)
+                .representation(productDefinitionShape).build();
+        addProduct(instrumentProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Instrument} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildInstrumentRepresentation(Instrument obj) {
         double poleRadius = obj.getRadius() / 4;
         double poleHeight = obj.getRadius() * 2;
         double discRadius = obj.getRadius();
         double discHeight = obj.getRadius() / 2;
-        IfcAxis2Placement2D center = new IfcAxis2Placement2D(0, 0);
 
-        IfcCircleProfileDef poleSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA,
-                null, center, new IfcPositiveLengthMeasure(poleRadius));
+        IfcCircleProfileDef poleSection = getCircleProfile(poleRadius);
         IfcExtrudedAreaSolid pole = new IfcExtrudedAreaSolid(poleSection,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
+                constants.origin3D,
+                constants.zAxis,
                 new IfcLengthMeasure(poleHeight));
 
-        IfcCircleProfileDef discSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
-                center, new IfcPositiveLengthMeasure(discRadius));
+        IfcCircleProfileDef discSection = getCircleProfile(discRadius);
         IfcAxis2Placement3D discPosition = new IfcAxis2Placement3D(
                 new IfcCartesianPoint(0, 0, poleHeight + discRadius),
-                new IfcDirection(0, -1, 0),
-                new IfcDirection(1, 0, 0));
+                constants.negativeYAxis,
+                constants.xAxis);
         IfcExtrudedAreaSolid disc = new IfcExtrudedAreaSolid(discSection, discPosition,
-                new IfcDirection(0, 0, 1),
+                constants.zAxis,
                 new IfcLengthMeasure(discHeight));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"),
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"),
                 Sets.newLinkedHashSet(Arrays.asList(pole, disc)));
-        IfcProductDefinitionShape productDefinitionShape =
-                new IfcProductDefinitionShape(null, null, shapeRepresentation);
+    }
 
+    /**
+     * @param obj The {@link Instrument} of which to resolve the location.
+     * @return The location of the Instrument, whose coordinate system is
+     * rotated again by its rotation, if it has one.
+     */
+    private IfcLocalPlacement resolveInstrumentLocation(Instrument obj) {
         IfcLocalPlacement instrProxyPlac = resolveLocation(obj);
         if (obj.getRotationArray() != null &&
-                !Arrays.equals(obj.getRotationArray(), new Double[]{0d, 0d, 0d}) &&
-                !Arrays.equals(obj.getRotationArray(), new Double[]{-0d, -0d, -0d})) {
+                !Arrays.equals(obj.getRotationArray(), ZERO_VECTOR) &&
+                !Arrays.equals(obj.getRotationArray(), NEGATIVE_ZERO_VECTOR)) {
 
             IfcAxis2Placement3D localCoordSys = (IfcAxis2Placement3D) instrProxyPlac.getRelativePlacement();
 
             // rotating axis and refDirection of the Instrument's coordinate
             // system
-            double[] axis = ifcToEywaVector(localCoordSys.getAxis()
-                    .getNormalisedDirectionRatios()
-                    .stream()
-                    .mapToDouble(IfcReal::getValue)
-                    .toArray(), false);
-            double[] refDir = ifcToEywaVector(localCoordSys.getRefDirection()
-                    .getNormalisedDirectionRatios()
-                    .stream()
-                    .mapToDouble(IfcReal::getValue)
-                    .toArray(), false);
-            rotate(axis, obj.getRotationArray(), "XYZ");
-            rotate(refDir, obj.getRotationArray(), "XYZ");
-            IfcDirection rotatedAxis = new IfcDirection(eywaToIfcVector(axis));
-            IfcDirection rotatedRefDir = new IfcDirection(eywaToIfcVector(refDir));
+            transform.setAxis(localCoordSys.getAxis().getNormalisedDirectionRatios());
+            transform.setRefDirection(localCoordSys.getRefDirection().getNormalisedDirectionRatios());
+            transform.rotate(obj.getRotationArray(), "XYZ");
+            IfcDirection rotatedAxis = transform.getIfcAxis();
+            IfcDirection rotatedRefDir = transform.getIfcRefDirection();
 
             // this doesn't modify the IfcAxis2Placement3D associated to obj
             // in objPositions, which must not be modified because it's used to
@@ -1511,15 +2392,7 @@ public class EywaToIfcConverter implements EywaConverter {
             instrProxyPlac = new IfcLocalPlacement(instrProxyPlac.getPlacementRelTo(),
                     newLocalCoordSys);
         }
-
-        IfcDistributionControlElement instrumentProduct = IfcDistributionControlElement.builder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(instrProxyPlac)
-                .representation(productDefinitionShape).build();
-        geometries.add(instrumentProduct);
+        return instrProxyPlac;
     }
 
     /**
@@ -1545,55 +2418,28 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Mesh obj) {
-        IfcCartesianPoint[] vertices = new IfcCartesianPoint[obj.getVertices().length / 3];
-        IntStream.range(0, vertices.length).forEach(i -> {
-            int offset = i * 3;
-            vertices[i] = new IfcCartesianPoint(obj.getVertices()[offset + 2],
-                    obj.getVertices()[offset],
-                    obj.getVertices()[offset + 1]);
-        });
-
-        Set<IfcFace> faces = Sets.newLinkedHashSet();
-
-        int vertSizeIndex = 0;
-        while (vertSizeIndex < obj.getFaces().length) {
-            int vertSize = obj.getFaces()[vertSizeIndex] == 1 ? 4 : 3;
-            IfcCartesianPoint[] polyVerts = new IfcCartesianPoint[vertSize];
-
-            for (int i = 0, j = vertSizeIndex + 1; i < vertSize; i++, j++) {
-                // i iterates on elements of polyVerts,
-                // j iterates on the indices of vertices composing the polygon
-                polyVerts[i] = vertices[obj.getFaces()[j]];
-            }
-
-            try {
-                IfcPolyLoop polygon = new IfcPolyLoop(polyVerts);
-                faces.add(new IfcFace(new IfcFaceBound(polygon, IfcBoolean.T)));
-            } catch (IllegalArgumentException e) {
-                // polygon contains multiple instances of the same
-                // IfcCartesianPoint
-            }
-            vertSizeIndex += 1 + vertSize;
+        if (addWithoutGeometry(obj)) {
+            return;
         }
+        IfcFacetedBrep mesh = new FacetedBrepBuilder(options.getWeldingTolerance())
+                .build(obj.getVertices(), obj.getFaces(), true);
 
-        IfcFacetedBrep mesh = new IfcFacetedBrep(new IfcClosedShell(faces));
-
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("Brep"), mesh);
+        IfcShapeRepresentation shapeRepresentation = buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("Brep"), mesh);
         IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
                 null, null, shapeRepresentation);
         String name = obj.getRepresenting() == null ||
                 obj.getRepresenting().equals("") ?
                 obj.getClass().getSimpleName() : obj.getRepresenting();
         // TODO: use appropriate IfcProduct according to getRepresenting
-        IfcProxy meshProxy = IfcProxy.builder().globalId(new IfcGloballyUniqueId())
+        IfcProxy meshProxy = IfcProxy.builder().globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory).name(new IfcLabel(name))
-                .description(new IfcText(getDescription(obj)))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(productDefinitionShape)
                 .proxyType(IfcObjectTypeEnum.PRODUCT).build();
-        geometries.add(meshProxy);
+        addProduct(meshProxy, obj);
     }
 
     /**
@@ -1605,7 +2451,9 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Nozzle obj) {
-        Set<IfcRepresentationItem> nozzleItems = new LinkedHashSet<>(5, 1);
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
         double trunkLength = obj.getTrunkLength() == null
                 ? 0
                 : obj.getTrunkLength();
@@ -1613,23 +2461,58 @@ public class EywaToIfcConverter implements EywaConverter {
                 ? obj.getLength() - obj.getCrownThickness() - trunkLength
                 : obj.getTangLength();
         double raisedFaceLength = obj.getCrownThickness() / 10;
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildNozzleRepresentation(obj, trunkLength, tangLength, raisedFaceLength),
+                obj.getClass(), obj.getRadius(), obj.getLength(), obj.getTrunkLength(), obj.getTangLength(),
+                obj.getCrownRadius(), obj.getCrownThickness(), getSafeThickness(obj));
+
+        IfcLocalPlacement objectPlacement = resolveLocation(obj);
+        if (obj.isSwitched()) {
+            double length = trunkLength + tangLength + obj.getCrownThickness() + raisedFaceLength;
+            objectPlacement = flip(objectPlacement, length);
+        }
+        IfcFlowController nozzleProduct = IfcFlowController.flowControllerBuilder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(objectPlacement)
+                .representation(productDefinitionShape).build();
+        addProduct(nozzleProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Nozzle} to convert.
+     * @param trunkLength The length of the trunk of {@code obj}.
+     * @param tangLength The length of the tang of {@code obj}.
+     * @param raisedFaceLength The length of the raised face of {@code obj}.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildNozzleRepresentation(Nozzle obj, double trunkLength, double tangLength,
+            double raisedFaceLength) {
+        Set<IfcRepresentationItem> nozzleItems = new LinkedHashSet<>(5, 1);
         double voidRadius = obj.getRadius() - getSafeThickness(obj);
         double raisedFaceRadius = obj.getRadius() + (obj.getCrownRadius() - obj.getRadius()) / 3;
-        IfcAxis2Placement2D sectionPosition = new IfcAxis2Placement2D(0, 0);
-        IfcDirection extrusionDirection = new IfcDirection(0, 0, 1);
-
-        if (trunkLength != 0) {
-            IfcCircleHollowProfileDef trunkSection =
-                    new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA, null, sectionPosition,
-                            new IfcPositiveLengthMeasure(obj.getRadius()),
-                            new IfcPositiveLengthMeasure(getSafeThickness(obj)));
-            IfcAxis2Placement3D trunkPosition = new IfcAxis2Placement3D(0, 0, 0);
+        IfcDirection extrusionDirection = constants.zAxis;
+
+        if (trunkLength != 0 && tessellator != null) {
+            nozzleItems.add(tessellateTube(voidRadius, obj.getRadius(), 0, trunkLength));
+        } else if (trunkLength != 0) {
+            IfcCircleHollowProfileDef trunkSection = getCircleHollowProfile(obj.getRadius(), getSafeThickness(obj));
+            IfcAxis2Placement3D trunkPosition = constants.origin3D;
             IfcExtrudedAreaSolid trunk = new IfcExtrudedAreaSolid(trunkSection, trunkPosition,
                     extrusionDirection, new IfcLengthMeasure(trunkLength));
             nozzleItems.add(trunk);
         }
 
-        if (tangLength != 0) {
+        if (tangLength != 0 && tessellator != null) {
+            double[] trapezium = {
+                    voidRadius, trunkLength,
+                    voidRadius + getSafeThickness(obj), trunkLength,
+                    raisedFaceRadius, trunkLength + tangLength,
+                    voidRadius, trunkLength + tangLength};
+            nozzleItems.add(tessellator.revolve(trapezium, 2 * PI, ORIGIN, Z_AXIS, X_AXIS));
+        } else if (tangLength != 0) {
             IfcPolyline trapezium = new IfcPolyline(
                     new IfcCartesianPoint(voidRadius, 0),
                     new IfcCartesianPoint(voidRadius + getSafeThickness(obj), 0),
@@ -1643,56 +2526,42 @@ public class EywaToIfcConverter implements EywaConverter {
                     // towards the negative y axis, and
                     // the y axis becomes the
                     // vertical axis
-                    new IfcDirection(0, -1, 0),
-                    new IfcDirection(1, 0, 0));
+                    constants.negativeYAxis,
+                    constants.xAxis);
             IfcRevolvedAreaSolid tang = new IfcRevolvedAreaSolid(sweptArea, tangPosition,
                     new IfcAxis1Placement(
-                            new IfcCartesianPoint(0, 0, 0),
-                            new IfcDirection(0, 1, 0)),
+                            constants.origin,
+                            constants.yAxis),
                     new IfcPlaneAngleMeasure(2 * PI));
             nozzleItems.add(tang);
         }
 
-        IfcCircleHollowProfileDef crownSection = new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA,
-                null, sectionPosition,
-                new IfcPositiveLengthMeasure(obj.getCrownRadius()),
-                new IfcPositiveLengthMeasure(obj.getCrownRadius() - voidRadius));
         double crownZOffset = trunkLength + tangLength;
-        IfcAxis2Placement3D crownPosition = new IfcAxis2Placement3D(0, 0, crownZOffset);
-        IfcExtrudedAreaSolid crown = new IfcExtrudedAreaSolid(crownSection, crownPosition, extrusionDirection,
-                new IfcLengthMeasure(obj.getCrownThickness()));
-        nozzleItems.add(crown);
-
-        IfcCircleHollowProfileDef raisedFaceSection = new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA,
-                null, sectionPosition,
-                new IfcPositiveLengthMeasure(raisedFaceRadius),
-                new IfcPositiveLengthMeasure(raisedFaceRadius - voidRadius));
         double raisedFaceZOffset = obj.getCrownThickness() + trunkLength + tangLength;
-        IfcAxis2Placement3D raisedFacePosition =
-                new IfcAxis2Placement3D(0, 0, raisedFaceZOffset);
-        IfcExtrudedAreaSolid raisedFace = new IfcExtrudedAreaSolid(raisedFaceSection,
-                raisedFacePosition, extrusionDirection, new IfcLengthMeasure(raisedFaceLength));
-        nozzleItems.add(raisedFace);
-
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), nozzleItems);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-
-        IfcLocalPlacement objectPlacement = resolveLocation(obj);
-        if (obj.isSwitched()) {
-            double length = trunkLength + tangLength + obj.getCrownThickness() + raisedFaceLength;
-            objectPlacement = flip(objectPlacement, length);
+        if (tessellator != null) {
+            nozzleItems.add(tessellateTube(voidRadius, obj.getCrownRadius(), crownZOffset,
+                    obj.getCrownThickness()));
+            nozzleItems.add(tessellateTube(voidRadius, raisedFaceRadius, raisedFaceZOffset, raisedFaceLength));
+        } else {
+            IfcCircleHollowProfileDef crownSection = getCircleHollowProfile(obj.getCrownRadius(),
+                    obj.getCrownRadius() - voidRadius);
+            IfcAxis2Placement3D crownPosition = new IfcAxis2Placement3D(0, 0, crownZOffset);
+            IfcExtrudedAreaSolid crown = new IfcExtrudedAreaSolid(crownSection, crownPosition, extrusionDirection,
+                    new IfcLengthMeasure(obj.getCrownThickness()));
+            nozzleItems.add(crown);
+
+            IfcCircleHollowProfileDef raisedFaceSection = getCircleHollowProfile(raisedFaceRadius,
+                    raisedFaceRadius - voidRadius);
+            IfcAxis2Placement3D raisedFacePosition =
+                    new IfcAxis2Placement3D(0, 0, raisedFaceZOffset);
+            IfcExtrudedAreaSolid raisedFace = new IfcExtrudedAreaSolid(raisedFaceSection,
+                    raisedFacePosition, extrusionDirection, new IfcLengthMeasure(raisedFaceLength));
+            nozzleItems.add(raisedFace);
         }
-        IfcFlowController nozzleProduct = IfcFlowController.flowControllerBuilder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(objectPlacement)
-                .representation(productDefinitionShape).build();
-        geometries.add(nozzleProduct);
+
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(getSweptSolidType()), nozzleItems);
     }
 
     /**
@@ -1704,7 +2573,30 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull OrthoValve obj) {
-        ValveBuilder valveBuilder = new ValveBuilder(getSafeThickness(obj));
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildOrthoValveRepresentation(obj),
+                obj.getClass(), obj.getFlanged(), obj.getRadius1(), obj.getRadius2(), obj.getLength1(),
+                obj.getLength2(), obj.getCrownRadius1(), obj.getCrownRadius2(), obj.getCrownThickness1(),
+                obj.getCrownThickness2(), getSafeThickness(obj));
+        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(valveProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link OrthoValve} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildOrthoValveRepresentation(OrthoValve obj) {
+        ValveBuilder valveBuilder = new ValveBuilder(getSafeThickness(obj), tessellator);
         if (obj.getFlanged() != null && obj.getFlanged()) {
             valveBuilder.addBottomOutput(
                     obj.getRadius1(),
@@ -1722,40 +2614,59 @@ public class EywaToIfcConverter implements EywaConverter {
                     .addRightOutput(obj.getRadius2(), obj.getLength2(), 0, 0);
         }
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), valveBuilder.build());
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
-                .globalId(new IfcGloballyUniqueId())
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(getSweptSolidType()), valveBuilder.build());
+    }
+
+    /**
+     * @param obj The {@link RectangularBlind} to convert.
+     * @throws NullPointerException If {@code obj} is null.
+     * @throws ConversionException If an error occurs during the serialization
+     * of {@link Primitive#getDescription()} in the
+     * JSON format.
+     */
+    @Override
+    public void addObject(@NonNull RectangularBlind obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        double blindThickness = getSafeThickness(obj);
+        double plateThickness = getSafeThickness(obj) / 10;
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildRectangularBlindRepresentation(obj, blindThickness, plateThickness),
+                obj.getClass(), obj.getWidth(), obj.getDepth(), obj.getCrownWidth(), obj.getCrownDepth(),
+                getSafeThickness(obj));
+        IfcLocalPlacement location = resolveLocation(obj);
+        if (obj.isSwitched()) {
+            location = flip(location, blindThickness + plateThickness);
+        }
+        IfcDistributionFlowElement rectBlindProduct = IfcDistributionFlowElement.builder()
+                .globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(location)
                 .representation(productDefinitionShape).build();
-        geometries.add(valveProduct);
+        addProduct(rectBlindProduct, obj);
     }
 
     /**
      * @param obj The {@link RectangularBlind} to convert.
-     * @throws NullPointerException If {@code obj} is null.
-     * @throws ConversionException If an error occurs during the serialization
-     * of {@link Primitive#getDescription()} in the
-     * JSON format.
+     * @param blindThickness The thickness of the blind.
+     * @param plateThickness The thickness of the plate.
+     * @return The geometry of {@code obj}, in its local coordinate system.
      */
-    @Override
-    public void addObject(@NonNull RectangularBlind obj) {
-        IfcAxis2Placement2D centre = new IfcAxis2Placement2D(0, 0);
-        double blindThickness = getSafeThickness(obj);
-        double plateThickness = getSafeThickness(obj) / 10;
+    private IfcShapeRepresentation buildRectangularBlindRepresentation(RectangularBlind obj, double blindThickness,
+            double plateThickness) {
+        IfcAxis2Placement2D centre = constants.origin2D;
         IfcRectangleProfileDef plateSection = new IfcRectangleProfileDef(
                 IfcProfileTypeEnum.AREA, null, centre,
                 new IfcPositiveLengthMeasure(obj.getWidth()),
                 new IfcPositiveLengthMeasure(obj.getDepth()));
         IfcExtrudedAreaSolid plate = new IfcExtrudedAreaSolid(plateSection,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
+                constants.origin3D,
+                constants.zAxis,
                 new IfcLengthMeasure(plateThickness));
 
         IfcRectangleProfileDef blindSection = new IfcRectangleProfileDef(
@@ -1764,28 +2675,13 @@ public class EywaToIfcConverter implements EywaConverter {
                 new IfcPositiveLengthMeasure(obj.getCrownDepth()));
         IfcExtrudedAreaSolid blind = new IfcExtrudedAreaSolid(blindSection,
                 new IfcAxis2Placement3D(0, 0, plateThickness),
-                new IfcDirection(0, 0, 1),
+                constants.zAxis,
                 new IfcLengthMeasure(blindThickness));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"),
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"),
                 Sets.newLinkedHashSet(Arrays.asList(blind, plate)));
-        IfcProductDefinitionShape productDefinitionShape =
-                new IfcProductDefinitionShape(null, null, shapeRepresentation);
-        IfcLocalPlacement location = resolveLocation(obj);
-        if (obj.isSwitched()) {
-            location = flip(location, blindThickness + plateThickness);
-        }
-        IfcDistributionFlowElement rectBlindProduct = IfcDistributionFlowElement.builder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(location)
-                .representation(productDefinitionShape).build();
-        geometries.add(rectBlindProduct);
     }
 
     /**
@@ -1797,8 +2693,9 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull RectangularEndplate obj) {
-        IfcAxis2Placement2D centre = new IfcAxis2Placement2D(0, 0);
-        IfcDirection extrusionDirection = new IfcDirection(0, 0, 1);
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
         double length = obj.getLength() == null || obj.getLength() <= 0
                 ? 0
                 : obj.getLength();
@@ -1812,6 +2709,32 @@ public class EywaToIfcConverter implements EywaConverter {
         } else {
             neckLength = length - endThickness;
         }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildRectangularEndplateRepresentation(obj, neckLength),
+                obj.getClass(), obj.getWidth(), obj.getDepth(), obj.getLength(), obj.getEndThickness(),
+                getSafeThickness(obj));
+        IfcLocalPlacement location = resolveLocation(obj);
+        if (obj.isSwitched()) {
+            location = flip(location, length);
+        }
+        IfcDistributionFlowElement rectEndplateProduct = IfcDistributionFlowElement.builder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(location)
+                .representation(productDefinitionShape).build();
+        addProduct(rectEndplateProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link RectangularEndplate} to convert.
+     * @param neckLength The length of the neck of {@code obj}, 0 if it has none.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildRectangularEndplateRepresentation(RectangularEndplate obj, double neckLength) {
+        IfcAxis2Placement2D centre = constants.origin2D;
+        IfcDirection extrusionDirection = constants.zAxis;
         Set<IfcRepresentationItem> endplateItems = new LinkedHashSet<>(neckLength == 0 ? 2 : 3, 1);
 
         IfcRectangleProfileDef plateSection = new IfcRectangleProfileDef(
@@ -1832,28 +2755,14 @@ public class EywaToIfcConverter implements EywaConverter {
                     .wallThickness(new IfcPositiveLengthMeasure(getSafeThickness(obj)))
                     .build();
             IfcExtrudedAreaSolid neck = new IfcExtrudedAreaSolid(neckSection,
-                    new IfcAxis2Placement3D(0, 0, 0), extrusionDirection,
+                    constants.origin3D, extrusionDirection,
                     new IfcLengthMeasure(neckLength));
             endplateItems.add(neck);
         }
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), endplateItems);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcLocalPlacement location = resolveLocation(obj);
-        if (obj.isSwitched()) {
-            location = flip(location, length);
-        }
-        IfcDistributionFlowElement rectEndplateProduct = IfcDistributionFlowElement.builder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(location)
-                .representation(productDefinitionShape).build();
-        geometries.add(rectEndplateProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), endplateItems);
     }
 
     /**
@@ -1865,7 +2774,29 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull RectangularFlange obj) {
-        IfcDirection extrusionDirection = new IfcDirection(0, 0, 1);
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildRectangularFlangeRepresentation(obj),
+                obj.getClass(), obj.getWidth(), obj.getDepth(), obj.getLength(), obj.getCrownWidth(),
+                obj.getCrownDepth(), obj.getCrownThickness(), obj.getNeck(), getSafeThickness(obj));
+        IfcFlowController rectFlangeProduct = IfcFlowController.flowControllerBuilder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(rectFlangeProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link RectangularFlange} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildRectangularFlangeRepresentation(RectangularFlange obj) {
+        IfcDirection extrusionDirection = constants.zAxis;
         double neckLength = obj.getNeck() == null || obj.getNeck() <= 0
                 ? 0
                 : obj.getNeck();
@@ -1880,12 +2811,12 @@ public class EywaToIfcConverter implements EywaConverter {
         if (neckLength != 0) {
             IfcRectangleHollowProfileDef neckSection = IfcRectangleHollowProfileDef.builder()
                     .profileType(IfcProfileTypeEnum.AREA)
-                    .position(new IfcAxis2Placement2D(0, 0))
+                    .position(constants.origin2D)
                     .xDim(new IfcPositiveLengthMeasure(obj.getWidth()))
                     .yDim(new IfcPositiveLengthMeasure(obj.getDepth()))
                     .wallThickness(new IfcPositiveLengthMeasure(getSafeThickness(obj))).build();
             IfcExtrudedAreaSolid neck = new IfcExtrudedAreaSolid(neckSection,
-                    new IfcAxis2Placement3D(0, 0, 0), extrusionDirection,
+                    constants.origin3D, extrusionDirection,
                     new IfcLengthMeasure(neckLength));
             flangeItems.add(neck);
         }
@@ -1911,19 +2842,9 @@ public class EywaToIfcConverter implements EywaConverter {
                 new IfcLengthMeasure(obj.getCrownThickness()));
         flangeItems.add(crown);
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), flangeItems);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowController rectFlangeProduct = IfcFlowController.flowControllerBuilder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(rectFlangeProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), flangeItems);
     }
 
     /**
@@ -1935,6 +2856,27 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull RectangularPlate obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildRectangularPlateRepresentation(obj),
+                obj.getClass(), obj.getWidth(), obj.getDepth(), obj.getHoleWidth(), obj.getHoleDepth(),
+                getSafeThickness(obj));
+        IfcFlowFitting rectPlateProduct = IfcFlowFitting.flowFittingBuilder()
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(rectPlateProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link RectangularPlate} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildRectangularPlateRepresentation(RectangularPlate obj) {
         double halfWidth = obj.getWidth() / 2;
         double halfDepth = obj.getDepth() / 2;
         IfcPolyline outerRect = new IfcPolyline(
@@ -1952,22 +2894,13 @@ public class EywaToIfcConverter implements EywaConverter {
         IfcArbitraryProfileDefWithVoids section = new IfcArbitraryProfileDefWithVoids(
                 IfcProfileTypeEnum.AREA, null, outerRect, innerRect);
         IfcExtrudedAreaSolid plate = new IfcExtrudedAreaSolid(section,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
+                constants.origin3D,
+                constants.zAxis,
                 new IfcLengthMeasure(getSafeThickness(obj)));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), plate);
-        IfcProductDefinitionShape productDefinitionShape =
-                new IfcProductDefinitionShape(null, null, shapeRepresentation);
-        IfcFlowFitting rectPlateProduct = IfcFlowFitting.flowFittingBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(rectPlateProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), plate);
     }
 
     /**
@@ -1979,30 +2912,41 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull RectangularShell obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildRectangularShellRepresentation(obj),
+                obj.getClass(), obj.getWidth(), obj.getDepth(), obj.getLength(), getSafeThickness(obj));
+        IfcFlowSegment rectShellProduct = IfcFlowSegment.flowSegmentBuilder()
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(rectShellProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link RectangularShell} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildRectangularShellRepresentation(RectangularShell obj) {
         IfcRectangleHollowProfileDef section = IfcRectangleHollowProfileDef.builder()
                 .profileType(IfcProfileTypeEnum.AREA)
-                .position(new IfcAxis2Placement2D(0, 0))
+                .position(constants.origin2D)
                 .xDim(new IfcPositiveLengthMeasure(obj.getWidth()))
                 .yDim(new IfcPositiveLengthMeasure(obj.getDepth()))
                 .wallThickness(new IfcPositiveLengthMeasure(getSafeThickness(obj)))
                 .build();
         IfcExtrudedAreaSolid rectShell = new IfcExtrudedAreaSolid(section,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
+                constants.origin3D,
+                constants.zAxis,
                 new IfcLengthMeasure(obj.getLength()));
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), rectShell);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowSegment rectShellProduct = IfcFlowSegment.flowSegmentBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(rectShellProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), rectShell);
     }
 
     /**
@@ -2014,28 +2958,36 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Ring obj) {
-        IfcCircleHollowProfileDef section = new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA, null,
-                new IfcAxis2Placement2D(0, 0),
-                new IfcPositiveLengthMeasure(obj.getOuterRadius()),
-                new IfcPositiveLengthMeasure(obj.getOuterRadius() - obj.getInnerRadius()));
-        IfcExtrudedAreaSolid ring = new IfcExtrudedAreaSolid(section,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
-                new IfcLengthMeasure(getSafeThickness(obj)));
-
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(
-                GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), ring);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildRingRepresentation(obj),
+                obj.getClass(), obj.getInnerRadius(), obj.getOuterRadius(), getSafeThickness(obj));
         IfcFlowFitting ringProduct = IfcFlowFitting.flowFittingBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(productDefinitionShape).build();
-        geometries.add(ringProduct);
+        addProduct(ringProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Ring} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildRingRepresentation(Ring obj) {
+        IfcCircleHollowProfileDef section = getCircleHollowProfile(obj.getOuterRadius(),
+                obj.getOuterRadius() - obj.getInnerRadius());
+        IfcExtrudedAreaSolid ring = new IfcExtrudedAreaSolid(section,
+                constants.origin3D,
+                constants.zAxis,
+                new IfcLengthMeasure(getSafeThickness(obj)));
+
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), ring);
     }
 
     /**
@@ -2047,39 +2999,166 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Shell obj) {
-        //creating a parallelogram that is the right part of the vertical
-        // section of the shell
-        IfcPolyline trapezium = new IfcPolyline(
-                new IfcCartesianPoint(obj.getRadius1() - getSafeThickness(obj), 0),
-                new IfcCartesianPoint(obj.getRadius1(), 0),
-                new IfcCartesianPoint(obj.getRadius2(), obj.getLength()),
-                new IfcCartesianPoint(obj.getRadius2() - getSafeThickness(obj), obj.getLength()));
-        IfcArbitraryClosedProfileDef sweptArea = new IfcArbitraryClosedProfileDef(
-                IfcProfileTypeEnum.AREA, null, trapezium);
-        IfcAxis2Placement3D shellPosition = new IfcAxis2Placement3D(
-                new IfcCartesianPoint(0, 0, 0),
-                // the z axis is rotated by PI/2
-                // towards the negative y axis, and
-                // the y axis becomes the vertical axis
-                new IfcDirection(0, -1, 0),
-                new IfcDirection(1, 0, 0));
-        IfcRevolvedAreaSolid shell = new IfcRevolvedAreaSolid(sweptArea, shellPosition,
-                new IfcAxis1Placement(
-                        new IfcCartesianPoint(0, 0, 0),
-                        new IfcDirection(0, 1, 0)),
-                new IfcPlaneAngleMeasure(2 * PI));
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), shell);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowSegment shellProduct = IfcFlowSegment.flowSegmentBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        if (options.isCoalescingShells()) {
+            addToShellRun(obj);
+            return;
+        }
+        addProduct(buildShell(obj, obj.getLength(), newGlobalId(obj), resolveLocation(obj)), obj);
+    }
+
+    /**
+     * Extends {@link #shellRun} with {@code obj} if possible, otherwise
+     * converts the Shells in it and starts a new one with {@code obj}, unless
+     * it's conical.
+     * @param obj The Shell to convert.
+     * @throws ConversionException If an error occurs during the serialization
+     * of {@link Primitive#getDescription()} in the
+     * JSON format.
+     */
+    private void addToShellRun(Shell obj) {
+        boolean first = forkedFrom != null && leadingRunStart < 0;
+        if (first) {
+            leadingRunStart = geometries.size();
+        }
+        IfcGloballyUniqueId globalId = newGlobalId(obj);
+        IfcLocalPlacement placement = resolveLocation(obj);
+        double[] coordinateSystem = toWorldMatrix(null, (IfcAxis2Placement3D) placement.getRelativePlacement());
+        double thickness = getSafeThickness(obj);
+        if (shellRun != null && shellRun.continuesWith(obj, thickness, coordinateSystem)) {
+            shellRun.add(obj);
+            return;
+        }
+        addShellRun();
+        if (ShellRun.isCylindrical(obj)) {
+            shellRun = new ShellRun(obj, thickness, coordinateSystem, placement,
+                    Arrays.asList(globalId, newGlobalId(obj, "pset"), newGlobalId(obj, "pset-link")));
+            shellRunLeading = first;
+        } else {
+            if (first) {
+                leadingRunEnd = leadingRunStart;
+            }
+            addProduct(buildShell(obj, obj.getLength(), globalId, placement), obj);
+        }
+    }
+
+    /**
+     * Converts the Shells in {@link #shellRun} to a single IfcFlowSegment, if
+     * there are any. If there's more than one, their imIds are listed in the
+     * {@code ImIds} property of its {@code Antea_CoalescedShells} property
+     * set. If it's the run started by the first Shell of a forked instance,
+     * it's kept in {@link #leadingRun} instead.
+     * @throws ConversionException If an error occurs during the serialization
+     * of {@link Primitive#getDescription()} in the
+     * JSON format.
+     */
+    private void addShellRun() {
+        if (shellRun == null) {
+            return;
+        }
+        ShellRun run = shellRun;
+        shellRun = null;
+        if (shellRunLeading) {
+            shellRunLeading = false;
+            leadingRun = run;
+            leadingRunEnd = geometries.size();
+            return;
+        }
+        List<IfcGloballyUniqueId> runGlobalIds = run.getGlobalIds();
+        IfcFlowSegment shellProduct = buildShell(run.getFirst(), run.getLength(), runGlobalIds.get(0),
+                run.getPlacement());
+        addProduct(shellProduct, run.getFirst());
+        if (descriptionSidecar != null) {
+            // the line of the first Shell was written by addProduct
+            Map<String, Object> description = run.getFirst().getDescription();
+            List<Object> runImIds = run.getImIds();
+            for (Object imId : runImIds.subList(run.getFirst().getLegacyId() == null ? 0 : 1, runImIds.size())) {
+                descriptionSidecar.write(shellProduct.getGlobalId(), imId, description);
+            }
+        }
+        if (run.size() > 1) {
+            List<IfcValue> imIds = new ArrayList<>(run.getImIds().size());
+            for (Object imId : run.getImIds()) {
+                imIds.add(new IfcIdentifier(imId.toString()));
+            }
+            IfcPropertySet propertySet = IfcPropertySet.builder().globalId(runGlobalIds.get(1))
+                    .ownerHistory(ownerHistory)
+                    .name(new IfcLabel("Antea_CoalescedShells"))
+                    .hasProperties(Collections.singleton(
+                            new IfcPropertyListValue(new IfcIdentifier("ImIds"), null, imIds, null)))
+                    .build();
+            IfcRelDefinesByProperties.builder().globalId(runGlobalIds.get(2))
+                    .ownerHistory(ownerHistory)
+                    .relatedObjects(Collections.singleton(shellProduct))
+                    .relatingPropertyDefinition(propertySet).build();
+        }
+    }
+
+    /**
+     * @param obj The {@link Shell} to convert, or the first one of a run.
+     * @param length The length of {@code obj}, or of the whole run.
+     * @param globalId The GlobalId of the new IfcFlowSegment.
+     * @param placement The placement of {@code obj}.
+     * @return The new IfcFlowSegment.
+     * @throws ConversionException If an error occurs during the serialization
+     * of {@link Primitive#getDescription()} in the
+     * JSON format.
+     */
+    private IfcFlowSegment buildShell(Shell obj, double length, IfcGloballyUniqueId globalId,
+            IfcLocalPlacement placement) {
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildShellRepresentation(obj, length),
+                obj.getClass(), obj.getRadius1(), obj.getRadius2(), length, getSafeThickness(obj));
+        return IfcFlowSegment.flowSegmentBuilder()
+                .globalId(globalId).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(placement)
                 .representation(productDefinitionShape).build();
-        geometries.add(shellProduct);
+    }
+
+    /**
+     * @param obj The {@link Shell} to convert.
+     * @param length The length of {@code obj}, or of the whole run.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildShellRepresentation(Shell obj, double length) {
+        IfcSolidModel shell;
+        if (tessellator != null) {
+            double[] trapezium = {
+                    obj.getRadius1() - getSafeThickness(obj), 0,
+                    obj.getRadius1(), 0,
+                    obj.getRadius2(), length,
+                    obj.getRadius2() - getSafeThickness(obj), length};
+            shell = tessellator.revolve(trapezium, 2 * PI, ORIGIN, Z_AXIS, X_AXIS);
+        } else {
+            //creating a parallelogram that is the right part of the vertical
+            // section of the shell
+            IfcPolyline trapezium = new IfcPolyline(
+                    new IfcCartesianPoint(obj.getRadius1() - getSafeThickness(obj), 0),
+                    new IfcCartesianPoint(obj.getRadius1(), 0),
+                    new IfcCartesianPoint(obj.getRadius2(), length),
+                    new IfcCartesianPoint(obj.getRadius2() - getSafeThickness(obj), length));
+            IfcArbitraryClosedProfileDef sweptArea = new IfcArbitraryClosedProfileDef(
+                    IfcProfileTypeEnum.AREA, null, trapezium);
+            IfcAxis2Placement3D shellPosition = new IfcAxis2Placement3D(
+                    constants.origin,
+                    // the z axis is rotated by PI/2
+                    // towards the negative y axis, and
+                    // the y axis becomes the vertical axis
+                    constants.negativeYAxis,
+                    constants.xAxis);
+            shell = new IfcRevolvedAreaSolid(sweptArea, shellPosition,
+                    new IfcAxis1Placement(
+                            constants.origin,
+                            constants.yAxis),
+                    new IfcPlaneAngleMeasure(2 * PI));
+        }
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(getSweptSolidType()), shell);
     }
 
     /**
@@ -2091,20 +3170,33 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Sphere obj) {
-        IfcRevolvedAreaSolid sphere = buildSphere(obj.getRadius(), new IfcAxis2Placement3D(0, 0, 0));
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), sphere);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcProxy sphereProxy = IfcProxy.builder().globalId(new IfcGloballyUniqueId())
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildSphereRepresentation(obj),
+                obj.getClass(), obj.getRadius());
+        IfcProxy sphereProxy = IfcProxy.builder().globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(productDefinitionShape)
                 .proxyType(IfcObjectTypeEnum.PRODUCT).build();
-        geometries.add(sphereProxy);
+        addProduct(sphereProxy, obj);
+    }
+
+    /**
+     * @param obj The {@link Sphere} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildSphereRepresentation(Sphere obj) {
+        IfcSolidModel sphere = tessellator != null
+                ? tessellator.revolve(tessellator.sphereProfile(obj.getRadius()), 2 * PI, ORIGIN, Z_AXIS, X_AXIS)
+                : buildSphere(obj.getRadius(), constants.origin3D);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(getSweptSolidType()), sphere);
     }
 
     /**
@@ -2165,18 +3257,18 @@ public class EywaToIfcConverter implements EywaConverter {
 
         //IfcShapeRepresentation shapeRepresentation = new
         // IfcShapeRepresentation(
-        //        GEOMETRIC_REPRESENTATION_CONTEXT,
-        //        new IfcLabel("Body"),
-        //        new IfcLabel("SweptSolid"),
+        //        context,
+        //        constants.label("Body"),
+        //        constants.label("SweptSolid"),
         //        sweep);
         //IfcProductDefinitionShape productDefinitionShape =
         //        new IfcProductDefinitionShape(null, null,
         //        shapeRepresentation);
         //IfcProxy sweepProxy =
-        //        IfcProxy.builder().globalId(new IfcGloballyUniqueId())
+        //        IfcProxy.builder().globalId(newGlobalId(obj))
         //                .ownerHistory(ownerHistory)
-        //                .name(new IfcLabel(obj.getClass().getSimpleName()))
-        //                .description(new IfcText(getDescription(obj)))
+        //                .name(constants.label(obj.getClass().getSimpleName()))
+        //                .description(getDescriptionText(obj))
         //                .objectPlacement(resolveLocation(obj))
         //                .representation(productDefinitionShape)
         //                .proxyType(IfcObjectTypeEnum.PRODUCT).build();
@@ -2192,28 +3284,36 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull TankShell obj) {
-        IfcCircleHollowProfileDef shellSection = new IfcCircleHollowProfileDef(IfcProfileTypeEnum.AREA, null,
-                new IfcAxis2Placement2D(0, 0),
-                new IfcPositiveLengthMeasure(obj.getRadius()),
-                new IfcPositiveLengthMeasure(getSafeThickness(obj)));
-        IfcExtrudedAreaSolid tankShell = new IfcExtrudedAreaSolid(shellSection,
-                new IfcAxis2Placement3D(0, 0, 0),
-                new IfcDirection(0, 0, 1),
-                new IfcLengthMeasure(obj.getHeight()));
-
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), tankShell);
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildTankShellRepresentation(obj),
+                obj.getClass(), obj.getRadius(), obj.getHeight(), getSafeThickness(obj));
         IfcFlowStorageDevice tankShellProduct = IfcFlowStorageDevice.flowStorageDeviceBuilder()
-                .globalId(new IfcGloballyUniqueId())
+                .globalId(newGlobalId(obj))
                 .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
                 .objectPlacement(resolveLocation(obj))
                 .representation(productDefinitionShape).build();
-        geometries.add(tankShellProduct);
+        addProduct(tankShellProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link TankShell} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildTankShellRepresentation(TankShell obj) {
+        IfcCircleHollowProfileDef shellSection = getCircleHollowProfile(obj.getRadius(), getSafeThickness(obj));
+        IfcExtrudedAreaSolid tankShell = new IfcExtrudedAreaSolid(shellSection,
+                constants.origin3D,
+                constants.zAxis,
+                new IfcLengthMeasure(obj.getHeight()));
+
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("SweptSolid"), tankShell);
     }
 
     /**
@@ -2225,26 +3325,44 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Tee obj) {
-        IfcAxis2Placement2D sectionsPosition = new IfcAxis2Placement2D(0, 0);
-        IfcAxis2Placement3D mainPipePosition = new IfcAxis2Placement3D(0, 0, 0);
-        IfcDirection positiveExtrusionDirection = new IfcDirection(0, 0, 1);
-        IfcDirection negativeExtrusionDirection = new IfcDirection(0, 0, -1);
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> options.isBooleanFree() ? buildBooleanFreeTee(obj) : buildTee(obj),
+                obj.getClass(), obj.getRadius1(), obj.getRadius2(), obj.getLength1(), obj.getLength2(),
+                obj.getDerivationRadius(), obj.getDerivationLength(), obj.getDerivationThickness(),
+                obj.getPhi(), getSafeThickness(obj));
+        IfcFlowFitting teeProduct = IfcFlowFitting.flowFittingBuilder()
+                .globalId(newGlobalId(obj)).ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(teeProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Tee} to convert.
+     * @return The geometry of the Tee, where the derivation pipe is subtracted
+     * from the main pipe and vice versa with boolean operations.
+     */
+    private IfcShapeRepresentation buildTee(Tee obj) {
+        IfcAxis2Placement3D mainPipePosition = constants.origin3D;
+        IfcDirection positiveExtrusionDirection = constants.zAxis;
+        IfcDirection negativeExtrusionDirection = constants.negativeZAxis;
 
-        IfcCircleProfileDef outerPipe1Section = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA,
-                null, sectionsPosition, new IfcPositiveLengthMeasure(obj.getRadius1()));
+        IfcCircleProfileDef outerPipe1Section = getCircleProfile(obj.getRadius1());
         IfcExtrudedAreaSolid outerPipe1 = new IfcExtrudedAreaSolid(outerPipe1Section,
                 mainPipePosition, negativeExtrusionDirection, new IfcLengthMeasure(obj.getLength1()));
-        IfcCircleProfileDef innerPipe1Section = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
-                sectionsPosition, new IfcPositiveLengthMeasure(obj.getRadius1() - getSafeThickness(obj)));
+        IfcCircleProfileDef innerPipe1Section = getCircleProfile(obj.getRadius1() - getSafeThickness(obj));
         IfcExtrudedAreaSolid innerPipe1 = new IfcExtrudedAreaSolid(innerPipe1Section, mainPipePosition,
                 negativeExtrusionDirection, new IfcLengthMeasure(obj.getLength1()));
 
-        IfcCircleProfileDef outerPipe2Section = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
-                sectionsPosition, new IfcPositiveLengthMeasure(obj.getRadius2()));
+        IfcCircleProfileDef outerPipe2Section = getCircleProfile(obj.getRadius2());
         IfcExtrudedAreaSolid outerPipe2 = new IfcExtrudedAreaSolid(outerPipe2Section, mainPipePosition,
                 positiveExtrusionDirection, new IfcLengthMeasure(obj.getLength2()));
-        IfcCircleProfileDef innerPipe2Section = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
-                sectionsPosition, new IfcPositiveLengthMeasure(obj.getRadius2() - getSafeThickness(obj)));
+        IfcCircleProfileDef innerPipe2Section = getCircleProfile(obj.getRadius2() - getSafeThickness(obj));
         IfcExtrudedAreaSolid innerPipe2 = new IfcExtrudedAreaSolid(innerPipe2Section, mainPipePosition,
                 positiveExtrusionDirection, new IfcLengthMeasure(obj.getLength2()));
 
@@ -2256,16 +3374,14 @@ public class EywaToIfcConverter implements EywaConverter {
                 ? getSafeThickness(obj)
                 : obj.getDerivationThickness();
         IfcAxis2Placement3D derivPipePosition = new IfcAxis2Placement3D(
-                new IfcCartesianPoint(0, 0, 0),
+                constants.origin,
                 new IfcDirection(0, cos(obj.getPhi()), sin(obj.getPhi())),
-                new IfcDirection(1, 0, 0));
-        IfcCircleProfileDef outerDerivPipeSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA,
-                null, sectionsPosition, new IfcPositiveLengthMeasure(obj.getDerivationRadius()));
+                constants.xAxis);
+        IfcCircleProfileDef outerDerivPipeSection = getCircleProfile(obj.getDerivationRadius());
         IfcExtrudedAreaSolid outerDerivPipe = new IfcExtrudedAreaSolid(outerDerivPipeSection,
                 derivPipePosition, positiveExtrusionDirection,
                 new IfcLengthMeasure(obj.getDerivationLength()));
-        IfcCircleProfileDef innerDerivPipeSection = new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null,
-                sectionsPosition, new IfcPositiveLengthMeasure(obj.getDerivationRadius() - derivationThickness));
+        IfcCircleProfileDef innerDerivPipeSection = getCircleProfile(obj.getDerivationRadius() - derivationThickness);
         IfcExtrudedAreaSolid innerDerivPipe = new IfcExtrudedAreaSolid(innerDerivPipeSection,
                 derivPipePosition, positiveExtrusionDirection,
                 new IfcLengthMeasure(obj.getDerivationLength()));
@@ -2275,19 +3391,141 @@ public class EywaToIfcConverter implements EywaConverter {
         derivationPipe = new IfcBooleanResult(DIFFERENCE, derivationPipe, outerPipe);
         pipe = new IfcBooleanResult(DIFFERENCE, pipe, innerDerivPipe);
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("CSG"),
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label("CSG"),
                 Sets.newLinkedHashSet(Arrays.asList(pipe, derivationPipe)));
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape
-                (null, null, shapeRepresentation);
-        IfcFlowFitting teeProduct = IfcFlowFitting.flowFittingBuilder()
-                .globalId(new IfcGloballyUniqueId()).ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(teeProduct);
+    }
+
+    /**
+     * @param obj The {@link Tee} to convert.
+     * @return The geometry of the Tee without boolean operations: the main
+     * pipe is made of two hollow cylinders, not pierced by the derivation
+     * pipe, and the derivation pipe is a faceted tube whose walls start where
+     * they meet the outer surface of the main pipe.
+     */
+    private IfcShapeRepresentation buildBooleanFreeTee(Tee obj) {
+        Set<IfcRepresentationItem> teeItems = new LinkedHashSet<>(3, 1);
+        if (tessellator != null) {
+            teeItems.add(tessellateTube(obj.getRadius1() - getSafeThickness(obj), obj.getRadius1(),
+                    -obj.getLength1(), obj.getLength1()));
+            teeItems.add(tessellateTube(obj.getRadius2() - getSafeThickness(obj), obj.getRadius2(), 0,
+                    obj.getLength2()));
+        } else {
+            IfcCircleHollowProfileDef pipe1Section = getCircleHollowProfile(obj.getRadius1(), getSafeThickness(obj));
+            teeItems.add(new IfcExtrudedAreaSolid(pipe1Section, constants.origin3D,
+                    constants.negativeZAxis, new IfcLengthMeasure(obj.getLength1())));
+            IfcCircleHollowProfileDef pipe2Section = getCircleHollowProfile(obj.getRadius2(), getSafeThickness(obj));
+            teeItems.add(new IfcExtrudedAreaSolid(pipe2Section, constants.origin3D,
+                    constants.zAxis, new IfcLengthMeasure(obj.getLength2())));
+        }
+
+        double derivationThickness = obj.getDerivationThickness() == null
+                ? getSafeThickness(obj)
+                : obj.getDerivationThickness();
+        double outerRadius = obj.getDerivationRadius();
+        double innerRadius = outerRadius - derivationThickness;
+        double length = obj.getDerivationLength();
+        int segments = tessellator == null
+                ? RADIAL_SEGMENTS
+                : tessellator.segments(outerRadius);
+        Tessellator.UnitCircle circle = Tessellator.unitCircle(segments);
+        // the derivation pipe goes along (0, cos(phi), sin(phi)), its sections
+        // are in the plane of the x axis and of yAxis
+        double[] axis = {0, cos(obj.getPhi()), sin(obj.getPhi())};
+        double[] yAxis = {0, sin(obj.getPhi()), -cos(obj.getPhi())};
+        IfcCartesianPoint[] outerStart = new IfcCartesianPoint[segments];
+        IfcCartesianPoint[] outerEnd = new IfcCartesianPoint[segments];
+        IfcCartesianPoint[] innerStart = new IfcCartesianPoint[segments];
+        IfcCartesianPoint[] innerEnd = new IfcCartesianPoint[segments];
+        for (int i = 0; i < segments; i++) {
+            double outerX = outerRadius * circle.cos(i);
+            double outerY = outerRadius * circle.sin(i);
+            double innerX = innerRadius * circle.cos(i);
+            double innerY = innerRadius * circle.sin(i);
+            outerStart[i] = buildDerivationPoint(outerX, outerY, getDerivationStart(obj, outerX, outerY),
+                    axis, yAxis);
+            outerEnd[i] = buildDerivationPoint(outerX, outerY, length, axis, yAxis);
+            innerStart[i] = buildDerivationPoint(innerX, innerY, getDerivationStart(obj, innerX, innerY),
+                    axis, yAxis);
+            innerEnd[i] = buildDerivationPoint(innerX, innerY, length, axis, yAxis);
+        }
+
+        // faces are built from different points, so they're all different
+        Set<IfcFace> faces = new IdentityLinkedSet<>();
+        for (int i = 0; i < segments; i++) {
+            int next = (i + 1) % segments;
+            faces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(outerStart[i], outerStart[next],
+                    outerEnd[next], outerEnd[i]), IfcBoolean.T)));
+            faces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(outerEnd[i], outerEnd[next],
+                    innerEnd[next], innerEnd[i]), IfcBoolean.T)));
+            faces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(innerEnd[i], innerEnd[next],
+                    innerStart[next], innerStart[i]), IfcBoolean.T)));
+            // the start of the walls follows the main pipe, so the faces
+            // between them are split in triangles to be planar
+            faces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(innerStart[i], innerStart[next],
+                    outerStart[next]), IfcBoolean.T)));
+            faces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(innerStart[i], outerStart[next],
+                    outerStart[i]), IfcBoolean.T)));
+        }
+        teeItems.add(new IfcFacetedBrep(new IfcClosedShell(faces)));
+
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(tessellator == null ? "SolidModel" : "Brep"),
+                teeItems);
+    }
+
+    /**
+     * @param x Coordinate of the point along the x axis.
+     * @param y Coordinate of the point along {@code yAxis}.
+     * @param distance Coordinate of the point along {@code axis}.
+     * @param axis Direction of the derivation pipe of a Tee.
+     * @param yAxis Direction perpendicular to the x axis and to {@code axis}.
+     * @return The point with the given coordinates in the coordinate system
+     * of the derivation pipe.
+     */
+    private static IfcCartesianPoint buildDerivationPoint(double x, double y, double distance, double[] axis,
+            double[] yAxis) {
+        return new IfcCartesianPoint(x,
+                y * yAxis[1] + distance * axis[1],
+                y * yAxis[2] + distance * axis[2]);
+    }
+
+    /**
+     * @param obj A {@link Tee}.
+     * @param x Coordinate along the x axis of a line parallel to the
+     * derivation pipe.
+     * @param y Coordinate of the same line along the direction perpendicular
+     * to the x axis and to the derivation pipe.
+     * @return The distance from the center of the Tee, along the derivation
+     * pipe, where the line leaves the outer surface of the main pipe, between
+     * 0 and the length of the derivation pipe.
+     */
+    private static double getDerivationStart(Tee obj, double x, double y) {
+        double cosPhi = cos(obj.getPhi());
+        double sinPhi = sin(obj.getPhi());
+        if (abs(cosPhi) < 1e-9) {
+            // the derivation pipe is parallel to the main pipe
+            return 0;
+        }
+        // a point of the line at distance t is (x, y * sinPhi + t * cosPhi,
+        // -y * cosPhi + t * sinPhi), and it's on the main pipe when its
+        // distance from the z axis is the radius of the main pipe on its side
+        double start = 0;
+        for (double radius : new double[]{obj.getRadius2(), obj.getRadius1()}) {
+            double squaredY = radius * radius - x * x;
+            if (squaredY < 0) {
+                continue;
+            }
+            double t = (signum(cosPhi) * sqrt(squaredY) - y * sinPhi) / cosPhi;
+            double z = -y * cosPhi + t * sinPhi;
+            start = t;
+            if ((radius == obj.getRadius2()) == (z >= 0)) {
+                break;
+            }
+        }
+        return min(max(start, 0), obj.getDerivationLength());
     }
 
     /**
@@ -2299,8 +3537,32 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull ThreeWaysValve obj) {
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildThreeWaysValveRepresentation(obj),
+                obj.getClass(), obj.getRadius1(), obj.getRadius2(), obj.getRadius3(), obj.getLength1(),
+                obj.getLength2(), obj.getLength3(), obj.getCrownRadius1(), obj.getCrownRadius2(),
+                obj.getCrownRadius3(), obj.getCrownThickness1(), obj.getCrownThickness2(),
+                obj.getCrownThickness3(), getSafeThickness(obj));
+        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(valveProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link ThreeWaysValve} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildThreeWaysValveRepresentation(ThreeWaysValve obj) {
         Set<IfcRepresentationItem> valveItems =
-                new ValveBuilder(getSafeThickness(obj))
+                new ValveBuilder(getSafeThickness(obj), tessellator)
                         .addBottomOutput(obj.getRadius1(),
                                 obj.getLength1(),
                                 obj.getCrownRadius1(),
@@ -2314,19 +3576,9 @@ public class EywaToIfcConverter implements EywaConverter {
                         obj.getCrownRadius3(),
                         obj.getCrownThickness3()).build();
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), valveItems);
-        IfcProductDefinitionShape productDefinitionShape =
-                new IfcProductDefinitionShape(null, null, shapeRepresentation);
-        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(valveProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(getSweptSolidType()), valveItems);
     }
 
     /**
@@ -2338,7 +3590,30 @@ public class EywaToIfcConverter implements EywaConverter {
      */
     @Override
     public void addObject(@NonNull Valve obj) {
-        ValveBuilder valveBuilder = new ValveBuilder(getSafeThickness(obj));
+        if (addWithoutGeometry(obj)) {
+            return;
+        }
+        IfcProductDefinitionShape productDefinitionShape = buildProductDefinitionShape(
+                () -> buildValveRepresentation(obj),
+                obj.getClass(), obj.getFlanged(), obj.getRadius1(), obj.getRadius2(), obj.getLength1(),
+                obj.getLength2(), obj.getCrownRadius1(), obj.getCrownRadius2(), obj.getCrownThickness1(),
+                obj.getCrownThickness2(), getSafeThickness(obj));
+        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
+                .globalId(newGlobalId(obj))
+                .ownerHistory(ownerHistory)
+                .name(constants.label(obj.getClass().getSimpleName()))
+                .description(getDescriptionText(obj))
+                .objectPlacement(resolveLocation(obj))
+                .representation(productDefinitionShape).build();
+        addProduct(valveProduct, obj);
+    }
+
+    /**
+     * @param obj The {@link Valve} to convert.
+     * @return The geometry of {@code obj}, in its local coordinate system.
+     */
+    private IfcShapeRepresentation buildValveRepresentation(Valve obj) {
+        ValveBuilder valveBuilder = new ValveBuilder(getSafeThickness(obj), tessellator);
         if (obj.getFlanged() != null && obj.getFlanged()) {
             valveBuilder.addBottomOutput(
                     obj.getRadius1(),
@@ -2355,18 +3630,8 @@ public class EywaToIfcConverter implements EywaConverter {
                     .addTopOutput(obj.getRadius2(), obj.getLength2(), 0, 0);
         }
 
-        IfcShapeRepresentation shapeRepresentation = new IfcShapeRepresentation(GEOMETRIC_REPRESENTATION_CONTEXT,
-                new IfcLabel("Body"),
-                new IfcLabel("SweptSolid"), valveBuilder.build());
-        IfcProductDefinitionShape productDefinitionShape = new IfcProductDefinitionShape(
-                null, null, shapeRepresentation);
-        IfcFlowController valveProduct = IfcFlowController.flowControllerBuilder()
-                .globalId(new IfcGloballyUniqueId())
-                .ownerHistory(ownerHistory)
-                .name(new IfcLabel(obj.getClass().getSimpleName()))
-                .description(new IfcText(getDescription(obj)))
-                .objectPlacement(resolveLocation(obj))
-                .representation(productDefinitionShape).build();
-        geometries.add(valveProduct);
+        return buildShapeRepresentation(
+                constants.label("Body"),
+                constants.label(getSweptSolidType()), valveBuilder.build());
     }
 }
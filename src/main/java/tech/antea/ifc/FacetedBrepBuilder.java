@@ -0,0 +1,268 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the {@link IfcFacetedBrep} of a {@link
+ * it.imc.persistence.po.eytukan.Mesh} or {@link
+ * it.imc.persistence.po.eytukan.FaceSet} from its arrays of vertices and
+ * faces. Vertices closer than a tolerance are welded, and faces that would
+ * not be valid IfcPolyLoops (with less than 3 distinct vertices) or that
+ * are equal to a previous face are dropped, comparing vertex indices only.
+ */
+class FacetedBrepBuilder {
+    /**
+     * The 27 offsets between a cell of the spatial hash and its neighbours,
+     * itself included.
+     */
+    private static final int[][] NEIGHBOURS = new int[27][];
+
+    static {
+        int i = 0;
+        for (int x = -1; x <= 1; x++) {
+            for (int y = -1; y <= 1; y++) {
+                for (int z = -1; z <= 1; z++) {
+                    NEIGHBOURS[i++] = new int[]{x, y, z};
+                }
+            }
+        }
+    }
+
+    private final double tolerance;
+
+    /**
+     * @param tolerance Vertices closer than this distance are welded, if 0
+     * only vertices with the same coordinates are.
+     * @throws IllegalArgumentException If {@code tolerance} is negative or
+     * not finite.
+     */
+    public FacetedBrepBuilder(double tolerance) {
+        if (!(tolerance >= 0) || Double.isInfinite(tolerance)) {
+            throw new IllegalArgumentException("tolerance must be a non-negative finite number");
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @param faces The faces array of a Mesh or FaceSet.
+     * @param index Index in {@code faces} where a face starts.
+     * @param isMesh {@code true} if {@code faces} belongs to a Mesh, where
+     * the first element of each face is 1 for quads and 0 for
+     * triangles; {@code false} if it belongs to a FaceSet, where
+     * it's the number of vertices.
+     * @return The number of vertices of the face.
+     */
+    private static int getFaceSize(int[] faces, int index, boolean isMesh) {
+        return isMesh ? (faces[index] == 1 ? 4 : 3) : faces[index];
+    }
+
+    /**
+     * @param indices Indices of the vertices of a face.
+     * @param size Number of elements of {@code indices} to read.
+     * @return {@code true} if the face has less than 3 vertices, or if a
+     * vertex appears more than once.
+     */
+    static boolean isDegenerate(int[] indices, int size) {
+        if (size < 3) {
+            return true;
+        }
+        for (int i = 1; i < size; i++) {
+            for (int j = 0; j < i; j++) {
+                if (indices[i] == indices[j]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param vertices Coordinates of the vertices, 3 for each vertex.
+     * @return For each vertex, the index of the first vertex that is closer
+     * than the tolerance, or that has the same coordinates if the tolerance
+     * is 0; the index of the vertex itself if there's none.
+     * @throws NullPointerException If {@code vertices} is {@code null}.
+     */
+    int[] weld(@NonNull double[] vertices) {
+        return tolerance == 0 ? weldEqual(vertices) : weldClose(vertices);
+    }
+
+    /**
+     * @param vertices Coordinates of the vertices, 3 for each vertex.
+     * @return For each vertex, the index of the first vertex with the same
+     * coordinates.
+     */
+    private static int[] weldEqual(double[] vertices) {
+        int[] welded = new int[vertices.length / 3];
+        Map<Cell, Integer> firstVertices = Maps.newHashMapWithExpectedSize(welded.length);
+        for (int i = 0; i < welded.length; i++) {
+            int offset = i * 3;
+            Cell cell = new Cell(Double.doubleToLongBits(vertices[offset]),
+                    Double.doubleToLongBits(vertices[offset + 1]),
+                    Double.doubleToLongBits(vertices[offset + 2]));
+            Integer first = firstVertices.putIfAbsent(cell, i);
+            welded[i] = first == null ? i : first;
+        }
+        return welded;
+    }
+
+    /**
+     * @param vertices Coordinates of the vertices, 3 for each vertex.
+     * @return For each vertex, the index of the first vertex closer than the
+     * tolerance.
+     */
+    private int[] weldClose(double[] vertices) {
+        int[] welded = new int[vertices.length / 3];
+        // each cell of the spatial hash is a cube with edges as long as the
+        // tolerance, so the vertices closer than the tolerance to a vertex
+        // are in the same cell or in one of its neighbours. Welded vertices
+        // are not added to cells.
+        Map<Cell, List<Integer>> cells = Maps.newHashMap();
+        double squaredTolerance = tolerance * tolerance;
+        for (int i = 0; i < welded.length; i++) {
+            int offset = i * 3;
+            double x = vertices[offset];
+            double y = vertices[offset + 1];
+            double z = vertices[offset + 2];
+            long cellX = (long) Math.floor(x / tolerance);
+            long cellY = (long) Math.floor(y / tolerance);
+            long cellZ = (long) Math.floor(z / tolerance);
+            int first = i;
+            for (int[] neighbour : NEIGHBOURS) {
+                List<Integer> candidates = cells.get(new Cell(cellX + neighbour[0], cellY + neighbour[1],
+                        cellZ + neighbour[2]));
+                if (candidates == null) {
+                    continue;
+                }
+                for (int candidate : candidates) {
+                    int candidateOffset = candidate * 3;
+                    double dx = vertices[candidateOffset] - x;
+                    double dy = vertices[candidateOffset + 1] - y;
+                    double dz = vertices[candidateOffset + 2] - z;
+                    if (candidate < first && dx * dx + dy * dy + dz * dz <= squaredTolerance) {
+                        first = candidate;
+                    }
+                }
+            }
+            welded[i] = first;
+            if (first == i) {
+                cells.computeIfAbsent(new Cell(cellX, cellY, cellZ), cell -> Lists.newArrayListWithCapacity(1))
+                        .add(i);
+            }
+        }
+        return welded;
+    }
+
+    /**
+     * @param vertices Coordinates of the vertices in the Eywa coordinate
+     * system, 3 for each vertex.
+     * @param faces For each face, the number of its vertices (or, if {@code
+     * isMesh} is {@code true}, 1 for quads and 0 for triangles) followed by
+     * their indices.
+     * @param isMesh {@code true} if the arrays belong to a Mesh, {@code false}
+     * if they belong to a FaceSet.
+     * @return The faces as an {@link IfcFacetedBrep}.
+     * @throws NullPointerException If any of the arguments is {@code null}.
+     */
+    IfcFacetedBrep build(@NonNull double[] vertices, @NonNull int[] faces, boolean isMesh) {
+        int[] welded = weld(vertices);
+        IfcCartesianPoint[] points = new IfcCartesianPoint[welded.length];
+        Set<IfcFace> ifcFaces = new IdentityLinkedSet<>();
+        // faces already added, as indices of their welded vertices
+        Set<List<Integer>> faceKeys = Sets.newHashSet();
+
+        int faceIndex = 0;
+        while (faceIndex < faces.length) {
+            int faceSize = getFaceSize(faces, faceIndex, isMesh);
+            int[] faceKey = new int[faceSize];
+            for (int i = 0; i < faceSize; i++) {
+                faceKey[i] = welded[faces[faceIndex + 1 + i]];
+            }
+            faceIndex += 1 + faceSize;
+            if (isDegenerate(faceKey, faceSize) || !faceKeys.add(Ints.asList(faceKey))) {
+                continue;
+            }
+
+            IfcCartesianPoint[] polygon = new IfcCartesianPoint[faceSize];
+            for (int i = 0; i < faceSize; i++) {
+                int vertex = faceKey[i];
+                if (points[vertex] == null) {
+                    int offset = vertex * 3;
+                    points[vertex] = new IfcCartesianPoint(vertices[offset + 2], vertices[offset],
+                            vertices[offset + 1]);
+                }
+                polygon[i] = points[vertex];
+            }
+            ifcFaces.add(new IfcFace(new IfcFaceBound(new IfcPolyLoop(polygon), IfcBoolean.T)));
+        }
+        return new IfcFacetedBrep(new IfcClosedShell(ifcFaces));
+    }
+
+    /**
+     * Key of the spatial hash used to weld vertices.
+     */
+    private static final class Cell {
+        private final long x;
+        private final long y;
+        private final long z;
+
+        Cell(long x, long y, long z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Cell)) {
+                return false;
+            }
+            Cell cell = (Cell) o;
+            return x == cell.x && y == cell.y && z == cell.z;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(x);
+            result = 31 * result + Long.hashCode(y);
+            return 31 * result + Long.hashCode(z);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.Primitive;
+
+/**
+ * Interface to be implemented by builders that can convert subtrees of the
+ * Eywa tree in parallel when used by {@link EywaReader}. Each fork converts
+ * some of the descendants of a {@link Primitive} using its own state, and
+ * must be joined to the builder it was created from.
+ */
+public interface ForkableEywaConverter extends EywaConverter {
+    /**
+     * Creates a new builder that can convert the descendants of {@code parent}
+     * independently of this one, so that the two can be used at the same time
+     * by different threads. The result of the new builder must be obtained by
+     * passing it to {@link #join(ForkableEywaConverter)}, not by calling {@link
+     * #getResult()} on it.
+     * @param parent A {@link Primitive} already converted by this builder.
+     * @return The new builder.
+     * @throws NullPointerException If {@code parent} is {@code null}.
+     * @throws IllegalArgumentException If {@code parent} was not converted by
+     * this builder.
+     */
+    ForkableEywaConverter fork(Primitive parent);
+
+    /**
+     * Adds everything converted by {@code forked} to this builder, after what
+     * this builder has already converted. Forks must be joined in the same
+     * order in which their {@link Primitive}s appear in the Eywa tree, and
+     * must not be used afterwards.
+     * @param forked A builder created by {@link #fork(Primitive)} on this
+     * builder.
+     * @throws NullPointerException If {@code forked} is {@code null}.
+     * @throws IllegalArgumentException If {@code forked} was not created by
+     * this builder.
+     */
+    void join(ForkableEywaConverter forked);
+}
@@ -0,0 +1,246 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import it.imc.persistence.po.eytukan.Primitive;
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Derives GlobalIds from the identity of the converted file and from the
+ * Primitives they're created for, so that converting the same file twice
+ * gives the same GlobalIds. A Primitive is identified by its imId or, if it
+ * doesn't have one, by its index among its siblings, appended to the
+ * identifier of its parent. imIds should be unique, but if they aren't only
+ * the first Primitive converted with each imId is identified by it, the others
+ * are identified as if they had none. In parallel conversions, which one is
+ * the first depends on the order in which threads convert them.
+ */
+final class GlobalIdGenerator {
+    /**
+     * Characters used by the compressed representation of GlobalIds, as
+     * specified in the IFC Implementation Agreements.
+     */
+    private static final char[] BASE64_CHARS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz_$".toCharArray();
+    private static final int GLOBAL_ID_LENGTH = 22;
+
+    private final String fileId;
+    /**
+     * Identifiers of the Primitives converted, until their subtree has been
+     * converted.
+     */
+    private final Map<Primitive, String> keys = new IdentityHashMap<>();
+    /**
+     * Index of the next child of each Primitive, i.e. number of children
+     * converted so far if they were all added to this instance, used to find
+     * the index of a Primitive without looking for it among its siblings.
+     */
+    private final Map<Primitive, int[]> childrenCounts = new IdentityHashMap<>();
+    /**
+     * Indices among their siblings of the Primitives that haven't been added
+     * yet, when they're given by {@link #setIndex(Primitive, int)}.
+     */
+    private final Map<Primitive, Integer> indices = new IdentityHashMap<>();
+    /**
+     * Identifiers derived from imIds given so far, shared with forked
+     * instances, to find duplicated imIds.
+     */
+    private final Set<String> imIdKeys;
+
+    /**
+     * @param fileId Identifies the converted file.
+     * @throws NullPointerException If {@code fileId} is {@code null}.
+     */
+    GlobalIdGenerator(@NonNull String fileId) {
+        this.fileId = fileId;
+        this.imIdKeys = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Creates a new instance that can generate GlobalIds for the descendants
+     * of {@code parent}, used by a converter forked from the one using {@code
+     * forkedFrom}.
+     * @param forkedFrom The generator used to convert {@code parent}.
+     * @param parent A Primitive already added to {@code forkedFrom}.
+     * @throws NullPointerException If any argument is {@code null}.
+     */
+    GlobalIdGenerator(@NonNull GlobalIdGenerator forkedFrom, @NonNull Primitive parent) {
+        this.fileId = forkedFrom.fileId;
+        this.imIdKeys = forkedFrom.imIdKeys;
+        this.keys.put(parent, forkedFrom.getKey(parent));
+    }
+
+    /**
+     * Must be called once for each Primitive, in pre-order, so that the index
+     * of Primitives without imId can be found.
+     * @param obj The Primitive being converted.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     */
+    void addObject(@NonNull Primitive obj) {
+        getKey(obj);
+        childrenCounts.computeIfAbsent(obj.getParent(), parent -> new int[1])[0]++;
+    }
+
+    /**
+     * Gives the index of {@code obj} among its siblings, for instances that
+     * don't add all of them, so that it isn't derived from the siblings
+     * added before.
+     * @param obj A Primitive that hasn't been added to this instance yet.
+     * @param index The index of {@code obj} among the children of its parent.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     */
+    void setIndex(@NonNull Primitive obj, int index) {
+        indices.put(obj, index);
+    }
+
+    /**
+     * Forgets {@code obj}, which must not have descendants that still need to
+     * be converted.
+     * @param obj A Primitive already added to this instance.
+     */
+    void endObject(Primitive obj) {
+        keys.remove(obj);
+        childrenCounts.remove(obj);
+        indices.remove(obj);
+    }
+
+    /**
+     * Prepares this instance for the conversion of another file.
+     */
+    void clear() {
+        keys.clear();
+        childrenCounts.clear();
+        indices.clear();
+        imIdKeys.clear();
+    }
+
+    /**
+     * @param obj The Primitive for which the GlobalId is created, each
+     * Primitive can have only one.
+     * @return The GlobalId of the IfcRoot representing {@code obj}.
+     * @throws NullPointerException If {@code obj} is {@code null}.
+     */
+    IfcGloballyUniqueId newGlobalId(@NonNull Primitive obj) {
+        return newGlobalId(getKey(obj));
+    }
+
+    /**
+     * @param obj The Primitive for which the IfcRoot is created.
+     * @param name Identifies the IfcRoot among the ones created for {@code
+     * obj}, other than the one returned by {@link #newGlobalId(Primitive)}.
+     * @return The GlobalId of the IfcRoot.
+     * @throws NullPointerException If any argument is {@code null}.
+     */
+    IfcGloballyUniqueId newGlobalId(@NonNull Primitive obj, @NonNull String name) {
+        return newGlobalId(getKey(obj) + ':' + name);
+    }
+
+    /**
+     * @param name Identifies the IfcRoot in the converted file, it must not
+     * start with '#' or '/', which are used for Primitives.
+     * @return The GlobalId of the IfcRoot.
+     * @throws NullPointerException If {@code name} is {@code null}.
+     */
+    IfcGloballyUniqueId newGlobalId(@NonNull String name) {
+        UUID uuid = UUID.nameUUIDFromBytes((fileId + '\n' + name).getBytes(StandardCharsets.UTF_8));
+        return new IfcGloballyUniqueId(compress(uuid));
+    }
+
+    /**
+     * @param obj A Primitive.
+     * @return "#" followed by the imId of {@code obj} if it has one that
+     * wasn't given to another Primitive, otherwise the identifier of its
+     * parent followed by "/" and the index of {@code obj} among its siblings.
+     */
+    private String getKey(Primitive obj) {
+        String key = keys.get(obj);
+        if (key == null) {
+            Object imId = obj.getLegacyId();
+            key = imId == null ? null : "#" + imId;
+            if (key == null || !imIdKeys.add(key)) {
+                key = (obj.getParent() == null ? "" : getKey(obj.getParent())) + "/" + getIndex(obj);
+            }
+            keys.put(obj, key);
+        }
+        return key;
+    }
+
+    /**
+     * @param obj A Primitive that hasn't been added to this instance yet.
+     * @return The index of {@code obj} among the children of its parent.
+     */
+    private int getIndex(Primitive obj) {
+        Integer index = indices.remove(obj);
+        if (index != null) {
+            return index;
+        }
+        Primitive parent = obj.getParent();
+        // the previous siblings of obj have usually just been added to this
+        // instance, as it always happens with EywaStreamReader, whose
+        // Primitives aren't in the children of their parent
+        int[] count = childrenCounts.computeIfAbsent(parent, p -> new int[1]);
+        List<Primitive> siblings = parent == null ? null : parent.getChildren();
+        if (siblings != null && (count[0] >= siblings.size() || siblings.get(count[0]) != obj)) {
+            // forked instances only add some of the children, starting after
+            // the ones added by the instance they were forked from
+            for (int i = 0; i < siblings.size(); i++) {
+                if (siblings.get(i) == obj) {
+                    count[0] = i;
+                    break;
+                }
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * @param uuid A UUID.
+     * @return The 22 characters representation of {@code uuid} used in IFC
+     * files: its 128 bits, from the most significant, are split in a group of
+     * 2 bits followed by 21 groups of 6 bits, and each group is encoded with
+     * {@link #BASE64_CHARS}.
+     */
+    static String compress(@NonNull UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        char[] chars = new char[GLOBAL_ID_LENGTH];
+        for (int i = GLOBAL_ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = BASE64_CHARS[(int) (lsb & 63)];
+            lsb = (lsb >>> 6) | (msb << 58);
+            msb >>>= 6;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set that compares its elements by identity, like the key set of an {@link
+ * java.util.IdentityHashMap}, and iterates over them in insertion order. IFC
+ * entities implement equals and hashCode on all of their attributes, so adding
+ * them to a {@link java.util.LinkedHashSet} visits all the entities they
+ * reference, while adding them to this set doesn't.<br>Only {@link
+ * #equals(Object)} and {@link #hashCode()} use the equals and hashCode of the
+ * elements, so that entities referencing equal sets are still equal, and
+ * written only once in .ifc files.
+ * @param <E> The type of the elements.
+ */
+final class IdentityLinkedSet<E> extends AbstractSet<E> {
+    private final List<E> elements = Lists.newArrayList();
+    private final Set<E> identities = Sets.newIdentityHashSet();
+
+    @Override
+    public boolean add(E e) {
+        if (!identities.add(e)) {
+            return false;
+        }
+        elements.add(e);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return identities.contains(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!identities.remove(o)) {
+            return false;
+        }
+        for (Iterator<E> iterator = elements.iterator(); ; ) {
+            if (iterator.next() == o) {
+                iterator.remove();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    public void clear() {
+        elements.clear();
+        identities.clear();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Set) || ((Set<?>) o).size() != size()) {
+            return false;
+        }
+        return Sets.newHashSet(elements).equals(Sets.newHashSet((Set<?>) o));
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (E e : elements) {
+            hashCode += e == null ? 0 : e.hashCode();
+        }
+        return hashCode;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> iterator = elements.iterator();
+        return new Iterator<E>() {
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                identities.remove(last);
+            }
+        };
+    }
+}
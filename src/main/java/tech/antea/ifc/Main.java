@@ -29,12 +29,17 @@ package tech.antea.ifc;
 import buildingsmart.ifc.IfcProject;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * This is a dummy class, just to have an entry point.
@@ -42,17 +47,52 @@ import java.io.IOException;
 public class Main {
     private static final String HELP_MSG =
             "Usage: mvn exec:java -Dexec.mainClass=tech.antea.ifc.Main -Dexec" +
-                    ".args=\"-i inputfile -o outputfile\"";
-    private static String inputFilePath;
+                    ".args=\"-i input [-i input]... -o output [-t threads] [--instancing]" +
+                    " [--deterministic] [--welding-tolerance mm] [--tessellation-tolerance mm]" +
+                    " [--boolean-free] [--bounding-boxes] [--region x1,y1,z1,x2,y2,z2]" +
+                    " [--partition-by top-level|category] [--coalesce-shells]" +
+                    " [--description-properties] [--description-sidecar]\"\n" +
+                    "Each input can be a .eywa file, a directory or a glob pattern. If the only input is a\n" +
+                    "file, output is the .ifc file to create, otherwise it's the directory in which to\n" +
+                    "write all the .ifc files, which are converted using the given number of threads\n" +
+                    "(by default, the number of available processors).\n" +
+                    "With --deterministic, converting the same file always gives the same DATA section.\n" +
+                    "Vertices of Meshes and FaceSets closer than the welding tolerance are merged.\n" +
+                    "With a tessellation tolerance, solids of revolution are written as faceted meshes\n" +
+                    "whose segments are at most that far from the original curves.\n" +
+                    "With --boolean-free, Tees, Endplates and Dishes are written without boolean operations.\n" +
+                    "With --bounding-boxes, each Primitive is written as the box containing it.\n" +
+                    "With --region, only Primitives intersecting the box between the 2 given corners (in\n" +
+                    "millimeters, in the coordinate system of the .ifc files) are converted.\n" +
+                    "With --partition-by, a single input file is split in an .ifc file for each child of\n" +
+                    "the root or for each CATEGORY in descriptions, named after output and written using\n" +
+                    "the given number of threads.\n" +
+                    "With --coalesce-shells, runs of aligned Shells with the same section are written as\n" +
+                    "a single IfcFlowSegment.\n" +
+                    "With --description-properties, descriptions are written as shared property sets.\n" +
+                    "With --description-sidecar, descriptions are written to a .descriptions.jsonl file\n" +
+                    "next to the output of a single input file instead of the .ifc files.";
+    private static final List<String> inputPaths = new ArrayList<>();
     private static String outputFilePath;
+    private static int threads = Runtime.getRuntime().availableProcessors();
+    private static boolean instancing;
+    private static boolean deterministic;
+    private static double weldingTolerance;
+    private static double tessellationTolerance;
+    private static boolean booleanFree;
+    private static boolean boundingBoxes;
+    private static Region region;
+    private static String partitionBy;
+    private static boolean coalescingShells;
+    private static boolean descriptionProperties;
+    private static boolean descriptionSidecar;
 
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
         int exitCode = run(args);
         System.exit(exitCode);
     }
 
-    @SuppressWarnings("UnusedAssignment")
-    private static int run(String[] args) throws IOException {
+    private static int run(String[] args) throws IOException, InterruptedException {
         if (args.length < 1) {
             System.err.println("Not enough arguments.");
             System.out.println(HELP_MSG);
@@ -63,14 +103,103 @@ public class Main {
             System.out.println(HELP_MSG);
             return 0;
         }
-        for (int i = 0; i < args.length - 1; i++) {
+        for (int i = 0; i < args.length; i++) {
             String arg = args[i];
             switch (arg) {
                 case "-i":
-                    inputFilePath = args[++i];
+                    if (i + 1 < args.length) {
+                        inputPaths.add(args[++i]);
+                    }
                     break;
                 case "-o":
-                    outputFilePath = args[++i];
+                    if (i + 1 < args.length) {
+                        outputFilePath = args[++i];
+                    }
+                    break;
+                case "-t":
+                    if (i + 1 < args.length) {
+                        try {
+                            threads = Integer.parseInt(args[++i]);
+                        } catch (NumberFormatException e) {
+                            threads = 0;
+                        }
+                    }
+                    if (threads < 1) {
+                        System.err.println("The number of threads must be a positive integer.");
+                        System.out.println(HELP_MSG);
+                        return 1;
+                    }
+                    break;
+                case "--instancing":
+                    instancing = true;
+                    break;
+                case "--deterministic":
+                    deterministic = true;
+                    break;
+                case "--welding-tolerance":
+                    if (i + 1 < args.length) {
+                        try {
+                            weldingTolerance = Double.parseDouble(args[++i]);
+                        } catch (NumberFormatException e) {
+                            weldingTolerance = -1;
+                        }
+                    }
+                    if (!(weldingTolerance >= 0) || Double.isInfinite(weldingTolerance)) {
+                        System.err.println("The welding tolerance must be a non-negative number.");
+                        System.out.println(HELP_MSG);
+                        return 1;
+                    }
+                    break;
+                case "--boolean-free":
+                    booleanFree = true;
+                    break;
+                case "--bounding-boxes":
+                    boundingBoxes = true;
+                    break;
+                case "--coalesce-shells":
+                    coalescingShells = true;
+                    break;
+                case "--description-properties":
+                    descriptionProperties = true;
+                    break;
+                case "--description-sidecar":
+                    descriptionSidecar = true;
+                    break;
+                case "--region":
+                    if (i + 1 < args.length) {
+                        try {
+                            region = Region.parse(args[++i]);
+                        } catch (IllegalArgumentException e) {
+                            region = null;
+                        }
+                    }
+                    if (region == null) {
+                        System.err.println("The region must be given as 6 numbers separated by commas.");
+                        System.out.println(HELP_MSG);
+                        return 1;
+                    }
+                    break;
+                case "--partition-by":
+                    partitionBy = i + 1 < args.length ? args[++i] : null;
+                    if (!"top-level".equals(partitionBy) && !"category".equals(partitionBy)) {
+                        System.err.println("Primitives can be partitioned by \"top-level\" or \"category\".");
+                        System.out.println(HELP_MSG);
+                        return 1;
+                    }
+                    break;
+                case "--tessellation-tolerance":
+                    if (i + 1 < args.length) {
+                        try {
+                            tessellationTolerance = Double.parseDouble(args[++i]);
+                        } catch (NumberFormatException e) {
+                            tessellationTolerance = -1;
+                        }
+                    }
+                    if (!(tessellationTolerance > 0) || Double.isInfinite(tessellationTolerance)) {
+                        System.err.println("The tessellation tolerance must be a positive number.");
+                        System.out.println(HELP_MSG);
+                        return 1;
+                    }
                     break;
                 default:
                     System.err.println("Invalid option \"" + arg + "\".");
@@ -78,7 +207,7 @@ public class Main {
                     return 1;
             }
         }
-        if (inputFilePath == null) {
+        if (inputPaths.isEmpty()) {
             System.err.println("Missing input file.");
             System.out.println(HELP_MSG);
             return 1;
@@ -89,11 +218,47 @@ public class Main {
             return 1;
         }
 
-        File eywaFile = new File(inputFilePath);
-        ObjectMapper objectMapper = new ObjectMapper();
-        EywaRoot eywaRoot;
-        try {
-            eywaRoot = objectMapper.readValue(eywaFile, EywaRoot.class);
+        ConversionOptions options = ConversionOptions.builder().instancing(instancing)
+                .deterministic(deterministic).weldingTolerance(weldingTolerance)
+                .tessellationTolerance(tessellationTolerance).booleanFree(booleanFree)
+                .boundingBoxes(boundingBoxes).region(region).coalescingShells(coalescingShells)
+                .descriptionProperties(descriptionProperties).build();
+        if (inputPaths.size() == 1 && new File(inputPaths.get(0)).isFile() &&
+                !new File(outputFilePath).isDirectory()) {
+            return partitionBy == null
+                    ? convert(new File(inputPaths.get(0)), options)
+                    : convertPartitioned(new File(inputPaths.get(0)), options);
+        }
+        if (partitionBy != null) {
+            System.err.println("--partition-by can only be used to convert a single file.");
+            System.out.println(HELP_MSG);
+            return 1;
+        }
+        if (descriptionSidecar) {
+            System.err.println("--description-sidecar can only be used to convert a single file.");
+            System.out.println(HELP_MSG);
+            return 1;
+        }
+        return convertBatch(options);
+    }
+
+    /**
+     * Converts {@code eywaFile} to {@code outputFilePath}.
+     * @param eywaFile The file to convert.
+     * @param options The options to use in the conversion.
+     * @return The exit code.
+     * @throws IOException If an I/O error occurs while writing the output.
+     */
+    @SuppressWarnings("UnusedAssignment")
+    private static int convert(File eywaFile, ConversionOptions options) throws IOException {
+        EywaToIfcConverter builder = new EywaToIfcConverter(options.toBuilder().fileId(eywaFile.getName()).build());
+        EywaStreamReader director = new EywaStreamReader(builder);
+        IfcProject result;
+        try (DescriptionSidecar sidecar = openDescriptionSidecar()) {
+            builder.setDescriptionSidecar(sidecar);
+            director.convert(eywaFile);
+            // the last Shells can still be converted by getResult
+            result = builder.getResult();
         } catch (JsonParseException | JsonMappingException e) {
             System.err.println("Given input file " + eywaFile.getName() +
                                        " is not a valid .eywa file.");
@@ -102,20 +267,93 @@ public class Main {
             System.err.println("File not found: " + e.getMessage());
             return 1;
         }
-        objectMapper = null;
-
-        EywaToIfcConverter builder = new EywaToIfcConverter();
-        EywaReader director = new EywaReader(builder);
-        director.convert(eywaRoot);
-        IfcProject result = builder.getResult();
 
         // deleting references to objects that are no longer needed, so they
         // can get garbage collected if needed
         director = null;
         builder = null;
-        eywaRoot = null;
 
         EywaToIfcConverter.writeToFile(result, outputFilePath);
         return 0;
     }
+
+    /**
+     * @return The sidecar of {@code outputFilePath}, if {@code
+     * --description-sidecar} was given, {@code null} otherwise.
+     * @throws FileNotFoundException If the sidecar can't be opened for
+     * writing.
+     */
+    private static DescriptionSidecar openDescriptionSidecar() throws FileNotFoundException {
+        return descriptionSidecar
+                ? new DescriptionSidecar(DescriptionSidecar.getSidecarFile(new File(outputFilePath)))
+                : null;
+    }
+
+    /**
+     * Converts {@code eywaFile} to a file for each partition, next to {@code
+     * outputFilePath}.
+     * @param eywaFile The file to convert.
+     * @param options The options to use in the conversion.
+     * @return The exit code.
+     * @throws IOException If an I/O error occurs while writing the output.
+     * @throws InterruptedException If the current thread is interrupted while
+     * waiting for the files to be written.
+     */
+    private static int convertPartitioned(File eywaFile, ConversionOptions options)
+            throws IOException, InterruptedException {
+        Function<Primitive, String> partitioner = partitionBy.equals("category")
+                ? PartitionedConverter.byCategory()
+                : PartitionedConverter.byTopLevelChild();
+        PartitionedConverter builder = new PartitionedConverter(
+                options.toBuilder().fileId(eywaFile.getName()).build(), partitioner);
+        Map<String, IfcProject> result;
+        try (DescriptionSidecar sidecar = openDescriptionSidecar()) {
+            builder.setDescriptionSidecar(sidecar);
+            new EywaStreamReader(builder).convert(eywaFile);
+            result = builder.getResult();
+        } catch (JsonParseException | JsonMappingException e) {
+            System.err.println("Given input file " + eywaFile.getName() +
+                                       " is not a valid .eywa file.");
+            return 1;
+        } catch (FileNotFoundException e) {
+            System.err.println("File not found: " + e.getMessage());
+            return 1;
+        }
+        for (File file : PartitionedConverter.writeToFiles(result, new File(outputFilePath), threads)) {
+            System.out.println(file);
+        }
+        return 0;
+    }
+
+    /**
+     * Converts all the files found in {@code inputPaths} to the directory
+     * {@code outputFilePath}, then prints a summary.
+     * @param options The options to use in the conversions.
+     * @return The exit code, which is 1 if any file could not be converted.
+     * @throws IOException If an I/O error occurs while searching the input
+     * files or creating the output directory.
+     * @throws InterruptedException If the current thread is interrupted while
+     * waiting for the conversions to end.
+     */
+    private static int convertBatch(ConversionOptions options) throws IOException, InterruptedException {
+        List<BatchConverter.Input> inputs = new ArrayList<>();
+        for (String inputPath : inputPaths) {
+            try {
+                inputs.addAll(BatchConverter.findInputs(inputPath));
+            } catch (NoSuchFileException e) {
+                System.err.println("File not found: " + e.getMessage());
+                return 1;
+            }
+        }
+        BatchConverter batchConverter = new BatchConverter(options, threads, System.err);
+        BatchConverter.Summary summary;
+        try {
+            summary = batchConverter.convert(inputs, Paths.get(outputFilePath));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+        System.out.println(summary);
+        return summary.failures == 0 ? 0 : 1;
+    }
 }
@@ -0,0 +1,464 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcProject;
+import it.imc.persistence.po.eytukan.*;
+import lombok.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Converts a single Eywa tree to several IfcProjects, one for each partition
+ * of its Primitives, so that big plants can be written as multiple .ifc files
+ * that can be loaded on their own. Each partition is converted by its own
+ * {@link EywaToIfcConverter}, with its own project, site, representation
+ * context and placements: IFC.JAVA entities reference the entities that
+ * reference them through inverse attributes, which are written too, so
+ * partitions must not share any entity.<br>The placements of the ancestors of
+ * each Primitive are resolved in its partition the first time they're needed,
+ * without converting the ancestors themselves.<br>It can be used with both
+ * {@link EywaReader#convert(EywaRoot)} and {@link EywaStreamReader}.
+ */
+public class PartitionedConverter implements EywaConverter {
+    private static final String IFC_EXTENSION = ".ifc";
+
+    private final ConversionOptions options;
+    private final Function<Primitive, String> partitioner;
+    /**
+     * The converters of the partitions, in the order in which their first
+     * Primitive was converted.
+     */
+    private final Map<String, EywaToIfcConverter> partitions = new LinkedHashMap<>();
+    /**
+     * Index of each Primitive among its siblings, until its subtree has been
+     * converted, if {@link ConversionOptions#isDeterministic()} is {@code
+     * true}. Partitions don't see all the siblings of their Primitives, so
+     * indices are computed here and given to them.
+     */
+    private final Map<Primitive, Integer> indices = new IdentityHashMap<>();
+    /**
+     * Number of children seen so far for each Primitive in {@link #indices}.
+     */
+    private final Map<Primitive, int[]> childrenCounts = new IdentityHashMap<>();
+    private Map<String, Object> hints;
+    private DescriptionSidecar descriptionSidecar;
+
+    /**
+     * @param options The options used by the converter of each partition. Its
+     * {@link ConversionOptions#getFileId()} is followed by {@code "#"} and by
+     * the partition, so that the projects and sites of different partitions
+     * don't get the same GlobalIds.
+     * @param partitioner Returns the partition of a Primitive, it must not
+     * return {@code null}. See {@link #byTopLevelChild()} and {@link
+     * #byCategory()}.
+     * @throws NullPointerException If any of the arguments are {@code null}.
+     */
+    public PartitionedConverter(@NonNull ConversionOptions options,
+            @NonNull Function<Primitive, String> partitioner) {
+        this.options = options;
+        this.partitioner = partitioner;
+    }
+
+    /**
+     * Writes the descriptions of the Primitives of all the partitions created
+     * after calling this method to {@code descriptionSidecar}, see {@link
+     * EywaToIfcConverter#setDescriptionSidecar(DescriptionSidecar)}.
+     * @param descriptionSidecar The sidecar to write descriptions to, or
+     * {@code null} to write them in the IfcProducts.
+     */
+    public void setDescriptionSidecar(DescriptionSidecar descriptionSidecar) {
+        this.descriptionSidecar = descriptionSidecar;
+    }
+
+    /**
+     * @return A new partitioner putting each child of the root of the Eywa
+     * tree and its descendants in a partition named after the index of the
+     * child, from 0. The root is in partition {@code "root"}. The returned
+     * function must be used for a single conversion.
+     */
+    public static Function<Primitive, String> byTopLevelChild() {
+        Map<Primitive, String> topLevelChildren = new IdentityHashMap<>();
+        return obj -> {
+            if (obj.getParent() == null) {
+                return "root";
+            }
+            Primitive topLevelChild = obj;
+            while (topLevelChild.getParent().getParent() != null) {
+                topLevelChild = topLevelChild.getParent();
+            }
+            return topLevelChildren.computeIfAbsent(topLevelChild,
+                    child -> String.valueOf(topLevelChildren.size()));
+        };
+    }
+
+    /**
+     * @return A partitioner putting Primitives with the same {@code CATEGORY}
+     * in their description in the same partition, named after it. Primitives
+     * without category are in partition {@code ""}.
+     */
+    public static Function<Primitive, String> byCategory() {
+        return obj -> {
+            Object category = obj.getDescription() == null ? null : obj.getDescription().get("CATEGORY");
+            return category == null ? "" : category.toString();
+        };
+    }
+
+    /**
+     * Writes each project to its own file, in parallel.
+     * @param projects The projects to write, as returned by {@link
+     * #getResult()}.
+     * @param output The path of the file that would be written without
+     * partitions. Each partition is written next to it, to a file with the
+     * same name followed by {@code "-"} and by the partition, where
+     * characters other than letters, digits, {@code '.'}, {@code '_'} and
+     * {@code '-'} are replaced by {@code '_'}.
+     * @param threads The number of files to write at the same time.
+     * @return The files written, in the same order as {@code projects}.
+     * @throws NullPointerException If any of the arguments are {@code null}.
+     * @throws IllegalArgumentException If {@code threads} is smaller than 1.
+     * @throws IOException If an I/O error occurs while writing a file.
+     * @throws InterruptedException If the current thread is interrupted while
+     * waiting for the files to be written.
+     */
+    public static List<File> writeToFiles(@NonNull Map<String, IfcProject> projects, @NonNull File output,
+            int threads) throws IOException, InterruptedException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        String baseName = output.getName();
+        if (baseName.endsWith(IFC_EXTENSION)) {
+            baseName = baseName.substring(0, baseName.length() - IFC_EXTENSION.length());
+        }
+        List<File> files = new ArrayList<>(projects.size());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>(projects.size());
+            for (Map.Entry<String, IfcProject> partition : projects.entrySet()) {
+                File file = new File(output.getAbsoluteFile().getParentFile(),
+                        baseName + "-" + partition.getKey().replaceAll("[^A-Za-z0-9._-]", "_") + IFC_EXTENSION);
+                files.add(file);
+                results.add(pool.submit(() -> {
+                    EywaToIfcConverter.writeToFile(partition.getValue(), file);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new ConversionException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return files;
+    }
+
+    /**
+     * @param obj A Primitive with a geometry.
+     * @return The converter of the partition of {@code obj}, in which the
+     * placements of its ancestors have been resolved.
+     * @throws NullPointerException If the partitioner returns {@code null}.
+     */
+    private EywaToIfcConverter getPartition(Primitive obj) {
+        addIndex(obj);
+        String partition = Objects.requireNonNull(partitioner.apply(obj), "partitions can't be null");
+        EywaToIfcConverter converter = partitions.computeIfAbsent(partition, this::newConverter);
+        Deque<Primitive> ancestors = new ArrayDeque<>();
+        for (Primitive ancestor = obj.getParent(); ancestor != null && !converter.hasPlacement(ancestor);
+                ancestor = ancestor.getParent()) {
+            ancestors.push(ancestor);
+        }
+        while (!ancestors.isEmpty()) {
+            Primitive ancestor = ancestors.pop();
+            setIndex(converter, ancestor);
+            converter.addPlacement(ancestor);
+        }
+        setIndex(converter, obj);
+        return converter;
+    }
+
+    /**
+     * Computes the index of {@code obj} among its siblings, if GlobalIds are
+     * deterministic. Must be called once for each Primitive, in pre-order.
+     * @param obj The Primitive being converted.
+     */
+    private void addIndex(Primitive obj) {
+        if (options.isDeterministic()) {
+            indices.put(obj, childrenCounts.computeIfAbsent(obj.getParent(), parent -> new int[1])[0]++);
+        }
+    }
+
+    /**
+     * @param converter The converter of a partition.
+     * @param obj A Primitive passed to {@link #addIndex(Primitive)}, that
+     * {@code converter} is about to convert or place.
+     */
+    private void setIndex(EywaToIfcConverter converter, Primitive obj) {
+        Integer index = indices.get(obj);
+        if (index != null) {
+            converter.setIndex(obj, index);
+        }
+    }
+
+    /**
+     * @param partition The name of a partition.
+     * @return A new converter for {@code partition}, whose project name is
+     * followed by the name of the partition.
+     */
+    private EywaToIfcConverter newConverter(String partition) {
+        EywaToIfcConverter converter = new EywaToIfcConverter(options.toBuilder()
+                .fileId(options.getFileId() + "#" + partition).build());
+        Map<String, Object> partitionHints = hints == null ? new HashMap<>() : new HashMap<>(hints);
+        Object name = partitionHints.get("name");
+        partitionHints.put("name", (name == null ? "Unnamed" : name) + " - " + partition);
+        converter.addHints(partitionHints);
+        converter.setDescriptionSidecar(descriptionSidecar);
+        return converter;
+    }
+
+    /**
+     * @return The project of each partition, in the order in which their first
+     * Primitive was converted. This instance can then be used for another
+     * conversion.
+     * @throws ConversionException If an error occurs during conversion.
+     */
+    @Override
+    public Map<String, IfcProject> getResult() {
+        Map<String, IfcProject> projects = new LinkedHashMap<>();
+        partitions.forEach((partition, converter) -> projects.put(partition, converter.getResult()));
+        partitions.clear();
+        indices.clear();
+        childrenCounts.clear();
+        hints = null;
+        return projects;
+    }
+
+    @Override
+    public void addHints(Map<String, Object> hints) {
+        this.hints = hints;
+    }
+
+    /**
+     * Forgets the placement and the index of {@code obj} in all partitions.
+     * @param obj A Primitive that was already converted.
+     */
+    @Override
+    public void endObject(Primitive obj) {
+        indices.remove(obj);
+        childrenCounts.remove(obj);
+        for (EywaToIfcConverter converter : partitions.values()) {
+            if (converter.hasPlacement(obj)) {
+                converter.endObject(obj);
+            }
+        }
+    }
+
+    @Override
+    public void addObject(@NonNull Beam obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Blind obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Box obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Collar obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Curve obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Dielectric obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Dish obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull DualExpansionJoint obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull EccentricCone obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Empty obj) {
+        // without a geometry, it's only placed in the partitions of its
+        // descendants, if they need it
+        addIndex(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Endplate obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull ExpansionJoint obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull FaceSet obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull FourWaysValve obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Instrument obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Ladder obj) {
+        // without a geometry, it's only placed in the partitions of its
+        // descendants, if they need it
+        addIndex(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Mesh obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Nozzle obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull OrthoValve obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull RectangularBlind obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull RectangularEndplate obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull RectangularFlange obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull RectangularPlate obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull RectangularShell obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Ring obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Shell obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Sphere obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Stair obj) {
+        // without a geometry, it's only placed in the partitions of its
+        // descendants, if they need it
+        addIndex(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Sweep obj) {
+        // without a geometry, it's only placed in the partitions of its
+        // descendants, if they need it
+        addIndex(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull TankShell obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Tee obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull ThreeWaysValve obj) {
+        getPartition(obj).addObject(obj);
+    }
+
+    @Override
+    public void addObject(@NonNull Valve obj) {
+        getPartition(obj).addObject(obj);
+    }
+}
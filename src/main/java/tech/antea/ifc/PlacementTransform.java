@@ -0,0 +1,332 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.*;
+import lombok.NonNull;
+
+import java.util.List;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+
+/**
+ * Computes the coordinate system of Eywa Primitives, working on primitive
+ * doubles stored in arrays that are reused between calls. The coordinate system
+ * is made of a location, an axis and a reference direction, which are kept in
+ * the Eywa coordinate system as 4-dimensional vectors, with the x, y, z and w
+ * components. Axes x, y and z in IFC correspond to axes z, x and y in
+ * Eywa.<br>Instances of this class are not thread-safe, each thread must use
+ * its own.
+ */
+final class PlacementTransform {
+    private final double[] location = new double[4];
+    private final double[] axis = new double[4];
+    private final double[] refDirection = new double[4];
+    /**
+     * Scratch array holding a vector before it's transformed.
+     */
+    private final double[] previous = new double[4];
+    /**
+     * Scratch array holding the unboxed matrix being applied.
+     */
+    private final double[] matrix = new double[16];
+    /**
+     * The last rotation angles used, their cosines and sines are cached
+     * because consecutive Primitives often have the same rotation.
+     */
+    private final double[] angles = {Double.NaN, Double.NaN, Double.NaN};
+    private final double[] cosines = {Double.NaN, Double.NaN, Double.NaN};
+    private final double[] sines = {Double.NaN, Double.NaN, Double.NaN};
+    /**
+     * The last rotation order that was validated.
+     */
+    private String validatedOrder;
+
+    /**
+     * @param vector The vector to set, in the Eywa coordinate system.
+     * @param x The x component in the IFC coordinate system.
+     * @param y The y component in the IFC coordinate system.
+     * @param z The z component in the IFC coordinate system.
+     * @param isPosition {@code true} if the vector is a position in space,
+     * {@code false} if it's a direction.
+     */
+    private static void setIfcVector(double[] vector, double x, double y, double z, boolean isPosition) {
+        vector[0] = y;
+        vector[1] = z;
+        vector[2] = x;
+        vector[3] = isPosition ? 1 : 0;
+    }
+
+    /**
+     * Sets the location of the coordinate system.
+     * @param x The x coordinate in the IFC coordinate system.
+     * @param y The y coordinate in the IFC coordinate system.
+     * @param z The z coordinate in the IFC coordinate system.
+     */
+    void setLocation(double x, double y, double z) {
+        setIfcVector(location, x, y, z, true);
+    }
+
+    /**
+     * Sets the location of the coordinate system.
+     * @param coordinates The coordinates in the IFC coordinate system.
+     * @throws NullPointerException If {@code coordinates} is {@code null}.
+     * @throws IllegalArgumentException If the size of {@code coordinates} is
+     * not 3.
+     */
+    void setLocation(@NonNull List<IfcLengthMeasure> coordinates) {
+        if (coordinates.size() != 3) {
+            throw new IllegalArgumentException("coordinates must have the x, y and z components");
+        }
+        setLocation(coordinates.get(0).getValue(), coordinates.get(1).getValue(),
+                coordinates.get(2).getValue());
+    }
+
+    /**
+     * Sets the axis of the coordinate system.
+     * @param x The x component in the IFC coordinate system.
+     * @param y The y component in the IFC coordinate system.
+     * @param z The z component in the IFC coordinate system.
+     */
+    void setAxis(double x, double y, double z) {
+        setIfcVector(axis, x, y, z, false);
+    }
+
+    /**
+     * Sets the axis of the coordinate system.
+     * @param directionRatios The components of the axis in the IFC
+     * coordinate system.
+     * @throws NullPointerException If {@code directionRatios} is {@code
+     * null}.
+     * @throws IllegalArgumentException If the size of {@code directionRatios}
+     * is not 3.
+     */
+    void setAxis(@NonNull List<IfcReal> directionRatios) {
+        if (directionRatios.size() != 3) {
+            throw new IllegalArgumentException("directionRatios must have the x, y and z components");
+        }
+        setAxis(directionRatios.get(0).getValue(), directionRatios.get(1).getValue(),
+                directionRatios.get(2).getValue());
+    }
+
+    /**
+     * Sets the reference direction of the coordinate system.
+     * @param x The x component in the IFC coordinate system.
+     * @param y The y component in the IFC coordinate system.
+     * @param z The z component in the IFC coordinate system.
+     */
+    void setRefDirection(double x, double y, double z) {
+        setIfcVector(refDirection, x, y, z, false);
+    }
+
+    /**
+     * Sets the reference direction of the coordinate system.
+     * @param directionRatios The components of the reference direction in the
+     * IFC coordinate system.
+     * @throws NullPointerException If {@code directionRatios} is {@code
+     * null}.
+     * @throws IllegalArgumentException If the size of {@code directionRatios}
+     * is not 3.
+     */
+    void setRefDirection(@NonNull List<IfcReal> directionRatios) {
+        if (directionRatios.size() != 3) {
+            throw new IllegalArgumentException("directionRatios must have the x, y and z components");
+        }
+        setRefDirection(directionRatios.get(0).getValue(), directionRatios.get(1).getValue(),
+                directionRatios.get(2).getValue());
+    }
+
+    /**
+     * Sets location, axis and reference direction to the ones of {@code
+     * placement}, as returned by {@link IfcAxis2Placement3D#getP()}.
+     * @param placement The coordinate system to copy.
+     * @throws NullPointerException If {@code placement} is {@code null}.
+     */
+    void set(@NonNull IfcAxis2Placement3D placement) {
+        List<IfcDirection> p = placement.getP();
+        setLocation(placement.getLocation().getCoordinates());
+        setAxis(p.get(2).getDirectionRatios());
+        setRefDirection(p.get(0).getDirectionRatios());
+    }
+
+    /**
+     * Multiplies location, axis and reference direction by {@code matrix}.
+     * @param matrix An array representing a 4x4 matrix in column-major order.
+     * @throws NullPointerException If {@code matrix} is {@code null}.
+     * @throws IllegalArgumentException If the length of {@code matrix} is not
+     * 16.
+     */
+    void multiply(@NonNull Double[] matrix) {
+        if (matrix.length != 16) {
+            throw new IllegalArgumentException("matrix must have 16 elements");
+        }
+        for (int i = 0; i < 16; i++) {
+            this.matrix[i] = matrix[i];
+        }
+        multiply(location);
+        multiply(axis);
+        multiply(refDirection);
+    }
+
+    /**
+     * @param vector The vector to replace with the result of the matrix
+     * multiplication {@code this.matrix * vector}.
+     */
+    private void multiply(double[] vector) {
+        System.arraycopy(vector, 0, previous, 0, 4);
+        for (int i = 0; i < 4; i++) { // row index
+            double result = 0;
+            for (int j = 0; j < 4; j++) { // column index
+                result += matrix[i + j * 4] * previous[j];
+            }
+            vector[i] = result;
+        }
+    }
+
+    /**
+     * Moves the location by {@code position}.
+     * @param position The x, y and z components of the translation, in the
+     * Eywa coordinate system.
+     * @throws NullPointerException If {@code position} is {@code null}.
+     * @throws IllegalArgumentException If the length of {@code position} is
+     * not 3.
+     */
+    void translate(@NonNull Double[] position) {
+        if (position.length != 3) {
+            throw new IllegalArgumentException("length of position must be 3");
+        }
+        location[0] = location[0] + position[0];
+        location[1] = location[1] + position[1];
+        location[2] = location[2] + position[2];
+    }
+
+    /**
+     * Rotates axis and reference direction, leaving the location unchanged.
+     * @param rotations Euler angles in radians describing the 3 rotations.
+     * @param order Indicates on what axis each rotation must be applied, for
+     * example {@code "XYZ"} indicates that the first rotation should be done
+     * around the X axis, the second one on the Y axis, and the third one on
+     * the Z axis.
+     * @throws NullPointerException If any of the arguments are null.
+     * @throws IllegalArgumentException If {@code rotations}'s or {@code
+     * order}'s length is not 3, if order contains any characters other than
+     * 'X', 'Y' and 'Z'.
+     */
+    void rotate(@NonNull Double[] rotations, @NonNull String order) {
+        if (rotations.length != 3) {
+            throw new IllegalArgumentException("length of rotations must be 3");
+        }
+        if (!order.equals(validatedOrder)) {
+            if (order.length() != 3 || !isAxis(order.charAt(0)) || !isAxis(order.charAt(1)) ||
+                    !isAxis(order.charAt(2))) {
+                throw new IllegalArgumentException("order must be 3 characters long and can contain only" +
+                        " the characters 'X', 'Y' and 'Z'");
+            }
+            validatedOrder = order;
+        }
+        for (int i = 0; i < 3; i++) {
+            double angle = rotations[i];
+            // comparing bits, so that 0 and -0 are different angles
+            if (Double.doubleToLongBits(angle) != Double.doubleToLongBits(angles[i])) {
+                angles[i] = angle;
+                cosines[i] = cos(angle);
+                sines[i] = sin(angle);
+            }
+        }
+        rotate(axis, order);
+        rotate(refDirection, order);
+    }
+
+    /**
+     * @param c A character.
+     * @return {@code true} if {@code c} is 'X', 'Y' or 'Z'.
+     */
+    private static boolean isAxis(char c) {
+        return c == 'X' || c == 'Y' || c == 'Z';
+    }
+
+    /**
+     * Rotates {@code vector} using the cached cosines and sines.
+     * @param vector The vector to rotate.
+     * @param order A valid rotation order.
+     */
+    private void rotate(double[] vector, String order) {
+        for (int i = 0; i < 3; i++) {
+            double cos = cosines[i];
+            double sin = sines[i];
+            double x = vector[0];
+            double y = vector[1];
+            double z = vector[2];
+            switch (order.charAt(i)) {
+                case 'X':
+                    vector[1] = y * cos - z * sin;
+                    vector[2] = y * sin + z * cos;
+                    break;
+                case 'Y':
+                    vector[0] = x * cos + z * sin;
+                    vector[2] = -x * sin + z * cos;
+                    break;
+                default: // Z
+                    vector[0] = x * cos - y * sin;
+                    vector[1] = x * sin + y * cos;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return A new {@link IfcCartesianPoint} at the location of the
+     * coordinate system.
+     */
+    IfcCartesianPoint getIfcLocation() {
+        return new IfcCartesianPoint(location[2], location[0], location[1]);
+    }
+
+    /**
+     * @return A new {@link IfcDirection} with the axis of the coordinate
+     * system.
+     */
+    IfcDirection getIfcAxis() {
+        return new IfcDirection(axis[2], axis[0], axis[1]);
+    }
+
+    /**
+     * @return A new {@link IfcDirection} with the reference direction of the
+     * coordinate system.
+     */
+    IfcDirection getIfcRefDirection() {
+        return new IfcDirection(refDirection[2], refDirection[0], refDirection[1]);
+    }
+
+    /**
+     * @return A new {@link IfcAxis2Placement3D} representing the coordinate
+     * system.
+     */
+    IfcAxis2Placement3D toIfcAxis2Placement3D() {
+        return new IfcAxis2Placement3D(getIfcLocation(), getIfcAxis(), getIfcRefDirection());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcProfileDef;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Profiles used by the swept solids of a conversion, so that IfcProducts with
+ * the same section share a single IfcProfileDef instead of creating their own
+ * copy. IfcProfileDefs have no inverse attributes, so they can be shared by
+ * the registries of forked converters, each used by a single thread and
+ * keeping its own statistics.
+ */
+final class ProfileRegistry {
+    /**
+     * Maps the type and parameters of each profile to the profile.
+     */
+    private final Map<List<Object>, IfcProfileDef> profiles;
+    private long requests;
+    private long created;
+
+    /**
+     * Creates a registry without profiles.
+     */
+    ProfileRegistry() {
+        this.profiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a registry sharing the profiles of {@code parent}, with its own
+     * statistics.
+     * @param parent The registry of the converter forking a new one.
+     * @throws NullPointerException If {@code parent} is {@code null}.
+     */
+    ProfileRegistry(@NonNull ProfileRegistry parent) {
+        this.profiles = parent.profiles;
+    }
+
+    /**
+     * @param factory Creates the profile, if there's no profile with the same
+     * {@code parameters} yet.
+     * @param parameters The type of the profile followed by all the parameters
+     * that define it, including its position.
+     * @param <T> The type of the profile.
+     * @return The profile created by {@code factory}, or the one already
+     * created for the same {@code parameters}.
+     * @throws NullPointerException If {@code factory} is {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends IfcProfileDef> T get(@NonNull Supplier<T> factory, Object... parameters) {
+        requests++;
+        return (T) profiles.computeIfAbsent(Arrays.asList(parameters), key -> {
+            created++;
+            return factory.get();
+        });
+    }
+
+    /**
+     * Forgets the profiles created so far, also by the registries sharing
+     * them, keeping the statistics.
+     */
+    void clear() {
+        profiles.clear();
+    }
+
+    /**
+     * Adds the statistics of {@code other} to the ones of this instance.
+     * @param other The registry of a forked converter.
+     */
+    void addStatistics(@NonNull ProfileRegistry other) {
+        requests += other.requests;
+        created += other.created;
+    }
+
+    /**
+     * @return The number of profiles requested and created so far.
+     */
+    ProfileStatistics getStatistics() {
+        return new ProfileStatistics(requests, created);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import lombok.Value;
+
+/**
+ * How many profiles of swept solids were requested by {@link
+ * EywaToIfcConverter}, and how many were created because no IfcProduct with
+ * the same section had been converted before.
+ */
+@Value
+public class ProfileStatistics {
+    long requests;
+    long created;
+
+    /**
+     * @return The fraction of requests answered with an existing profile,
+     * between 0 and 1, or 0 if there were no requests.
+     */
+    public double getHitRate() {
+        return requests == 0 ? 0 : (double) (requests - created) / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d profiles requested, %d created (%.1f%% shared)", requests, created,
+                getHitRate() * 100);
+    }
+}
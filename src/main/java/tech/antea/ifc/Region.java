@@ -0,0 +1,95 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * An axis-aligned box in the world coordinate system of converted files (in
+ * millimeters, with the z axis pointing upwards). Instances are immutable,
+ * use {@link #of(double, double, double, double, double, double)} or {@link
+ * #parse(String)} to create them.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Region {
+    double minX;
+    double minY;
+    double minZ;
+    double maxX;
+    double maxY;
+    double maxZ;
+
+    /**
+     * @return The region between 2 opposite corners, given in any order.
+     * @throws IllegalArgumentException If any coordinate is not finite.
+     */
+    public static Region of(double x1, double y1, double z1, double x2, double y2, double z2) {
+        for (double coordinate : new double[]{x1, y1, z1, x2, y2, z2}) {
+            if (Double.isNaN(coordinate) || Double.isInfinite(coordinate)) {
+                throw new IllegalArgumentException("coordinates of regions must be finite");
+            }
+        }
+        return new Region(min(x1, x2), min(y1, y2), min(z1, z2), max(x1, x2), max(y1, y2), max(z1, z2));
+    }
+
+    /**
+     * @param corners The coordinates of 2 opposite corners separated by
+     * commas, as in {@code "x1,y1,z1,x2,y2,z2"}.
+     * @return The region between the corners.
+     * @throws NullPointerException If {@code corners} is {@code null}.
+     * @throws IllegalArgumentException If {@code corners} isn't made of 6
+     * finite numbers.
+     */
+    public static Region parse(@NonNull String corners) {
+        String[] coordinates = corners.split(",");
+        if (coordinates.length != 6) {
+            throw new IllegalArgumentException("a region must have 6 coordinates");
+        }
+        double[] values = new double[6];
+        for (int i = 0; i < 6; i++) {
+            values[i] = Double.parseDouble(coordinates[i].trim());
+        }
+        return of(values[0], values[1], values[2], values[3], values[4], values[5]);
+    }
+
+    /**
+     * @param box A box in the world coordinate system.
+     * @return {@code true} if {@code box} intersects or touches this region.
+     */
+    boolean intersects(@NonNull BoundingBox box) {
+        return !box.isEmpty()
+                && box.getMin(0) <= maxX && box.getMax(0) >= minX
+                && box.getMin(1) <= maxY && box.getMax(1) >= minY
+                && box.getMin(2) <= maxZ && box.getMax(2) >= minZ;
+    }
+}
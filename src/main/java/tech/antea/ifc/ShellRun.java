@@ -0,0 +1,209 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import buildingsmart.ifc.IfcLocalPlacement;
+import it.imc.persistence.po.eytukan.Primitive;
+import it.imc.persistence.po.eytukan.Shell;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static java.lang.Math.abs;
+
+/**
+ * A sequence of cylindrical Shells with the same parent, radius, thickness and
+ * description, each one starting where the previous one ends along the same
+ * axis, that can be written as a single Shell as long as the whole run: one
+ * IfcRevolvedAreaSolid, or one tessellated revolution if Shells are
+ * tessellated. Coordinate systems are given as returned by {@link
+ * EywaToIfcConverter}: the x, y and z axes followed by the location, 3
+ * components each, relative to the same system for all the Shells of a run.
+ */
+final class ShellRun {
+    /**
+     * Maximum difference between the components of the axes of two Shells in
+     * the same run.
+     */
+    static final double DIRECTION_TOLERANCE = 1e-9;
+    /**
+     * Maximum distance, in millimeters, along each axis between the end of a
+     * run and the start of the next Shell.
+     */
+    static final double DISTANCE_TOLERANCE = 1e-4;
+
+    private final Shell first;
+    private final double thickness;
+    private final double[] coordinateSystem;
+    private final IfcLocalPlacement placement;
+    private final List<IfcGloballyUniqueId> globalIds;
+    private final List<Object> imIds = new ArrayList<>();
+    private int size;
+    private double length;
+
+    /**
+     * @param first The first Shell of the run.
+     * @param thickness The thickness used for {@code first}.
+     * @param coordinateSystem The coordinate system of {@code first}, which
+     * must not be modified.
+     * @param placement The placement of {@code first}.
+     * @param globalIds The GlobalIds of the entities that will be created for
+     * the run, derived from {@code first} before it's forgotten.
+     * @throws NullPointerException If any reference argument is {@code null}.
+     * @throws IllegalArgumentException If {@code first} is not cylindrical.
+     */
+    ShellRun(@NonNull Shell first, double thickness, @NonNull double[] coordinateSystem,
+            @NonNull IfcLocalPlacement placement, @NonNull List<IfcGloballyUniqueId> globalIds) {
+        if (!isCylindrical(first)) {
+            throw new IllegalArgumentException("the radii of first must be equal");
+        }
+        this.first = first;
+        this.thickness = thickness;
+        this.coordinateSystem = coordinateSystem;
+        this.placement = placement;
+        this.globalIds = globalIds;
+        add(first);
+    }
+
+    /**
+     * @param obj A Shell.
+     * @return {@code true} if {@code obj} can be the first Shell of a run,
+     * i.e. if both its radii are given and have the same value.
+     */
+    static boolean isCylindrical(@NonNull Shell obj) {
+        return obj.getRadius1() != null && obj.getRadius1().equals(obj.getRadius2());
+    }
+
+    /**
+     * @param obj A Shell converted after the ones in this run.
+     * @param thickness The thickness used for {@code obj}.
+     * @param coordinateSystem The coordinate system of {@code obj}.
+     * @return {@code true} if {@code obj} can be added to this run.
+     */
+    boolean continuesWith(@NonNull Shell obj, double thickness, @NonNull double[] coordinateSystem) {
+        if (obj.getParent() != first.getParent() || !isCylindrical(obj) ||
+                !obj.getRadius1().equals(first.getRadius1()) || thickness != this.thickness ||
+                !Objects.equals(obj.getDescription(), first.getDescription())) {
+            return false;
+        }
+        for (int i = 0; i < 9; i++) {
+            if (!(abs(coordinateSystem[i] - this.coordinateSystem[i]) <= DIRECTION_TOLERANCE)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            double end = this.coordinateSystem[9 + i] + this.coordinateSystem[6 + i] * length;
+            if (!(abs(coordinateSystem[9 + i] - end) <= DISTANCE_TOLERANCE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param next A run converted after this one.
+     * @return {@code true} if the Shells of {@code next} can be added to this
+     * run.
+     */
+    boolean continuesWith(@NonNull ShellRun next) {
+        return continuesWith(next.first, next.thickness, next.coordinateSystem);
+    }
+
+    /**
+     * Extends this run with the Shells of {@code next}, for which {@link
+     * #continuesWith(ShellRun)} returned {@code true}.
+     * @param next The run to add.
+     */
+    void addAll(@NonNull ShellRun next) {
+        imIds.addAll(next.imIds);
+        size += next.size;
+        length += next.length;
+    }
+
+    /**
+     * Extends this run with {@code obj}, for which {@link
+     * #continuesWith(Shell, double, double[])} returned {@code true}.
+     * @param obj The Shell to add.
+     */
+    void add(@NonNull Shell obj) {
+        if (obj.getLegacyId() != null) {
+            imIds.add(obj.getLegacyId());
+        }
+        size++;
+        length += obj.getLength();
+    }
+
+    /**
+     * @return The first Shell of the run, whose placement is the one of the
+     * whole run.
+     */
+    Shell getFirst() {
+        return first;
+    }
+
+    /**
+     * @return The parent of all the Shells in this run.
+     */
+    Primitive getParent() {
+        return first.getParent();
+    }
+
+    double getThickness() {
+        return thickness;
+    }
+
+    IfcLocalPlacement getPlacement() {
+        return placement;
+    }
+
+    List<IfcGloballyUniqueId> getGlobalIds() {
+        return globalIds;
+    }
+
+    /**
+     * @return The imIds of the Shells in this run that have one, in order.
+     */
+    List<Object> getImIds() {
+        return imIds;
+    }
+
+    /**
+     * @return The number of Shells in this run.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The sum of the lengths of the Shells in this run.
+     */
+    double getLength() {
+        return length;
+    }
+}
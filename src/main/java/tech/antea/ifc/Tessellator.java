@@ -0,0 +1,502 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.*;
+import com.google.common.collect.Lists;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.Math.*;
+
+/**
+ * Approximates solids of revolution with {@link IfcFacetedBrep}s, for viewers
+ * that are slow to tessellate analytic geometry themselves. Circles and arcs
+ * are split in as many segments as needed for the distance between each
+ * segment and the curve it replaces (the chordal deviation) to be at most a
+ * tolerance, so bigger radiuses get more segments.
+ * <p>
+ * Profiles are flat arrays of points in the plane of the revolution, 2
+ * coordinates for each point: the distance from the axis and the position
+ * along the axis. The first and last points are connected, and points with
+ * distance 0 lie on the axis.
+ */
+final class Tessellator {
+    /**
+     * Minimum number of segments of a whole circle, also used for circles
+     * whose radius isn't bigger than the tolerance.
+     */
+    static final int MIN_SEGMENTS = 8;
+    /**
+     * Maximum number of segments of a whole circle, so that very small
+     * tolerances don't create huge meshes.
+     */
+    static final int MAX_SEGMENTS = 256;
+    /**
+     * Unit circles by number of segments. They're immutable, so they're shared
+     * by all instances of this class and all threads.
+     */
+    private static final ConcurrentMap<Integer, UnitCircle> UNIT_CIRCLES = new ConcurrentHashMap<>();
+
+    private final double tolerance;
+
+    /**
+     * @param tolerance Maximum distance, in millimeters, between a curve and
+     * the segments approximating it.
+     * @throws IllegalArgumentException If {@code tolerance} is not a positive
+     * finite number.
+     */
+    Tessellator(double tolerance) {
+        if (!(tolerance > 0) || Double.isInfinite(tolerance)) {
+            throw new IllegalArgumentException("tolerance must be a positive finite number");
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @param segments Number of segments of the circle.
+     * @return The unit circle split in {@code segments} segments, computed
+     * only the first time it's requested.
+     * @throws IllegalArgumentException If {@code segments} is not positive.
+     */
+    static UnitCircle unitCircle(int segments) {
+        if (segments <= 0) {
+            throw new IllegalArgumentException("segments must be positive");
+        }
+        return UNIT_CIRCLES.computeIfAbsent(segments, UnitCircle::new);
+    }
+
+    /**
+     * @param radius Radius of a circle.
+     * @return The number of segments needed to approximate the circle within
+     * the tolerance, a multiple of 4 between {@link #MIN_SEGMENTS} and {@link
+     * #MAX_SEGMENTS}, so that quarters of the circle have their own points.
+     */
+    int segments(double radius) {
+        if (!(radius > tolerance)) {
+            return MIN_SEGMENTS;
+        }
+        // a chord spanning an angle a is 1 - cos(a / 2) times the radius away
+        // from its arc
+        double segments = ceil(PI / acos(1 - tolerance / radius));
+        int multipleOf4 = ((int) min(segments, MAX_SEGMENTS) + 3) / 4 * 4;
+        return max(multipleOf4, MIN_SEGMENTS);
+    }
+
+    /**
+     * @param radius Radius of the sphere.
+     * @return The profile of a sphere centered in the origin, from its bottom
+     * to its top pole.
+     */
+    double[] sphereProfile(double radius) {
+        return dishProfile(radius, radius);
+    }
+
+    /**
+     * @param radius Radius of the sphere.
+     * @param height Position along the axis of the plane cutting the sphere,
+     * the part of the sphere above it is removed.
+     * @return The profile of a sphere centered in the origin and cut by a
+     * plane perpendicular to the axis, from its bottom pole to the plane.
+     * @throws IllegalArgumentException If {@code height} is not bigger than
+     * {@code -radius}.
+     */
+    double[] dishProfile(double radius, double height) {
+        if (!(height > -radius)) {
+            throw new IllegalArgumentException("height must be bigger than -radius");
+        }
+        int segments = segments(radius);
+        UnitCircle circle = unitCircle(segments);
+        List<Double> profile = Lists.newArrayListWithCapacity(segments + 4);
+        addPoint(profile, 0, -radius);
+        for (int i = 1; i < segments / 2; i++) {
+            double h = -radius * circle.cos[i];
+            if (h >= height) {
+                break;
+            }
+            addPoint(profile, radius * circle.sin[i], h);
+        }
+        if (height < radius) {
+            addPoint(profile, sqrt(radius * radius - height * height), height);
+            addPoint(profile, 0, height);
+        } else {
+            addPoint(profile, 0, radius);
+        }
+        return toArray(profile);
+    }
+
+    /**
+     * Adds the points of a quarter of an ellipse, centered on the axis, to a
+     * profile.
+     * @param profile The profile to add the points to.
+     * @param center Position of the center along the axis.
+     * @param semiAxis1 Semi-axis perpendicular to the axis.
+     * @param semiAxis2 Semi-axis parallel to the axis.
+     * @param reversed If {@code false} the points go from the semi-axis
+     * perpendicular to the axis to the one on the axis, otherwise in the
+     * opposite direction.
+     * @throws NullPointerException If {@code profile} is {@code null}.
+     */
+    void addQuarterEllipse(@NonNull List<Double> profile, double center, double semiAxis1, double semiAxis2,
+            boolean reversed) {
+        int segments = segments(max(semiAxis1, semiAxis2));
+        UnitCircle circle = unitCircle(segments);
+        int quarter = segments / 4;
+        for (int i = 0; i <= quarter; i++) {
+            int j = reversed ? quarter - i : i;
+            // the last point must be exactly on the axis
+            double distance = j == quarter ? 0 : semiAxis1 * circle.cos[j];
+            addPoint(profile, distance, center + semiAxis2 * circle.sin[j]);
+        }
+    }
+
+    /**
+     * @param profile The profile to add the point to.
+     * @param distance Distance of the point from the axis.
+     * @param height Position of the point along the axis.
+     */
+    static void addPoint(List<Double> profile, double distance, double height) {
+        profile.add(distance);
+        profile.add(height);
+    }
+
+    /**
+     * @param profile A profile as a list.
+     * @return The profile as an array.
+     */
+    static double[] toArray(List<Double> profile) {
+        return profile.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Revolves a profile around an axis.
+     * @param profile The profile to revolve, a simple polygon.
+     * @param angle The angle of the revolution, the solid is closed by the
+     * profile at its ends if it's less than 2 PI.
+     * @param location The origin of the axis.
+     * @param axis The direction of the axis.
+     * @param refDirection The direction, perpendicular to {@code axis}, of the
+     * plane containing the profile at the start of the revolution.
+     * @return The solid created by the revolution.
+     * @throws NullPointerException If any of the arguments is {@code null}.
+     */
+    IfcFacetedBrep revolve(@NonNull double[] profile, double angle, @NonNull double[] location,
+            @NonNull double[] axis, @NonNull double[] refDirection) {
+        double[] loop = signedArea(profile) < 0 ? reverse(profile) : profile;
+        Revolution revolution = new Revolution(angle, maxDistance(loop), location, axis, refDirection);
+        IfcCartesianPoint[][] points = revolution.sweep(loop);
+        Set<IfcFace> faces = new IdentityLinkedSet<>();
+        revolution.addSides(faces, points);
+        if (!revolution.closed) {
+            int last = revolution.cos.length - 1;
+            IfcCartesianPoint[] start = new IfcCartesianPoint[points.length];
+            IfcCartesianPoint[] end = new IfcCartesianPoint[points.length];
+            for (int i = 0; i < points.length; i++) {
+                start[i] = points[i][0];
+                end[points.length - 1 - i] = points[i][last];
+            }
+            faces.add(face(start));
+            faces.add(face(end));
+        }
+        return new IfcFacetedBrep(new IfcClosedShell(faces));
+    }
+
+    /**
+     * Revolves the area between two profiles around an axis, e.g. to create
+     * the wall of a pipe.
+     * @param outer The outer profile, a simple polygon.
+     * @param inner The inner profile, a simple polygon inside {@code outer},
+     * with the same number of points in the same order, so that the segments
+     * between points with the same index don't cross each other.
+     * @param angle The angle of the revolution, the solid is closed by the
+     * profiles at its ends if it's less than 2 PI.
+     * @param location The origin of the axis.
+     * @param axis The direction of the axis.
+     * @param refDirection The direction, perpendicular to {@code axis}, of the
+     * plane containing the profiles at the start of the revolution.
+     * @return The solid created by the revolution.
+     * @throws NullPointerException If any of the arguments is {@code null}.
+     * @throws IllegalArgumentException If the profiles have different lengths.
+     */
+    IfcFacetedBrep revolve(@NonNull double[] outer, @NonNull double[] inner, double angle,
+            @NonNull double[] location, @NonNull double[] axis, @NonNull double[] refDirection) {
+        if (outer.length != inner.length) {
+            throw new IllegalArgumentException("outer and inner must have the same number of points");
+        }
+        if (signedArea(outer) < 0) {
+            outer = reverse(outer);
+            inner = reverse(inner);
+        }
+        Revolution revolution = new Revolution(angle, maxDistance(outer), location, axis, refDirection);
+        IfcCartesianPoint[][] outerPoints = revolution.sweep(outer);
+        IfcCartesianPoint[][] innerPoints = revolution.sweep(inner);
+        Set<IfcFace> faces = new IdentityLinkedSet<>();
+        revolution.addSides(faces, outerPoints);
+        // the inner profile is a hole, its sides face the axis
+        IfcCartesianPoint[][] reversedInnerPoints = innerPoints.clone();
+        Collections.reverse(Arrays.asList(reversedInnerPoints));
+        revolution.addSides(faces, reversedInnerPoints);
+        if (!revolution.closed) {
+            int last = revolution.cos.length - 1;
+            int size = outerPoints.length;
+            for (int i = 0; i < size; i++) {
+                int next = (i + 1) % size;
+                faces.add(face(outerPoints[i][0], outerPoints[next][0], innerPoints[next][0],
+                        innerPoints[i][0]));
+                faces.add(face(innerPoints[i][last], innerPoints[next][last], outerPoints[next][last],
+                        outerPoints[i][last]));
+            }
+        }
+        return new IfcFacetedBrep(new IfcClosedShell(faces));
+    }
+
+    /**
+     * @param polygon The vertices of the face. Vertices equal to the previous
+     * one (that are the same point on the axis) are skipped.
+     * @return The face, {@code null} if it has less than 3 distinct vertices.
+     */
+    private static IfcFace face(IfcCartesianPoint... polygon) {
+        List<IfcCartesianPoint> vertices = Lists.newArrayListWithCapacity(polygon.length);
+        for (IfcCartesianPoint vertex : polygon) {
+            if (vertices.isEmpty() || vertices.get(vertices.size() - 1) != vertex) {
+                vertices.add(vertex);
+            }
+        }
+        if (vertices.size() > 1 && vertices.get(0) == vertices.get(vertices.size() - 1)) {
+            vertices.remove(vertices.size() - 1);
+        }
+        if (vertices.size() < 3) {
+            return null;
+        }
+        return new IfcFace(new IfcFaceBound(new IfcPolyLoop(vertices), IfcBoolean.T));
+    }
+
+    /**
+     * @param profile A profile.
+     * @return Twice the area of the profile, positive if its points are
+     * anticlockwise when the distance from the axis is the x coordinate.
+     */
+    private static double signedArea(double[] profile) {
+        double area = 0;
+        for (int i = 0; i < profile.length; i += 2) {
+            int next = (i + 2) % profile.length;
+            area += profile[i] * profile[next + 1] - profile[next] * profile[i + 1];
+        }
+        return area;
+    }
+
+    /**
+     * @param profile A profile.
+     * @return The profile with its points in the opposite order.
+     */
+    private static double[] reverse(double[] profile) {
+        double[] reversed = new double[profile.length];
+        for (int i = 0; i < profile.length; i += 2) {
+            reversed[profile.length - 2 - i] = profile[i];
+            reversed[profile.length - 1 - i] = profile[i + 1];
+        }
+        return reversed;
+    }
+
+    /**
+     * @param profile A profile.
+     * @return The maximum distance of its points from the axis.
+     */
+    private static double maxDistance(double[] profile) {
+        double max = 0;
+        for (int i = 0; i < profile.length; i += 2) {
+            max = max(max, profile[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Cosines and sines of the angles splitting a circle in equal segments,
+     * starting from 0.
+     */
+    static final class UnitCircle {
+        private final double[] cos;
+        private final double[] sin;
+
+        /**
+         * @param segments Number of segments of the circle.
+         */
+        private UnitCircle(int segments) {
+            double slice = 2 * PI / segments;
+            cos = new double[segments];
+            sin = new double[segments];
+            for (int i = 0; i < segments; i++) {
+                cos[i] = Math.cos(i * slice);
+                sin[i] = Math.sin(i * slice);
+            }
+        }
+
+        /**
+         * @return The number of segments of the circle.
+         */
+        int size() {
+            return cos.length;
+        }
+
+        /**
+         * @param i Index of a point of the circle.
+         * @return The cosine of the angle of the point.
+         */
+        double cos(int i) {
+            return cos[i];
+        }
+
+        /**
+         * @param i Index of a point of the circle.
+         * @return The sine of the angle of the point.
+         */
+        double sin(int i) {
+            return sin[i];
+        }
+    }
+
+    /**
+     * The steps of a revolution around an axis.
+     */
+    private final class Revolution {
+        /**
+         * {@code true} if the revolution is a whole turn, the last step is
+         * then connected to the first.
+         */
+        private final boolean closed;
+        /**
+         * Cosines of the angles of the steps.
+         */
+        private final double[] cos;
+        /**
+         * Sines of the angles of the steps.
+         */
+        private final double[] sin;
+        private final double[] location;
+        private final double[] u = new double[3];
+        private final double[] v = new double[3];
+        private final double[] w = new double[3];
+
+        /**
+         * @param angle Angle of the revolution.
+         * @param radius Maximum distance of the revolved points from the axis.
+         * @param location The origin of the axis.
+         * @param axis The direction of the axis.
+         * @param refDirection The direction where the revolution starts.
+         */
+        Revolution(double angle, double radius, double[] location, double[] axis, double[] refDirection) {
+            int segments = segments(radius);
+            this.closed = angle >= 2 * PI;
+            if (closed) {
+                UnitCircle circle = unitCircle(segments);
+                this.cos = circle.cos;
+                this.sin = circle.sin;
+            } else {
+                int steps = max(1, (int) ceil(segments * angle / (2 * PI)));
+                this.cos = new double[steps + 1];
+                this.sin = new double[steps + 1];
+                for (int i = 0; i <= steps; i++) {
+                    cos[i] = Math.cos(angle * i / steps);
+                    sin[i] = Math.sin(angle * i / steps);
+                }
+            }
+            this.location = location;
+            // w is the normalized axis, u the part of refDirection
+            // perpendicular to it and v completes the right-handed system
+            double axisLength = sqrt(axis[0] * axis[0] + axis[1] * axis[1] + axis[2] * axis[2]);
+            for (int i = 0; i < 3; i++) {
+                w[i] = axis[i] / axisLength;
+            }
+            double projection = refDirection[0] * w[0] + refDirection[1] * w[1] + refDirection[2] * w[2];
+            for (int i = 0; i < 3; i++) {
+                u[i] = refDirection[i] - projection * w[i];
+            }
+            double uLength = sqrt(u[0] * u[0] + u[1] * u[1] + u[2] * u[2]);
+            for (int i = 0; i < 3; i++) {
+                u[i] /= uLength;
+            }
+            v[0] = w[1] * u[2] - w[2] * u[1];
+            v[1] = w[2] * u[0] - w[0] * u[2];
+            v[2] = w[0] * u[1] - w[1] * u[0];
+        }
+
+        /**
+         * @param profile The profile to revolve.
+         * @return For each point of the profile, its position at each step
+         * of the revolution. Points on the axis are the same instance at
+         * every step.
+         */
+        IfcCartesianPoint[][] sweep(double[] profile) {
+            IfcCartesianPoint[][] points = new IfcCartesianPoint[profile.length / 2][cos.length];
+            for (int i = 0; i < points.length; i++) {
+                double distance = profile[i * 2];
+                double height = profile[i * 2 + 1];
+                double x = location[0] + height * w[0];
+                double y = location[1] + height * w[1];
+                double z = location[2] + height * w[2];
+                if (distance == 0) {
+                    Arrays.fill(points[i], new IfcCartesianPoint(x, y, z));
+                    continue;
+                }
+                for (int j = 0; j < cos.length; j++) {
+                    double a = distance * cos[j];
+                    double b = distance * sin[j];
+                    points[i][j] = new IfcCartesianPoint(x + a * u[0] + b * v[0], y + a * u[1] + b * v[1],
+                            z + a * u[2] + b * v[2]);
+                }
+            }
+            return points;
+        }
+
+        /**
+         * Adds the faces swept by the edges of a profile.
+         * @param faces The set to add the faces to.
+         * @param points The result of {@link #sweep(double[])} for an
+         * anticlockwise profile, whose sides face away from the axis.
+         */
+        void addSides(Set<IfcFace> faces, IfcCartesianPoint[][] points) {
+            int steps = closed ? cos.length : cos.length - 1;
+            for (int i = 0; i < points.length; i++) {
+                IfcCartesianPoint[] current = points[i];
+                IfcCartesianPoint[] next = points[(i + 1) % points.length];
+                for (int j = 0; j < steps; j++) {
+                    int k = (j + 1) % cos.length;
+                    IfcFace face = face(current[j], current[k], next[k], next[j]);
+                    // edges lying on the axis don't sweep any face
+                    if (face != null) {
+                        faces.add(face);
+                    }
+                }
+            }
+        }
+    }
+}
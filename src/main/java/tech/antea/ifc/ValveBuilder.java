@@ -39,12 +39,27 @@ import static java.lang.Math.PI;
 class ValveBuilder {
     private final ValveOutput[] outputs = new ValveOutput[4];
     private final double thickness;
+    /**
+     * Tessellates the outputs and the sphere, {@code null} if they're swept
+     * solids.
+     */
+    private final Tessellator tessellator;
 
     /**
      * @param thickness Thickness of the Valve.
      */
     public ValveBuilder(double thickness) {
+        this(thickness, null);
+    }
+
+    /**
+     * @param thickness Thickness of the Valve.
+     * @param tessellator Used to build the Valve as {@link IfcFacetedBrep}s,
+     * if {@code null} it's built with swept solids.
+     */
+    public ValveBuilder(double thickness, Tessellator tessellator) {
         this.thickness = thickness;
+        this.tessellator = tessellator;
     }
 
     /**
@@ -89,14 +104,18 @@ class ValveBuilder {
      * otherwise.
      * @param crownThickness Thickness of the crown if the valve is flanged, 0
      * otherwise.
-     * @return The IfcRevolvedAreaSolid representing the output.
+     * @return The IfcRevolvedAreaSolid representing the output, or its
+     * IfcFacetedBrep if the Valve is tessellated.
      * @throws NullPointerException If {@link #addBottomOutput(double, double,
      * double, double)} was not called before this
      * method (because all kinds of valves have the
      * bottom output).
      */
-    private IfcRevolvedAreaSolid buildValveOutput(byte position, double radius, double length,
+    private IfcSolidModel buildValveOutput(byte position, double radius, double length,
             double crownRadius, double crownThickness) {
+        if (tessellator != null) {
+            return tessellateValveOutput(position, radius, length, crownRadius, crownThickness);
+        }
         // placing the output according to position
         IfcCartesianPoint location;
         IfcDirection xAxis;
@@ -151,6 +170,51 @@ class ValveBuilder {
                 new IfcPlaneAngleMeasure(2 * PI));
     }
 
+    /**
+     * Builds a valve output as an IfcFacetedBrep, with the same geometry
+     * created by {@link #buildValveOutput(byte, double, double, double,
+     * double)}.
+     * @param position 0 indicates the bottom output, others follow
+     * anticlockwise.
+     * @param radius Radius of the output.
+     * @param length Length of the output.
+     * @param crownRadius Radius of the crown if the valve is flanged, 0
+     * otherwise.
+     * @param crownThickness Thickness of the crown if the valve is flanged, 0
+     * otherwise.
+     * @return The IfcFacetedBrep representing the output.
+     */
+    private IfcFacetedBrep tessellateValveOutput(byte position, double radius, double length,
+            double crownRadius, double crownThickness) {
+        // the profile is revolved around the axis of the output, from its
+        // base towards the center of the valve
+        double[] location;
+        double[] axis;
+        if (position == 0) {
+            location = new double[]{0, 0, 0};
+            axis = new double[]{0, 0, 1};
+        } else if (position == 1) {
+            location = new double[]{0, length, outputs[0].length};
+            axis = new double[]{0, -1, 0};
+        } else if (position == 2) {
+            location = new double[]{0, 0, length + outputs[0].length};
+            axis = new double[]{0, 0, -1};
+        } else {
+            location = new double[]{0, -length, outputs[0].length};
+            axis = new double[]{0, 1, 0};
+        }
+        double innerRadius = radius - thickness;
+        double innerLength = length * innerRadius / radius;
+        double[] outputRightSection;
+        if (crownRadius != 0 && crownThickness != 0) {
+            outputRightSection = new double[]{innerRadius, 0, crownRadius, 0, crownRadius, crownThickness,
+                    radius * (length - crownThickness) / length, crownThickness, 0, length, 0, innerLength};
+        } else {
+            outputRightSection = new double[]{innerRadius, 0, radius, 0, 0, length, 0, innerLength};
+        }
+        return tessellator.revolve(outputRightSection, 2 * PI, location, axis, new double[]{1, 0, 0});
+    }
+
     /**
      * Adds a bottom output.
      * @param radius The radius of the output.
@@ -224,7 +288,8 @@ class ValveBuilder {
     }
 
     /**
-     * Creates the Set of IfcRevolvedAreaSolid items that represent the valve.
+     * Creates the Set of IfcRevolvedAreaSolid items that represent the valve,
+     * or of IfcFacetedBreps if it's tessellated.
      * @throws NullPointerException If {@link #addBottomOutput(double, double,
      * double, double)} was not called before this
      * method (because all kinds of valves have the
@@ -251,9 +316,13 @@ class ValveBuilder {
         }
         // creating the central sphere
         double sphereRadius = min(possibleSphereRadiuses);
-        IfcAxis2Placement3D spherePosition = new IfcAxis2Placement3D(0, 0, outputs[0].length);
-        IfcRevolvedAreaSolid sphere = EywaToIfcConverter.buildSphere(sphereRadius, spherePosition);
-        valveItems.add(sphere);
+        if (tessellator != null) {
+            valveItems.add(tessellator.revolve(tessellator.sphereProfile(sphereRadius), 2 * PI,
+                    new double[]{0, 0, outputs[0].length}, new double[]{0, 0, 1}, new double[]{1, 0, 0}));
+        } else {
+            IfcAxis2Placement3D spherePosition = new IfcAxis2Placement3D(0, 0, outputs[0].length);
+            valveItems.add(EywaToIfcConverter.buildSphere(sphereRadius, spherePosition));
+        }
         return valveItems;
     }
 
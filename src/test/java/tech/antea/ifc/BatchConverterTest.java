@@ -0,0 +1,145 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BatchConverterTest {
+    private static final String APP_MODELS = "/tech/antea/models/cluster/app";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static Path getAppModels() throws URISyntaxException {
+        return Paths.get(BatchConverterTest.class.getResource(APP_MODELS).toURI());
+    }
+
+    @Test
+    public void findInputs_directory() throws IOException, URISyntaxException {
+        Path models = getAppModels();
+        List<BatchConverter.Input> inputs = BatchConverter.findInputs(models.toString());
+        Assert.assertEquals(12, inputs.size());
+        for (BatchConverter.Input input : inputs) {
+            Assert.assertEquals(input.file, models.resolve(input.relativePath));
+        }
+    }
+
+    @Test
+    public void findInputs_glob() throws IOException, URISyntaxException {
+        String pattern = getAppModels().toString().replace('\\', '/') + "/0512*.eywa";
+        List<BatchConverter.Input> inputs = BatchConverter.findInputs(pattern);
+        Assert.assertEquals(5, inputs.size());
+        for (BatchConverter.Input input : inputs) {
+            Assert.assertTrue(input.relativePath.toString().startsWith("0512"));
+        }
+    }
+
+    @Test
+    public void convert_isolatesFailures() throws IOException, URISyntaxException, InterruptedException {
+        Path inputDirectory = temporaryFolder.newFolder("in").toPath();
+        Path outputDirectory = temporaryFolder.getRoot().toPath().resolve("out");
+        try (Stream<Path> models = Files.list(getAppModels())) {
+            for (Path model : (Iterable<Path>) models::iterator) {
+                Files.copy(model, inputDirectory.resolve(model.getFileName()));
+            }
+        }
+        Files.write(inputDirectory.resolve("broken.eywa"), "{\"object\":".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        BatchConverter batchConverter = new BatchConverter(ConversionOptions.DEFAULT, 1,
+                new PrintStream(err, true, "UTF-8"));
+        BatchConverter.Summary summary = batchConverter.convert(
+                BatchConverter.findInputs(inputDirectory.toString()), outputDirectory);
+
+        Assert.assertEquals(13, summary.files);
+        Assert.assertEquals(1, summary.failures);
+        Assert.assertTrue(err.toString("UTF-8").contains("broken.eywa"));
+        Assert.assertFalse(Files.exists(outputDirectory.resolve("broken.ifc")));
+        try (Stream<Path> models = Files.list(getAppModels())) {
+            for (Path model : (Iterable<Path>) models::iterator) {
+                String name = model.getFileName().toString().replace(".eywa", ".ifc");
+                Assert.assertTrue(Files.size(outputDirectory.resolve(name)) > 0);
+            }
+        }
+    }
+
+    @Test
+    public void convert_duplicateInputs() throws IOException, URISyntaxException, InterruptedException {
+        Path outputDirectory = temporaryFolder.newFolder("out").toPath();
+        List<BatchConverter.Input> inputs = BatchConverter.findInputs(getAppModels().toString());
+        inputs.addAll(BatchConverter.findInputs(getAppModels().toString()));
+        inputs.addAll(BatchConverter.findInputs(inputs.get(0).file.toString()));
+
+        BatchConverter batchConverter = new BatchConverter(ConversionOptions.DEFAULT, 2, System.err);
+        BatchConverter.Summary summary = batchConverter.convert(inputs, outputDirectory);
+
+        Assert.assertEquals(12, summary.files);
+        Assert.assertEquals(0, summary.failures);
+    }
+
+    @Test
+    public void convert_sameOutput() throws IOException, URISyntaxException, InterruptedException {
+        Path model = getAppModels().resolve("051200ALR1A.eywa");
+        Path copy = temporaryFolder.newFolder("copy").toPath().resolve(model.getFileName());
+        Files.copy(model, copy);
+        Path outputDirectory = temporaryFolder.getRoot().toPath().resolve("out");
+        List<BatchConverter.Input> inputs = BatchConverter.findInputs(model.toString());
+        inputs.addAll(BatchConverter.findInputs(copy.toString()));
+
+        BatchConverter batchConverter = new BatchConverter(ConversionOptions.DEFAULT, 1, System.err);
+        try {
+            batchConverter.convert(inputs, outputDirectory);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains(copy.toString()));
+        }
+        Assert.assertFalse(Files.exists(outputDirectory));
+    }
+
+    @Test
+    public void summary_excludesFailuresFromThroughput() {
+        BatchConverter.Summary summary = new BatchConverter.Summary();
+        summary.files = 4;
+        summary.failures = 2;
+        summary.nanos = 2_000_000_000L;
+        String expected = String.format("(%.2f converted files/s)", 1d);
+        Assert.assertTrue(summary.toString(), summary.toString().contains(expected));
+    }
+}
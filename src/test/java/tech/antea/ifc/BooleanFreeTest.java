@@ -0,0 +1,99 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static tech.antea.ifc.Conversions.*;
+
+public class BooleanFreeTest {
+    private static final ConversionOptions BOOLEAN_FREE = ConversionOptions.builder().booleanFree(true).build();
+    private static final String TEE = "{\"type\":\"Tee\",\"imId\":1,\"radius\":30.17,\"length1\":63.5," +
+            "\"length2\":63.5,\"derivationRadius\":10.67,\"derivationLength\":63.5,\"phi\":0,\"thickness\":5.54}";
+    private static final String ENDPLATE = "{\"type\":\"Endplate\",\"imId\":2,\"radius\":84.14,\"neck\":20," +
+            "\"dish\":45,\"thickness\":7.11,\"position\":[1000,0,0]}";
+    private static final String DISH = "{\"type\":\"Dish\",\"imId\":3,\"radius\":4000,\"direction\":[1,0,0]," +
+            "\"distance\":350,\"position\":[10000,0,0]}";
+    /**
+     * Faces of the derivation pipe of a Tee for each segment of its circles:
+     * outer wall, end, inner wall and two triangles at the start.
+     */
+    private static final int FACES_PER_SEGMENT = 5;
+    /**
+     * Segments of the circles of the derivation pipe of a Tee when
+     * tessellation is disabled.
+     */
+    private static final int RADIAL_SEGMENTS = 16;
+    private static final Pattern CLOSED_SHELL = Pattern.compile("=IFCCLOSEDSHELL\\(\\(([^)]*)\\)\\);");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void convert_booleanFree() throws IOException {
+        String actual = convert(model(TEE, ENDPLATE, DISH), BOOLEAN_FREE, temporaryFolder.newFile());
+        Assert.assertEquals(0, count(actual, "IFCBOOLEANRESULT"));
+        Assert.assertEquals(0, count(actual, "IFCBOOLEANCLIPPINGRESULT"));
+    }
+
+    /**
+     * The derivation pipe of a Tee is a single closed shell.
+     */
+    @Test
+    public void convert_teeFaces() throws IOException {
+        String actual = convert(model(TEE), BOOLEAN_FREE, temporaryFolder.newFile());
+        Matcher matcher = CLOSED_SHELL.matcher(actual);
+        Assert.assertTrue(matcher.find());
+        Assert.assertEquals(FACES_PER_SEGMENT * RADIAL_SEGMENTS, matcher.group(1).split(",").length);
+        Assert.assertFalse(matcher.find());
+    }
+
+    /**
+     * Without {@link ConversionOptions#isBooleanFree()}, the output still
+     * uses boolean operations and doesn't depend on the option being set.
+     */
+    @Test
+    public void convert_default() throws IOException {
+        File expectedOutput = temporaryFolder.newFile();
+        String expected = convert(model(TEE, ENDPLATE, DISH), ConversionOptions.DEFAULT, expectedOutput);
+        Assert.assertTrue(count(expected, "IFCBOOLEANRESULT") > 0);
+        Assert.assertTrue(count(expected, "IFCBOOLEANCLIPPINGRESULT") > 0);
+        Assert.assertEquals(0, count(expected, "IFCCLOSEDSHELL"));
+
+        File actualOutput = temporaryFolder.newFile();
+        convert(model(TEE, ENDPLATE, DISH), ConversionOptions.builder().booleanFree(false).build(), actualOutput);
+        Assert.assertEquals(EywaToIfcConverterTest.getDataSection(expectedOutput.getPath()),
+                EywaToIfcConverterTest.getDataSection(actualOutput.getPath()));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static tech.antea.ifc.Conversions.models;
+
+public class BoundingBoxTest {
+    private static final double DELTA = 1e-9;
+    private static final Pattern ROOT = Pattern.compile("^#[0-9]+=IFC[A-Z0-9]+\\('[0-9A-Za-z_$]{22}',");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<String> convert(URL model, ConversionOptions options) throws IOException {
+        return Arrays.asList(Conversions.convert(model, options, temporaryFolder.newFile()).split("\r?\n"));
+    }
+
+    private static long countRoots(List<String> lines) {
+        return lines.stream().filter(line -> ROOT.matcher(line).find()).count();
+    }
+
+    @Test
+    public void add() {
+        BoundingBox box = new BoundingBox();
+        Assert.assertTrue(box.isEmpty());
+        box.add(1, -2, 3).add(-1, 4, 0);
+        Assert.assertFalse(box.isEmpty());
+        Assert.assertEquals(-1, box.getMin(0), DELTA);
+        Assert.assertEquals(-2, box.getMin(1), DELTA);
+        Assert.assertEquals(0, box.getMin(2), DELTA);
+        Assert.assertEquals(1, box.getMax(0), DELTA);
+        Assert.assertEquals(4, box.getMax(1), DELTA);
+        Assert.assertEquals(3, box.getMax(2), DELTA);
+    }
+
+    /**
+     * A point (x, y, z) in the flipped coordinate system is (x, -y, length -
+     * z) in the original one.
+     */
+    @Test
+    public void flip() {
+        BoundingBox box = new BoundingBox().add(-1, 1, 0).add(1, 3, 2).flip(5);
+        Assert.assertEquals(-1, box.getMin(0), DELTA);
+        Assert.assertEquals(1, box.getMax(0), DELTA);
+        Assert.assertEquals(-3, box.getMin(1), DELTA);
+        Assert.assertEquals(-1, box.getMax(1), DELTA);
+        Assert.assertEquals(3, box.getMin(2), DELTA);
+        Assert.assertEquals(5, box.getMax(2), DELTA);
+    }
+
+    /**
+     * Rotating a box by 90 degrees around z and moving it.
+     */
+    @Test
+    public void transform() {
+        double[] matrix = {0, 1, 0, -1, 0, 0, 0, 0, 1, 10, 20, 30};
+        BoundingBox box = new BoundingBox().add(1, 2, 3).add(4, 6, 5).transform(matrix);
+        Assert.assertEquals(4, box.getMin(0), DELTA);
+        Assert.assertEquals(8, box.getMax(0), DELTA);
+        Assert.assertEquals(21, box.getMin(1), DELTA);
+        Assert.assertEquals(24, box.getMax(1), DELTA);
+        Assert.assertEquals(33, box.getMin(2), DELTA);
+        Assert.assertEquals(35, box.getMax(2), DELTA);
+        Assert.assertTrue(new BoundingBox().transform(matrix).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void toIfcBoundingBox_empty() {
+        new BoundingBox().toIfcBoundingBox();
+    }
+
+    /**
+     * Converting with bounding boxes must give the same IfcRoots, with boxes
+     * instead of solids.
+     */
+    @Test
+    public void convert_boundingBoxes() throws IOException {
+        for (URL model : models()) {
+            List<String> expected = convert(model, ConversionOptions.DEFAULT);
+            List<String> actual = convert(model, ConversionOptions.builder().boundingBoxes(true).build());
+
+            Assert.assertEquals(model.toString(), countRoots(expected), countRoots(actual));
+            for (String line : actual) {
+                Assert.assertFalse(model + ": " + line, line.contains("AREASOLID(")
+                        || line.contains("IFCFACETEDBREP(") || line.contains("IFCBOOLEAN"));
+            }
+            Assert.assertTrue(model.toString(), actual.stream().anyMatch(line -> line.contains("IFCBOUNDINGBOX(")));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static tech.antea.ifc.Conversions.models;
+
+/**
+ * Verifies that conversions running at the same time in the same JVM don't
+ * interfere with each other.
+ */
+public class ConcurrentConversionTest {
+    private static final int THREADS = 8;
+    /**
+     * How many times each model is converted concurrently.
+     */
+    private static final int CONVERSIONS_PER_MODEL = 3;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * @param model The .eywa file to convert.
+     * @param output Where to write the result.
+     * @return The DATA section of the result, without non-deterministic
+     * output.
+     */
+    private static String convert(URL model, File output) throws IOException {
+        Conversions.convert(model, ConversionOptions.DEFAULT, output);
+        return EywaToIfcConverterTest.getDataSection(output.getPath());
+    }
+
+    @Test
+    public void convert_concurrently() throws Exception {
+        List<URL> models = models();
+
+        List<String> expected = new ArrayList<>(models.size());
+        for (URL model : models) {
+            expected.add(convert(model, temporaryFolder.newFile()));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < CONVERSIONS_PER_MODEL; i++) {
+                for (URL model : models) {
+                    File output = temporaryFolder.newFile();
+                    results.add(pool.submit(() -> convert(model, output)));
+                }
+            }
+            for (int i = 0; i < results.size(); i++) {
+                Assert.assertEquals(models.get(i % models.size()).toString(),
+                        expected.get(i % models.size()), results.get(i).get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
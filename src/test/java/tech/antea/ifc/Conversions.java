@@ -0,0 +1,166 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.util.Pair;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers shared by the tests that convert models and inspect the content of
+ * the .ifc files written.
+ */
+final class Conversions {
+    private Conversions() {
+    }
+
+    /**
+     * @return The .eywa files in the test resources, see {@link
+     * EywaToIfcConverterTest#data()}.
+     */
+    static List<URL> models() {
+        List<URL> models = new ArrayList<>();
+        for (Pair<URL, URL> pair : EywaToIfcConverterTest.data()) {
+            models.add(pair.getLeft());
+        }
+        return models;
+    }
+
+    /**
+     * Writes the result of {@code builder} to {@code output}.
+     * @param builder A converter whose conversion is done.
+     * @param output The file to write.
+     * @return The content of {@code output}.
+     * @throws IOException If an I/O error occurs while writing or reading
+     * {@code output}.
+     */
+    static String write(EywaToIfcConverter builder, File output) throws IOException {
+        EywaToIfcConverter.writeToFile(builder.getResult(), output);
+        return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts {@code model} with {@link EywaStreamReader} and writes the
+     * result to {@code output}.
+     * @param builder The converter to use.
+     * @param model The content of a .eywa file.
+     * @param output The file to write.
+     * @return The content of {@code output}.
+     * @throws IOException If {@code model} can't be parsed, or if an I/O
+     * error occurs.
+     */
+    static String convert(EywaToIfcConverter builder, InputStream model, File output) throws IOException {
+        new EywaStreamReader(builder).convert(model);
+        return write(builder, output);
+    }
+
+    /**
+     * @param model A .eywa file.
+     * @param options The options to use in the conversion.
+     * @param output The file to write.
+     * @return The content of {@code output}.
+     * @throws IOException If {@code model} can't be parsed, or if an I/O
+     * error occurs.
+     */
+    static String convert(URL model, ConversionOptions options, File output) throws IOException {
+        try (InputStream input = model.openStream()) {
+            return convert(new EywaToIfcConverter(options), input, output);
+        }
+    }
+
+    /**
+     * @param model The content of a .eywa file, e.g. built with {@link
+     * #model(String...)}.
+     * @param options The options to use in the conversion.
+     * @param output The file to write.
+     * @return The content of {@code output}.
+     * @throws IOException If {@code model} can't be parsed, or if an I/O
+     * error occurs.
+     */
+    static String convert(String model, ConversionOptions options, File output) throws IOException {
+        return convert(new EywaToIfcConverter(options),
+                new ByteArrayInputStream(model.getBytes(StandardCharsets.UTF_8)), output);
+    }
+
+    /**
+     * @param content The content of an .ifc file.
+     * @return The content of {@code content} from its DATA section.
+     */
+    static String getDataSection(String content) {
+        return content.substring(content.indexOf("DATA;"));
+    }
+
+    /**
+     * @param content The content of an .ifc file.
+     * @param entity The name of a type of entity, in upper case.
+     * @return How many entities of type {@code entity} are in {@code
+     * content}.
+     */
+    static int count(String content, String entity) {
+        String start = entity + "(";
+        int count = 0;
+        for (int i = content.indexOf(start); i >= 0; i = content.indexOf(start, i + start.length())) {
+            // entities are written as #id=ENTITY(...), types as ENTITY(...)
+            if (i > 0 && content.charAt(i - 1) == '=') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param children The JSON objects of the children of the root.
+     * @return The content of a .eywa file whose root is an Empty with {@code
+     * children}.
+     */
+    static String model(String... children) {
+        return "{\"object\":{\"type\":\"Empty\",\"children\":[" + String.join(",", children) + "]}}";
+    }
+
+    /**
+     * @param imId The imId of the Shell.
+     * @param radius The radius of both ends of the Shell.
+     * @param thickness The thickness of the Shell.
+     * @param z The position of the Shell along the z axis of its parent.
+     * @param description The JSON object of the description of the Shell, or
+     * {@code null}.
+     * @return The JSON object of a Shell 1000 millimeters long along the z
+     * axis.
+     */
+    static String shell(int imId, double radius, double thickness, double z, String description) {
+        return "{\"type\":\"Shell\",\"imId\":" + imId + ",\"radius1\":" + radius + ",\"radius2\":" + radius +
+                ",\"length\":1000,\"thickness\":" + thickness + ",\"position\":[0,0," + z + "]" +
+                (description == null ? "" : ",\"description\":" + description) + "}";
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+
+import static tech.antea.ifc.Conversions.*;
+
+public class DescriptionPropertiesTest {
+    private static final ConversionOptions DESCRIPTION_PROPERTIES = ConversionOptions.builder()
+            .descriptionProperties(true).build();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static String shell(int imId, double thickness) {
+        return Conversions.shell(imId, 100, thickness, imId * 2000,
+                "{\"CATEGORY\":\"TUBI\",\"NSPESS\":" + thickness + "}");
+    }
+
+    /**
+     * Shells with the same description share a property set, equal values
+     * are shared by the property sets.
+     */
+    @Test
+    public void convert_shared() throws IOException {
+        String actual = convert(model(shell(1, 5), shell(2, 5), shell(3, 6)), DESCRIPTION_PROPERTIES,
+                temporaryFolder.newFile());
+        Assert.assertEquals(3, count(actual, "IFCFLOWSEGMENT"));
+        Assert.assertEquals(2, count(actual, "IFCPROPERTYSET"));
+        Assert.assertEquals(2, count(actual, "IFCRELDEFINESBYPROPERTIES"));
+        Assert.assertEquals(3, count(actual, "IFCPROPERTYSINGLEVALUE"));
+        Assert.assertEquals(actual.indexOf("IFCLABEL('TUBI')"), actual.lastIndexOf("IFCLABEL('TUBI')"));
+        Assert.assertFalse(actual.contains("\"CATEGORY\""));
+    }
+
+    /**
+     * No description is written as JSON text, and there's at most a property
+     * set for each IfcProduct.
+     */
+    @Test
+    public void convert_models() throws IOException {
+        for (URL model : models()) {
+            String actual = convert(model, DESCRIPTION_PROPERTIES, temporaryFolder.newFile());
+            Assert.assertFalse(model.toString(), actual.contains("\"CATEGORY\""));
+            Assert.assertEquals(model.toString(), count(actual, "IFCPROPERTYSET"),
+                    count(actual, "IFCRELDEFINESBYPROPERTIES"));
+        }
+    }
+}
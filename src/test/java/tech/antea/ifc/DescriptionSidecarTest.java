@@ -0,0 +1,109 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static tech.antea.ifc.Conversions.*;
+
+public class DescriptionSidecarTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String convert(InputStream model, ByteArrayOutputStream sidecarOutput, ConversionOptions options)
+            throws IOException {
+        EywaToIfcConverter builder = new EywaToIfcConverter(options);
+        try (DescriptionSidecar sidecar = new DescriptionSidecar(sidecarOutput)) {
+            builder.setDescriptionSidecar(sidecar);
+            return Conversions.convert(builder, model, temporaryFolder.newFile());
+        }
+    }
+
+    private static String shell(int imId, double z) {
+        return Conversions.shell(imId, 100, 5, z, "{\"CATEGORY\":\"TUBI\"}");
+    }
+
+    /**
+     * Each Shell has a line with the GlobalId of its IfcProduct, coalesced
+     * Shells share the same GlobalId.
+     */
+    @Test
+    public void convert_lines() throws IOException {
+        String model = model(shell(2, 0), shell(3, 1000), shell(4, 3000));
+        ByteArrayOutputStream sidecarOutput = new ByteArrayOutputStream();
+        String actual = convert(new ByteArrayInputStream(model.getBytes(StandardCharsets.UTF_8)), sidecarOutput,
+                ConversionOptions.builder().coalescingShells(true).build());
+        Assert.assertFalse(actual.contains("\"CATEGORY\""));
+
+        String[] lines = new String(sidecarOutput.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        Assert.assertEquals(3, lines.length);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode[] nodes = new JsonNode[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            nodes[i] = mapper.readTree(lines[i]);
+            Assert.assertEquals(i + 2, nodes[i].get("imId").asInt());
+            Assert.assertEquals("TUBI", nodes[i].get("description").get("CATEGORY").asText());
+            Assert.assertTrue(actual.contains("'" + nodes[i].get("globalId").asText() + "'"));
+        }
+        Assert.assertEquals(nodes[0].get("globalId"), nodes[1].get("globalId"));
+        Assert.assertNotEquals(nodes[0].get("globalId"), nodes[2].get("globalId"));
+    }
+
+    /**
+     * No description is written in the .ifc files, and all the IfcProducts
+     * of Primitives with a description have a line.
+     */
+    @Test
+    public void convert_models() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        for (URL model : models()) {
+            ByteArrayOutputStream sidecarOutput = new ByteArrayOutputStream();
+            String actual;
+            try (InputStream input = model.openStream()) {
+                actual = convert(input, sidecarOutput, ConversionOptions.DEFAULT);
+            }
+            Assert.assertFalse(model.toString(), actual.contains("\"CATEGORY\""));
+            for (String line : new String(sidecarOutput.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    String globalId = mapper.readTree(line).get("globalId").asText();
+                    Assert.assertTrue(model.toString(), actual.contains("'" + globalId + "'"));
+                }
+            }
+        }
+    }
+}
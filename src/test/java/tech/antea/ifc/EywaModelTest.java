@@ -0,0 +1,105 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import it.imc.persistence.po.eytukan.Primitive;
+import it.imc.persistence.po.eytukan.Shell;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static tech.antea.ifc.Conversions.getDataSection;
+import static tech.antea.ifc.Conversions.models;
+
+public class EywaModelTest {
+    private static final ConversionOptions OPTIONS = ConversionOptions.builder().deterministic(true).build();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String write(EywaToIfcConverter builder) throws IOException {
+        return getDataSection(Conversions.write(builder, temporaryFolder.newFile()));
+    }
+
+    private static EywaModel read(String json) throws IOException {
+        return EywaModel.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void getPrimitive() throws IOException {
+        EywaModel model = read("{\"hints\":{\"name\":\"test\"},\"object\":{\"type\":\"Empty\",\"children\":[" +
+                "{\"type\":\"Shell\",\"imId\":12,\"radius1\":10.5,\"radius2\":10.5,\"length\":20," +
+                "\"position\":[0,1,2.5],\"description\":{\"CATEGORY\":\"A\"}}]}}");
+        Assert.assertEquals(2, model.size());
+        Assert.assertEquals(-1, model.getParent(0));
+        Assert.assertEquals(0, model.getParent(1));
+        Assert.assertEquals("test", model.getHeader().getHints().get("name"));
+
+        Primitive root = model.getPrimitive(0, null);
+        Shell shell = (Shell) model.getPrimitive(1, root);
+        Assert.assertSame(root, shell.getParent());
+        Assert.assertEquals(12, shell.getLegacyId());
+        Assert.assertEquals(10.5, shell.getRadius1(), 0);
+        Assert.assertArrayEquals(new Double[]{0d, 1d, 2.5}, shell.getPosition());
+        Assert.assertEquals("A", shell.getDescription().get("CATEGORY"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read_noObject() throws IOException {
+        read("{\"hints\":{}}");
+    }
+
+    /**
+     * Converting an EywaModel gives the same result as converting the file
+     * while parsing it, also when it's converted twice.
+     */
+    @Test
+    public void convert() throws IOException {
+        for (URL url : models()) {
+            EywaToIfcConverter builder = new EywaToIfcConverter(OPTIONS);
+            EywaModel model;
+            try (InputStream input = url.openStream()) {
+                new EywaStreamReader(builder).convert(input);
+            }
+            String expected = write(builder);
+            try (InputStream input = url.openStream()) {
+                model = EywaModel.read(input);
+            }
+            EywaReader director = new EywaReader(builder);
+            director.convert(model);
+            Assert.assertEquals(url.toString(), expected, write(builder));
+            director.convert(model);
+            Assert.assertEquals(url.toString(), expected, write(builder));
+        }
+    }
+}
@@ -31,13 +31,66 @@ import io.github.classgraph.ClassGraph;
 import io.github.classgraph.ScanResult;
 import it.imc.persistence.po.eytukan.*;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static tech.antea.ifc.Conversions.models;
+import static tech.antea.ifc.Conversions.write;
 
 public class EywaReaderTest {
+    /**
+     * Depth of the trees used to test the conversion of deep trees.
+     */
+    private static final int DEEP_TREE_DEPTH = 100_000;
+    private static final String EXPECTED_HISTORY =
+            // for some reason the imId of the first empty is not parsed
+            "added hints;\n" + "added Empty with imId null;\n" +
+                    "added Endplate with imId 1169185472;\n" +
+                    "added TankShell with imId 1169185473;\n" +
+                    "added Shell with imId 1169185474;\n" +
+                    "added Nozzle with imId 1169185475;\n" +
+                    "added Shell with imId 1169185476;\n" +
+                    "added Nozzle with imId 1169185477;\n" +
+                    "added Shell with imId 1169185478;\n" +
+                    "added Nozzle with imId 1169185479;\n" +
+                    "added Shell with imId 1169185480;\n" +
+                    "added Nozzle with imId 1169185481;\n" +
+                    "added Shell with imId 1169185482;\n" +
+                    "added Nozzle with imId 1169185483;\n" +
+                    "added Blind with imId 1169185484;\n" +
+                    "added TankShell with imId 1169185485;\n" +
+                    "added Shell with imId 1169185486;\n" +
+                    "added Nozzle with imId 1169185487;\n" +
+                    "added Shell with imId 1169185488;\n" +
+                    "added Nozzle with imId 1169185489;\n" +
+                    "added Shell with imId 1169185490;\n" +
+                    "added Nozzle with imId 1169185491;\n" +
+                    "added Shell with imId 1169185492;\n" +
+                    "added Nozzle with imId 1169185493;\n" +
+                    "added Shell with imId 1169185494;\n" +
+                    "added Nozzle with imId 1169185495;\n" +
+                    "added Shell with imId 1169185496;\n" +
+                    "added Nozzle with imId 1169185497;\n" +
+                    "added Shell with imId 1169185498;\n" +
+                    "added Nozzle with imId 1169185499;\n" +
+                    "added Endplate with imId 1169185500.";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Tests the conversion of an empty EywaRoot.
      */
@@ -67,44 +120,138 @@ public class EywaReaderTest {
         director.convert(eywaRoot);
         String result = builder.getResult();
 
-        String expectedResult =
-                // for some reason the imId of the first empty is not parsed
-                "added hints;\n" + "added Empty with imId null;\n" +
-                        "added Endplate with imId 1169185472;\n" +
-                        "added TankShell with imId 1169185473;\n" +
-                        "added Shell with imId 1169185474;\n" +
-                        "added Nozzle with imId 1169185475;\n" +
-                        "added Shell with imId 1169185476;\n" +
-                        "added Nozzle with imId 1169185477;\n" +
-                        "added Shell with imId 1169185478;\n" +
-                        "added Nozzle with imId 1169185479;\n" +
-                        "added Shell with imId 1169185480;\n" +
-                        "added Nozzle with imId 1169185481;\n" +
-                        "added Shell with imId 1169185482;\n" +
-                        "added Nozzle with imId 1169185483;\n" +
-                        "added Blind with imId 1169185484;\n" +
-                        "added TankShell with imId 1169185485;\n" +
-                        "added Shell with imId 1169185486;\n" +
-                        "added Nozzle with imId 1169185487;\n" +
-                        "added Shell with imId 1169185488;\n" +
-                        "added Nozzle with imId 1169185489;\n" +
-                        "added Shell with imId 1169185490;\n" +
-                        "added Nozzle with imId 1169185491;\n" +
-                        "added Shell with imId 1169185492;\n" +
-                        "added Nozzle with imId 1169185493;\n" +
-                        "added Shell with imId 1169185494;\n" +
-                        "added Nozzle with imId 1169185495;\n" +
-                        "added Shell with imId 1169185496;\n" +
-                        "added Nozzle with imId 1169185497;\n" +
-                        "added Shell with imId 1169185498;\n" +
-                        "added Nozzle with imId 1169185499;\n" +
-                        "added Endplate with imId 1169185500.";
-
-        Assert.assertEquals(expectedResult, result);
+        Assert.assertEquals(EXPECTED_HISTORY, result);
+    }
+
+    /**
+     * Tests whether Eywa objects are serialized in the correct order when
+     * converted while parsing, using a dummy EywaConverter.
+     */
+    @Test
+    public void convert_streaming() throws IOException {
+        ScanResult r = new ClassGraph()
+                .whitelistPackages(EywaToIfcConverterTest.EYWA_RESOURCES_PACKAGE)
+                .scan();
+        URL file = r.getResourcesWithLeafName("051200TA001.eywa").getURLs().get(0);
+
+        DummyEywaConverter builder = new DummyEywaConverter();
+        EywaStreamReader director = new EywaStreamReader(builder);
+        try (InputStream eywaStream = file.openStream()) {
+            director.convert(eywaStream);
+        }
+        String result = builder.getResult();
+
+        Assert.assertEquals(EXPECTED_HISTORY, result);
+        Assert.assertEquals(builder.objectCount, builder.endedObjects.size());
+    }
+
+    /**
+     * Tests whether Eywa objects are serialized in the correct order when
+     * subtrees are converted in parallel, using a dummy EywaConverter.
+     */
+    @Test
+    public void convert_parallel() throws IOException {
+        ScanResult r = new ClassGraph()
+                .whitelistPackages(EywaToIfcConverterTest.EYWA_RESOURCES_PACKAGE)
+                .scan();
+        URL file = r.getResourcesWithLeafName("051200TA001.eywa").getURLs().get(0);
+        ObjectMapper objectMapper = new ObjectMapper();
+        EywaRoot eywaRoot = objectMapper.readValue(file, EywaRoot.class);
+
+        DummyEywaConverter builder = new DummyEywaConverter();
+        EywaReader director = new EywaReader(builder);
+        // using the smallest threshold, so that every subtree gets split
+        director.convert(eywaRoot, ForkJoinPool.commonPool(), 2);
+        String result = builder.getResult();
+
+        Assert.assertEquals(EXPECTED_HISTORY, result);
     }
 
-    private static class DummyEywaConverter implements EywaConverter {
+    /**
+     * Tests whether converting subtrees in parallel with an
+     * EywaToIfcConverter gives the same IFC file as a sequential conversion.
+     */
+    @Test
+    public void convert_parallelToIfc() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (URL model : models()) {
+            EywaRoot eywaRoot = objectMapper.readValue(model, EywaRoot.class);
+
+            EywaToIfcConverter sequentialBuilder = new EywaToIfcConverter();
+            new EywaReader(sequentialBuilder).convert(eywaRoot);
+            File sequentialOutput = temporaryFolder.newFile();
+            write(sequentialBuilder, sequentialOutput);
+
+            EywaToIfcConverter parallelBuilder = new EywaToIfcConverter();
+            // using the smallest threshold, so that every subtree gets split
+            new EywaReader(parallelBuilder).convert(eywaRoot, ForkJoinPool.commonPool(), 2);
+            File parallelOutput = temporaryFolder.newFile();
+            write(parallelBuilder, parallelOutput);
+
+            Assert.assertEquals(model.toString(),
+                    EywaToIfcConverterTest.getDataSection(sequentialOutput.getPath()),
+                    EywaToIfcConverterTest.getDataSection(parallelOutput.getPath()));
+        }
+    }
+
+    /**
+     * Tests the conversion of a tree too deep to be visited recursively.
+     */
+    @Test
+    public void convert_deepTree() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        EywaRoot eywaRoot = objectMapper.readValue("{\"object\":{\"type\":\"Empty\"}}", EywaRoot.class);
+        Primitive last = eywaRoot.getObject();
+        for (int i = 1; i < DEEP_TREE_DEPTH; i++) {
+            Primitive child = new Empty();
+            last.getChildren().add(child);
+            last = child;
+        }
+
+        DummyEywaConverter builder = new DummyEywaConverter();
+        EywaReader director = new EywaReader(builder);
+        director.convert(eywaRoot);
+
+        Assert.assertEquals(DEEP_TREE_DEPTH, builder.objectCount);
+    }
+
+    /**
+     * Tests the conversion while parsing of a tree too deep to be visited
+     * recursively.
+     */
+    @Test
+    public void convert_streamingDeepTree() throws IOException {
+        StringBuilder json = new StringBuilder("{\"object\":");
+        for (int i = 0; i < DEEP_TREE_DEPTH; i++) {
+            json.append("{\"type\":\"Empty\",\"children\":[");
+        }
+        for (int i = 0; i < DEEP_TREE_DEPTH; i++) {
+            json.append("]}");
+        }
+        json.append("}");
+
+        DummyEywaConverter builder = new DummyEywaConverter();
+        EywaStreamReader director = new EywaStreamReader(builder);
+        director.convert(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(DEEP_TREE_DEPTH, builder.objectCount);
+    }
+
+    private static class DummyEywaConverter implements ForkableEywaConverter {
         private final StringBuilder history = new StringBuilder();
+        private final Set<Primitive> endedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int objectCount;
+
+        @Override
+        public DummyEywaConverter fork(Primitive parent) {
+            return new DummyEywaConverter();
+        }
+
+        @Override
+        public void join(ForkableEywaConverter forked) {
+            history.append(((DummyEywaConverter) forked).history);
+            objectCount += ((DummyEywaConverter) forked).objectCount;
+        }
 
         /**
          * @return The result of the conversion.
@@ -127,7 +274,14 @@ public class EywaReaderTest {
             history.append("added hints;\n");
         }
 
+        @Override
+        public void endObject(Primitive obj) {
+            Assert.assertFalse("parent ended before its child", endedObjects.contains(obj.getParent()));
+            Assert.assertTrue("object ended twice", endedObjects.add(obj));
+        }
+
         private void log(Primitive obj) {
+            objectCount++;
             history.append("added ").append(obj.getClass().getSimpleName())
                     .append(" with imId ").append(obj.getLegacyId())
                     .append(";\n");
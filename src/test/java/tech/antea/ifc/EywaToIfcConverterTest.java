@@ -135,7 +135,7 @@ public class EywaToIfcConverterTest {
      * method is invoked to check read access to the
      * file.
      */
-    private static String getDataSection(@NonNull String filePath) throws IOException {
+    static String getDataSection(@NonNull String filePath) throws IOException {
         List<String> lines = Files.readAllLines(Paths.get(filePath), StandardCharsets.US_ASCII);
         lines = removeNonDeterministicOutput(lines);
         StringBuilder dataSection = new StringBuilder();
@@ -0,0 +1,106 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcFacetedBrep;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FacetedBrepBuilderTest {
+    private static final double[] VERTICES = {
+            0, 0, 0,
+            1, 0, 0,
+            0, 0, 0,
+            1, 0.05, 0,
+            0, 1, 0,
+            -0.0, 0, 0
+    };
+
+    @Test
+    public void weld_equal() {
+        int[] welded = new FacetedBrepBuilder(0).weld(VERTICES);
+
+        // -0.0 and 0.0 are different coordinates
+        Assert.assertArrayEquals(new int[]{0, 1, 0, 3, 4, 5}, welded);
+    }
+
+    @Test
+    public void weld_tolerance() {
+        int[] welded = new FacetedBrepBuilder(0.1).weld(VERTICES);
+
+        Assert.assertArrayEquals(new int[]{0, 1, 0, 1, 4, 0}, welded);
+    }
+
+    @Test
+    public void weld_acrossCells() {
+        double[] vertices = {0.09, 0, 0, 0.11, 0, 0, 0.3, 0, 0};
+
+        int[] welded = new FacetedBrepBuilder(0.1).weld(vertices);
+
+        Assert.assertArrayEquals(new int[]{0, 0, 2}, welded);
+    }
+
+    @Test
+    public void isDegenerate() {
+        Assert.assertFalse(FacetedBrepBuilder.isDegenerate(new int[]{0, 1, 2, 3}, 4));
+        Assert.assertTrue(FacetedBrepBuilder.isDegenerate(new int[]{0, 1, 2, 0}, 4));
+        Assert.assertTrue(FacetedBrepBuilder.isDegenerate(new int[]{0, 1, 1}, 3));
+        Assert.assertTrue(FacetedBrepBuilder.isDegenerate(new int[]{0, 1}, 2));
+        Assert.assertFalse(FacetedBrepBuilder.isDegenerate(new int[]{0, 1, 2, 2}, 3));
+    }
+
+    /**
+     * A tetrahedron with a face repeated, once with the same vertices and
+     * once with a copy of one of them, is built with its 4 faces only.
+     */
+    @Test
+    public void build_duplicateFace() {
+        double[] vertices = {
+                0, 0, 0,
+                1, 0, 0,
+                0, 1, 0,
+                0, 0, 1,
+                0, 0, 0
+        };
+        int[] faces = {
+                3, 0, 2, 1,
+                3, 0, 1, 3,
+                3, 1, 2, 3,
+                3, 0, 3, 2,
+                3, 0, 2, 1,
+                3, 4, 2, 1
+        };
+
+        IfcFacetedBrep brep = new FacetedBrepBuilder(0).build(vertices, faces, false);
+
+        Assert.assertEquals(4, brep.getOuter().getCfsFaces().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_negativeTolerance() {
+        new FacetedBrepBuilder(-1);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static tech.antea.ifc.Conversions.count;
+import static tech.antea.ifc.Conversions.getDataSection;
+import static tech.antea.ifc.Conversions.model;
+import static tech.antea.ifc.Conversions.models;
+import static tech.antea.ifc.Conversions.shell;
+import static tech.antea.ifc.Conversions.write;
+
+public class GlobalIdGeneratorTest {
+    private static final Pattern GLOBAL_ID = Pattern.compile("^#[0-9]+=IFC[A-Z]+\\('([0-9A-Za-z_$]{22})',");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static ConversionOptions deterministic(String fileId) {
+        return ConversionOptions.builder().deterministic(true).fileId(fileId).build();
+    }
+
+    private String convertStreaming(URL model, ConversionOptions options) throws IOException {
+        return getDataSection(Conversions.convert(model, options, temporaryFolder.newFile()));
+    }
+
+    private String convertInParallel(URL model, ConversionOptions options) throws IOException {
+        EywaRoot eywaRoot = new ObjectMapper().readValue(model, EywaRoot.class);
+        EywaToIfcConverter builder = new EywaToIfcConverter(options);
+        new EywaReader(builder).convert(eywaRoot, ForkJoinPool.commonPool(), 2);
+        return getDataSection(write(builder, temporaryFolder.newFile()));
+    }
+
+    @Test
+    public void compress() {
+        Assert.assertEquals("0000000000000000000000", GlobalIdGenerator.compress(new UUID(0, 0)));
+        Assert.assertEquals("3$$$$$$$$$$$$$$$$$$$$$", GlobalIdGenerator.compress(new UUID(-1, -1)));
+        Assert.assertEquals("0000000000000000000001", GlobalIdGenerator.compress(new UUID(0, 1)));
+        Assert.assertEquals("1000000000000000000000", GlobalIdGenerator.compress(new UUID(1L << 62, 0)));
+    }
+
+    /**
+     * Converting a model in different ways must always give the same output,
+     * where all GlobalIds are different.
+     */
+    @Test
+    public void convert_deterministic() throws IOException {
+        for (URL model : models()) {
+            String expected = convertStreaming(model, deterministic("model.eywa"));
+
+            Assert.assertEquals(model.toString(), expected, convertStreaming(model, deterministic("model.eywa")));
+            Assert.assertEquals(model.toString(), expected, convertInParallel(model, deterministic("model.eywa")));
+
+            Set<String> globalIds = new HashSet<>();
+            for (String line : expected.split("\n")) {
+                Matcher matcher = GLOBAL_ID.matcher(line);
+                if (matcher.find()) {
+                    Assert.assertTrue(model + ": " + line, globalIds.add(matcher.group(1)));
+                }
+            }
+            Assert.assertFalse(globalIds.isEmpty());
+        }
+    }
+
+    /**
+     * Primitives with the same imId still get different GlobalIds.
+     */
+    @Test
+    public void convert_duplicatedImIds() throws IOException {
+        String model = model(shell(1, 100, 5, 0, null), shell(1, 100, 5, 5000, null), shell(1, 50, 5, 10000, null));
+        String actual = getDataSection(Conversions.convert(model, deterministic("model.eywa"),
+                temporaryFolder.newFile()));
+        Set<String> globalIds = new HashSet<>();
+        for (String line : actual.split("\n")) {
+            Matcher matcher = GLOBAL_ID.matcher(line);
+            if (matcher.find()) {
+                Assert.assertTrue(line, globalIds.add(matcher.group(1)));
+            }
+        }
+        Assert.assertEquals(3, count(actual, "IFCFLOWSEGMENT"));
+    }
+
+    /**
+     * The same model in different files must get different GlobalIds.
+     */
+    @Test
+    public void convert_differentFiles() throws IOException {
+        URL model = models().get(0);
+        Assert.assertNotEquals(convertStreaming(model, deterministic("a.eywa")),
+                convertStreaming(model, deterministic("b.eywa")));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+
+public class IdentityLinkedSetTest {
+    @Test
+    public void add() {
+        String first = new String("a");
+        String second = new String("a");
+        Set<String> set = new IdentityLinkedSet<>();
+
+        Assert.assertTrue(set.add(second));
+        Assert.assertTrue(set.add(first));
+        Assert.assertFalse(set.add(first));
+
+        Assert.assertEquals(2, set.size());
+        Assert.assertSame(second, set.iterator().next());
+        Assert.assertFalse(set.contains(new String("a")));
+    }
+
+    @Test
+    public void remove() {
+        String first = new String("a");
+        String second = new String("a");
+        Set<String> set = new IdentityLinkedSet<>();
+        set.add(first);
+        set.add(second);
+
+        Assert.assertFalse(set.remove(new String("a")));
+        Assert.assertTrue(set.remove(second));
+
+        Assert.assertEquals(1, set.size());
+        Assert.assertSame(first, set.iterator().next());
+        Assert.assertFalse(set.contains(second));
+    }
+
+    @Test
+    public void equals() {
+        Set<String> set = new IdentityLinkedSet<>();
+        set.addAll(Lists.newArrayList("b", "a"));
+        Set<String> other = new IdentityLinkedSet<>();
+        other.addAll(Lists.newArrayList(new String("a"), new String("b")));
+
+        Assert.assertEquals(Sets.newHashSet("a", "b"), set);
+        Assert.assertEquals(set, Sets.newHashSet("a", "b"));
+        Assert.assertEquals(set, other);
+        Assert.assertEquals(Sets.newHashSet("a", "b").hashCode(), other.hashCode());
+    }
+}
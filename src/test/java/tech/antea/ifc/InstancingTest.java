@@ -0,0 +1,125 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import static tech.antea.ifc.Conversions.*;
+
+public class InstancingTest {
+    private static final ConversionOptions INSTANCING = ConversionOptions.builder().instancing(true).build();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static String dish(int imId, double x) {
+        return "{\"type\":\"Dish\",\"imId\":" + imId + ",\"radius\":4000,\"direction\":[1,0,0]," +
+                "\"distance\":350,\"position\":[" + x + ",0,0]}";
+    }
+
+    private static String valve(int imId, double length, double x) {
+        return "{\"type\":\"Valve\",\"imId\":" + imId + ",\"radius\":30.17,\"length\":" + length +
+                ",\"position\":[" + x + ",0,0]}";
+    }
+
+    /**
+     * Asserts that {@code actual} contains {@code products} IfcProducts of
+     * type {@code productEntity}, all represented by IfcMappedItems, and
+     * {@code maps} IfcRepresentationMaps, each one with its own geometry.
+     * The IfcMappedItems of the same map are equal, so they may be written
+     * only once.
+     */
+    private static void assertInstanced(String actual, String productEntity, int products, int maps) {
+        Assert.assertEquals(products, count(actual, productEntity));
+        Assert.assertEquals(maps, count(actual, "IFCREPRESENTATIONMAP"));
+        int mappedRepresentations = actual.split("'MappedRepresentation'", -1).length - 1;
+        Assert.assertEquals(maps, count(actual, "IFCSHAPEREPRESENTATION") - mappedRepresentations);
+        Assert.assertTrue(count(actual, "IFCMAPPEDITEM") >= maps);
+    }
+
+    /**
+     * Equal Dishes share their geometry, even if their directions are
+     * different arrays.
+     */
+    @Test
+    public void convert_dishes() throws IOException {
+        String actual = convert(model(dish(1, 0), dish(2, 10000)), INSTANCING, temporaryFolder.newFile());
+        assertInstanced(actual, "IFCPROXY", 2, 1);
+    }
+
+    @Test
+    public void convert_shells() throws IOException {
+        String actual = convert(model(shell(1, 100, 10, 0, null), shell(2, 100, 10, 5000, null),
+                shell(3, 100, 10, 10000, null)), INSTANCING, temporaryFolder.newFile());
+        assertInstanced(actual, "IFCFLOWSEGMENT", 3, 1);
+    }
+
+    @Test
+    public void convert_valves() throws IOException {
+        String actual = convert(model(valve(1, 177.38, 0), valve(2, 177.38, 1000), valve(3, 177.38, 2000)),
+                INSTANCING, temporaryFolder.newFile());
+        assertInstanced(actual, "IFCFLOWCONTROLLER", 3, 1);
+    }
+
+    /**
+     * Primitives of the same type with different parameters don't share
+     * their geometry.
+     */
+    @Test
+    public void convert_differentParameters() throws IOException {
+        String actual = convert(model(shell(1, 100, 10, 0, null), shell(2, 200, 10, 5000, null)),
+                INSTANCING, temporaryFolder.newFile());
+        assertInstanced(actual, "IFCFLOWSEGMENT", 2, 2);
+
+        actual = convert(model(valve(1, 177.38, 0), valve(2, 200, 1000)), INSTANCING, temporaryFolder.newFile());
+        assertInstanced(actual, "IFCFLOWCONTROLLER", 2, 2);
+    }
+
+    /**
+     * Forked converters share their representation maps and representation
+     * context, so the same maps are created as in a sequential conversion.
+     */
+    @Test
+    public void convert_parallel() throws IOException {
+        String model = model(shell(1, 100, 10, 0, null), shell(2, 100, 10, 5000, null),
+                shell(3, 100, 10, 10000, null), shell(4, 200, 10, 15000, null), shell(5, 100, 10, 20000, null),
+                shell(6, 200, 10, 25000, null));
+        EywaToIfcConverter builder = new EywaToIfcConverter(INSTANCING);
+        new EywaReader(builder).convert(new ObjectMapper().readValue(model, EywaRoot.class),
+                ForkJoinPool.commonPool(), 2);
+        String actual = write(builder, temporaryFolder.newFile());
+        assertInstanced(actual, "IFCFLOWSEGMENT", 6, 2);
+        Assert.assertEquals(1, count(actual, "IFCGEOMETRICREPRESENTATIONCONTEXT"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcProject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static tech.antea.ifc.Conversions.count;
+import static tech.antea.ifc.Conversions.getDataSection;
+import static tech.antea.ifc.Conversions.model;
+import static tech.antea.ifc.Conversions.models;
+
+public class PartitionedConverterTest {
+    private static final ConversionOptions DETERMINISTIC = ConversionOptions.builder().deterministic(true)
+            .fileId("model.eywa").build();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * @param z The position of the Shell along the z axis of its parent.
+     * @param category The category in the description of the Shell.
+     * @return The JSON object of a Shell without imId.
+     */
+    private static String shell(double z, String category) {
+        return "{\"type\":\"Shell\",\"radius1\":100,\"radius2\":100,\"length\":1000,\"thickness\":5," +
+                "\"position\":[0,0," + z + "],\"description\":{\"CATEGORY\":\"" + category + "\"}}";
+    }
+
+    /**
+     * @param projects The projects of the partitions.
+     * @return The DATA section of the file of each partition.
+     * @throws IOException If an I/O error occurs while writing the files.
+     * @throws InterruptedException If the current thread is interrupted while
+     * waiting for the files to be written.
+     */
+    private List<String> write(Map<String, IfcProject> projects) throws IOException, InterruptedException {
+        List<String> contents = new ArrayList<>();
+        for (File file : PartitionedConverter.writeToFiles(projects, new File(temporaryFolder.newFolder(), "model.ifc"),
+                2)) {
+            contents.add(getDataSection(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)));
+        }
+        return contents;
+    }
+
+    /**
+     * Each file has its own project, and all together they contain the same
+     * representations as the file converted without partitions.
+     */
+    @Test
+    public void convert_byTopLevelChild() throws IOException, InterruptedException {
+        for (URL model : models()) {
+            File output = new File(temporaryFolder.newFolder(), "model.ifc");
+            int expected = count(Conversions.convert(model, ConversionOptions.DEFAULT, output),
+                    "IFCSHAPEREPRESENTATION");
+
+            PartitionedConverter partitionedBuilder = new PartitionedConverter(ConversionOptions.builder().build(),
+                    PartitionedConverter.byTopLevelChild());
+            try (InputStream input = model.openStream()) {
+                new EywaStreamReader(partitionedBuilder).convert(input);
+            }
+            Map<String, IfcProject> projects = partitionedBuilder.getResult();
+            List<File> files = PartitionedConverter.writeToFiles(projects, output, 2);
+            Assert.assertEquals(model.toString(), projects.size(), files.size());
+            int actual = 0;
+            for (File file : files) {
+                Assert.assertTrue(file.getName(), file.getName().startsWith("model-"));
+                String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                Assert.assertEquals(file.getName(), 1, count(content, "IFCPROJECT"));
+                Assert.assertEquals(file.getName(), 1, count(content, "IFCSITE"));
+                actual += count(content, "IFCSHAPEREPRESENTATION");
+            }
+            Assert.assertEquals(model.toString(), expected, actual);
+        }
+    }
+
+    /**
+     * The GlobalIds of Primitives without imId depend on their index among
+     * all their siblings, not only the ones in the same partition, however
+     * the model is read.
+     */
+    @Test
+    public void convert_deterministic() throws IOException, InterruptedException {
+        String model = model(shell(0, "A"), shell(1000, "B"), shell(2000, "A"), shell(3000, "B"));
+
+        PartitionedConverter partitionedBuilder = new PartitionedConverter(DETERMINISTIC,
+                PartitionedConverter.byCategory());
+        new EywaStreamReader(partitionedBuilder).convert(
+                new ByteArrayInputStream(model.getBytes(StandardCharsets.UTF_8)));
+        List<String> expected = write(partitionedBuilder.getResult());
+
+        new EywaReader(partitionedBuilder).convert(new ObjectMapper().readValue(model, EywaRoot.class));
+        Assert.assertEquals(expected, write(partitionedBuilder.getResult()));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import buildingsmart.ifc.IfcAxis2Placement2D;
+import buildingsmart.ifc.IfcCircleProfileDef;
+import buildingsmart.ifc.IfcPositiveLengthMeasure;
+import buildingsmart.ifc.IfcProfileTypeEnum;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProfileRegistryTest {
+    private static IfcCircleProfileDef circle(double radius) {
+        return new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null, new IfcAxis2Placement2D(0, 0),
+                new IfcPositiveLengthMeasure(radius));
+    }
+
+    @Test
+    public void get() {
+        ProfileRegistry profiles = new ProfileRegistry();
+        IfcCircleProfileDef first = profiles.get(() -> circle(10), IfcCircleProfileDef.class, 10d);
+        Assert.assertSame(first, profiles.get(() -> circle(10), IfcCircleProfileDef.class, 10d));
+        Assert.assertNotSame(first, profiles.get(() -> circle(20), IfcCircleProfileDef.class, 20d));
+
+        ProfileStatistics statistics = profiles.getStatistics();
+        Assert.assertEquals(3, statistics.getRequests());
+        Assert.assertEquals(2, statistics.getCreated());
+        Assert.assertEquals(1 / 3d, statistics.getHitRate(), 1e-9);
+
+        profiles.clear();
+        Assert.assertNotSame(first, profiles.get(() -> circle(10), IfcCircleProfileDef.class, 10d));
+        Assert.assertEquals(3, profiles.getStatistics().getCreated());
+    }
+
+    @Test
+    public void addStatistics() {
+        ProfileRegistry profiles = new ProfileRegistry();
+        ProfileRegistry forked = new ProfileRegistry();
+        forked.get(() -> circle(10), IfcCircleProfileDef.class, 10d);
+        forked.get(() -> circle(10), IfcCircleProfileDef.class, 10d);
+        profiles.addStatistics(forked);
+        Assert.assertEquals(new ProfileStatistics(2, 1), profiles.getStatistics());
+    }
+
+    /**
+     * A forked registry shares the profiles, but not the statistics.
+     */
+    @Test
+    public void get_forked() {
+        ProfileRegistry profiles = new ProfileRegistry();
+        ProfileRegistry forked = new ProfileRegistry(profiles);
+        IfcCircleProfileDef first = profiles.get(() -> circle(10), IfcCircleProfileDef.class, 10d);
+        Assert.assertSame(first, forked.get(() -> circle(10), IfcCircleProfileDef.class, 10d));
+        Assert.assertEquals(new ProfileStatistics(1, 1), profiles.getStatistics());
+        Assert.assertEquals(new ProfileStatistics(1, 0), forked.getStatistics());
+    }
+
+    @Test
+    public void getHitRate_noRequests() {
+        Assert.assertEquals(0, new ProfileStatistics(0, 0).getHitRate(), 0);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+
+import static tech.antea.ifc.Conversions.getDataSection;
+import static tech.antea.ifc.Conversions.models;
+
+public class RegionTest {
+    private static final double DELTA = 1e-9;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String convert(URL model, ConversionOptions options) throws IOException {
+        return Conversions.convert(model, options, temporaryFolder.newFile());
+    }
+
+    @Test
+    public void parse() {
+        Region region = Region.parse("10, -2,3,-1,4.5,0");
+        Assert.assertEquals(-1, region.getMinX(), DELTA);
+        Assert.assertEquals(-2, region.getMinY(), DELTA);
+        Assert.assertEquals(0, region.getMinZ(), DELTA);
+        Assert.assertEquals(10, region.getMaxX(), DELTA);
+        Assert.assertEquals(4.5, region.getMaxY(), DELTA);
+        Assert.assertEquals(3, region.getMaxZ(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_missingCoordinate() {
+        Region.parse("0,0,0,1,1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_notANumber() {
+        Region.parse("0,0,0,1,1,a");
+    }
+
+    @Test
+    public void intersects() {
+        Region region = Region.of(0, 0, 0, 10, 10, 10);
+        Assert.assertTrue(region.intersects(new BoundingBox().add(5, 5, 5).add(20, 20, 20)));
+        Assert.assertTrue(region.intersects(new BoundingBox().add(10, 10, 10).add(20, 20, 20)));
+        Assert.assertFalse(region.intersects(new BoundingBox().add(5, 5, 11).add(20, 20, 20)));
+        Assert.assertFalse(region.intersects(new BoundingBox()));
+    }
+
+    /**
+     * A region containing the whole model gives the same Primitives as no
+     * region, a region far from it gives none.
+     */
+    @Test
+    public void convert_region() throws IOException {
+        Region everything = Region.of(-1e9, -1e9, -1e9, 1e9, 1e9, 1e9);
+        Region nothing = Region.of(1e9, 1e9, 1e9, 2e9, 2e9, 2e9);
+        ConversionOptions options = ConversionOptions.builder().deterministic(true).build();
+        for (URL model : models()) {
+            String expected = convert(model, options);
+            String actual = convert(model, options.toBuilder().region(everything).build());
+            Assert.assertEquals(model.toString(), getDataSection(expected), getDataSection(actual));
+
+            String empty = convert(model, options.toBuilder().region(nothing).build());
+            Assert.assertFalse(model.toString(), empty.contains("IFCSHAPEREPRESENTATION("));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.imc.persistence.po.eytukan.EywaRoot;
+import it.imc.persistence.po.eytukan.Primitive;
+import it.imc.persistence.po.eytukan.Shell;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ForkJoinPool;
+
+import static tech.antea.ifc.Conversions.*;
+
+public class ShellRunTest {
+    private static final ConversionOptions COALESCING = ConversionOptions.builder().coalescingShells(true).build();
+
+    private static final ConversionOptions DETERMINISTIC = ConversionOptions.builder().coalescingShells(true)
+            .descriptionProperties(true).deterministic(true).fileId("model.eywa").build();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String convertInParallel(EywaRoot eywaRoot) throws IOException {
+        EywaToIfcConverter builder = new EywaToIfcConverter(DETERMINISTIC);
+        new EywaReader(builder).convert(eywaRoot, ForkJoinPool.commonPool(), 2);
+        return getDataSection(write(builder, temporaryFolder.newFile()));
+    }
+
+    private static Shell parseShell(String json) throws IOException {
+        return (Shell) new ObjectMapper().readValue(json, Primitive.class);
+    }
+
+    /**
+     * Radii are compared by value, not by identity.
+     */
+    @Test
+    public void isCylindrical() throws IOException {
+        Assert.assertTrue(ShellRun.isCylindrical(parseShell("{\"type\":\"Shell\",\"radius1\":1000.5," +
+                "\"radius2\":1000.5,\"length\":10}")));
+        Assert.assertFalse(ShellRun.isCylindrical(parseShell("{\"type\":\"Shell\",\"radius1\":1000.5," +
+                "\"radius2\":500,\"length\":10}")));
+        Assert.assertFalse(ShellRun.isCylindrical(parseShell("{\"type\":\"Shell\",\"length\":10}")));
+    }
+
+    /**
+     * 3 aligned Shells are written as one, the following one with a different
+     * radius isn't added to them.
+     */
+    @Test
+    public void convert_run() throws IOException {
+        String model = model(shell(1, 100, 5, 0, null), shell(2, 100, 5, 1000, null), shell(3, 100, 5, 2000, null),
+                shell(4, 50, 5, 3000, null));
+        String actual = convert(model, COALESCING, temporaryFolder.newFile());
+        Assert.assertEquals(2, count(actual, "IFCFLOWSEGMENT"));
+        Assert.assertEquals(1, count(actual, "IFCPROPERTYSET"));
+        Assert.assertEquals(1, count(actual, "IFCRELDEFINESBYPROPERTIES"));
+        Assert.assertTrue(actual.contains("IFCIDENTIFIER('1'),IFCIDENTIFIER('2'),IFCIDENTIFIER('3')"));
+        Assert.assertFalse(actual.contains("IFCIDENTIFIER('4')"));
+    }
+
+    /**
+     * Shells with a gap between them aren't coalesced.
+     */
+    @Test
+    public void convert_gap() throws IOException {
+        String model = model(shell(1, 100, 5, 0, null), shell(2, 100, 5, 1001, null));
+        String actual = convert(model, COALESCING, temporaryFolder.newFile());
+        Assert.assertEquals(2, count(actual, "IFCFLOWSEGMENT"));
+        Assert.assertEquals(0, count(actual, "IFCPROPERTYSET"));
+    }
+
+    /**
+     * Coalescing never adds IfcFlowSegments, and each property set replaces
+     * at least one of them.
+     */
+    @Test
+    public void convert_models() throws IOException {
+        for (URL model : models()) {
+            String expected = convert(model, ConversionOptions.DEFAULT, temporaryFolder.newFile());
+            String actual = convert(model, COALESCING, temporaryFolder.newFile());
+            int removed = count(expected, "IFCFLOWSEGMENT") - count(actual, "IFCFLOWSEGMENT");
+            Assert.assertTrue(model.toString(), removed >= count(actual, "IFCPROPERTYSET"));
+        }
+    }
+
+    /**
+     * Runs are coalesced across the subtrees converted by different threads
+     * as if the model were converted by a single one.
+     */
+    @Test
+    public void convert_parallel() throws IOException {
+        String run = model(shell(1, 100, 5, 0, "{\"a\":1}"), shell(2, 100, 5, 1000, "{\"a\":1}"),
+                shell(3, 100, 5, 2000, "{\"a\":1}"), shell(4, 100, 5, 3000, "{\"a\":1}"),
+                shell(5, 100, 5, 4000, "{\"a\":1}"), shell(6, 50, 5, 5000, "{\"b\":2}"),
+                shell(7, 100, 5, 6000, "{\"a\":1}"), shell(8, 100, 5, 7000, "{\"a\":1}"),
+                shell(9, 100, 5, 9000, null), shell(10, 100, 5, 10000, null));
+        String expected = getDataSection(convert(run, DETERMINISTIC, temporaryFolder.newFile()));
+        Assert.assertEquals(4, count(expected, "IFCFLOWSEGMENT"));
+        Assert.assertEquals(expected, convertInParallel(new ObjectMapper().readValue(run, EywaRoot.class)));
+
+        for (URL model : models()) {
+            expected = getDataSection(convert(model, DETERMINISTIC, temporaryFolder.newFile()));
+            Assert.assertEquals(model.toString(), expected,
+                    convertInParallel(new ObjectMapper().readValue(model, EywaRoot.class)));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of Antea IFC Export.
+ *
+ * Author: Giovanni Velludo
+ * --
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without
+ * limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT
+ * LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO
+ * EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package tech.antea.ifc;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TessellatorTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void segments() {
+        Tessellator tessellator = new Tessellator(0.5);
+
+        Assert.assertEquals(Tessellator.MIN_SEGMENTS, tessellator.segments(0.5));
+        Assert.assertEquals(Tessellator.MIN_SEGMENTS, tessellator.segments(1));
+        // acos(1 - 0.005) is about PI / 31.4
+        Assert.assertEquals(32, tessellator.segments(100));
+        Assert.assertEquals(Tessellator.MAX_SEGMENTS, tessellator.segments(1e6));
+        Assert.assertEquals(0, tessellator.segments(60) % 4);
+    }
+
+    @Test
+    public void unitCircle_shared() {
+        Tessellator.UnitCircle circle = Tessellator.unitCircle(16);
+
+        Assert.assertSame(circle, Tessellator.unitCircle(16));
+        Assert.assertEquals(16, circle.size());
+        Assert.assertEquals(Math.cos(3 * (2 * Math.PI / 16)), circle.cos(3), 0);
+        Assert.assertEquals(Math.sin(3 * (2 * Math.PI / 16)), circle.sin(3), 0);
+    }
+
+    @Test
+    public void sphereProfile() {
+        double[] profile = new Tessellator(0.5).sphereProfile(10);
+
+        // from the bottom pole to the top pole, both on the axis
+        Assert.assertEquals(0, profile[0], 0);
+        Assert.assertEquals(-10, profile[1], DELTA);
+        Assert.assertEquals(0, profile[profile.length - 2], 0);
+        Assert.assertEquals(10, profile[profile.length - 1], DELTA);
+        for (int i = 0; i < profile.length; i += 2) {
+            Assert.assertEquals(10, Math.hypot(profile[i], profile[i + 1]), DELTA);
+        }
+    }
+
+    @Test
+    public void dishProfile() {
+        double[] profile = new Tessellator(0.5).dishProfile(10, 6);
+
+        // the cut ends at the circle and then goes back to the axis
+        Assert.assertEquals(8, profile[profile.length - 4], DELTA);
+        Assert.assertEquals(6, profile[profile.length - 3], DELTA);
+        Assert.assertEquals(0, profile[profile.length - 2], 0);
+        Assert.assertEquals(6, profile[profile.length - 1], DELTA);
+        for (int i = 1; i < profile.length; i += 2) {
+            Assert.assertTrue(profile[i] <= 6);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dishProfile_empty() {
+        new Tessellator(0.5).dishProfile(10, -10);
+    }
+
+    @Test
+    public void addQuarterEllipse() {
+        List<Double> profile = Lists.newArrayList();
+
+        new Tessellator(0.5).addQuarterEllipse(profile, 5, 20, 10, true);
+
+        Assert.assertEquals(0, profile.get(0), 0);
+        Assert.assertEquals(15, profile.get(1), DELTA);
+        Assert.assertEquals(20, profile.get(profile.size() - 2), DELTA);
+        Assert.assertEquals(5, profile.get(profile.size() - 1), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_zeroTolerance() {
+        new Tessellator(0);
+    }
+}